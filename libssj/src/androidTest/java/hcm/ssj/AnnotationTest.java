@@ -69,4 +69,27 @@ public class AnnotationTest {
         return;
 
     }
+
+    @Test
+    public void testConvertToFrames() throws Exception {
+        Annotation anno = new Annotation();
+        anno.setClasses(new String[]{"a", "b"});
+        anno.addEntry("a", 0.0, 1.2);
+        anno.addEntry("b", 1.2, 2.3);
+        anno.addEntry("a", 3.0, 4.0);
+
+        anno.convertToFrames(1.0, "none", 0, 0.5);
+
+        String[] expected = {"a", "b", "none", "a"};
+        if (anno.getEntries().size() != expected.length) {
+            throw new RuntimeException("unexpected number of frames: " + anno.getEntries().size());
+        }
+
+        for (int i = 0; i < expected.length; i++) {
+            Annotation.Entry entry = anno.getEntries().get(i);
+            if (!expected[i].equals(entry.classlabel) || entry.from != i) {
+                throw new RuntimeException("unexpected frame " + i + ": " + entry.classlabel + " @ " + entry.from);
+            }
+        }
+    }
 }
@@ -37,19 +37,43 @@ import org.junit.runner.RunWith;
 
 import java.io.File;
 
+import be.tarsos.dsp.pitch.AMDF;
+import be.tarsos.dsp.pitch.FastYin;
+import be.tarsos.dsp.pitch.McLeodPitchMethod;
+import be.tarsos.dsp.pitch.PitchDetector;
+import be.tarsos.dsp.pitch.Yin;
+
 import hcm.ssj.audio.AudioChannel;
+import hcm.ssj.audio.AudioFeatures;
+import hcm.ssj.audio.AudioFile;
+import hcm.ssj.audio.AudioFileChannel;
+import hcm.ssj.audio.AudioFileReader;
+import hcm.ssj.audio.AudioUtil;
 import hcm.ssj.audio.AudioWriter;
+import hcm.ssj.audio.Energy;
 import hcm.ssj.audio.Intensity;
 import hcm.ssj.audio.Microphone;
 import hcm.ssj.audio.Pitch;
+import hcm.ssj.audio.PitchTracker;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Consumer;
 import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.core.Provider;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Transformer;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
 import hcm.ssj.event.ThresholdEventSender;
+import hcm.ssj.file.AsciiStreamParser;
+import hcm.ssj.file.FileCons;
 import hcm.ssj.signal.Avg;
 import hcm.ssj.test.EventLogger;
 
 import static androidx.test.InstrumentationRegistry.getContext;
+import static androidx.test.InstrumentationRegistry.getInstrumentation;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -160,4 +184,430 @@ public class AudioTest {
 
         frame.stop();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPitchBenchmark() throws Exception {
+        Stream audio = Stream.create(80000, 1, 16000, Cons.Type.FLOAT);
+        int samples = new AsciiStreamParser(getInstrumentation().getContext().getAssets().open("audio.streamdata"), FileCons.DELIMITER_DIMENSION).read(audio);
+
+        // 50 ms windows every 10 ms, periods up to 52 Hz
+        int size = 800;
+        int hop = 160;
+        int maxLag = 309;
+        int frames = (samples - size) / hop;
+
+        String[] names = {"YIN", "FFT YIN", "MPM", "AMDF", "streaming YIN", "streaming MPM"};
+        float[][] pitch = new float[names.length][frames];
+        float[] buffer = new float[size];
+
+        for (int d = 0; d < names.length; d++) {
+            PitchDetector detector;
+            switch (d) {
+                case 0:
+                    detector = new Yin(16000, size);
+                    break;
+                case 1:
+                    detector = new FastYin(16000, size);
+                    break;
+                case 2:
+                    detector = new McLeodPitchMethod(16000, size);
+                    break;
+                case 3:
+                    detector = new AMDF(16000, size);
+                    break;
+                default:
+                    PitchTracker tracker = new PitchTracker(d == 4 ? PitchTracker.Method.YIN : PitchTracker.Method.MPM, 16000, size, maxLag);
+                    tracker.setHop(hop);
+                    detector = tracker;
+                    break;
+            }
+
+            long start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                System.arraycopy(audio.ptrF(), f * hop, buffer, 0, size);
+                pitch[d][f] = detector.getPitch(buffer).getPitch();
+            }
+            long duration = System.nanoTime() - start;
+
+            Log.i(names[d] + ": " + (duration / frames / 1000) + " us per frame");
+        }
+
+        // The streaming YIN should find the same pitch as the reference implementation for most voiced frames
+        int voiced = 0;
+        int agree = 0;
+        for (int f = 0; f < frames; f++) {
+            if (pitch[0][f] > 52 && pitch[0][f] < 620) {
+                voiced++;
+                if (Math.abs(pitch[4][f] - pitch[0][f]) < 0.05 * pitch[0][f]) {
+                    agree++;
+                }
+            }
+        }
+
+        Log.i("streaming YIN agrees with YIN in " + agree + " of " + voiced + " voiced frames");
+
+        if (agree < 0.9 * voiced) {
+            throw new RuntimeException("streaming YIN deviates from YIN");
+        }
+    }
+
+    @Test
+    public void testAudioFeatures() throws Exception {
+        Stream audio = Stream.create(80000, 1, 16000, Cons.Type.FLOAT);
+        int samples = new AsciiStreamParser(getInstrumentation().getContext().getAssets().open("audio.streamdata"), FileCons.DELIMITER_DIMENSION).read(audio);
+
+        // 40 ms windows every 10 ms
+        Stream frame = Stream.create(640, 1, 16000, Cons.Type.FLOAT);
+        frame.desc = new String[]{"Audio"};
+        int frames = (samples - frame.num) / 160;
+
+        AudioFeatures features = new AudioFeatures();
+        features.options.computeRMS.set(true);
+        features.options.minPitch.set(80.0f);
+        features.options.computeFilterbank.set(true);
+
+        Energy energy = new Energy();
+        energy.options.computeRMS.set(true);
+
+        Pitch pitch = new Pitch();
+        pitch.options.minPitch.set(80.0f);
+
+        Transformer[] transformers = {features, energy, pitch};
+        Stream[] out = new Stream[transformers.length];
+        long[] duration = new long[transformers.length];
+
+        for (int t = 0; t < transformers.length; t++) {
+            transformers[t].init(0.01, 0.03);
+            out[t] = Stream.create(1, transformers[t].getSampleDimension(new Stream[]{frame}), 100, Cons.Type.FLOAT);
+            transformers[t].enter(new Stream[]{frame}, out[t]);
+        }
+
+        int voiced = 0;
+        int agree = 0;
+
+        for (int f = 0; f < frames; f++) {
+            System.arraycopy(audio.ptrF(), f * 160, frame.ptrF(), 0, frame.num);
+
+            for (int t = 0; t < transformers.length; t++) {
+                long start = System.nanoTime();
+                transformers[t].transform(new Stream[]{frame}, out[t]);
+                duration[t] += System.nanoTime() - start;
+            }
+
+            // RMS and SPL are computed exactly like in Energy
+            if (Math.abs(out[0].ptrF()[0] - out[1].ptrF()[0]) > 1e-6 || Math.abs(out[0].ptrF()[1] - out[1].ptrF()[1]) > 1e-3) {
+                throw new RuntimeException("energy of frame " + f + " differs");
+            }
+
+            float reference = out[2].ptrF()[0];
+            if (reference > 0 && out[0].ptrF()[3] > 0) {
+                voiced++;
+                if (Math.abs(out[0].ptrF()[3] - reference) < 0.05 * reference) {
+                    agree++;
+                }
+            }
+        }
+
+        Log.i("AudioFeatures: " + (duration[0] / frames / 1000) + " us, Energy + Pitch: " + ((duration[1] + duration[2]) / frames / 1000) + " us per frame");
+        Log.i("pitch agrees with YIN in " + agree + " of " + voiced + " frames voiced in both");
+
+        if (agree < 0.9 * voiced) {
+            throw new RuntimeException("pitch deviates from YIN");
+        }
+    }
+
+    @Test
+    public void testIntensity() throws Exception {
+        final double sr = 16000;
+        final double frameDuration = 0.1;
+        final double deltaDuration = 0.1;
+        final double minPitch = 50;
+
+        for (int dim = 1; dim <= 2; dim++) {
+            for (float offset : new float[]{0, 1000}) {
+                for (boolean subtractMean : new boolean[]{true, false}) {
+                    Stream in = Stream.create((int) ((frameDuration + deltaDuration) * sr), dim, sr, Cons.Type.FLOAT);
+                    in.desc = new String[]{"Audio"};
+                    in.time = 2.0;
+
+                    float[] data = in.ptrF();
+                    for (int i = 0; i < in.num; i++) {
+                        for (int c = 0; c < dim; c++) {
+                            data[i * dim + c] = (float) (0.2 * Math.sin(2 * Math.PI * 220 * i / sr + c) + 0.05 * Math.sin(2 * Math.PI * 1234 * i / sr)) + offset;
+                        }
+                    }
+
+                    Intensity intensity = new Intensity();
+                    intensity.options.minPitch.set(minPitch);
+                    intensity.options.subtractMeanPressure.set(subtractMean);
+                    intensity.init(frameDuration, deltaDuration);
+
+                    Stream out = Stream.create(intensity.getSampleNumber(in.num), 1, sr / in.num, Cons.Type.FLOAT);
+                    intensity.enter(new Stream[]{in}, out);
+                    intensity.transform(new Stream[]{in}, out);
+
+                    double[] expected = referenceIntensity(in, minPitch, frameDuration, subtractMean);
+
+                    if (out.num != expected.length) {
+                        throw new RuntimeException("wrong number of intensity frames: " + out.num);
+                    }
+
+                    for (int i = 0; i < expected.length; i++) {
+                        if (Math.abs(out.ptrF()[i] - expected[i]) > 1e-3) {
+                            throw new RuntimeException("intensity of frame " + i + " differs (dim " + dim + ", offset " + offset
+                                                       + ", subtract mean " + subtractMean + "): " + out.ptrF()[i] + " != " + expected[i]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAudioFeaturesIntensity() throws Exception {
+        final double sr = 16000;
+        final double frameDuration = 0.1;
+
+        for (float offset : new float[]{0, 1000}) {
+            Stream in = Stream.create((int) (frameDuration * sr), 1, sr, Cons.Type.FLOAT);
+            in.desc = new String[]{"Audio"};
+
+            float[] data = in.ptrF();
+            for (int i = 0; i < in.num; i++) {
+                data[i] = (float) (0.2 * Math.sin(2 * Math.PI * 1000 * i / sr)) + offset;
+            }
+
+            AudioFeatures features = new AudioFeatures();
+            features.options.computeSPL.set(false);
+            features.options.computePitch.set(false);
+            features.init(frameDuration, 0);
+            Stream featuresOut = Stream.create(1, features.getSampleDimension(new Stream[]{in}), 1 / frameDuration, Cons.Type.FLOAT);
+            features.enter(new Stream[]{in}, featuresOut);
+            features.transform(new Stream[]{in}, featuresOut);
+
+            Intensity intensity = new Intensity();
+            intensity.options.minPitch.set(100.);
+            intensity.options.mean.set(true);
+            intensity.init(frameDuration, 0);
+            Stream intensityOut = Stream.create(1, 1, 1 / frameDuration, Cons.Type.FLOAT);
+            intensity.enter(new Stream[]{in}, intensityOut);
+            intensity.transform(new Stream[]{in}, intensityOut);
+
+            // Both remove the mean pressure, the windows differ but give the same power for a stationary tone
+            if (Math.abs(featuresOut.ptrF()[0] - intensityOut.ptrF()[0]) > 0.1) {
+                throw new RuntimeException("intensity differs for offset " + offset + ": " + featuresOut.ptrF()[0] + " != " + intensityOut.ptrF()[0]);
+            }
+        }
+    }
+
+    /**
+     * Direct computation of the intensity as in PRAAT, which copies, centers and sums every window separately
+     */
+    private static double[] referenceIntensity(Stream in, double minPitch, double frameDuration, boolean subtractMean) {
+        double windowDuration = Intensity.computeWindowDuration(minPitch);
+        int numberOfFrames = Intensity.computeNumberOfFrames(in.num / in.sr, windowDuration, 0.8 / minPitch);
+        double outStep = frameDuration / numberOfFrames;
+
+        double halfWindowDuration = 0.5 * windowDuration;
+        int halfWindowSamples = (int) (halfWindowDuration / in.step);
+        double[] window = new double[2 * halfWindowSamples + 1];
+        double[] amplitude = new double[window.length];
+
+        for (int i = -halfWindowSamples; i <= halfWindowSamples; i++) {
+            double x = i * in.step / halfWindowDuration;
+            double root = 1 - x * x;
+            window[i + halfWindowSamples] = root <= 0.0 ? 0.0 : AudioUtil.bessel_i0_f((2 * Math.PI * Math.PI + 0.5) * Math.sqrt(root));
+        }
+
+        float[] data = in.ptrF();
+        double[] result = new double[numberOfFrames];
+
+        for (int iframe = 0; iframe < numberOfFrames; iframe++) {
+            int midSample = (int) (Math.round(iframe * outStep / in.step + 1.0));
+            int leftSample = Math.max(0, midSample - halfWindowSamples);
+            int rightSample = Math.min(in.num - 1, midSample + halfWindowSamples);
+            double sumxw = 0.0, sumw = 0.0;
+
+            for (int channel = 0; channel < in.dim; channel++) {
+                for (int i = leftSample; i <= rightSample; i++) {
+                    amplitude[i - midSample + halfWindowSamples] = data[i * in.dim + channel];
+                }
+                if (subtractMean) {
+                    double sum = 0.0;
+                    for (int i = leftSample; i <= rightSample; i++) {
+                        sum += amplitude[i - midSample + halfWindowSamples];
+                    }
+                    double mean = sum / (rightSample - leftSample + 1);
+                    for (int i = leftSample; i <= rightSample; i++) {
+                        amplitude[i - midSample + halfWindowSamples] -= mean;
+                    }
+                }
+                for (int i = leftSample; i <= rightSample; i++) {
+                    sumxw += amplitude[i - midSample + halfWindowSamples] * amplitude[i - midSample + halfWindowSamples] * window[i - midSample + halfWindowSamples];
+                    sumw += window[i - midSample + halfWindowSamples];
+                }
+            }
+
+            double intensity = sumxw / sumw;
+            if (intensity != 0.0) intensity /= 4e-10;
+            result[iframe] = intensity < 1e-30 ? -300 : 10 * Math.log10(intensity);
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testPcmConversion() throws Exception {
+        final int num = 1000;
+        final int offset = 3;
+
+        short[] pcm = new short[num + offset];
+        for (int i = 0; i < num; i++) {
+            pcm[offset + i] = (short) (32767 * Math.sin(2 * Math.PI * 220 * i / 16000.0));
+        }
+        pcm[offset] = Short.MIN_VALUE;
+        pcm[offset + 1] = Short.MAX_VALUE;
+
+        // same samples as SHORT and as FLOAT must give the same bytes
+        byte[] fromShort = new byte[2 * (num + offset)];
+        AudioUtil.pcm16ToBytes(pcm, offset, fromShort, 2 * offset, num);
+
+        float[] samples = new float[num];
+        AudioUtil.pcm16ToFloat(pcm, offset, samples, 0, num);
+
+        byte[] fromFloat = new byte[2 * (num + offset)];
+        AudioUtil.floatToPcm16Bytes(samples, 0, fromFloat, 2 * offset, num);
+
+        for (int i = 0; i < fromShort.length; i++) {
+            if (fromShort[i] != fromFloat[i]) {
+                throw new RuntimeException("sample " + (i / 2 - offset) + " differs after conversion to float");
+            }
+        }
+        for (int i = 0; i < num; i++) {
+            short value = (short) ((fromShort[2 * (offset + i)] & 0xFF) | (fromShort[2 * (offset + i) + 1] << 8));
+            if (value != pcm[offset + i]) {
+                throw new RuntimeException("sample " + i + " differs after conversion to bytes");
+            }
+        }
+
+        // values at and beyond full scale are clipped instead of wrapping around
+        float[] clipped = {1.0f, 1.5f, -1.0f, -1.5f, 0.5f};
+        short[] expected16 = {Short.MAX_VALUE, Short.MAX_VALUE, Short.MIN_VALUE, Short.MIN_VALUE, 16384};
+        byte[] expected8 = {Byte.MAX_VALUE, Byte.MAX_VALUE, Byte.MIN_VALUE, Byte.MIN_VALUE, 64};
+
+        byte[] bytes16 = new byte[2 * clipped.length];
+        byte[] bytes8 = new byte[clipped.length];
+        AudioUtil.floatToPcm16Bytes(clipped, 0, bytes16, 0, clipped.length);
+        AudioUtil.floatToPcm8Bytes(clipped, 0, bytes8, 0, clipped.length);
+
+        for (int i = 0; i < clipped.length; i++) {
+            short value = (short) ((bytes16[2 * i] & 0xFF) | (bytes16[2 * i + 1] << 8));
+            if (value != expected16[i] || bytes8[i] != expected8[i]) {
+                throw new RuntimeException("wrong conversion of " + clipped[i] + ": " + value + ", " + bytes8[i]);
+            }
+        }
+
+        // features of SHORT and FLOAT streams of the same samples
+        Stream shortStream = Stream.create(num, 1, 16000, Cons.Type.SHORT);
+        Stream floatStream = Stream.create(num, 1, 16000, Cons.Type.FLOAT);
+        shortStream.desc = floatStream.desc = new String[]{"Audio"};
+        System.arraycopy(pcm, offset, shortStream.ptrS(), 0, num);
+        System.arraycopy(samples, 0, floatStream.ptrF(), 0, num);
+
+        Stream[] out = new Stream[2];
+        Stream[] in = {shortStream, floatStream};
+        for (int i = 0; i < in.length; i++) {
+            Energy energy = new Energy();
+            energy.options.computeRMS.set(true);
+            energy.init(num / 16000.0, 0);
+            out[i] = Stream.create(1, energy.getSampleDimension(new Stream[]{in[i]}), 16000.0 / num, Cons.Type.FLOAT);
+            energy.enter(new Stream[]{in[i]}, out[i]);
+            energy.transform(new Stream[]{in[i]}, out[i]);
+        }
+
+        for (int i = 0; i < out[0].dim; i++) {
+            if (Math.abs(out[0].ptrF()[i] - out[1].ptrF()[i]) > 1e-6 * Math.abs(out[1].ptrF()[i])) {
+                throw new RuntimeException("energy of SHORT and FLOAT stream differs: " + out[0].ptrF()[i] + " != " + out[1].ptrF()[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testAudioFile() throws Exception {
+        File file = new File(getContext().getFilesDir(), "audio.wav");
+        TestHelper.copyAssetToFile("audio.wav", file);
+
+        // The fixture holds the 16 bit samples of audio.streamdata
+        Stream reference = Stream.create(80000, 1, 16000, Cons.Type.FLOAT);
+        new AsciiStreamParser(getInstrumentation().getContext().getAssets().open("audio.streamdata"), FileCons.DELIMITER_DIMENSION).read(reference);
+
+        AudioFile audioFile = AudioFile.openWav(file);
+        float[] samples = new float[(int) audioFile.getSampleCount()];
+        int num = audioFile.read(samples, 0, samples.length);
+        audioFile.close();
+
+        if (audioFile.getSampleRate() != 16000 || audioFile.getChannels() != 1 || num != reference.num) {
+            throw new RuntimeException("unexpected format: " + audioFile.getSampleRate() + " Hz, " + audioFile.getChannels() + " channels, " + num + " samples");
+        }
+
+        for (int i = 0; i < num; i++) {
+            if (Math.abs(samples[i] - reference.ptrF()[i]) > 1.0f / 32768.0f) {
+                throw new RuntimeException("sample " + i + " differs");
+            }
+        }
+
+        // Replay the file as fast as the pipeline processes it
+        Pipeline frame = Pipeline.getInstance();
+        frame.options.countdown.set(0);
+        frame.options.realtime.set(false);
+
+        AudioFileReader reader = new AudioFileReader();
+        reader.options.file.setValue(file.getPath());
+        AudioFileChannel channel = new AudioFileChannel();
+        channel.options.scale.set(false);
+        frame.addSensor(reader, channel);
+
+        Energy energy = new Energy();
+        energy.options.computeRMS.set(true);
+        frame.addTransformer(energy, channel, 0.1);
+
+        FrameCounter counter = new FrameCounter();
+        frame.addConsumer(counter, energy, 0.1);
+
+        long start = System.currentTimeMillis();
+        frame.start();
+
+        while (counter.frames < 50 && System.currentTimeMillis() - start < 2500) {
+            Thread.sleep(10);
+        }
+        long duration = System.currentTimeMillis() - start;
+
+        frame.stop();
+        frame.release();
+        frame.options.realtime.set(true);
+
+        if (!file.delete()) {
+            throw new RuntimeException("File could not be deleted");
+        }
+
+        Log.i("processed " + counter.frames + " frames (5 s of audio) in " + duration + " ms");
+
+        if (counter.frames < 50) {
+            throw new RuntimeException("recording not processed faster than real time");
+        }
+    }
+
+    private static class FrameCounter extends Consumer {
+        volatile int frames = 0;
+
+        @Override
+        protected void consume(Stream[] stream_in, Event trigger) throws SSJFatalException {
+            frames++;
+        }
+
+        @Override
+        public OptionList getOptions() {
+            return null;
+        }
+    }
+}
@@ -39,9 +39,14 @@ import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
 import hcm.ssj.audio.Intensity;
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.EventHandler;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.core.Provider;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.OptionList;
 import hcm.ssj.event.FloatSegmentEventSender;
 import hcm.ssj.event.FloatsEventSender;
 import hcm.ssj.event.ThresholdEventSender;
@@ -194,4 +199,77 @@ public class EventTest {
         frame.stop();
         frame.release();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEventHandlerWakeUp() throws Exception {
+        final int numEvents = 500;
+
+        Pipeline frame = Pipeline.getInstance();
+        frame.options.countdown.set(0);
+
+        EventHandler source = new EventHandler() {
+            @Override
+            public OptionList getOptions() {
+                return null;
+            }
+        };
+        EventChannel channel = frame.registerEventProvider(source);
+
+        LatencyHandler handler = new LatencyHandler();
+        frame.registerEventListener(handler, channel);
+
+        frame.start();
+        Thread.sleep(500);
+
+        for (int i = 0; i < numEvents; i++) {
+            Event ev = Event.create(Cons.Type.LONG);
+            ev.setData(new long[]{System.nanoTime()});
+            channel.pushEvent(ev);
+
+            Thread.sleep(1);
+        }
+
+        Thread.sleep(500);
+
+        frame.stop();
+        frame.release();
+
+        if (handler.received != numEvents) {
+            throw new RuntimeException("received " + handler.received + " of " + numEvents + " events");
+        }
+
+        Log.i("event latency: " + (handler.latency / numEvents / 1000) + " us avg, " + (handler.maxLatency / 1000) + " us max, " + handler.batches + " batches");
+    }
+
+    private static class LatencyHandler extends EventHandler {
+        int evID = 0;
+        int received = 0;
+        int batches = 0;
+        long latency = 0;
+        long maxLatency = 0;
+
+        @Override
+        protected void process() {
+            if (!waitForEvents(Cons.SLEEP_ON_COMPONENT_IDLE)) {
+                return;
+            }
+
+            batches++;
+
+            Event ev;
+            while ((ev = _evchannel_in.get(0).getEvent(evID, false)) != null) {
+                long delay = System.nanoTime() - ev.ptrL()[0];
+
+                evID = ev.id + 1;
+                received++;
+                latency += delay;
+                maxLatency = Math.max(maxLatency, delay);
+            }
+        }
+
+        @Override
+        public OptionList getOptions() {
+            return null;
+        }
+    }
+}
@@ -33,12 +33,22 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.List;
+
 import hcm.ssj.camera.CameraChannel;
 import hcm.ssj.camera.CameraSensor;
 import hcm.ssj.camera.NV21ToRGBDecoder;
 import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.landmark.FaceLandmarks;
+import hcm.ssj.landmark.utils.FaceTracker;
+import hcm.ssj.ssd.CalculatorOptions;
+import hcm.ssj.ssd.Detection;
+import hcm.ssj.ssd.DetectionBuffer;
+import hcm.ssj.ssd.FilterMethod;
+import hcm.ssj.ssd.SingleShotMultiBoxDetector;
 import hcm.ssj.test.Logger;
 
 /**
@@ -96,4 +106,132 @@ public class FacialLandmarkTest {
         frame.stop();
         frame.release();
     }
+
+    @Test
+    public void testDetectionPostProcessing() throws Exception {
+        final int RUNS = 1000;
+
+        CalculatorOptions calculatorOptions = new CalculatorOptions();
+        calculatorOptions.filterMethod = FilterMethod.NON_MAX_SUPPRESSION;
+
+        SingleShotMultiBoxDetector ssd = new SingleShotMultiBoxDetector(calculatorOptions);
+
+        // Output of the face detection model with two faces, each found by four overlapping boxes
+        float[][][] boxes = new float[1][896][16];
+        float[][][] scores = new float[1][896][1];
+
+        for (float[] score : scores[0]) {
+            score[0] = -10;
+        }
+
+        addFace(boxes, scores, 4, 4, 3.0f);
+        addFace(boxes, scores, 11, 11, 2.0f);
+
+        DetectionBuffer detections = ssd.detect(boxes, scores);
+
+        if (detections.size() != 2) {
+            throw new RuntimeException("expected 2 faces, found " + detections.size());
+        }
+
+        // Highest score first, centers on the anchor grid of the first layer (16 x 16)
+        checkFace(detections.get(0), 4.5f / 16, 3.0f);
+        checkFace(detections.get(1), 11.5f / 16, 2.0f);
+
+        List<Detection> list = ssd.process(boxes, scores);
+
+        if (list.size() != 2 || list.get(0).xMin != detections.xMin[0] || list.get(1).xMin != detections.xMin[1]) {
+            throw new RuntimeException("detection list differs from buffer");
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            ssd.detect(boxes, scores);
+        }
+
+        Log.i("SSD post-processing: " + ((System.nanoTime() - start) / RUNS / 1000) + " us per frame");
+    }
+
+    @Test
+    public void testFaceTracking() throws Exception {
+        // Face detection runs on the first frame, after three tracked frames and on the frame where the face gets lost
+        boolean[] visible = {true, true, true, true, true, false, true, true, true, true, true};
+        boolean[] detection = {true, false, false, false, true, true, true, false, false, false, true};
+
+        FakeFaces faces = new FakeFaces();
+        FaceTracker tracker = new FaceTracker(faces, true, 3);
+
+        for (int i = 0; i < visible.length; i++) {
+            faces.visible = visible[i];
+            long detections = tracker.getDetections();
+            int found = tracker.process();
+
+            if ((tracker.getDetections() > detections) != detection[i] || found != (visible[i] ? 1 : 0)) {
+                throw new RuntimeException("wrong tracking in frame " + i + ": " + found + " faces, " + (tracker.getDetections() - detections) + " detections");
+            }
+        }
+
+        // Without tracking faces are detected in every frame, with maxTrackingFrames = 0 only if they are lost
+        for (boolean useTracking : new boolean[]{false, true}) {
+            tracker = new FaceTracker(faces, useTracking, 0);
+
+            for (int i = 0; i < visible.length; i++) {
+                faces.visible = visible[i];
+                tracker.process();
+            }
+
+            int expected = useTracking ? 3 : visible.length;
+            if (tracker.getDetections() != expected) {
+                throw new RuntimeException("expected " + expected + " detections, got " + tracker.getDetections());
+            }
+        }
+    }
+
+    private static class FakeFaces implements FaceTracker.Callback {
+        boolean visible;
+
+        @Override
+        public int detectFaces() {
+            return visible ? 1 : 0;
+        }
+
+        @Override
+        public int detectLandmarks(int n) {
+            return visible ? n : 0;
+        }
+
+        @Override
+        public void updateRegions(int n) {
+            if (n != 1) {
+                throw new RuntimeException("tracking " + n + " faces");
+            }
+        }
+    }
+
+    private static void addFace(float[][][] boxes, float[][][] scores, int x, int y, float score) {
+        // Two anchors per location in the first layer, the boxes of the next location are shifted back
+        int index = 2 * (y * 16 + x);
+
+        for (int i = 0; i < 4; i++) {
+            float[] box = boxes[0][index + i];
+            Arrays.fill(box, 0);
+
+            box[0] = i < 2 ? 0 : -8; // x offset
+            box[2] = 25.6f; // width
+            box[3] = 25.6f; // height
+
+            scores[0][index + i][0] = score - i * 0.5f;
+        }
+    }
+
+    private static void checkFace(Detection detection, float center, float score) {
+        float expectedScore = (float) (1.0 / (1.0 + Math.exp(-score)));
+
+        if (Math.abs(detection.xMin + detection.width / 2 - center) > 1e-5
+                || Math.abs(detection.yMin + detection.height / 2 - center) > 1e-5
+                || Math.abs(detection.width - 0.2f) > 1e-5
+                || Math.abs(detection.score - expectedScore) > 1e-5
+                || detection.keypoints.size() != 6) {
+            throw new RuntimeException("unexpected detection at " + detection.xMin + ", " + detection.yMin);
+        }
+    }
 }
@@ -37,6 +37,9 @@ import org.junit.runner.RunWith;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -44,11 +47,23 @@ import java.util.ArrayList;
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.EventChannel;
 import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.FolderPath;
+import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.AsciiStreamParser;
+import hcm.ssj.file.AsyncFileWriter;
+import hcm.ssj.file.ChunkCodec;
+import hcm.ssj.file.ChunkedStreamReader;
+import hcm.ssj.file.EventLogReader;
 import hcm.ssj.file.FileCons;
+import hcm.ssj.file.FileEventWriter;
 import hcm.ssj.file.FileReader;
 import hcm.ssj.file.FileReaderChannel;
 import hcm.ssj.file.FileWriter;
+import hcm.ssj.file.MappedStreamReader;
 import hcm.ssj.file.SimpleXmlParser;
 import hcm.ssj.test.Logger;
 
@@ -130,6 +145,306 @@ public class FileTest {
         }
     }
 
+    @Test
+    public void testMappedStreamReader() throws Exception {
+        File file = new File(getInstrumentation().getContext().getFilesDir(), "mapped.stream~");
+        int dim = 3;
+        int samples = 1000;
+
+        ByteBuffer bytes = ByteBuffer.allocate(samples * dim * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples * dim; i++) {
+            bytes.putFloat(i);
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes.array());
+        out.close();
+
+        MappedStreamReader reader = new MappedStreamReader(file, Cons.Type.FLOAT, dim);
+        Stream stream = Stream.create(10, dim, 100, Cons.Type.FLOAT);
+
+        if (reader.getSampleCount() != samples) {
+            throw new RuntimeException("wrong sample count");
+        }
+
+        reader.seek(500);
+        if (reader.read(stream) != 10 || stream.ptrF()[0] != 500 * dim || stream.ptrF()[10 * dim - 1] != 510 * dim - 1) {
+            throw new RuntimeException("wrong samples after seek");
+        }
+
+        reader.seek(995);
+        if (reader.read(stream) != 5 || !reader.isEndOfFile()) {
+            throw new RuntimeException("end of file not detected");
+        }
+
+        reader.close();
+        file.delete();
+    }
+
+    @Test
+    public void testAsciiStreamParser() throws Exception {
+        String data = "0.1 -2.5E-3 1000\r\n"
+                + "3.4028235E38 NaN 7\r\n"
+                + "\r\n"
+                + "1.0\r\n";
+
+        AsciiStreamParser parser = new AsciiStreamParser(new ByteArrayInputStream(data.getBytes(StandardCharsets.US_ASCII)), FileCons.DELIMITER_DIMENSION);
+        Stream stream = Stream.create(4, 3, 1, Cons.Type.FLOAT);
+        float[] expected = {0.1f, -2.5E-3f, 1000f, Float.MAX_VALUE, Float.NaN, 7f, 1f, 0f, 0f};
+
+        if (parser.read(stream) != 3) {
+            throw new RuntimeException("wrong number of samples");
+        }
+
+        for (int i = 0; i < expected.length; i++) {
+            if (Float.compare(stream.ptrF()[i], expected[i]) != 0) {
+                throw new RuntimeException("wrong value at " + i + ": " + stream.ptrF()[i]);
+            }
+        }
+
+        parser.close();
+
+        // Integer values at the limits of their type are read, values beyond them are reported instead of wrapped around
+        Cons.Type[] types = {Cons.Type.BYTE, Cons.Type.SHORT, Cons.Type.INT, Cons.Type.LONG};
+        String[] limits = {"-128 127", "-32768 32767", "-2147483648 2147483647", "-9223372036854775808 9223372036854775807"};
+        String[] overflows = {"128", "-32769", "2147483648", "9223372036854775808"};
+
+        for (int t = 0; t < types.length; t++) {
+            parser = new AsciiStreamParser(new ByteArrayInputStream(limits[t].getBytes(StandardCharsets.US_ASCII)), FileCons.DELIMITER_DIMENSION);
+            stream = Stream.create(1, 2, 1, types[t]);
+            parser.read(stream);
+            parser.close();
+
+            String values = types[t] == Cons.Type.BYTE ? stream.ptrB()[0] + " " + stream.ptrB()[1]
+                    : types[t] == Cons.Type.SHORT ? stream.ptrS()[0] + " " + stream.ptrS()[1]
+                    : types[t] == Cons.Type.INT ? stream.ptrI()[0] + " " + stream.ptrI()[1]
+                    : stream.ptrL()[0] + " " + stream.ptrL()[1];
+
+            if (!values.equals(limits[t])) {
+                throw new RuntimeException("wrong " + types[t] + " values: " + values);
+            }
+
+            parser = new AsciiStreamParser(new ByteArrayInputStream(overflows[t].getBytes(StandardCharsets.US_ASCII)), FileCons.DELIMITER_DIMENSION);
+            try {
+                parser.read(Stream.create(1, 1, 1, types[t]));
+                throw new RuntimeException(types[t] + " value " + overflows[t] + " not reported");
+            } catch (NumberFormatException e) {
+                // expected
+            }
+            parser.close();
+        }
+    }
+
+    @Test
+    public void testAsyncFileWriter() throws Exception {
+        File file = new File(getInstrumentation().getContext().getFilesDir(), "async.bin");
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        AsyncFileWriter writer = new AsyncFileWriter(file, 4096, 2, AsyncFileWriter.SyncPolicy.CLOSE, AsyncFileWriter.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            writer.write(data, 0, data.length);
+        }
+        writer.write("end");
+        writer.close();
+
+        if (file.length() != 100 * data.length + 3 || writer.getBytesWritten() != file.length()) {
+            throw new RuntimeException("wrong file length: " + file.length());
+        }
+
+        file.delete();
+
+        // Blocks larger than all buffers together can never be accepted and are always dropped
+        writer = new AsyncFileWriter(file, 4096, 2, AsyncFileWriter.SyncPolicy.CLOSE, AsyncFileWriter.OverflowPolicy.DROP);
+        if (!writer.write(data, 0, data.length) || writer.write(new byte[3 * 4096], 0, 3 * 4096)) {
+            throw new RuntimeException("drop not reported");
+        }
+        writer.close();
+
+        if (file.length() != data.length || writer.getBytesDropped() != 3 * 4096) {
+            throw new RuntimeException("dropped data written: " + file.length());
+        }
+
+        file.delete();
+    }
+
+    @Test
+    public void testChunkedStream() throws Exception {
+        File dir = getInstrumentation().getContext().getFilesDir();
+        File file = new File(dir, "chunked.stream~");
+        int dim = 2;
+        int chunkSize = 100;
+        int samples = 350;
+
+        float[] values = new float[samples * dim];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i * 0.01) * 100;
+        }
+
+        for (boolean compress : new boolean[]{true, false}) {
+            // Four chunks, the last one is only partially filled
+            ChunkCodec codec = new ChunkCodec(Cons.Type.FLOAT, dim, compress);
+            int chunks = (samples + chunkSize - 1) / chunkSize;
+            long[] offsets = new long[chunks];
+            int[] nums = new int[chunks];
+            float[] chunk = new float[chunkSize * dim];
+            long offset = 0;
+
+            FileOutputStream out = new FileOutputStream(file);
+            for (int c = 0; c < chunks; c++) {
+                nums[c] = Math.min(chunkSize, samples - c * chunkSize);
+                System.arraycopy(values, c * chunkSize * dim, chunk, 0, nums[c] * dim);
+
+                int len = codec.encode(chunk, nums[c]);
+                out.write(codec.getBuffer(), 0, len);
+
+                offsets[c] = offset;
+                offset += len;
+            }
+            out.close();
+
+            ChunkedStreamReader reader = new ChunkedStreamReader(file, Cons.Type.FLOAT, dim, offsets, nums);
+            Stream stream = Stream.create(samples, dim, 100, Cons.Type.FLOAT);
+
+            if (reader.getSampleCount() != samples || reader.read(stream) != samples) {
+                throw new RuntimeException("wrong sample count");
+            }
+
+            for (int i = 0; i < values.length; i++) {
+                if (Float.compare(stream.ptrF()[i], values[i]) != 0) {
+                    throw new RuntimeException("wrong value at " + i + ": " + stream.ptrF()[i]);
+                }
+            }
+
+            // Seek into the third chunk and read across the chunk border
+            Stream part = Stream.create(60, dim, 100, Cons.Type.FLOAT);
+            reader.seek(245);
+
+            if (reader.read(part) != 60) {
+                throw new RuntimeException("wrong number of samples after seek");
+            }
+
+            for (int i = 0; i < 60 * dim; i++) {
+                if (Float.compare(part.ptrF()[i], values[245 * dim + i]) != 0) {
+                    throw new RuntimeException("wrong value after seek at " + i);
+                }
+            }
+
+            reader.seek(340);
+            if (reader.read(part) != 10 || reader.getPosition() != samples) {
+                throw new RuntimeException("end of file not detected");
+            }
+
+            reader.close();
+        }
+
+        // Empty recordings consist of a single empty chunk
+        new FileOutputStream(file).close();
+        ChunkedStreamReader reader = new ChunkedStreamReader(file, Cons.Type.FLOAT, dim, new long[]{0}, new int[]{0});
+
+        if (reader.getSampleCount() != 0 || reader.read(Stream.create(10, dim, 100, Cons.Type.FLOAT)) != 0) {
+            throw new RuntimeException("empty file not handled");
+        }
+        reader.close();
+
+        // Headers without any chunk can be loaded as well
+        File header = new File(dir, "chunked.stream");
+        FileOutputStream out = new FileOutputStream(header);
+        out.write(("<?xml version=\"1.0\" ?>\r\n"
+                + "<stream ssi-v=\"2\">\r\n"
+                + "<info ftype=\"CHUNKED\" sr=\"100.0\" dim=\"2\" byte=\"4\" type=\"FLOAT\" />\r\n"
+                + "</stream>\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.close();
+
+        if (Stream.load(header.getAbsolutePath()).num != 0) {
+            throw new RuntimeException("empty stream expected");
+        }
+
+        header.delete();
+        file.delete();
+    }
+
+    @Test
+    public void testEventLog() throws Exception {
+        File dir = getInstrumentation().getContext().getFilesDir();
+        Pipeline frame = Pipeline.getInstance();
+
+        FileEventWriter writer = new FileEventWriter();
+        writer.options.format.set(FileEventWriter.Format.BINARY);
+        writer.options.indexInterval.set(10);
+        writer.options.filePath.set(new FolderPath(dir.getAbsolutePath()));
+        writer.options.fileName.set("test.eventlog");
+        frame.registerEventListener(writer, new EventChannel());
+
+        writer.enter();
+        for (int i = 0; i < 100; i++) {
+            Event ev = Event.create(i % 2 == 0 ? Cons.Type.FLOAT : Cons.Type.STRING);
+            ev.name = "ev" + i;
+            ev.sender = "test";
+            ev.time = i * 100;
+            ev.dur = 50;
+            ev.setData(i % 2 == 0 ? new float[]{i, -i} : "value " + i);
+            writer.notify(ev);
+        }
+        writer.flush();
+        frame.clear();
+
+        File file = new File(dir, "test.eventlog");
+        EventLogReader reader = new EventLogReader(file);
+
+        if (reader.getEventCount() != 100) {
+            throw new RuntimeException("wrong event count: " + reader.getEventCount());
+        }
+
+        reader.seek(4250);
+        Event ev = reader.read();
+        if (reader.getPosition() != 44 || ev.time != 4300 || !ev.name.equals("ev43") || ev.type != Cons.Type.STRING || !ev.ptrStr().equals("value 43")) {
+            throw new RuntimeException("wrong event after seek: " + ev.name);
+        }
+
+        ev = reader.read();
+        if (ev.ptrF()[1] != -44 || ev.dur != 50 || !ev.sender.equals("test")) {
+            throw new RuntimeException("wrong event data");
+        }
+
+        reader.close();
+
+        // session without events and strings exceeding the short length prefix
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            name.append((char) ('a' + i % 26));
+        }
+
+        for (int events = 0; events < 2; events++) {
+            frame.registerEventListener(writer, new EventChannel());
+            writer.enter();
+            if (events > 0) {
+                ev = Event.create(Cons.Type.STRING);
+                ev.name = name.toString();
+                ev.sender = "test";
+                ev.setData("value");
+                writer.notify(ev);
+            }
+            writer.flush();
+            frame.clear();
+
+            reader = new EventLogReader(file);
+            if (reader.getEventCount() != events) {
+                throw new RuntimeException("wrong event count: " + reader.getEventCount());
+            }
+
+            ev = reader.read();
+            if (events == 0 ? ev != null : !ev.name.equals(name.toString()) || !ev.ptrStr().equals("value")) {
+                throw new RuntimeException("wrong event in session with " + events + " events");
+            }
+            reader.close();
+        }
+
+        file.delete();
+    }
+
     /**
      * @param internalStorage boolean
      * @throws Exception
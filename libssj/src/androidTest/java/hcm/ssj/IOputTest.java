@@ -33,6 +33,16 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
@@ -40,23 +50,41 @@ import hcm.ssj.audio.AudioChannel;
 import hcm.ssj.audio.Intensity;
 import hcm.ssj.audio.Microphone;
 import hcm.ssj.core.Cons;
+import hcm.ssj.core.Consumer;
 import hcm.ssj.core.EventChannel;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.core.Provider;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Sensor;
+import hcm.ssj.core.SensorChannel;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
 import hcm.ssj.event.FloatsEventSender;
+import hcm.ssj.file.AsciiStreamParser;
+import hcm.ssj.file.FileCons;
 import hcm.ssj.ioput.BluetoothChannel;
 import hcm.ssj.ioput.BluetoothConnection;
 import hcm.ssj.ioput.BluetoothEventReader;
 import hcm.ssj.ioput.BluetoothEventWriter;
 import hcm.ssj.ioput.BluetoothReader;
 import hcm.ssj.ioput.BluetoothWriter;
+import hcm.ssj.ioput.FrameCodec;
 import hcm.ssj.ioput.SocketChannel;
 import hcm.ssj.ioput.SocketEventWriter;
 import hcm.ssj.ioput.SocketReader;
+import hcm.ssj.ioput.SocketReceiver;
+import hcm.ssj.ioput.SocketSender;
+import hcm.ssj.ioput.SocketWriter;
+import hcm.ssj.ioput.StreamFanOut;
+import hcm.ssj.ioput.WireProtocol;
 import hcm.ssj.test.EventLogger;
 import hcm.ssj.test.Logger;
 
+import static androidx.test.InstrumentationRegistry.getInstrumentation;
+
 @RunWith(AndroidJUnit4.class)
 @SmallTest
 public class IOputTest {
@@ -247,4 +275,528 @@ public class IOputTest {
         frame.stop();
         frame.clear();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSocketWriterReader() throws Exception {
+        for (boolean compress : new boolean[]{false, true}) {
+            Pipeline frame = Pipeline.getInstance();
+            frame.options.bufferSize.set(10.0f);
+
+            CounterSensor counter = new CounterSensor();
+            CounterChannel counterChannel = new CounterChannel();
+            frame.addSensor(counter, counterChannel);
+
+            SocketWriter writer = new SocketWriter();
+            writer.options.ip.set("127.0.0.1");
+            writer.options.port.set(34480);
+            writer.options.binary.set(true);
+            writer.options.compress.set(compress);
+            frame.addConsumer(writer, counterChannel, 0.1, 0);
+
+            SocketReader reader = new SocketReader();
+            reader.options.ip.set("127.0.0.1");
+            reader.options.port.set(34480);
+            reader.options.binary.set(true);
+
+            SocketChannel data = new SocketChannel();
+            data.options.dim.set(2);
+            data.options.bytes.set(4);
+            data.options.type.set(Cons.Type.FLOAT);
+            data.options.sr.set(50.);
+            data.options.num.set(5);
+            frame.addSensor(reader, data);
+
+            CounterChecker checker = new CounterChecker();
+            frame.addConsumer(checker, data, 0.1, 0);
+
+            frame.start();
+
+            // Wait duration
+            try {
+                Thread.sleep(TestHelper.DUR_TEST_SHORT);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            frame.stop();
+            frame.release();
+
+            Log.i("compress " + compress + ": " + checker.received + " samples received, " + checker.errors + " errors");
+
+            if (checker.errors > 0 || checker.received == 0) {
+                throw new RuntimeException("stream not transmitted (compress " + compress + "): " + checker.received + " samples, " + checker.errors + " errors");
+            }
+        }
+    }
+
+    @Test
+    public void testSocketLoopbackBenchmark() throws Exception {
+        final int frames = 100000;
+        final int frameBytes = 3 * 4 + 8; // three floats and the send time
+
+        for (Cons.SocketType type : Cons.SocketType.values()) {
+            for (int maxDelay : new int[]{0, 5}) {
+                final int port = 34400 + type.ordinal() * 10 + maxDelay;
+                final long[] stats = new long[2]; // received frames, summed latency
+
+                SocketReceiver.Registration registration = SocketReceiver.getInstance().open(type, new InetSocketAddress("127.0.0.1", port), frameBytes, new SocketReceiver.FrameListener() {
+                    @Override
+                    public void onFrame(ByteBuffer frame) {
+                        long sent = frame.order(ByteOrder.LITTLE_ENDIAN).getLong(frame.position() + 12);
+                        stats[0]++;
+                        stats[1] += System.nanoTime() - sent;
+                    }
+                });
+                Thread.sleep(100);
+
+                SocketSender sender = new SocketSender(type, new InetSocketAddress("127.0.0.1", port), frameBytes, 0, maxDelay);
+                byte[] data = new byte[frameBytes];
+                ByteBuffer wrapper = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+                long start = System.nanoTime();
+                for (int i = 0; i < frames; i++) {
+                    wrapper.putFloat(0, i);
+                    wrapper.putLong(12, System.nanoTime());
+                    sender.send(data);
+
+                    // Do not overrun the receive buffer of the UDP socket
+                    if (type == Cons.SocketType.UDP && i % 64 == 0) {
+                        Thread.sleep(1);
+                    }
+                }
+                sender.close();
+                long duration = System.nanoTime() - start;
+
+                Thread.sleep(500);
+                registration.close();
+
+                Log.i(type + " (maxDelay " + maxDelay + " ms): " + (int) (frames / (duration / 1e9)) + " frames/s, "
+                      + sender.getPacketsSent() + " packets, " + stats[0] + " received, mean latency "
+                      + (stats[1] / Math.max(1, stats[0]) / 1000) + " us");
+
+                if (type == Cons.SocketType.TCP && stats[0] != frames) {
+                    throw new RuntimeException("lost frames over TCP: " + (frames - stats[0]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSocketSenderMaxDelay() throws Exception {
+        final int frameBytes = 16;
+        final int maxDelay = 20;
+
+        for (Cons.SocketType type : Cons.SocketType.values()) {
+            final int port = 34450 + type.ordinal();
+            final long[] received = new long[1]; // receive time of the frame
+
+            SocketReceiver.Registration registration = SocketReceiver.getInstance().open(type, new InetSocketAddress("127.0.0.1", port), frameBytes, new SocketReceiver.FrameListener() {
+                @Override
+                public void onFrame(ByteBuffer frame) {
+                    synchronized (received) {
+                        received[0] = System.nanoTime();
+                        received.notifyAll();
+                    }
+                }
+            });
+            Thread.sleep(100);
+
+            SocketSender sender = new SocketSender(type, new InetSocketAddress("127.0.0.1", port), frameBytes, 0, maxDelay);
+
+            // a single frame must not wait for further frames beyond the latency budget
+            long start = System.nanoTime();
+            sender.send(new float[frameBytes / 4]);
+
+            synchronized (received) {
+                if (received[0] == 0) {
+                    received.wait(1000);
+                }
+            }
+
+            long latency = (received[0] - start) / 1000000L;
+            sender.close();
+            registration.close();
+
+            if (received[0] == 0 || sender.getFramesSent() != 1) {
+                throw new RuntimeException(type + ": pending frame was not sent");
+            }
+            // allow for scheduling delays on slow devices
+            if (latency > maxDelay + 50) {
+                throw new RuntimeException(type + ": frame sent after " + latency + " ms");
+            }
+        }
+    }
+
+    @Test
+    public void testSocketSenderUnreachable() throws Exception {
+        final int frameBytes = 16;
+        final int port = 34460;
+        final int[] received = new int[1];
+
+        // Connected UDP sockets report sends to a closed port, the sender must recover once the receiver is up
+        SocketSender sender = new SocketSender(Cons.SocketType.UDP, new InetSocketAddress("127.0.0.1", port), frameBytes, 0, 0);
+        float[] data = new float[frameBytes / 4];
+
+        int failed = 0;
+        for (int i = 0; i < 5; i++) {
+            try {
+                sender.send(data);
+            } catch (IOException e) {
+                failed++;
+            }
+            Thread.sleep(10);
+        }
+
+        SocketReceiver.Registration registration = SocketReceiver.getInstance().open(Cons.SocketType.UDP, new InetSocketAddress("127.0.0.1", port), frameBytes, new SocketReceiver.FrameListener() {
+            @Override
+            public void onFrame(ByteBuffer frame) {
+                synchronized (received) {
+                    received[0]++;
+                }
+            }
+        });
+        Thread.sleep(100);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                sender.send(data);
+            } catch (IOException e) {
+                // error of an earlier send reported late
+                failed++;
+            }
+            Thread.sleep(10);
+        }
+
+        Thread.sleep(200);
+        sender.close();
+        registration.close();
+
+        Log.i(failed + " sends failed, " + received[0] + " frames received");
+
+        if (received[0] == 0) {
+            throw new RuntimeException("no frames sent after the receiver was opened");
+        }
+    }
+
+    @Test
+    public void testSocketReceiverListenerFailure() throws Exception {
+        final int frameBytes = 16;
+        final int frames = 50;
+        final int[] received = new int[1];
+
+        // The first listener fails on every frame, the second one has to receive all frames nonetheless
+        SocketReceiver.Registration failing = SocketReceiver.getInstance().open(Cons.SocketType.TCP, new InetSocketAddress("127.0.0.1", 34470), frameBytes, new SocketReceiver.FrameListener() {
+            @Override
+            public void onFrame(ByteBuffer frame) {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+        SocketReceiver.Registration working = SocketReceiver.getInstance().open(Cons.SocketType.TCP, new InetSocketAddress("127.0.0.1", 34471), frameBytes, new SocketReceiver.FrameListener() {
+            @Override
+            public void onFrame(ByteBuffer frame) {
+                synchronized (received) {
+                    received[0]++;
+                }
+            }
+        });
+        Thread.sleep(100);
+
+        SocketSender first = new SocketSender(Cons.SocketType.TCP, new InetSocketAddress("127.0.0.1", 34470), frameBytes, 0, 0);
+        SocketSender second = new SocketSender(Cons.SocketType.TCP, new InetSocketAddress("127.0.0.1", 34471), frameBytes, 0, 0);
+        float[] data = new float[frameBytes / 4];
+
+        for (int i = 0; i < frames; i++) {
+            first.send(data);
+            second.send(data);
+            Thread.sleep(2);
+        }
+
+        first.close();
+        second.close();
+        Thread.sleep(500);
+
+        failing.close();
+        working.close();
+
+        if (received[0] != frames) {
+            throw new RuntimeException("received " + received[0] + " of " + frames + " frames after a listener failed");
+        }
+    }
+
+    @Test
+    public void testWireProtocol() throws Exception {
+        Stream stream = Stream.create(5, 3, 50, Cons.Type.FLOAT);
+        float[] data = stream.ptrF();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i * 1.5f;
+        }
+        stream.time = 1.25;
+
+        Event ev = Event.create(Cons.Type.STRING);
+        ev.name = "name";
+        ev.sender = "sender";
+        ev.setData("data");
+
+        WireProtocol protocol = new WireProtocol();
+        protocol.appendDescriptor(0, stream);
+        protocol.appendFrame(0, 0, stream);
+        protocol.appendFrame(0, 2, stream);
+        protocol.appendEvent(ev);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(protocol.array(), 0, protocol.length());
+        Stream received = Stream.create(5, 3, 50, Cons.Type.FLOAT);
+        WireProtocol.StreamDecoder decoder = new WireProtocol.StreamDecoder(new Stream[]{received});
+        byte[][] dst = {new byte[received.tot]};
+
+        ByteBuffer msg = WireProtocol.readMessage(in, null);
+        if (decoder.decode(msg, dst) != -1 || decoder.getDescriptor(0) == null || !decoder.getDescriptor(0).matches(received)) {
+            throw new RuntimeException("descriptor not accepted");
+        }
+
+        for (int i = 0; i < 2; i++) {
+            msg = WireProtocol.readMessage(in, msg);
+            if (decoder.decode(msg, dst) != 0 || WireProtocol.getTime(msg) != 1.25) {
+                throw new RuntimeException("frame not accepted");
+            }
+            if (ByteBuffer.wrap(dst[0]).order(ByteOrder.LITTLE_ENDIAN).getFloat(14 * 4) != data[14]) {
+                throw new RuntimeException("wrong sample value");
+            }
+        }
+
+        if (decoder.getLostFrames() != 1) {
+            throw new RuntimeException("lost frame not detected");
+        }
+
+        msg = WireProtocol.readMessage(in, msg);
+        Event decoded = WireProtocol.getEvent(msg);
+        if (!decoded.name.equals("name") || !decoded.sender.equals("sender") || !decoded.ptrStr().equals("data")) {
+            throw new RuntimeException("wrong event");
+        }
+    }
+
+    @Test
+    public void testStreamServer() throws Exception {
+        final Stream large = Stream.create(1000, 3, 50, Cons.Type.FLOAT);
+        final Stream small = Stream.create(10, 1, 100, Cons.Type.SHORT);
+        Stream[] streams = {large, small};
+
+        StreamFanOut server = new StreamFanOut(streams, 50);
+        server.open(0);
+
+        // Subscribes to the small stream and reads everything
+        Socket fast = new Socket("127.0.0.1", server.getPort());
+        // Subscribes to all streams but never reads
+        Socket slow = new Socket("127.0.0.1", server.getPort());
+
+        WireProtocol protocol = new WireProtocol();
+        protocol.appendSubscribe(1);
+        fast.getOutputStream().write(protocol.array(), 0, protocol.length());
+        protocol.clear();
+        protocol.appendSubscribe();
+        slow.getOutputStream().write(protocol.array(), 0, protocol.length());
+        Thread.sleep(200);
+
+        final int frames = 5000;
+        final int[] received = new int[2];
+        final InputStream in = fast.getInputStream();
+        final WireProtocol.StreamDecoder decoder = new WireProtocol.StreamDecoder(streams);
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ByteBuffer msg = null;
+                    byte[][] dst = {new byte[large.tot], new byte[small.tot]};
+
+                    while (received[1] < frames) {
+                        msg = WireProtocol.readMessage(in, msg);
+                        int id = decoder.decode(msg, dst);
+                        if (id >= 0) {
+                            received[id]++;
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.e("failed reading", e);
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < frames; i++) {
+            server.publish(streams);
+            if (i % 10 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        reader.join(10000);
+
+        Log.i("received " + received[1] + " frames, " + server.getEvictedCount() + " clients evicted");
+
+        int clients = server.getClientCount();
+        server.close();
+        fast.close();
+        slow.close();
+
+        if (received[1] != frames || received[0] != 0 || decoder.getLostFrames() != 0) {
+            throw new RuntimeException("fast client did not receive all frames of its subscription");
+        }
+        if (server.getEvictedCount() != 1 || clients != 1) {
+            throw new RuntimeException("slow client was not evicted");
+        }
+    }
+
+    @Test
+    public void testFrameCodecBenchmark() throws Exception {
+        // Recorded streams
+        Stream audio = Stream.create(80000, 1, 16000, Cons.Type.FLOAT);
+        Stream mouse = Stream.create(10000, 2, 30, Cons.Type.FLOAT);
+        int audioSamples = new AsciiStreamParser(getInstrumentation().getContext().getAssets().open("audio.streamdata"), FileCons.DELIMITER_DIMENSION).read(audio);
+        int mouseSamples = new AsciiStreamParser(getInstrumentation().getContext().getAssets().open("mouse.streamdata"), FileCons.DELIMITER_DIMENSION).read(mouse);
+
+        // Synthetic EDA (random walk, 0.001 uS resolution) and accelerometer (three axes, 1/256 g resolution)
+        Random random = new Random(1);
+        Stream eda = Stream.create(20000, 1, 32, Cons.Type.FLOAT);
+        double level = 2;
+        for (int i = 0; i < eda.num; i++) {
+            level += random.nextGaussian() * 0.002;
+            eda.ptrF()[i] = Math.round(level * 1000) / 1000f;
+        }
+
+        Stream acc = Stream.create(20000, 3, 50, Cons.Type.FLOAT);
+        for (int i = 0; i < acc.num * acc.dim; i++) {
+            acc.ptrF()[i] = Math.round((Math.sin(i / 3 * 0.05 + i % 3) + random.nextGaussian() * 0.02) * 256) / 256f * 9.81f;
+        }
+
+        benchmarkFrameCodec("audio", audio, audioSamples, 512);
+        benchmarkFrameCodec("mouse", mouse, mouseSamples, 1);
+        benchmarkFrameCodec("eda", eda, eda.num, 8);
+        benchmarkFrameCodec("acc", acc, acc.num, 5);
+    }
+
+    private void benchmarkFrameCodec(String name, Stream recording, int samples, int num) throws Exception {
+        Stream frame = Stream.create(num, recording.dim, recording.sr, recording.type);
+        Stream received = Stream.create(num, recording.dim, recording.sr, recording.type);
+        byte[] expected = new byte[frame.tot];
+        byte[][] dst = {new byte[received.tot]};
+
+        WireProtocol protocol = new WireProtocol();
+        FrameCodec codec = new FrameCodec(frame.type, frame.dim);
+        WireProtocol.StreamDecoder decoder = new WireProtocol.StreamDecoder(new Stream[]{received});
+
+        protocol.appendDescriptor(0, frame, WireProtocol.CODEC_DELTA);
+        decoder.decode(ByteBuffer.wrap(protocol.array(), 4, protocol.length() - 4).slice().order(ByteOrder.LITTLE_ENDIAN), dst);
+
+        long raw = 0, encoded = 0, encodeTime = 0, decodeTime = 0;
+        for (int f = 0; f < samples / num; f++) {
+            System.arraycopy(recording.ptrF(), f * frame.num * frame.dim, frame.ptrF(), 0, frame.num * frame.dim);
+
+            long start = System.nanoTime();
+            protocol.clear();
+            protocol.appendFrame(0, f, frame, codec, f % 100 == 0);
+            encodeTime += System.nanoTime() - start;
+
+            raw += frame.tot;
+            encoded += protocol.length() - WireProtocol.FRAME_HEADER_SIZE;
+
+            start = System.nanoTime();
+            int id = decoder.decode(ByteBuffer.wrap(protocol.array(), 4, protocol.length() - 4).slice().order(ByteOrder.LITTLE_ENDIAN), dst);
+            decodeTime += System.nanoTime() - start;
+
+            Util.arraycopy(frame.ptr(), 0, expected, 0, expected.length);
+            if (id != 0 || !Arrays.equals(expected, dst[0])) {
+                throw new RuntimeException(name + ": frame " + f + " not decoded losslessly");
+            }
+        }
+
+        Log.i(name + ": ratio " + String.format("%.2f", (double) raw / encoded)
+              + ", encode " + (int) (raw / (encodeTime / 1e3)) + " MB/s, decode " + (int) (raw / (decodeTime / 1e3)) + " MB/s");
+    }
+
+    /**
+     * Produces the sample number and its negative value
+     */
+    private static class CounterSensor extends Sensor {
+        @Override
+        protected boolean connect() throws SSJFatalException {
+            return true;
+        }
+
+        @Override
+        protected void disconnect() throws SSJFatalException {
+        }
+
+        @Override
+        public OptionList getOptions() {
+            return null;
+        }
+    }
+
+    private static class CounterChannel extends SensorChannel {
+        private int count = 0;
+
+        @Override
+        protected boolean process(Stream stream_out) throws SSJFatalException {
+            count++;
+            stream_out.ptrF()[0] = count;
+            stream_out.ptrF()[1] = -count;
+            return true;
+        }
+
+        @Override
+        protected double getSampleRate() {
+            return 50;
+        }
+
+        @Override
+        protected int getSampleDimension() {
+            return 2;
+        }
+
+        @Override
+        protected Cons.Type getSampleType() {
+            return Cons.Type.FLOAT;
+        }
+
+        @Override
+        protected void describeOutput(Stream stream_out) {
+            stream_out.desc = new String[]{"count", "negative count"};
+        }
+
+        @Override
+        public OptionList getOptions() {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that received samples are counter values of CounterChannel
+     */
+    private static class CounterChecker extends Consumer {
+        volatile int received = 0;
+        volatile int errors = 0;
+
+        @Override
+        protected void consume(Stream[] stream_in, Event trigger) throws SSJFatalException {
+            float[] data = stream_in[0].ptrF();
+
+            for (int i = 0; i < stream_in[0].num; i++) {
+                float value = data[i * 2];
+
+                // zeros until the first frame arrived
+                if (value == 0 && data[i * 2 + 1] == 0) {
+                    continue;
+                }
+
+                if (value != Math.round(value) || data[i * 2 + 1] != -value) {
+                    errors++;
+                }
+                received++;
+            }
+        }
+
+        @Override
+        public OptionList getOptions() {
+            return null;
+        }
+    }
+}
@@ -33,12 +33,22 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
 import hcm.ssj.camera.CameraChannel;
 import hcm.ssj.camera.CameraSensor;
+import hcm.ssj.camera.CameraUtil;
+import hcm.ssj.camera.ImageResampler;
 import hcm.ssj.camera.ImageResizer;
+import hcm.ssj.camera.NV21Converter;
 import hcm.ssj.camera.NV21ToRGBDecoder;
+import hcm.ssj.camera.VisionPreprocessor;
 import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.stream.ImageStream;
 import hcm.ssj.test.Logger;
 
 /**
@@ -105,4 +115,200 @@ public class NV21ToRGBDecoderTest {
         frame.stop();
         frame.release();
     }
+
+    @Test
+    public void convertNV21() throws Exception {
+        final int RUNS = 50;
+        int[][] sizes = {{640, 480}, {1280, 720}, {33, 17}};
+        Random random = new Random(1);
+
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+
+            byte[] yuv = new byte[width * height + (height + 1) / 2 * width + 1];
+            random.nextBytes(yuv);
+
+            byte[] rgbSlow = new byte[width * height * 3];
+            byte[] rgb = new byte[width * height * 3];
+            int[] argbSlow = new int[width * height];
+            int[] argb = new int[width * height];
+
+            CameraUtil.convertNV21ToRGB_slow(rgbSlow, yuv, width, height);
+            CameraUtil.convertNV21ToRGB(rgb, yuv, width, height, false);
+            CameraUtil.convertNV21ToARGBInt_slow(argbSlow, yuv, width, height);
+            CameraUtil.convertNV21ToARGBInt(argb, yuv, width, height);
+
+            if (!Arrays.equals(rgb, rgbSlow) || !Arrays.equals(argb, argbSlow)) {
+                throw new RuntimeException("conversion of " + width + "x" + height + " differs from reference");
+            }
+
+            // Fused variants must equal conversion followed by sampling and normalization
+            int outWidth = width / 3 + 1;
+            int outHeight = height / 3 + 1;
+            byte[] scaled = new byte[outWidth * outHeight * 3];
+            float[] normalized = new float[outWidth * outHeight * 3];
+
+            NV21Converter.convertToRGB(scaled, yuv, width, height, outWidth, outHeight);
+            NV21Converter.convertToNormalized(normalized, yuv, width, height, outWidth, outHeight, 127.5f, 127.5f);
+
+            for (int y = 0; y < outHeight; y++) {
+                for (int x = 0; x < outWidth; x++) {
+                    int src = ((2 * y + 1) * height / (2 * outHeight) * width + (2 * x + 1) * width / (2 * outWidth)) * 3;
+                    int dst = (y * outWidth + x) * 3;
+
+                    for (int c = 0; c < 3; c++) {
+                        if (scaled[dst + c] != rgbSlow[src + c]
+                                || normalized[dst + c] != ((rgbSlow[src + c] & 0xFF) - 127.5f) / 127.5f) {
+                            throw new RuntimeException("fused conversion of " + width + "x" + height + " differs from reference");
+                        }
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                CameraUtil.convertNV21ToARGBInt_slow(argbSlow, yuv, width, height);
+            }
+            long slow = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                CameraUtil.convertNV21ToARGBInt(argb, yuv, width, height);
+            }
+            long fast = System.nanoTime() - start;
+
+            Log.i(width + "x" + height + ": " + (slow / RUNS / 1000) + " us reference, " + (fast / RUNS / 1000) + " us table-driven");
+        }
+    }
+
+    @Test
+    public void resampleImage() throws Exception {
+        final int SIZE = 224;
+        int width = 640;
+        int height = 480;
+        Random random = new Random(2);
+
+        byte[] yuv = new byte[width * height * 3 / 2];
+        random.nextBytes(yuv);
+
+        byte[] rgb = new byte[width * height * 3];
+        CameraUtil.convertNV21ToRGB(rgb, yuv, width, height, false);
+
+        // Cropping without scaling copies the pixels, rotated by 90 degrees clockwise
+        byte[] cropped = new byte[SIZE * SIZE * 3];
+        new ImageResampler(width, height, SIZE, SIZE, 90, true, true).resampleRGB(rgb, cropped);
+
+        int left = (width - SIZE) / 2;
+        int top = (height - SIZE) / 2;
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int src = ((top + SIZE - 1 - x) * width + left + y) * 3;
+                int dst = (y * SIZE + x) * 3;
+
+                for (int c = 0; c < 3; c++) {
+                    if (cropped[dst + c] != rgb[src + c]) {
+                        throw new RuntimeException("cropped pixel (" + x + ", " + y + ") differs");
+                    }
+                }
+            }
+        }
+
+        // Resampling NV21 frames directly must equal decoding them first
+        ImageResampler resampler = new ImageResampler(width, height, SIZE, SIZE, 90, true, false);
+        byte[] fromRGB = new byte[SIZE * SIZE * 3];
+        byte[] fromNV21 = new byte[SIZE * SIZE * 3];
+
+        resampler.resampleRGB(rgb, fromRGB);
+        resampler.resampleNV21(yuv, fromNV21);
+
+        if (!Arrays.equals(fromRGB, fromNV21)) {
+            throw new RuntimeException("resampled NV21 frame differs from resampled RGB image");
+        }
+    }
+
+    @Test
+    public void shareVisionPreprocessing() throws Exception {
+        final int SIZE = 16;
+        int width = 64;
+        int height = 48;
+        Random random = new Random(3);
+
+        // Two components reading the same camera channel
+        CameraChannel channel = new CameraChannel();
+        ImageStream[] streams = new ImageStream[2];
+
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = new ImageStream(1, width * height * 3, 30, width, height, Cons.ImageFormat.FLEX_RGB_888.val);
+            streams[i].source = channel;
+            streams[i].time = 1.0;
+        }
+
+        random.nextBytes(streams[0].ptrB());
+        System.arraycopy(streams[0].ptrB(), 0, streams[1].ptrB(), 0, width * height * 3);
+
+        VisionPreprocessor first = VisionPreprocessor.get(streams[0], 270);
+        VisionPreprocessor second = VisionPreprocessor.get(streams[1], -90);
+        VisionPreprocessor other = VisionPreprocessor.get(streams[1], 90);
+
+        if (first != second || first == other) {
+            throw new RuntimeException("pre-processor not shared by source and rotation");
+        }
+
+        VisionPreprocessor.Frame frame = first.acquire(streams[0]);
+
+        if (second.acquire(streams[1]) != frame) {
+            throw new RuntimeException("frame converted twice");
+        }
+
+        // Rotated by 270 degrees clockwise
+        byte[] rgb = streams[0].ptrB();
+        byte[] rotated = frame.getRGB();
+
+        for (int y = 0; y < width; y++) {
+            for (int x = 0; x < height; x++) {
+                int src = (x * width + width - 1 - y) * 3;
+                int dst = (y * height + x) * 3;
+
+                for (int c = 0; c < 3; c++) {
+                    if (rotated[dst + c] != rgb[src + c]) {
+                        throw new RuntimeException("rotated pixel (" + x + ", " + y + ") differs");
+                    }
+                }
+            }
+        }
+
+        // Model inputs are normalized once per frame
+        ByteBuffer input = frame.getModelInput(SIZE, 127.5f, 127.5f);
+
+        if (input != frame.getModelInput(SIZE, 127.5f, 127.5f) || input == frame.getModelInput(SIZE, 0, 255.0f)) {
+            throw new RuntimeException("model input not cached");
+        }
+
+        byte[] resized = new byte[SIZE * SIZE * 3];
+        new ImageResampler(height, width, SIZE, SIZE, 0, false, false).resampleRGB(rotated, resized);
+
+        for (int i = 0; i < resized.length; i++) {
+            if (input.getFloat(i * 4) != ((resized[i] & 0xFF) - 127.5f) / 127.5f) {
+                throw new RuntimeException("model input value " + i + " differs");
+            }
+        }
+
+        // The next frame must not overwrite the frame which is still in use
+        streams[0].time = 2.0;
+        VisionPreprocessor.Frame next = first.acquire(streams[0]);
+
+        if (next == frame || next.getTime() != 2.0 || frame.getTime() != 1.0) {
+            throw new RuntimeException("frame in use was recycled");
+        }
+
+        first.release(frame);
+        second.release(frame);
+        first.release(next);
+
+        VisionPreprocessor.release(first);
+        VisionPreprocessor.release(second);
+        VisionPreprocessor.release(other);
+    }
 }
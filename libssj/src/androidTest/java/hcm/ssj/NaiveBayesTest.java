@@ -41,6 +41,7 @@ import hcm.ssj.core.Annotation;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.ml.BatchTrainer;
 import hcm.ssj.ml.NaiveBayes;
 import hcm.ssj.ml.NaiveBayesOld;
 
@@ -133,4 +134,52 @@ public class NaiveBayesTest {
         Log.d("test for input " + testStream.ptrF()[0] + ":    " + Arrays.toString(probs));
         Assert.assertArrayEquals("unexpected result!", new float[]{0.0f, 1.0f}, probs, 1E-5f);
     }
+
+    @Test
+    public void parallelBatchTrainingTest() throws Exception {
+        String[] classNames = new String[]{"a", "b"};
+        int sessionCount = 4;
+
+        // Sequentially trained reference model
+        NaiveBayes reference = new NaiveBayes();
+        reference.setup(classNames, 4, 2, 1, Cons.Type.FLOAT);
+
+        // Model trained from all sessions in parallel
+        NaiveBayes model = new NaiveBayes();
+        model.setup(classNames, 4, 2, 1, Cons.Type.FLOAT);
+
+        BatchTrainer batchTrainer = new BatchTrainer(model);
+
+        for (int s = 0; s < sessionCount; s++) {
+            Stream stream = Stream.create(100, 2, 1, Cons.Type.FLOAT);
+
+            for (int i = 0; i < stream.num * stream.dim; i++) {
+                stream.ptrF()[i] = (i < stream.num ? 0.0f : 0.9f) + (float) (Math.random() / 10f);
+            }
+
+            Annotation anno = new Annotation();
+            anno.setClasses(classNames);
+            anno.addEntry(classNames[0], 0, stream.num / 2 / stream.sr);
+            anno.addEntry(classNames[1], stream.num / 2 / stream.sr, stream.num / stream.sr);
+
+            reference.train(stream, anno);
+            batchTrainer.addSession("session" + s, stream, anno);
+        }
+
+        Assert.assertEquals(100 * sessionCount, batchTrainer.train());
+
+        // Merged statistics have to match the sequentially trained model
+        Stream testStream = Stream.create(1, 2, 1, Cons.Type.FLOAT);
+
+        for (float value = 0; value <= 1.0f; value += 0.25f) {
+            testStream.ptrF()[0] = value;
+            testStream.ptrF()[1] = value;
+
+            float[] expected = reference.forward(testStream).clone();
+            float[] probs = model.forward(testStream);
+
+            Log.d("test for input " + value + ":    " + Arrays.toString(probs));
+            Assert.assertArrayEquals("batch and sequential training differ!", expected, probs, 1E-4f);
+        }
+    }
 }
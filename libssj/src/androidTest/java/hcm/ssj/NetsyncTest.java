@@ -33,10 +33,19 @@ import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+
 import hcm.ssj.audio.AudioChannel;
 import hcm.ssj.audio.Microphone;
+import hcm.ssj.core.ClockSync;
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
+import hcm.ssj.core.TimeBuffer;
 import hcm.ssj.test.Logger;
 
 
@@ -151,4 +160,124 @@ public class NetsyncTest {
         frame.stop();
         Log.i("test finished");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testClockSyncLoopback() throws Exception {
+        // Simulated master clock: 2.5 s ahead, running 1000 ppm faster than the local clock
+        final long start = System.nanoTime() / 1000;
+        final ClockSync.TimeSource local = new ClockSync.TimeSource() {
+            @Override
+            public long getTimeUs() {
+                return System.nanoTime() / 1000 - start;
+            }
+        };
+        final ClockSync.TimeSource master = new ClockSync.TimeSource() {
+            @Override
+            public long getTimeUs() {
+                long time = local.getTimeUs();
+                return time + 2500000 + time / 1000;
+            }
+        };
+
+        final DatagramSocket masterSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] data = new byte[ClockSync.MESSAGE_SIZE];
+                try {
+                    while (true) {
+                        DatagramPacket packet = new DatagramPacket(data, data.length);
+                        masterSocket.receive(packet);
+                        long recv = master.getTimeUs();
+
+                        if (ClockSync.isRequest(data, packet.getLength())) {
+                            masterSocket.send(new DatagramPacket(data, ClockSync.respond(data, recv, master), packet.getSocketAddress()));
+                        }
+                    }
+                } catch (IOException e) {
+                    // socket closed
+                }
+            }
+        }).start();
+
+        DatagramSocket slaveSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        slaveSocket.setSoTimeout(100);
+
+        ClockSync sync = new ClockSync(local, 8);
+        byte[] request = new byte[ClockSync.MESSAGE_SIZE];
+        byte[] response = new byte[ClockSync.MESSAGE_SIZE];
+
+        for (int exchange = 0; exchange < 20; exchange++) {
+            for (int i = 0; i < 5; i++) {
+                slaveSocket.send(new DatagramPacket(request, sync.createRequest(request), masterSocket.getLocalSocketAddress()));
+
+                DatagramPacket packet = new DatagramPacket(response, response.length);
+                try {
+                    slaveSocket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+
+                if (ClockSync.isResponse(response, packet.getLength())) {
+                    sync.addResponse(response, local.getTimeUs());
+                }
+            }
+
+            sync.update();
+            Thread.sleep(100);
+        }
+
+        double error = sync.getMasterTimeUs(local.getTimeUs()) - master.getTimeUs();
+        Log.i("offset error " + Math.round(error) + " us, drift " + sync.getDrift() * 1e6 + " ppm, rtt "
+              + sync.getRttUs() + " us, jitter " + sync.getResidualUs() + " us");
+
+        masterSocket.close();
+        slaveSocket.close();
+
+        if (Math.abs(error) > 1000) {
+            throw new RuntimeException("offset not estimated");
+        }
+        if (Math.abs(sync.getDrift() - 1e-3) > 1e-4) {
+            throw new RuntimeException("drift not estimated");
+        }
+    }
+
+    @Test
+    public void testTimeBufferSync() throws Exception {
+        TimeBuffer buffer = new TimeBuffer(10, 100, 1, 4, Cons.Type.FLOAT, null);
+        float[] data = new float[100];
+        float[] sample = new float[1];
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < data.length; j++) {
+                data[j] = i * data.length + j;
+            }
+            buffer.push(data, data.length * 4);
+
+            if (i == 0) {
+                buffer.sync(1.0);
+            } else if (i == 1) {
+                // Sensor lags behind by two samples
+                buffer.sync(2.02);
+            }
+        }
+
+        // The correction is spread over the samples after the sync instead of skipping samples at once
+        float last = 149;
+        for (int i = 150; i < 300; i++) {
+            if (buffer.get(sample, i, 1) != TimeBuffer.STATUS_SUCCESS) {
+                throw new RuntimeException("sample " + i + " not available");
+            }
+            if (sample[0] < last || sample[0] > last + 1) {
+                throw new RuntimeException("jump at sample " + i);
+            }
+            last = sample[0];
+        }
+
+        // Large corrections are applied immediately
+        buffer.sync(4.0);
+        if (buffer.get(sample, 390, 1) != TimeBuffer.STATUS_SUCCESS || sample[0] != 291) {
+            throw new RuntimeException("large correction not applied");
+        }
+    }
+}
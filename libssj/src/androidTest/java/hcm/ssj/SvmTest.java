@@ -36,15 +36,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
 
 import hcm.ssj.androidSensor.AndroidSensor;
 import hcm.ssj.androidSensor.AndroidSensorChannel;
 import hcm.ssj.androidSensor.SensorType;
 import hcm.ssj.body.AccelerationFeatures;
+import hcm.ssj.core.Annotation;
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
 import hcm.ssj.core.Provider;
+import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileWriter;
+import hcm.ssj.ml.BatchTrainer;
 import hcm.ssj.ml.ClassifierT;
+import hcm.ssj.ml.ModelCache;
 import hcm.ssj.ml.SVM;
 import hcm.ssj.test.Logger;
 
@@ -133,4 +141,108 @@ public class SvmTest {
         if (outputFile.exists()) outputFile.delete();
         if (data.exists()) data.delete();
     }
+
+    @Test
+    public void testModelCache() throws Exception {
+        // Resources
+        File dir = getContext().getFilesDir();
+        String modelName = "search_model.trainer";
+        TestHelper.copyAssetToFile(modelName, new File(dir, modelName));
+        TestHelper.copyAssetToFile(modelName + ".SVM.model", new File(dir, modelName + ".SVM.model"));
+        TestHelper.copyAssetToFile(modelName + ".SVM.option", new File(dir, modelName + ".SVM.option"));
+
+        ModelCache.getInstance().clear();
+
+        // First load parses trainer and model file
+        SVM first = new SVM();
+        first.options.file.setValue(dir.getAbsolutePath() + File.separator + modelName);
+        first.setup();
+        first.load();
+
+        int cached = ModelCache.getInstance().size();
+        Assert.assertTrue(cached > 0);
+
+        // Second load is served from the cache
+        SVM second = new SVM();
+        second.options.file.setValue(dir.getAbsolutePath() + File.separator + modelName);
+        second.setup();
+        second.load();
+
+        Assert.assertEquals(cached, ModelCache.getInstance().size());
+        Assert.assertTrue(second.isTrained());
+        Assert.assertEquals(first.getOutputDim(), second.getOutputDim());
+
+        // Eviction removes the parsed model
+        ModelCache.getInstance().evict(new File(dir, modelName + ".SVM.model"));
+        Assert.assertEquals(cached - 1, ModelCache.getInstance().size());
+
+        ModelCache.getInstance().clear();
+        Assert.assertEquals(0, ModelCache.getInstance().size());
+    }
+
+    @Test
+    public void testBatchTraining() throws Exception {
+        File dir = getContext().getFilesDir();
+        String[] classNames = new String[]{"a", "b"};
+
+        // Features of different ranges to exercise the scaling, class b is shifted in both dimensions
+        SVM model = new SVM();
+        model.setup(classNames, 4, 2, 1, Cons.Type.FLOAT);
+
+        BatchTrainer batchTrainer = new BatchTrainer(model);
+        Random random = new Random(1);
+
+        for (int s = 0; s < 2; s++) {
+            Stream stream = Stream.create(100, 2, 1, Cons.Type.FLOAT);
+
+            for (int i = 0; i < stream.num; i++) {
+                boolean b = i >= stream.num / 2;
+                stream.ptrF()[i * 2] = (b ? 1.0f : 0.0f) + random.nextFloat() * 0.2f;
+                stream.ptrF()[i * 2 + 1] = (b ? 200.0f : 100.0f) + random.nextFloat() * 20.0f;
+            }
+
+            Annotation anno = new Annotation();
+            anno.setClasses(classNames);
+            anno.addEntry(classNames[0], 0, stream.num / 2 / stream.sr);
+            anno.addEntry(classNames[1], stream.num / 2 / stream.sr, stream.num / stream.sr);
+
+            batchTrainer.addSession("session" + s, stream, anno);
+        }
+
+        Assert.assertEquals(200, batchTrainer.train());
+        Assert.assertTrue(model.isTrained());
+
+        // Save in SSI format and load into a new model
+        model.save(dir.getAbsolutePath(), "batch");
+        ModelCache.getInstance().clear();
+
+        SVM loaded = new SVM();
+        loaded.options.file.setValue(dir.getAbsolutePath() + File.separator + "batch.trainer");
+        loaded.setup();
+        loaded.load();
+
+        Assert.assertTrue(loaded.isTrained());
+        Assert.assertEquals(2, loaded.getOutputDim());
+
+        Stream testStream = Stream.create(1, 2, 1, Cons.Type.FLOAT);
+        float[][] inputs = {{0.1f, 110.0f}, {1.1f, 210.0f}};
+
+        for (int c = 0; c < inputs.length; c++) {
+            testStream.ptrF()[0] = inputs[c][0];
+            testStream.ptrF()[1] = inputs[c][1];
+
+            float[] expected = model.forward(testStream).clone();
+            float[] probs = loaded.forward(testStream);
+
+            Log.d("test for input " + Arrays.toString(inputs[c]) + ":    " + Arrays.toString(probs));
+            Assert.assertTrue("wrong class for " + classNames[c], probs[c] > probs[1 - c]);
+            for (int i = 0; i < probs.length; i++) {
+                Assert.assertEquals("loaded model differs", expected[i], probs[i], 1E-4f);
+            }
+        }
+
+        for (String file : new String[]{"batch.trainer", "batch.trainer.SVM.model"}) {
+            new File(dir, file).delete();
+        }
+    }
 }
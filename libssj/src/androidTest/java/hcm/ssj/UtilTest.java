@@ -38,7 +38,9 @@ import org.xmlpull.v1.XmlPullParser;
 
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.Random;
 
+import hcm.ssj.core.AsciiBuilder;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Util;
 
@@ -193,4 +195,48 @@ public class UtilTest {
 
         Log.i("output: " + Util.xmlToString(xml));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAsciiBuilder() throws Exception {
+        AsciiBuilder builder = new AsciiBuilder();
+        Random random = new Random(0);
+
+        for (int i = 0; i < 100000; i++) {
+            float f = Float.intBitsToFloat(random.nextInt());
+            builder.clear().append(f);
+
+            if (!Float.isNaN(f) && Float.parseFloat(builder.toString()) != f) {
+                throw new RuntimeException("float " + f + " formatted as " + builder);
+            }
+
+            double d = random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+            builder.clear().append(d);
+
+            if (Double.parseDouble(builder.toString()) != d) {
+                throw new RuntimeException("double " + d + " formatted as " + builder);
+            }
+
+            d = Double.longBitsToDouble(random.nextLong());
+            builder.clear().append(d);
+
+            if (!Double.isNaN(d) && Double.parseDouble(builder.toString()) != d) {
+                throw new RuntimeException("double " + d + " formatted as " + builder);
+            }
+        }
+
+        // Doubles which need 16 and 17 significant digits
+        double[] values = {1 / 3.0, 0.1 + 0.2, Double.MAX_VALUE, Double.MIN_NORMAL, 1e23};
+        String[] expected = {"0.3333333333333333", "0.30000000000000004", "1.7976931348623157E308", "2.2250738585072014E-308", "9.999999999999999E22"};
+
+        for (int i = 0; i < values.length; i++) {
+            if (!builder.clear().append(values[i]).toString().equals(expected[i])) {
+                throw new RuntimeException("double " + expected[i] + " formatted as " + builder);
+            }
+        }
+
+        builder.clear().append(-42).append(' ').append(1.5f).append(' ').append(1e-5);
+        if (!builder.toString().equals("-42 1.5 1.0E-5")) {
+            throw new RuntimeException("unexpected output " + builder);
+        }
+    }
+}
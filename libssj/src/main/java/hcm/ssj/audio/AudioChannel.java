@@ -46,6 +46,8 @@ public class AudioChannel extends SensorChannel {
     public final Options options = new Options();
     protected AudioRecord _recorder;
     byte[] _data = null;
+    short[] _pcm = null;
+    Cons.AudioFormat _format;
 
     public AudioChannel() {
         _name = "Microphone_Audio";
@@ -66,13 +68,21 @@ public class AudioChannel extends SensorChannel {
             Log.w("unexpected AudioRecord state = " + state);
         }
 
+        _format = options.audioFormat.get();
+
         if (options.scale.get()) {
-            if (options.audioFormat.get() != Cons.AudioFormat.ENCODING_PCM_8BIT && options.audioFormat.get() != Cons.AudioFormat.ENCODING_PCM_16BIT) {
-                Log.e("unsupported audio format for normalization");
+            // Samples are read in their native format and converted in one pass, 16 bit samples need no byte shuffling
+            switch (_format) {
+                case ENCODING_PCM_8BIT:
+                    _data = new byte[stream_out.num * stream_out.dim];
+                    break;
+                case ENCODING_PCM_16BIT:
+                case ENCODING_DEFAULT:
+                    _pcm = new short[stream_out.num * stream_out.dim];
+                    break;
+                default:
+                    Log.e("unsupported audio format for normalization");
             }
-
-            int numBytes = Microphone.audioFormatSampleBytes(options.audioFormat.get().val);
-            _data = new byte[stream_out.num * stream_out.dim * numBytes];
         }
 
         //startRecording has to be called as close to the first read as possible.
@@ -100,25 +110,27 @@ public class AudioChannel extends SensorChannel {
         } else {
             //read data
             // this is blocking and thus defines the update rate
-            _recorder.read(_data, 0, _data.length);
-
             //normalize it and convert it to floats
             float[] outf = stream_out.ptrF();
-            int i = 0, j = 0;
-            while (i < _data.length) {
-                switch (options.audioFormat.get()) {
-                    case ENCODING_PCM_8BIT:
-                        outf[j++] = _data[i++] / 128.0f;
-                        break;
-                    case ENCODING_PCM_16BIT:
-                    case ENCODING_DEFAULT:
-                        outf[j++] = (short) ((_data[i + 1] & 0xFF) << 8 | (_data[i + 0] & 0xFF)) / 32768.0f;
-                        i += 2;
-                        break;
-                    default:
-                        Log.w("unsupported audio format");
-                        return false;
+            switch (_format) {
+                case ENCODING_PCM_8BIT: {
+                    int n = _recorder.read(_data, 0, _data.length);
+                    for (int i = 0; i < n; i++) {
+                        outf[i] = _data[i] * (1.0f / 128.0f);
+                    }
+                    break;
+                }
+                case ENCODING_PCM_16BIT:
+                case ENCODING_DEFAULT: {
+                    int n = _recorder.read(_pcm, 0, _pcm.length);
+                    for (int i = 0; i < n; i++) {
+                        outf[i] = _pcm[i] * AudioUtil.PCM16_SCALE;
+                    }
+                    break;
                 }
+                default:
+                    Log.w("unsupported audio format");
+                    return false;
             }
         }
 
@@ -193,7 +205,7 @@ public class AudioChannel extends SensorChannel {
         public final Option<Integer> sampleRate = new Option<>("sampleRate", 8000, Integer.class, "");
         public final Option<Cons.ChannelFormat> channelConfig = new Option<>("channelConfig", Cons.ChannelFormat.CHANNEL_IN_MONO, Cons.ChannelFormat.class, "");
         public final Option<Cons.AudioFormat> audioFormat = new Option<>("audioFormat", Cons.AudioFormat.ENCODING_PCM_16BIT, Cons.AudioFormat.class, "");
-        public final Option<Boolean> scale = new Option<>("scale", true, Boolean.class, "");
+        public final Option<Boolean> scale = new Option<>("scale", true, Boolean.class, "convert samples to float in [-1,1], disable to output raw PCM samples (16 bit samples need half the memory and are written to files without conversion)");
         public final Option<Double> chunk = new Option<>("chunk", 0.1, Double.class, "how many samples to read at once (in seconds)");
 
         /**
@@ -0,0 +1,412 @@
+/*
+ * AudioFeatures.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.audio;
+
+import org.jtransforms.fft.FloatFFT_1D;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Transformer;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Computes a selectable set of paralinguistic features from one shared analysis frame:
+ * energy (RMS, dBSPL, silence), intensity, pitch with voicing strength and mel filterbank energies.<br>
+ * The frame is windowed once (Hann) and transformed with a single FFT. The power spectrum feeds the filterbank,
+ * its inverse transform is the autocorrelation used for pitch detection (Boersma, 1993: the autocorrelation of the
+ * windowed signal is divided by the autocorrelation of the window).
+ * RMS and dBSPL are computed like in {@link Energy}, intensity like in {@link Intensity} but with the Hann window of the frame.
+ * <p>
+ * Replaces a chain of Energy, Intensity, Pitch and Spectrogram transformers, each with its own thread, buffer copy and FFT.
+ */
+public class AudioFeatures extends Transformer {
+
+    public final Options options = new Options();
+
+    private float[] window;
+    private float[] buffer;
+    private float[] power;
+    private double[] windowAcf;
+    private FloatFFT_1D fft;
+    private int fftSize;
+    private int minLag;
+    private int maxLag;
+    private double windowSum;
+
+    private int[] bankStart;
+    private float[][] bankWeights;
+
+    public AudioFeatures() {
+        _name = "AudioFeatures";
+    }
+
+    @Override
+    public OptionList getOptions() {
+        return options;
+    }
+
+    @Override
+    public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
+        Stream audio = null;
+        for (Stream s : stream_in) {
+            if (s.findDataClass("Audio") >= 0) {
+                audio = s;
+            }
+        }
+        if (audio == null) {
+            audio = stream_in[0];
+            Log.w("no audio stream found, using first input stream");
+        }
+        if ((audio.type != Cons.Type.FLOAT && audio.type != Cons.Type.SHORT) || audio.dim != 1) {
+            throw new SSJFatalException("mono float or 16 bit PCM audio stream required");
+        }
+
+        int n = audio.num;
+
+        window = new float[n];
+        windowSum = 0;
+        for (int i = 0; i < n; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * (i + 0.5) / n));
+            windowSum += window[i];
+        }
+
+        // Zero padding keeps the autocorrelation free of circular wrap-around up to the longest period
+        int required = n;
+        if (options.computePitch.get() || options.computeVoicedProb.get()) {
+            minLag = Math.max(2, (int) Math.floor(audio.sr / options.maxPitch.get()));
+            maxLag = (int) Math.ceil(audio.sr / options.minPitch.get());
+
+            if (maxLag > n / 3) {
+                Log.w("frame too short for minimum pitch of " + options.minPitch.get() + " Hz, should cover at least three periods");
+                maxLag = n / 3;
+            }
+
+            if (maxLag <= minLag) {
+                // No lag is searched, frames are reported as unvoiced
+                Log.w("frame too short to detect any pitch below " + options.maxPitch.get() + " Hz, disabling pitch detection");
+                maxLag = minLag;
+            }
+
+            required = n + maxLag + 1;
+        }
+
+        fftSize = Integer.highestOneBit(Math.max(2, required) - 1) << 1;
+        fft = new FloatFFT_1D(fftSize);
+        buffer = new float[fftSize];
+        power = new float[fftSize / 2 + 1];
+
+        if (options.computePitch.get() || options.computeVoicedProb.get()) {
+            windowAcf = new double[maxLag + 2];
+            for (int lag = 0; lag < windowAcf.length; lag++) {
+                double sum = 0;
+                for (int i = 0; i + lag < n; i++) {
+                    sum += window[i] * window[i + lag];
+                }
+                windowAcf[lag] = sum;
+            }
+        }
+
+        if (options.computeFilterbank.get()) {
+            createFilterbank(audio.sr);
+        }
+    }
+
+    @Override
+    public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
+        // 16 bit samples are scaled while windowing instead of converting the whole stream beforehand
+        float[] data = (stream_in[0].type == Cons.Type.SHORT) ? null : stream_in[0].ptrF();
+        short[] pcm = (stream_in[0].type == Cons.Type.SHORT) ? stream_in[0].ptrS() : null;
+        float[] out = stream_out.ptrF();
+        int n = stream_in[0].num;
+
+        boolean pitch = options.computePitch.get() || options.computeVoicedProb.get();
+        boolean spectrum = pitch || options.computeFilterbank.get();
+
+        // The mean pressure is needed beforehand to sum the intensity around it, expanding sum(w * (x - m)^2)
+        // would cancel out for signals with a large offset
+        double mean = 0;
+        if (options.computeIntensity.get()) {
+            for (int i = 0; i < n; i++) {
+                mean += (pcm != null) ? pcm[i] * AudioUtil.PCM16_SCALE : data[i];
+            }
+            mean /= n;
+        }
+
+        // Time domain statistics and windowing in one pass
+        double sumx2 = 0, sumwd2 = 0;
+        for (int i = 0; i < n; i++) {
+            float x = (pcm != null) ? pcm[i] * AudioUtil.PCM16_SCALE : data[i];
+            double d = x - mean;
+
+            sumx2 += (double) x * x;
+            sumwd2 += window[i] * d * d;
+
+            buffer[i] = window[i] * x;
+        }
+
+        int dim = 0;
+
+        if (options.computeRMS.get()) {
+            out[dim++] = (float) Math.sqrt(sumx2 / n);
+        }
+
+        double spl = 20.0 * Math.log10(Math.sqrt(sumx2) / n);
+        boolean silent = spl < options.silenceThreshold.get();
+
+        if (options.computeSPL.get() || options.computeSilence.get()) {
+            if (options.computeSPL.get()) {
+                out[dim++] = (float) spl;
+            }
+            if (options.computeSilence.get()) {
+                out[dim++] = silent ? 1 : 0;
+            }
+        }
+
+        if (options.computeIntensity.get()) {
+            // sum(w * (x - m)^2) / sum(w) relative to the auditory threshold of 2e-5 Pa
+            double intensity = sumwd2 / windowSum;
+            if (intensity != 0.0) intensity /= 4e-10;
+            out[dim++] = (float) (intensity < 1e-30 ? -300 : 10 * Math.log10(intensity));
+        }
+
+        if (spectrum) {
+            for (int i = n; i < fftSize; i++) {
+                buffer[i] = 0;
+            }
+
+            fft.realForward(buffer);
+
+            // Packed format: [re(0), re(n/2), re(1), im(1), ...]
+            power[0] = buffer[0] * buffer[0];
+            power[fftSize / 2] = buffer[1] * buffer[1];
+            for (int k = 1; k < fftSize / 2; k++) {
+                power[k] = buffer[2 * k] * buffer[2 * k] + buffer[2 * k + 1] * buffer[2 * k + 1];
+            }
+        }
+
+        if (pitch) {
+            dim = computePitch(stream_in[0].sr, silent, out, dim);
+        }
+
+        if (options.computeFilterbank.get()) {
+            boolean log = options.logBanks.get();
+
+            for (int b = 0; b < bankWeights.length; b++) {
+                float[] weights = bankWeights[b];
+                double sum = 0;
+
+                for (int k = 0, bin = bankStart[b]; k < weights.length; k++, bin++) {
+                    sum += weights[k] * power[bin];
+                }
+
+                out[dim++] = log ? (float) Math.log10(Math.max(sum, 1e-10)) : (float) sum;
+            }
+        }
+    }
+
+    private int computePitch(double sr, boolean silent, float[] out, int dim) {
+        // Autocorrelation of the windowed frame is the inverse transform of the power spectrum
+        buffer[0] = power[0];
+        buffer[1] = power[fftSize / 2];
+        for (int k = 1; k < fftSize / 2; k++) {
+            buffer[2 * k] = power[k];
+            buffer[2 * k + 1] = 0;
+        }
+
+        fft.realInverse(buffer, true);
+
+        double r0 = buffer[0] / windowAcf[0];
+        double bestStrength = 0;
+        double bestScore = -Double.MAX_VALUE;
+        double bestLag = 0;
+
+        if (r0 > 0) {
+            double octaveCost = options.octaveCost.get();
+            double minPitch = options.minPitch.get();
+
+            double previous = buffer[minLag - 1] / windowAcf[minLag - 1] / r0;
+            double current = buffer[minLag] / windowAcf[minLag] / r0;
+
+            for (int lag = minLag; lag < maxLag; lag++) {
+                double next = buffer[lag + 1] / windowAcf[lag + 1] / r0;
+
+                if (current > previous && current >= next) {
+                    // Parabolic interpolation of position and height of the peak
+                    double denominator = previous - 2 * current + next;
+                    double offset = (denominator != 0) ? 0.5 * (previous - next) / denominator : 0;
+                    double strength = current - 0.25 * (previous - next) * offset;
+                    double period = lag + offset;
+
+                    // Favour higher frequencies to avoid octave errors
+                    double score = strength - octaveCost * Math.log(minPitch * period / sr) / Math.log(2);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestStrength = strength;
+                        bestLag = period;
+                    }
+                }
+
+                previous = current;
+                current = next;
+            }
+        }
+
+        bestStrength = Math.max(0, Math.min(1, bestStrength));
+        boolean voiced = !silent && bestLag > 0 && bestStrength >= options.voicingThreshold.get()
+                && sr / bestLag >= options.minPitch.get() && sr / bestLag <= options.maxPitch.get();
+
+        if (options.computePitch.get()) {
+            out[dim++] = voiced ? (float) (sr / bestLag) : -1;
+        }
+        if (options.computeVoicedProb.get()) {
+            out[dim++] = (float) bestStrength;
+        }
+
+        return dim;
+    }
+
+    private void createFilterbank(double sr) {
+        int banks = options.banks.get();
+        double minFreq = options.minFreq.get();
+        double maxFreq = (options.maxFreq.get() > 0) ? Math.min(options.maxFreq.get(), sr / 2) : sr / 2;
+
+        // Triangular filters with centers equally spaced on the mel scale
+        double minMel = 2595 * Math.log10(1 + minFreq / 700);
+        double maxMel = 2595 * Math.log10(1 + maxFreq / 700);
+        double[] edges = new double[banks + 2];
+        for (int i = 0; i < edges.length; i++) {
+            double mel = minMel + (maxMel - minMel) * i / (banks + 1);
+            edges[i] = 700 * (Math.pow(10, mel / 2595) - 1);
+        }
+
+        double binWidth = sr / fftSize;
+        bankStart = new int[banks];
+        bankWeights = new float[banks][];
+
+        for (int b = 0; b < banks; b++) {
+            int first = (int) Math.ceil(edges[b] / binWidth);
+            int last = Math.min(fftSize / 2, (int) Math.floor(edges[b + 2] / binWidth));
+
+            bankStart[b] = first;
+            bankWeights[b] = new float[Math.max(0, last - first + 1)];
+
+            for (int k = first; k <= last; k++) {
+                double f = k * binWidth;
+                double weight = (f <= edges[b + 1])
+                        ? (f - edges[b]) / (edges[b + 1] - edges[b])
+                        : (edges[b + 2] - f) / (edges[b + 2] - edges[b + 1]);
+                bankWeights[b][k - first] = (float) Math.max(0, weight);
+            }
+
+            if (bankWeights[b].length == 0) {
+                Log.w("mel bank " + b + " does not contain any frequency bin, increase the frame size");
+            }
+        }
+    }
+
+    @Override
+    public int getSampleDimension(Stream[] stream_in) {
+        int dim = 0;
+
+        if (options.computeRMS.get()) dim++;
+        if (options.computeSPL.get()) dim++;
+        if (options.computeSilence.get()) dim++;
+        if (options.computeIntensity.get()) dim++;
+        if (options.computePitch.get()) dim++;
+        if (options.computeVoicedProb.get()) dim++;
+        if (options.computeFilterbank.get()) dim += options.banks.get();
+
+        return dim;
+    }
+
+    @Override
+    public int getSampleNumber(int sampleNumber_in) {
+        return 1;
+    }
+
+    @Override
+    public int getSampleBytes(Stream[] stream_in) {
+        return Util.sizeOf(Cons.Type.FLOAT);
+    }
+
+    @Override
+    public Cons.Type getSampleType(Stream[] stream_in) {
+        if (stream_in[0].type != Cons.Type.SHORT && stream_in[0].type != Cons.Type.FLOAT)
+            Log.e("Unsupported input stream type");
+
+        return Cons.Type.FLOAT;
+    }
+
+    @Override
+    public void describeOutput(Stream[] stream_in, Stream stream_out) {
+        stream_out.desc = new String[stream_out.dim];
+
+        int i = 0;
+        if (options.computeRMS.get()) stream_out.desc[i++] = "RMS";
+        if (options.computeSPL.get()) stream_out.desc[i++] = "SPL";
+        if (options.computeSilence.get()) stream_out.desc[i++] = "Silence";
+        if (options.computeIntensity.get()) stream_out.desc[i++] = "Intensity";
+        if (options.computePitch.get()) stream_out.desc[i++] = "Pitch";
+        if (options.computeVoicedProb.get()) stream_out.desc[i++] = "VoicedProb";
+        if (options.computeFilterbank.get()) {
+            for (int b = 0; b < options.banks.get(); b++) {
+                stream_out.desc[i++] = "Mel" + b;
+            }
+        }
+    }
+
+    public class Options extends OptionList {
+        public final Option<Boolean> computeRMS = new Option<>("computeRMS", false, Boolean.class, "output root mean square of the frame");
+        public final Option<Boolean> computeSPL = new Option<>("computeSPL", true, Boolean.class, "output sound pressure level (dB) of the frame");
+        public final Option<Boolean> computeSilence = new Option<>("computeSilence", false, Boolean.class, "output 1 if the sound pressure level is below the silence threshold");
+        public final Option<Double> silenceThreshold = new Option<>("silenceThreshold", -70.0, Double.class, "in DB, default of -70 defined in TarsosDSP: be.tarsos.dsp.SilenceDetector");
+        public final Option<Boolean> computeIntensity = new Option<>("computeIntensity", true, Boolean.class, "output intensity (dB) of the frame");
+        public final Option<Boolean> computePitch = new Option<>("computePitch", true, Boolean.class, "output pitch (Hz) of the frame, -1 if unvoiced");
+        public final Option<Boolean> computeVoicedProb = new Option<>("computeVoicedProb", false, Boolean.class, "output voicing strength (normalized autocorrelation at the pitch period)");
+        public final Option<Float> minPitch = new Option<>("minPitch", 52.0f, Float.class, "lowest pitch to consider, the frame should cover at least three periods");
+        public final Option<Float> maxPitch = new Option<>("maxPitch", 620.0f, Float.class, "highest pitch to consider");
+        public final Option<Double> voicingThreshold = new Option<>("voicingThreshold", 0.6, Double.class, "minimum voicing strength of voiced frames, silent frames are always unvoiced");
+        public final Option<Double> octaveCost = new Option<>("octaveCost", 0.01, Double.class, "preference for higher pitch candidates per octave");
+        public final Option<Boolean> computeFilterbank = new Option<>("computeFilterbank", false, Boolean.class, "output mel filterbank energies");
+        public final Option<Integer> banks = new Option<>("banks", 26, Integer.class, "number of mel filters");
+        public final Option<Double> minFreq = new Option<>("minFreq", 20.0, Double.class, "lower edge of the first mel filter (Hz)");
+        public final Option<Double> maxFreq = new Option<>("maxFreq", 0.0, Double.class, "upper edge of the last mel filter (Hz), nyquist if 0");
+        public final Option<Boolean> logBanks = new Option<>("logBanks", true, Boolean.class, "apply logarithm (log10) to the filterbank energies");
+
+        /**
+         *
+         */
+        private Options() {
+            addOptions();
+        }
+    }
+}
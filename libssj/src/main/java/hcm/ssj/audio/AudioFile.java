@@ -0,0 +1,272 @@
+/*
+ * AudioFile.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.file.MappedStreamReader;
+
+/**
+ * Random access to the samples of an uncompressed audio file (WAV or headerless PCM).<br>
+ * Only the header is parsed when opening the file, samples are copied chunk by chunk from a memory mapping
+ * so that recordings of any length can be read with constant memory and as fast as the storage allows.
+ * Does not depend on Android classes and can therefore also be used in plain JVM code.
+ */
+public class AudioFile {
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final int sampleRate;
+    private final int channels;
+    private final Cons.Type type;
+    private final MappedStreamReader reader;
+
+    private byte[] bytes = new byte[0];
+    private short[] shorts = new short[0];
+    private int[] ints = new int[0];
+
+    private AudioFile(File file, int sampleRate, int channels, Cons.Type type, long offset, long length) throws IOException {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IOException("invalid audio format: " + sampleRate + " Hz, " + channels + " channels");
+        }
+
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.type = type;
+        this.reader = new MappedStreamReader(file, type, channels, offset, length);
+    }
+
+    /**
+     * Opens a WAV file with 8, 16 or 32 bit integer or 32 bit float samples
+     */
+    public static AudioFile openWav(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+            raf.readFully(header.array(), 0, 12);
+            if (header.getInt(0) != fourCC("RIFF") || header.getInt(8) != fourCC("WAVE")) {
+                throw new IOException(file.getName() + " is not a WAV file");
+            }
+
+            int format = -1, channels = 0, sampleRate = 0, bits = 0;
+            long pos = 12;
+
+            while (pos + 8 <= raf.length()) {
+                raf.seek(pos);
+                raf.readFully(header.array(), 0, 8);
+
+                int id = header.getInt(0);
+                long size = header.getInt(4) & 0xFFFFFFFFL;
+
+                if (id == fourCC("fmt ")) {
+                    raf.readFully(header.array(), 0, (int) Math.min(size, header.capacity()));
+
+                    format = header.getShort(0) & 0xFFFF;
+                    channels = header.getShort(2) & 0xFFFF;
+                    sampleRate = header.getInt(4);
+                    bits = header.getShort(14) & 0xFFFF;
+
+                    if (format == WAVE_FORMAT_EXTENSIBLE && size >= 26) {
+                        // The first two bytes of the sub format GUID hold the actual format
+                        format = header.getShort(24) & 0xFFFF;
+                    }
+                } else if (id == fourCC("data")) {
+                    if (format < 0) {
+                        throw new IOException("data chunk without format in " + file.getName());
+                    }
+
+                    // Writers which are interrupted before finalizing the header leave the size at 0 or -1
+                    long length = (size == 0 || size == 0xFFFFFFFFL) ? -1 : size;
+
+                    return new AudioFile(file, sampleRate, channels, getType(format, bits), pos + 8, length);
+                }
+
+                // Chunks are word aligned
+                pos += 8 + size + (size & 1);
+            }
+
+            throw new IOException("no data chunk found in " + file.getName());
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Opens a headerless file of little-endian integer samples (8 bit samples are unsigned as in WAV files)
+     */
+    public static AudioFile openPcm(File file, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        return new AudioFile(file, sampleRate, channels, getType(WAVE_FORMAT_PCM, bitsPerSample), 0, -1);
+    }
+
+    /**
+     * Opens a WAV file if it starts with a RIFF header, otherwise reads it as headerless PCM file of the given format
+     */
+    public static AudioFile open(File file, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        boolean wav;
+
+        try {
+            wav = raf.length() >= 12 && Integer.reverseBytes(raf.readInt()) == fourCC("RIFF");
+        } finally {
+            raf.close();
+        }
+
+        return wav ? openWav(file) : openPcm(file, sampleRate, channels, bitsPerSample);
+    }
+
+    private static Cons.Type getType(int format, int bits) throws IOException {
+        if (format == WAVE_FORMAT_PCM) {
+            switch (bits) {
+                case 8:
+                    return Cons.Type.BYTE;
+                case 16:
+                    return Cons.Type.SHORT;
+                case 32:
+                    return Cons.Type.INT;
+            }
+        } else if (format == WAVE_FORMAT_IEEE_FLOAT && bits == 32) {
+            return Cons.Type.FLOAT;
+        }
+
+        throw new IOException("unsupported audio format " + format + " with " + bits + " bits per sample");
+    }
+
+    private static int fourCC(String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return type of the samples in the file, BYTE samples are unsigned
+     */
+    public Cons.Type getSampleType() {
+        return type;
+    }
+
+    /**
+     * @return number of samples (frames of all channels) in the file
+     */
+    public long getSampleCount() {
+        return reader.getSampleCount();
+    }
+
+    public double getDuration() {
+        return (double) getSampleCount() / sampleRate;
+    }
+
+    /**
+     * @return index of the next sample to read
+     */
+    public long getPosition() {
+        return reader.getPosition();
+    }
+
+    public void seek(long sample) {
+        reader.seek(sample);
+    }
+
+    public boolean isEndOfFile() {
+        return reader.isEndOfFile();
+    }
+
+    /**
+     * Reads interleaved 16 bit samples without conversion
+     *
+     * @return number of samples read, less than num if the end of the file has been reached
+     */
+    public int read(short[] dst, int dstSample, int num) throws IOException {
+        if (type != Cons.Type.SHORT) {
+            throw new IOException("file does not contain 16 bit samples");
+        }
+
+        return reader.read(dst, dstSample, num);
+    }
+
+    /**
+     * Reads interleaved samples scaled to [-1,1]
+     *
+     * @return number of samples read, less than num if the end of the file has been reached
+     */
+    public int read(float[] dst, int dstSample, int num) throws IOException {
+        int n;
+        int values = num * channels;
+        int off = dstSample * channels;
+
+        switch (type) {
+            case BYTE:
+                if (bytes.length < values) {
+                    bytes = new byte[values];
+                }
+                n = reader.read(bytes, 0, num);
+                for (int i = 0; i < n * channels; i++) {
+                    dst[off + i] = ((bytes[i] & 0xFF) - 128) * (1.0f / 128.0f);
+                }
+                break;
+            case SHORT:
+                if (shorts.length < values) {
+                    shorts = new short[values];
+                }
+                n = reader.read(shorts, 0, num);
+                AudioUtil.pcm16ToFloat(shorts, 0, dst, off, n * channels);
+                break;
+            case INT:
+                if (ints.length < values) {
+                    ints = new int[values];
+                }
+                n = reader.read(ints, 0, num);
+                for (int i = 0; i < n * channels; i++) {
+                    dst[off + i] = ints[i] * (1.0f / 2147483648.0f);
+                }
+                break;
+            default:
+                n = reader.read(dst, dstSample, num);
+                break;
+        }
+
+        return n;
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * AudioFileChannel.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.audio;
+
+import java.io.IOException;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.Monitor;
+import hcm.ssj.core.SSJException;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.SensorChannel;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Provides the samples of an audio file opened by the AudioFileReader.<br>
+ * The output matches the AudioChannel: floats in [-1,1] or, if scaling is disabled, raw 16 bit samples.
+ * Once the end of the file is reached, the monitor is notified and no more data is provided.
+ */
+public class AudioFileChannel extends SensorChannel {
+    public final Options options = new Options();
+    private AudioFile audioFile;
+    private boolean scale;
+    private boolean endOfFile;
+
+    public AudioFileChannel() {
+        _name = "AudioFile_Audio";
+    }
+
+    @Override
+    public OptionList getOptions() {
+        return options;
+    }
+
+    @Override
+    protected void init() throws SSJException {
+        try {
+            audioFile = ((AudioFileReader) _sensor).getAudioFile();
+        } catch (IOException e) {
+            throw new SSJException("error opening audio file", e);
+        }
+
+        double minChunk = 1.0 / audioFile.getSampleRate();
+        if (options.chunk.get() < minChunk) {
+            Log.w("chunk size too small, setting to " + minChunk + "s");
+            options.chunk.set(minChunk);
+        }
+
+        scale = options.scale.get();
+        if (!scale && audioFile.getSampleType() != Cons.Type.SHORT) {
+            Log.w("raw output only supported for 16 bit files, scaling samples");
+            scale = true;
+        }
+    }
+
+    @Override
+    public void enter(Stream stream_out) throws SSJFatalException {
+        try {
+            audioFile = ((AudioFileReader) _sensor).getAudioFile();
+        } catch (IOException e) {
+            throw new SSJFatalException("error opening audio file", e);
+        }
+
+        audioFile.seek((long) (options.offset.get() * audioFile.getSampleRate()));
+        endOfFile = false;
+    }
+
+    @Override
+    protected boolean process(Stream stream_out) throws SSJFatalException {
+        if (endOfFile) {
+            // Nothing left to provide, avoid spinning if the pipeline does not run in real time
+            try {
+                Thread.sleep(Cons.SLEEP_IN_LOOP);
+            } catch (InterruptedException e) {
+                Log.w("thread interrupt");
+            }
+            return false;
+        }
+
+        int num = 0;
+        try {
+            num = read(stream_out, 0);
+
+            while (num < stream_out.num && ((AudioFileReader) _sensor).options.loop.get() && audioFile.getSampleCount() > 0) {
+                audioFile.seek(0);
+                num += read(stream_out, num);
+            }
+        } catch (IOException e) {
+            throw new SSJFatalException("could not read from audio file", e);
+        }
+
+        if (num < stream_out.num) {
+            Log.i("end of file reached");
+            endOfFile = true;
+
+            //notify listeners
+            Monitor.notifyMonitor();
+
+            if (num == 0) {
+                return false;
+            }
+
+            Util.fillZeroes(stream_out.ptr(), num * stream_out.dim, (stream_out.num - num) * stream_out.dim);
+        }
+
+        return true;
+    }
+
+    private int read(Stream stream_out, int offset) throws IOException {
+        if (scale) {
+            return audioFile.read(stream_out.ptrF(), offset, stream_out.num - offset);
+        } else {
+            return audioFile.read(stream_out.ptrS(), offset, stream_out.num - offset);
+        }
+    }
+
+    @Override
+    public double getSampleRate() {
+        return audioFile.getSampleRate();
+    }
+
+    @Override
+    public int getSampleDimension() {
+        return audioFile.getChannels();
+    }
+
+    @Override
+    public int getSampleNumber() {
+        return (int) (options.chunk.get() * getSampleRate() + 0.5);
+    }
+
+    @Override
+    public Cons.Type getSampleType() {
+        return scale ? Cons.Type.FLOAT : Cons.Type.SHORT;
+    }
+
+    @Override
+    public void describeOutput(Stream stream_out) {
+        stream_out.desc = new String[1];
+        stream_out.desc[0] = "Audio";
+    }
+
+    public class Options extends OptionList {
+        public final Option<Double> chunk = new Option<>("chunk", 0.1, Double.class, "how many samples to read at once (in seconds)");
+        public final Option<Boolean> scale = new Option<>("scale", true, Boolean.class, "convert samples to float in [-1,1], disable to output raw 16 bit samples");
+        public final Option<Double> offset = new Option<>("offset", 0.0, Double.class, "start reading from indicated time (in seconds)");
+
+        private Options() {
+            addOptions();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * AudioFileReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJException;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.Sensor;
+import hcm.ssj.core.option.FilePath;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+
+/**
+ * Audio file sensor - opens WAV or headerless PCM files for the AudioFileChannel.<br>
+ * Samples are streamed from the file chunk by chunk instead of decoding the whole recording up front.
+ * To process recordings faster than real time, disable the realtime option of the pipeline.
+ */
+public class AudioFileReader extends Sensor {
+    public final Options options = new Options();
+    private AudioFile audioFile = null;
+
+    public AudioFileReader() {
+        _name = "AudioFileReader";
+    }
+
+    @Override
+    public OptionList getOptions() {
+        return options;
+    }
+
+    @Override
+    protected void init() throws SSJException {
+        try {
+            getAudioFile();
+        } catch (IOException e) {
+            throw new SSJException("error opening audio file", e);
+        }
+    }
+
+    /**
+     * @return audio file, opened on first access
+     */
+    protected AudioFile getAudioFile() throws IOException {
+        if (audioFile == null) {
+            if (options.file.get() == null) {
+                throw new IOException("file not specified");
+            }
+
+            audioFile = AudioFile.open(new File(options.file.get().value), options.sampleRate.get(), options.channels.get(), options.bitsPerSample.get());
+
+            Log.i("opened " + options.file.get().value + " (" + audioFile.getSampleRate() + " Hz, " + audioFile.getChannels()
+                          + " channels, " + audioFile.getSampleType() + ", " + audioFile.getDuration() + " s)");
+        }
+
+        return audioFile;
+    }
+
+    @Override
+    protected boolean connect() throws SSJFatalException {
+        try {
+            getAudioFile().seek(0);
+        } catch (IOException e) {
+            throw new SSJFatalException("unable to open audio file", e);
+        }
+
+        return true;
+    }
+
+    @Override
+    protected void disconnect() throws SSJFatalException {
+        if (audioFile != null) {
+            try {
+                audioFile.close();
+            } catch (IOException e) {
+                Log.e("could not close audio file", e);
+            }
+
+            audioFile = null;
+        }
+    }
+
+    public class Options extends OptionList {
+        public final Option<FilePath> file = new Option<>("file", null, FilePath.class, "WAV or headerless PCM file");
+        public final Option<Boolean> loop = new Option<>("loop", false, Boolean.class, "restart at the beginning once the end of the file is reached");
+        public final Option<Integer> sampleRate = new Option<>("sampleRate", 16000, Integer.class, "sample rate of headerless PCM files");
+        public final Option<Integer> channels = new Option<>("channels", 1, Integer.class, "number of channels of headerless PCM files");
+        public final Option<Integer> bitsPerSample = new Option<>("bitsPerSample", 16, Integer.class, "bits per sample of headerless PCM files (8, 16 or 32)");
+
+        private Options() {
+            addOptions();
+        }
+    }
+}
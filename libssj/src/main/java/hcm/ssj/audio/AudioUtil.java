@@ -31,6 +31,62 @@ package hcm.ssj.audio;
  * Created by Ionut Damian on 21.12.2017.
  */
 public class AudioUtil {
+    /**
+     * Factor which maps 16 bit PCM samples to [-1,1)
+     */
+    public static final float PCM16_SCALE = 1.0f / 32768.0f;
+
+    /**
+     * Converts 16 bit PCM samples to floats in [-1,1)
+     */
+    public static void pcm16ToFloat(short[] src, int srcOff, float[] dst, int dstOff, int num) {
+        for (int i = 0; i < num; i++) {
+            dst[dstOff + i] = src[srcOff + i] * PCM16_SCALE;
+        }
+    }
+
+    /**
+     * Writes 16 bit PCM samples as little-endian bytes
+     */
+    public static void pcm16ToBytes(short[] src, int srcOff, byte[] dst, int dstOff, int num) {
+        for (int i = 0, j = dstOff; i < num; i++, j += 2) {
+            short value = src[srcOff + i];
+            dst[j] = (byte) value;
+            dst[j + 1] = (byte) (value >> 8);
+        }
+    }
+
+    /**
+     * Converts floats in [-1,1] to little-endian 16 bit PCM, values out of range are clipped
+     */
+    public static void floatToPcm16Bytes(float[] src, int srcOff, byte[] dst, int dstOff, int num) {
+        for (int i = 0, j = dstOff; i < num; i++, j += 2) {
+            int value = (int) (src[srcOff + i] * 32768.0f);
+            if (value > Short.MAX_VALUE) {
+                value = Short.MAX_VALUE;
+            } else if (value < Short.MIN_VALUE) {
+                value = Short.MIN_VALUE;
+            }
+            dst[j] = (byte) value;
+            dst[j + 1] = (byte) (value >> 8);
+        }
+    }
+
+    /**
+     * Converts floats in [-1,1] to 8 bit PCM, values out of range are clipped
+     */
+    public static void floatToPcm8Bytes(float[] src, int srcOff, byte[] dst, int dstOff, int num) {
+        for (int i = 0; i < num; i++) {
+            int value = (int) (src[srcOff + i] * 128.0f);
+            if (value > Byte.MAX_VALUE) {
+                value = Byte.MAX_VALUE;
+            } else if (value < Byte.MIN_VALUE) {
+                value = Byte.MIN_VALUE;
+            }
+            dst[dstOff + i] = (byte) value;
+        }
+    }
+
     /**
      * Modified Bessel function I0. Abramowicz and Stegun, p. 378.
      * <p>
@@ -35,7 +35,6 @@ import android.os.Build;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
@@ -133,44 +132,28 @@ public class AudioWriter extends Mp4Writer {
         try {
             switch (dataFormat) {
                 case BYTE: {
-                    byte[] in = stream_in[0].ptrB();
-                    for (int i = 0; i < in.length; i += aByShuffle.length) {
-                        System.arraycopy(in, i, aByShuffle, 0, aByShuffle.length);
-                        encode(aByShuffle);
-                        save(false);
-                    }
+                    System.arraycopy(stream_in[0].ptrB(), 0, aByShuffle, 0, aByShuffle.length);
+                    encode(aByShuffle);
+                    save(false);
                     break;
                 }
                 case SHORT: {
-                    short[] in = stream_in[0].ptrS();
-                    for (int i = 0; i < in.length; i += aByShuffle.length) {
-                        ByteBuffer.wrap(aByShuffle).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(in, i / 2, aByShuffle.length / 2);
-                        encode(aByShuffle);
-                        save(false);
-                    }
+                    // Native PCM samples only need to be laid out as little-endian bytes
+                    AudioUtil.pcm16ToBytes(stream_in[0].ptrS(), 0, aByShuffle, 0, aByShuffle.length / 2);
+                    encode(aByShuffle);
+                    save(false);
                     break;
                 }
-                case FLOAT_8:
-                    float[] in = stream_in[0].ptrF();
-                    for (int i = 0; i < in.length; ) {
-                        for (int j = 0; j < aByShuffle.length; j++, i += aByShuffle.length) {
-                            aByShuffle[j] = (byte) (in[i] * 128);
-                        }
-                        encode(aByShuffle);
-                        save(false);
-                    }
+                case FLOAT_8: {
+                    AudioUtil.floatToPcm8Bytes(stream_in[0].ptrF(), 0, aByShuffle, 0, aByShuffle.length);
+                    encode(aByShuffle);
+                    save(false);
                     break;
+                }
                 case FLOAT_16: {
-                    float[] in16 = stream_in[0].ptrF();
-                    for (int i = 0; i < in16.length; ) {
-                        for (int j = 0; j < aByShuffle.length; i++, j += 2) {
-                            short value = (short) (in16[i] * 32768);
-                            aByShuffle[j] = (byte) (value & 0xff);
-                            aByShuffle[j + 1] = (byte) ((value >> 8) & 0xff);
-                        }
-                        encode(aByShuffle);
-                        save(false);
-                    }
+                    AudioUtil.floatToPcm16Bytes(stream_in[0].ptrF(), 0, aByShuffle, 0, aByShuffle.length / 2);
+                    encode(aByShuffle);
+                    save(false);
                     break;
                 }
                 default: {
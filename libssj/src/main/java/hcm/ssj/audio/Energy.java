@@ -87,16 +87,28 @@ public class Energy extends Transformer {
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        float[] data = stream_in[0].ptrF();
         float[] out = stream_out.ptrF();
 
+        // RMS and SPL are both derived from the energy of the frame, 16 bit samples are scaled on the fly
+        int n;
+        double power;
+        if (stream_in[0].type == Cons.Type.SHORT) {
+            short[] data = stream_in[0].ptrS();
+            n = data.length;
+            power = localEnergy(data);
+        } else {
+            float[] data = stream_in[0].ptrF();
+            n = data.length;
+            power = localEnergy(data);
+        }
+
         int dim = 0;
         if (options.computeRMS.get()) {
-            out[dim++] = (float) calculateRMS(data);
+            out[dim++] = (float) Math.sqrt(power / n);
         }
 
         if (options.computeSPL.get() || options.computeSilence.get()) {
-            double SPL = soundPressureLevel(data);
+            double SPL = linearToDecibel(Math.sqrt(power) / n);
             out[dim++] = (float) SPL;
 
             if (options.computeSilence.get()) {
@@ -128,7 +140,7 @@ public class Energy extends Transformer {
 
     @Override
     public int getSampleBytes(Stream[] stream_in) {
-        if (stream_in[0].bytes != 4)
+        if (stream_in[0].bytes != 2 && stream_in[0].bytes != 4)
             Log.e("Unsupported input stream type");
 
         return 4;
@@ -136,7 +148,7 @@ public class Energy extends Transformer {
 
     @Override
     public Cons.Type getSampleType(Stream[] stream_in) {
-        if (stream_in[0].type != Cons.Type.FLOAT)
+        if (stream_in[0].type != Cons.Type.SHORT && stream_in[0].type != Cons.Type.FLOAT)
             Log.e("Unsupported input stream type");
 
         return Cons.Type.FLOAT;
@@ -163,18 +175,6 @@ public class Energy extends Transformer {
      *  Releases: http://0110.be/releases/TarsosDSP/
      ****************************************************/
 
-    /**
-     * Returns the dBSPL for a buffer.
-     *
-     * @param buffer The buffer with audio information.
-     * @return The dBSPL level for the buffer.
-     */
-    private double soundPressureLevel(float[] buffer) {
-        double value = Math.pow(localEnergy(buffer), 0.5);
-        value = value / buffer.length;
-        return linearToDecibel(value);
-    }
-
     /**
      * Calculates the local (linear) energy of an audio buffer.
      *
@@ -189,6 +189,20 @@ public class Energy extends Transformer {
         return power;
     }
 
+    /**
+     * Calculates the local (linear) energy of a 16 bit PCM buffer scaled to [-1,1).
+     *
+     * @param buffer The audio buffer.
+     * @return The local (linear) energy of an audio buffer.
+     */
+    private double localEnergy(short[] buffer) {
+        long power = 0;
+        for (short element : buffer) {
+            power += element * element;
+        }
+        return power * (double) AudioUtil.PCM16_SCALE * AudioUtil.PCM16_SCALE;
+    }
+
     /**
      * Converts a linear to a dB value.
      *
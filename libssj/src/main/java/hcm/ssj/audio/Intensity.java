@@ -43,8 +43,12 @@ import hcm.ssj.core.stream.Stream;
 public class Intensity extends Transformer {
 
     public final Options options = new Options();
-    double[] amplitude = null;
     double[] window = null;
+    double[] windowPrefix = null;
+    double[] samples = null;
+    double[] samplePrefix = null;
+    double[] frameSumxw = null;
+    double[] frameSumw = null;
     private double myDuration, windowDuration, halfWindowDuration, outStep;
     private int halfWindowSamples, numberOfFrames;
 
@@ -73,7 +77,7 @@ public class Intensity extends Transformer {
                 audio = s;
             }
         }
-        if (audio == null || audio.type != Cons.Type.FLOAT) {
+        if (audio == null || (audio.type != Cons.Type.FLOAT && audio.type != Cons.Type.SHORT)) {
             Log.e("invalid input stream");
             return;
         }
@@ -93,65 +97,96 @@ public class Intensity extends Transformer {
          */
         halfWindowDuration = 0.5 * windowDuration;
         halfWindowSamples = (int) (halfWindowDuration / audio.step);
-        amplitude = new double[2 * halfWindowSamples + 1];
         window = new double[2 * halfWindowSamples + 1];
+        windowPrefix = new double[window.length + 1];
 
         double x, root;
         for (int i = -halfWindowSamples; i <= halfWindowSamples; i++) {
             x = i * audio.step / halfWindowDuration;
             root = 1 - x * x;
             window[i + halfWindowSamples] = root <= 0.0 ? 0.0 : AudioUtil.bessel_i0_f((2 * Math.PI * Math.PI + 0.5) * Math.sqrt(root));
+            windowPrefix[i + halfWindowSamples + 1] = windowPrefix[i + halfWindowSamples] + window[i + halfWindowSamples];
         }
 
+        samples = new double[audio.num];
+        samplePrefix = new double[audio.num + 1];
+        frameSumxw = new double[numberOfFrames];
+        frameSumw = new double[numberOfFrames];
+
     }
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
         Stream in = stream_in[0];
         Stream out = stream_out;
-        float[] data = in.ptrF();
+        float[] data = (in.type == Cons.Type.SHORT) ? null : in.ptrF();
+        short[] pcm = (in.type == Cons.Type.SHORT) ? in.ptrS() : null;
         float[] outf = out.ptrF();
 
-        double intensitySum = 0;
+        int num = in.num;
+        int dim = in.dim;
+        boolean subtractMean = options.subtractMeanPressure.get();
+        boolean mean = options.mean.get();
+
+        if (samples.length < num) {
+            samples = new double[num];
+            samplePrefix = new double[num + 1];
+        }
 
         for (int iframe = 0; iframe < numberOfFrames; iframe++) {
-            double midTime = in.time + iframe * outStep;
-            int midSample = (int) (Math.round((midTime - in.time) / in.step + 1.0));
-            int leftSample = midSample - halfWindowSamples, rightSample = midSample + halfWindowSamples;
-            double sumxw = 0.0, sumw = 0.0, intensity;
-            if (leftSample < 0) leftSample = 0;
-            if (rightSample >= in.num) rightSample = in.num - 1;
-
-            for (int channel = 0; channel < in.dim; channel++) {
-                for (int i = leftSample; i <= rightSample; i++) {
-                    amplitude[i - midSample + halfWindowSamples] = data[i * in.dim + channel];
-                }
-                if (options.subtractMeanPressure.get()) {
-                    double sum = 0.0;
-                    for (int i = leftSample; i <= rightSample; i++) {
-                        sum += amplitude[i - midSample + halfWindowSamples];
-                    }
-                    double mean = sum / (rightSample - leftSample + 1);
-                    for (int i = leftSample; i <= rightSample; i++) {
-                        amplitude[i - midSample + halfWindowSamples] -= mean;
-                    }
-                }
+            frameSumxw[iframe] = 0.0;
+            frameSumw[iframe] = 0.0;
+        }
+
+        /*
+         * Overlapping windows share their samples. The mean pressure of every window and the window weights are taken
+         * from prefix sums, so that each window is only visited once instead of copying, centering and summing it in
+         * separate passes. The samples are centered while summing, expanding sum(w*(x-m)^2) would cancel out for
+         * signals with a large offset.
+         */
+        for (int channel = 0; channel < dim; channel++) {
+            for (int i = 0, idx = channel; i < num; i++, idx += dim) {
+                samples[i] = (pcm != null) ? pcm[idx] * AudioUtil.PCM16_SCALE : data[idx];
+                samplePrefix[i + 1] = samplePrefix[i] + samples[i];
+            }
+
+            for (int iframe = 0; iframe < numberOfFrames; iframe++) {
+                double midTime = in.time + iframe * outStep;
+                int midSample = (int) (Math.round((midTime - in.time) / in.step + 1.0));
+                int leftSample = midSample - halfWindowSamples, rightSample = midSample + halfWindowSamples;
+                if (leftSample < 0) leftSample = 0;
+                if (rightSample >= num) rightSample = num - 1;
+
+                int offset = halfWindowSamples - midSample;
+                double m = subtractMean ? (samplePrefix[rightSample + 1] - samplePrefix[leftSample]) / (rightSample - leftSample + 1) : 0.0;
+                double sumx2w = 0.0;
+
                 for (int i = leftSample; i <= rightSample; i++) {
-                    sumxw += amplitude[i - midSample + halfWindowSamples] * amplitude[i - midSample + halfWindowSamples] * window[i - midSample + halfWindowSamples];
-                    sumw += window[i - midSample + halfWindowSamples];
+                    double x = samples[i] - m;
+                    sumx2w += x * x * window[i + offset];
                 }
+
+                double sumw = windowPrefix[rightSample + offset + 1] - windowPrefix[leftSample + offset];
+
+                frameSumxw[iframe] += sumx2w;
+                frameSumw[iframe] += sumw;
             }
-            intensity = sumxw / sumw;
+        }
+
+        double intensitySum = 0;
+
+        for (int iframe = 0; iframe < numberOfFrames; iframe++) {
+            double intensity = frameSumxw[iframe] / frameSumw[iframe];
             if (intensity != 0.0) intensity /= 4e-10;
             intensity = intensity < 1e-30 ? -300 : 10 * Math.log10(intensity);
 
-            if (!options.mean.get())
+            if (!mean)
                 outf[iframe] = (float) intensity;
             else
                 intensitySum += intensity;
         }
 
-        if (options.mean.get())
+        if (mean)
             outf[0] = (float) (intensitySum / numberOfFrames);
     }
 
@@ -190,7 +225,7 @@ public class Intensity extends Transformer {
 
     @Override
     public int getSampleBytes(Stream[] stream_in) {
-        if (stream_in[0].bytes != 4) //float
+        if (stream_in[0].bytes != 2 && stream_in[0].bytes != 4) //short or float
             Log.e("Unsupported input stream type");
 
         return 4;
@@ -198,7 +233,7 @@ public class Intensity extends Transformer {
 
     @Override
     public Cons.Type getSampleType(Stream[] stream_in) {
-        if (stream_in[0].type != Cons.Type.FLOAT)
+        if (stream_in[0].type != Cons.Type.SHORT && stream_in[0].type != Cons.Type.FLOAT)
             Log.e("Unsupported input stream type");
 
         return Cons.Type.FLOAT;
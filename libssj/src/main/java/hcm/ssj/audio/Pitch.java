@@ -56,9 +56,13 @@ public class Pitch extends Transformer {
     public final static int AMDF = 3;
     public final static int FFT_PITCH = 4;
     public final static int YIN = 5;
+    public final static int STREAMING_YIN = 6;
+    public final static int STREAMING_MPM = 7;
     public final Options options = new Options();
     protected PitchDetector _detector;
     protected float _lastPitch = 0;
+    private double _frameDuration = 0;
+    private float[] _samples = null;
 
     public Pitch() {
         _name = "Pitch";
@@ -69,6 +73,11 @@ public class Pitch extends Transformer {
         return options;
     }
 
+    @Override
+    public void init(double frame, double delta) {
+        _frameDuration = frame;
+    }
+
     @Override
     public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
         Stream audio = null;
@@ -82,6 +91,9 @@ public class Pitch extends Transformer {
             return;
         }
 
+        // The detectors work on floats, 16 bit samples are scaled into this buffer right before detection
+        _samples = (stream_in[0].type == Cons.Type.SHORT) ? new float[stream_in[0].num * stream_in[0].dim] : null;
+
         switch (options.detector.get()) {
             case DETECTOR_MPM:
                 _detector = new McLeodPitchMethod((float) audio.sr, audio.num * audio.dim);
@@ -98,6 +110,16 @@ public class Pitch extends Transformer {
             case FFT_PITCH:
                 _detector = new FFTPitch((int) audio.sr, audio.num * audio.dim);
                 break;
+            case STREAMING_YIN:
+            case STREAMING_MPM:
+                // Periods longer than 1 / minPitch are discarded anyway, consecutive frames overlap by delta
+                PitchTracker tracker = new PitchTracker(options.detector.get() == STREAMING_MPM ? PitchTracker.Method.MPM : PitchTracker.Method.YIN,
+                                                        (float) audio.sr, audio.num * audio.dim, (int) Math.ceil(audio.sr / options.minPitch.get()) + 1);
+                if (audio.dim == 1) {
+                    tracker.setHop((int) (_frameDuration * audio.sr + 0.5));
+                }
+                _detector = tracker;
+                break;
             case YIN:
             default:
                 _detector = new Yin((float) audio.sr, audio.num * audio.dim);
@@ -107,7 +129,13 @@ public class Pitch extends Transformer {
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        float[] data = stream_in[0].ptrF();
+        float[] data;
+        if (_samples != null) {
+            data = _samples;
+            AudioUtil.pcm16ToFloat(stream_in[0].ptrS(), 0, data, 0, data.length);
+        } else {
+            data = stream_in[0].ptrF();
+        }
         float[] out = stream_out.ptrF();
 
         PitchDetectionResult result = _detector.getPitch(data);
@@ -190,7 +218,7 @@ public class Pitch extends Transformer {
     }
 
     public class Options extends OptionList {
-        public final Option<Integer> detector = new Option<>("detector", YIN, Integer.class, "");
+        public final Option<Integer> detector = new Option<>("detector", YIN, Integer.class, "0 = MPM, 1 = dynamic wavelet, 2 = FFT YIN, 3 = AMDF, 4 = FFT pitch, 5 = YIN, 6 = streaming YIN, 7 = streaming MPM");
         public final Option<Boolean> computePitch = new Option<>("computePitch", true, Boolean.class, "output the pitch value");
         public final Option<Boolean> computePitchEnvelope = new Option<>("computePitchEnvelope", false, Boolean.class, "output envelope which provides old pitch value again whenever pitch is invalid");
         public final Option<Boolean> computeVoicedProb = new Option<>("computeVoicedProb", false, Boolean.class, "output the probability of the sample being voiced");
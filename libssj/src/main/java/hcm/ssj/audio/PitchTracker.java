@@ -0,0 +1,328 @@
+/*
+ * PitchTracker.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.audio;
+
+import org.jtransforms.fft.DoubleFFT_1D;
+
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchDetector;
+
+/**
+ * Pitch detector for overlapping frames of a continuous signal, supporting YIN and MPM (McLeod Pitch Method).<br>
+ * Both methods are derived from the same autocorrelation r(t) = sum x[j] * x[j + t] over a fixed window
+ * and the signal energy of the shifted windows, which is taken from prefix sums of squares.
+ * The autocorrelation is computed with an FFT, if consecutive buffers overlap (see {@link #setHop(int)})
+ * it is updated by removing the contribution of the samples which left the window and adding the new samples,
+ * which is cheaper than a recomputation as long as the hop is small compared to the buffer.
+ * <p>
+ * All buffers and the returned result object are reused, the result is only valid until the next call.
+ */
+public class PitchTracker implements PitchDetector {
+
+    public enum Method {
+        YIN,
+        MPM
+    }
+
+    private static final double YIN_THRESHOLD = 0.20;
+    private static final double MPM_CUTOFF = 0.97;
+    private static final double MPM_MIN_CLARITY = 0.5;
+    private static final int REFRESH_INTERVAL = 256;
+
+    private final Method method;
+    private final float sampleRate;
+    private final int size;
+    private final int maxLag;
+    private final int window;
+
+    private final DoubleFFT_1D fft;
+    private final double[] fftWindow;
+    private final double[] fftBuffer;
+
+    private final double[] acf;
+    private final double[] energy;
+    private final double[] function;
+    private final int[] keyMaxima;
+    private final float[] previous;
+    private final PitchDetectionResult result = new PitchDetectionResult();
+
+    private int hop = 0;
+    private boolean valid = false;
+    private int updates = 0;
+
+    /**
+     * @param method     YIN or MPM
+     * @param sampleRate sample rate of the signal
+     * @param bufferSize number of samples passed to {@link #getPitch(float[])}
+     * @param maxLag     largest period to consider in samples, limited to half the buffer size
+     */
+    public PitchTracker(Method method, float sampleRate, int bufferSize, int maxLag) {
+        this.method = method;
+        this.sampleRate = sampleRate;
+        this.size = bufferSize;
+        this.maxLag = Math.max(2, Math.min(maxLag, bufferSize / 2));
+        this.window = bufferSize - this.maxLag;
+
+        // Circular correlation of a size-long buffer does not wrap for lags <= maxLag
+        int fftSize = Integer.highestOneBit(bufferSize - 1) << 1;
+        fft = new DoubleFFT_1D(fftSize);
+        fftWindow = new double[fftSize];
+        fftBuffer = new double[fftSize];
+
+        acf = new double[this.maxLag + 1];
+        energy = new double[bufferSize + 1];
+        function = new double[this.maxLag + 1];
+        keyMaxima = new int[this.maxLag / 2 + 1];
+        previous = new float[bufferSize];
+    }
+
+    /**
+     * @param sampleRate sample rate of the signal
+     * @param bufferSize number of samples passed to {@link #getPitch(float[])}
+     */
+    public PitchTracker(Method method, float sampleRate, int bufferSize) {
+        this(method, sampleRate, bufferSize, bufferSize / 2);
+    }
+
+    /**
+     * Sets the number of new samples per call. Consecutive buffers then share their last (size - hop) samples
+     * with the first samples of the next buffer, which allows incremental updates of the autocorrelation.
+     *
+     * @param hop number of new samples per buffer, 0 if buffers are unrelated
+     */
+    public void setHop(int hop) {
+        this.hop = hop;
+        this.valid = false;
+    }
+
+    @Override
+    public PitchDetectionResult getPitch(float[] buffer) {
+        updateEnergy(buffer);
+
+        if (canUpdate(buffer)) {
+            updateCorrelation(buffer);
+            updates++;
+        } else {
+            computeCorrelation(buffer);
+            updates = 0;
+        }
+
+        System.arraycopy(buffer, 0, previous, 0, size);
+        valid = true;
+
+        if (method == Method.MPM) {
+            detectMpm();
+        } else {
+            detectYin();
+        }
+
+        return result;
+    }
+
+    private boolean canUpdate(float[] buffer) {
+        if (!valid || hop <= 0 || hop > window || updates >= REFRESH_INTERVAL) {
+            return false;
+        }
+
+        // The update costs 2 * hop * maxLag multiplications, three FFTs of size n roughly 7.5 * n * log2(n) operations
+        int n = fftBuffer.length;
+        if (2L * hop * (maxLag + 1) > 7.5 * n * (31 - Integer.numberOfLeadingZeros(n))) {
+            return false;
+        }
+
+        // Make sure the buffers are actually consecutive (e.g. no gap after a restart)
+        return buffer[0] == previous[hop] && buffer[size - hop - 1] == previous[size - 1];
+    }
+
+    private void updateEnergy(float[] buffer) {
+        for (int i = 0; i < size; i++) {
+            energy[i + 1] = energy[i] + (double) buffer[i] * buffer[i];
+        }
+    }
+
+    private void computeCorrelation(float[] buffer) {
+        // r(t) = sum_{j < window} a[j] * b[j + t] = IFFT(conj(A) * B)
+        for (int i = 0; i < fftBuffer.length; i++) {
+            fftWindow[i] = (i < window) ? buffer[i] : 0;
+            fftBuffer[i] = (i < size) ? buffer[i] : 0;
+        }
+
+        fft.realForward(fftWindow);
+        fft.realForward(fftBuffer);
+
+        // Packed format: [re(0), re(n/2), re(1), im(1), ...]
+        fftBuffer[0] *= fftWindow[0];
+        fftBuffer[1] *= fftWindow[1];
+
+        for (int k = 2; k < fftBuffer.length; k += 2) {
+            double ar = fftWindow[k], ai = fftWindow[k + 1];
+            double br = fftBuffer[k], bi = fftBuffer[k + 1];
+
+            fftBuffer[k] = ar * br + ai * bi;
+            fftBuffer[k + 1] = ar * bi - ai * br;
+        }
+
+        fft.realInverse(fftBuffer, true);
+
+        System.arraycopy(fftBuffer, 0, acf, 0, maxLag + 1);
+    }
+
+    private void updateCorrelation(float[] buffer) {
+        for (int t = 0; t <= maxLag; t++) {
+            double sum = acf[t];
+
+            // Samples which left the window (indices of the previous buffer)
+            for (int j = 0; j < hop; j++) {
+                sum -= (double) previous[j] * previous[j + t];
+            }
+
+            // Samples which entered the window (indices of the current buffer)
+            for (int j = window - hop; j < window; j++) {
+                sum += (double) buffer[j] * buffer[j + t];
+            }
+
+            acf[t] = sum;
+        }
+    }
+
+    private void detectYin() {
+        // Cumulative mean normalized difference d'(t) with d(t) = e(0) + e(t) - 2 * r(t)
+        double e0 = energy[window];
+        double runningSum = 0;
+
+        function[0] = 1;
+
+        for (int t = 1; t <= maxLag; t++) {
+            double d = Math.max(0, e0 + energy[t + window] - energy[t] - 2 * acf[t]);
+            runningSum += d;
+            function[t] = (runningSum > 0) ? d * t / runningSum : 1;
+        }
+
+        // Absolute threshold, then follow the dip down to its local minimum
+        int tau = -1;
+        for (int t = 2; t <= maxLag; t++) {
+            if (function[t] < YIN_THRESHOLD) {
+                while (t + 1 <= maxLag && function[t + 1] < function[t]) {
+                    t++;
+                }
+                tau = t;
+                break;
+            }
+        }
+
+        if (tau < 0) {
+            setResult(-1, 0, false);
+            return;
+        }
+
+        setResult(sampleRate / (float) interpolate(tau), (float) (1 - function[tau]), true);
+    }
+
+    private void detectMpm() {
+        // Normalized square difference n(t) = 2 * r(t) / (e(0) + e(t))
+        double e0 = energy[window];
+
+        for (int t = 0; t <= maxLag; t++) {
+            double m = e0 + energy[t + window] - energy[t];
+            function[t] = (m > 0) ? 2 * acf[t] / m : 0;
+        }
+
+        // Key maxima are the highest maxima between a positive and the next negative zero crossing
+        int pos = 1;
+        while (pos < maxLag && function[pos] > 0) {
+            pos++;
+        }
+
+        double highest = 0;
+        int currentMax = 0;
+        int count = 0;
+
+        for (; pos < maxLag; pos++) {
+            if (function[pos] > 0 && function[pos] > function[pos - 1] && function[pos] >= function[pos + 1]) {
+                if (currentMax == 0 || function[pos] > function[currentMax]) {
+                    currentMax = pos;
+                }
+            }
+
+            if (currentMax > 0 && (function[pos + 1] <= 0 || pos + 1 == maxLag)) {
+                keyMaxima[count++] = currentMax;
+                highest = Math.max(highest, function[currentMax]);
+                currentMax = 0;
+            }
+        }
+
+        if (count == 0 || highest < MPM_MIN_CLARITY) {
+            setResult(-1, (float) highest, false);
+            return;
+        }
+
+        // The first key maximum close to the highest one is the fundamental period
+        double threshold = MPM_CUTOFF * highest;
+        int tau = keyMaxima[0];
+        for (int i = 0; i < count; i++) {
+            if (function[keyMaxima[i]] >= threshold) {
+                tau = keyMaxima[i];
+                break;
+            }
+        }
+
+        setResult(sampleRate / (float) interpolate(tau), (float) highest, true);
+    }
+
+    /**
+     * @return period with sub-sample accuracy using parabolic interpolation around tau
+     */
+    private double interpolate(int tau) {
+        if (tau < 1 || tau >= maxLag) {
+            return tau;
+        }
+
+        double s0 = function[tau - 1], s1 = function[tau], s2 = function[tau + 1];
+        double denominator = s0 - 2 * s1 + s2;
+
+        if (denominator == 0) {
+            return tau;
+        }
+
+        return tau + 0.5 * (s0 - s2) / denominator;
+    }
+
+    private void setResult(float pitch, float probability, boolean pitched) {
+        result.setPitch(pitch);
+        result.setProbability(probability);
+        result.setPitched(pitched);
+    }
+
+    public int getBufferSize() {
+        return size;
+    }
+
+    public int getMaxLag() {
+        return maxLag;
+    }
+}
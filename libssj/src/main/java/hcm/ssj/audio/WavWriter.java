@@ -39,8 +39,6 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
@@ -51,6 +49,7 @@ import hcm.ssj.core.option.FolderPath;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.AsyncFileWriter;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.file.IFileWriter;
 
@@ -67,7 +66,7 @@ public class WavWriter extends Consumer implements IFileWriter {
     protected long lFrameIndex;
     //
     protected File file = null;
-    private BufferedOutputStream outputStream;
+    private AsyncFileWriter outputStream;
     //
     private int iSampleRate;
     private int iSampleNumber;
@@ -156,7 +155,7 @@ public class WavWriter extends Consumer implements IFileWriter {
         lFrameIndex = 0;
 
         try {
-            outputStream = new BufferedOutputStream(new FileOutputStream(file));
+            outputStream = new AsyncFileWriter(file, options.bufferSize.get() * 1024, AsyncFileWriter.DEFAULT_BUFFER_COUNT, options.sync.get(), options.overflow.get());
         } catch (IOException ex) {
             throw new SSJFatalException("RawEncoder creation failed: " + ex.getMessage());
         }
@@ -170,40 +169,24 @@ public class WavWriter extends Consumer implements IFileWriter {
     protected final void consume(Stream[] stream_in, Event trigger) throws SSJFatalException {
         switch (dataFormat) {
             case BYTE: {
-                byte[] in = stream_in[0].ptrB();
-                for (int i = 0; i < in.length; i += aByShuffle.length) {
-                    System.arraycopy(in, i, aByShuffle, 0, aByShuffle.length);
-                    write(aByShuffle);
-                }
+                System.arraycopy(stream_in[0].ptrB(), 0, aByShuffle, 0, aByShuffle.length);
+                write(aByShuffle);
                 break;
             }
             case SHORT: {
-                short[] in = stream_in[0].ptrS();
-                for (int i = 0; i < in.length; i += aByShuffle.length) {
-                    ByteBuffer.wrap(aByShuffle).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(in, i / 2, aByShuffle.length / 2);
-                    write(aByShuffle);
-                }
+                // Native PCM samples only need to be laid out as little-endian bytes
+                AudioUtil.pcm16ToBytes(stream_in[0].ptrS(), 0, aByShuffle, 0, aByShuffle.length / 2);
+                write(aByShuffle);
                 break;
             }
-            case FLOAT_8:
-                float[] in = stream_in[0].ptrF();
-                for (int i = 0; i < in.length; ) {
-                    for (int j = 0; j < aByShuffle.length; j++, i += aByShuffle.length) {
-                        aByShuffle[j] = (byte) (in[i] * 128);
-                    }
-                    write(aByShuffle);
-                }
+            case FLOAT_8: {
+                AudioUtil.floatToPcm8Bytes(stream_in[0].ptrF(), 0, aByShuffle, 0, aByShuffle.length);
+                write(aByShuffle);
                 break;
+            }
             case FLOAT_16: {
-                float[] in16 = stream_in[0].ptrF();
-                for (int i = 0; i < in16.length; ) {
-                    for (int j = 0; j < aByShuffle.length; i++, j += 2) {
-                        short value = (short) (in16[i] * 32768);
-                        aByShuffle[j] = (byte) (value & 0xff);
-                        aByShuffle[j + 1] = (byte) ((value >> 8) & 0xff);
-                    }
-                    write(aByShuffle);
-                }
+                AudioUtil.floatToPcm16Bytes(stream_in[0].ptrF(), 0, aByShuffle, 0, aByShuffle.length / 2);
+                write(aByShuffle);
                 break;
             }
             default: {
@@ -220,8 +203,8 @@ public class WavWriter extends Consumer implements IFileWriter {
     public final void flush(Stream[] stream_in) throws SSJFatalException {
         if (outputStream != null) {
             try {
-                outputStream.flush();
                 outputStream.close();
+                outputStream = null;
             } catch (IOException ex) {
                 Log.e("RawEncoder closing: " + ex.getMessage());
             }
@@ -348,6 +331,9 @@ public class WavWriter extends Consumer implements IFileWriter {
      */
     public class Options extends IFileWriter.Options {
         public final Option<Cons.AudioFormat> audioFormat = new Option<>("audioFormat", Cons.AudioFormat.ENCODING_DEFAULT, Cons.AudioFormat.class, "");
+        public final Option<Integer> bufferSize = new Option<>("bufferSize", 256, Integer.class, "size of the asynchronous write buffers (in KB)");
+        public final Option<AsyncFileWriter.SyncPolicy> sync = new Option<>("sync", AsyncFileWriter.SyncPolicy.CLOSE, AsyncFileWriter.SyncPolicy.class, "when written data is forced to the storage device");
+        public final Option<AsyncFileWriter.OverflowPolicy> overflow = new Option<>("overflow", AsyncFileWriter.OverflowPolicy.BLOCK, AsyncFileWriter.OverflowPolicy.class, "block or drop data if the storage device can not keep up");
 
         /**
          *
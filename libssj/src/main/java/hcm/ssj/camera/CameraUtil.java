@@ -185,64 +185,16 @@ public class CameraUtil {
 
     /**
      * Decodes YUVNV21 color space into a regular RGB format.
+     * Results are identical to {@link #convertNV21ToRGB_slow(byte[], byte[], int, int)}.
      *
      * @param out    Output array for RGB values.
      * @param yuv    YUV byte data to decode.
      * @param width  Width of image in pixels.
      * @param height Height of image in pixels.
-     * @param swap   swap U with V (default = true)
+     * @param swap   swap red and blue channel, i.e. output BGR (default = true)
      */
     public static void convertNV21ToRGB(byte[] out, byte[] yuv, int width, int height, boolean swap) {
-        int sz = width * height;
-        int i, j;
-        int Y, Cr = 0, Cb = 0;
-        int outPtr = 0;
-        for (j = 0; j < height; j++) {
-            int pixPtr = j * width;
-            final int jDiv2 = j >> 1;
-            for (i = 0; i < width; i++) {
-                Y = yuv[pixPtr];
-                if (Y < 0)
-                    Y += 255;
-                if ((i & 0x1) != 1) {
-                    final int cOff = sz + jDiv2 * width + (i >> 1) * 2;
-                    Cb = yuv[cOff + (swap ? 0 : 1)];
-                    if (Cb < 0) {
-                        Cb += 127;
-                    } else {
-                        Cb -= 128;
-                    }
-                    Cr = yuv[cOff + (swap ? 1 : 0)];
-                    if (Cr < 0) {
-                        Cr += 127;
-                    } else {
-                        Cr -= 128;
-                    }
-                }
-                int R = Y + Cr + (Cr >> 2) + (Cr >> 3) + (Cr >> 5);
-                if (R < 0) {
-                    R = 0;
-                } else if (R > 255) {
-                    R = 255;
-                }
-                int G = Y - (Cb >> 2) + (Cb >> 4) + (Cb >> 5) - (Cr >> 1) + (Cr >> 3) + (Cr >> 4) + (Cr >> 5);
-                if (G < 0) {
-                    G = 0;
-                } else if (G > 255) {
-                    G = 255;
-                }
-                int B = Y + Cb + (Cb >> 1) + (Cb >> 2) + (Cb >> 6);
-                if (B < 0) {
-                    B = 0;
-                } else if (B > 255) {
-                    B = 255;
-                }
-                pixPtr++;
-                out[outPtr++] = (byte) R;
-                out[outPtr++] = (byte) G;
-                out[outPtr++] = (byte) B;
-            }
-        }
+        NV21Converter.convertToRGB(out, yuv, width, height, swap);
     }
 
     /**
@@ -259,60 +211,16 @@ public class CameraUtil {
 
     /**
      * Decodes YUVNV21 color space into a regular RGB format.
+     * Results are identical to {@link #convertNV21ToARGBInt_slow(int[], byte[], int, int)}.
      *
      * @param out    Output array for RGB values.
      * @param yuv    YUV byte data to decode.
      * @param width  Width of image in pixels.
      * @param height Height of image in pixels.
-     * @param swap   swap U with V (default = true)
+     * @param swap   false to store red in the low and blue in the high byte (default = true)
      */
     public static void convertNV21ToARGBInt(int[] out, byte[] yuv, int width, int height, boolean swap) {
-        int sz = width * height;
-        int i, j;
-        int Y, Cr = 0, Cb = 0;
-        for (j = 0; j < height; j++) {
-            int pixPtr = j * width;
-            final int jDiv2 = j >> 1;
-            for (i = 0; i < width; i++) {
-                Y = yuv[pixPtr];
-                if (Y < 0)
-                    Y += 255;
-                if ((i & 0x1) != 1) {
-                    final int cOff = sz + jDiv2 * width + (i >> 1) * 2;
-                    Cb = yuv[cOff + (swap ? 0 : 1)];
-                    if (Cb < 0) {
-                        Cb += 127;
-                    } else {
-                        Cb -= 128;
-                    }
-                    Cr = yuv[cOff + (swap ? 1 : 0)];
-                    if (Cr < 0) {
-                        Cr += 127;
-                    } else {
-                        Cr -= 128;
-                    }
-                }
-                int R = Y + Cr + (Cr >> 2) + (Cr >> 3) + (Cr >> 5);
-                if (R < 0) {
-                    R = 0;
-                } else if (R > 255) {
-                    R = 255;
-                }
-                int G = Y - (Cb >> 2) + (Cb >> 4) + (Cb >> 5) - (Cr >> 1) + (Cr >> 3) + (Cr >> 4) + (Cr >> 5);
-                if (G < 0) {
-                    G = 0;
-                } else if (G > 255) {
-                    G = 255;
-                }
-                int B = Y + Cb + (Cb >> 1) + (Cb >> 2) + (Cb >> 6);
-                if (B < 0) {
-                    B = 0;
-                } else if (B > 255) {
-                    B = 255;
-                }
-                out[pixPtr++] = 0xff000000 + (B << 16) + (G << 8) + R;
-            }
-        }
+        NV21Converter.convertToARGB(out, yuv, width, height, !swap);
     }
 
     /**
@@ -414,7 +322,18 @@ public class CameraUtil {
      */
     public static int[] decodeBytes(byte[] rgbBytes, int width, int height) {
         int[] rgb = new int[width * height];
+        decodeBytes(rgbBytes, rgb, width, height);
+
+        return rgb;
+    }
 
+    /**
+     * Converts RGB bytes to RGB ints.
+     *
+     * @param rgbBytes RGB color bytes.
+     * @param rgb      Output array for RGB color integers.
+     */
+    public static void decodeBytes(byte[] rgbBytes, int[] rgb, int width, int height) {
         for (int i = 0; i < width * height; i++) {
             int r = rgbBytes[i * 3];
             int g = rgbBytes[i * 3 + 1];
@@ -429,8 +348,6 @@ public class CameraUtil {
 
             rgb[i] = 0xff000000 | (r << 16) | (g << 8) | b;
         }
-
-        return rgb;
     }
 
     /**
@@ -65,11 +65,8 @@ public class ImageNormalizer extends Transformer {
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        // Convert byte array to integer array
-        int[] rgb = CameraUtil.decodeBytes(stream_in[0].ptrB(), width, height);
-
         // Normalize image values and write result to the output buffer
-        normalizeImageValues(rgb, stream_out.ptrF());
+        normalizeImageValues(stream_in[0].ptrB(), stream_out.ptrF());
     }
 
     @Override
@@ -101,18 +98,15 @@ public class ImageNormalizer extends Transformer {
     /**
      * Prepares image for the classification with the Inception model.
      *
-     * @param rgb Pixel values to normalize.
+     * @param rgb RGB bytes to normalize.
      * @param out Output stream.
      */
-    private void normalizeImageValues(int[] rgb, float[] out) {
+    private void normalizeImageValues(byte[] rgb, float[] out) {
         float imageMean = options.imageMean.get();
         float imageStd = options.imageStd.get();
 
-        for (int i = 0; i < rgb.length; ++i) {
-            final int val = rgb[i];
-            out[i * 3] = (((val >> 16) & 0xFF) - imageMean) / imageStd;
-            out[i * 3 + 1] = (((val >> 8) & 0xFF) - imageMean) / imageStd;
-            out[i * 3 + 2] = ((val & 0xFF) - imageMean) / imageStd;
+        for (int i = 0; i < width * height * CHANNELS_PER_PIXEL; ++i) {
+            out[i] = ((rgb[i] & 0xFF) - imageMean) / imageStd;
         }
     }
 
@@ -0,0 +1,323 @@
+/*
+ * ImageResampler.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.camera;
+
+/**
+ * Crops, rotates and resizes images in a single pass without going through Android bitmaps.<br>
+ * The geometry equals the one of {@link CameraUtil#getTransformationMatrix}, restricted to
+ * rotations in steps of 90 degrees. Every output pixel is a weighted sum of source pixels: bilinear
+ * interpolation where the image is enlarged or slightly reduced and an area average over the
+ * covered source pixels where it is reduced by more than factor one. All sample positions and
+ * weights are precomputed, so resampling a frame does not allocate any memory.
+ */
+public class ImageResampler {
+    private static final int WEIGHT_BITS = 11;
+    private static final int ROUND = 1 << (2 * WEIGHT_BITS - 1);
+
+    private final int srcWidth;
+    private final int srcHeight;
+    private final int dstWidth;
+    private final int dstHeight;
+
+    private final Axis columns;
+    private final Axis rows;
+
+    /**
+     * @param srcWidth       width of the source image
+     * @param srcHeight      height of the source image
+     * @param dstWidth       width of the resampled image
+     * @param dstHeight      height of the resampled image
+     * @param rotation       clockwise rotation in degrees, must be a multiple of 90
+     * @param maintainAspect scale both axes by the same factor so that the destination is filled completely,
+     *                       parts of the source may fall off the edge
+     * @param crop           cut out the center of the rotated source without scaling
+     */
+    public ImageResampler(int srcWidth, int srcHeight, int dstWidth, int dstHeight, int rotation, boolean maintainAspect, boolean crop) {
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("rotation must be a multiple of 90 degrees");
+        }
+
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+
+        final int quarters = ((rotation / 90) % 4 + 4) % 4;
+        final boolean transpose = (quarters & 1) == 1;
+
+        final int inWidth = transpose ? srcHeight : srcWidth;
+        final int inHeight = transpose ? srcWidth : srcHeight;
+
+        double scaleX = 1;
+        double scaleY = 1;
+
+        if (!crop && (inWidth != dstWidth || inHeight != dstHeight)) {
+            scaleX = dstWidth / (double) inWidth;
+            scaleY = dstHeight / (double) inHeight;
+
+            if (maintainAspect) {
+                scaleX = scaleY = Math.max(scaleX, scaleY);
+            }
+        }
+
+        // Like the transformation matrix, only rotated images are aligned at the center
+        final boolean centered = crop || quarters != 0;
+
+        // Inverse rotation maps the output x axis onto the source x (even quarters) or y axis (odd quarters)
+        final boolean flipX = quarters == 1 || quarters == 2;
+        final boolean flipY = quarters == 2 || quarters == 3;
+
+        if (transpose) {
+            columns = new Axis(dstWidth, scaleX, centered, flipX, srcHeight, false);
+            rows = new Axis(dstHeight, scaleY, centered, flipY, srcWidth, true);
+        } else {
+            columns = new Axis(dstWidth, scaleX, centered, flipX, srcWidth, true);
+            rows = new Axis(dstHeight, scaleY, centered, flipY, srcHeight, false);
+        }
+    }
+
+    public int getWidth() {
+        return dstWidth;
+    }
+
+    public int getHeight() {
+        return dstHeight;
+    }
+
+    /**
+     * Resamples an image with interleaved 8 bit RGB values.
+     *
+     * @param rgb source image with srcWidth * srcHeight * 3 values
+     * @param out output array with at least dstWidth * dstHeight * 3 values
+     */
+    public void resampleRGB(byte[] rgb, byte[] out) {
+        final int stride = srcWidth * 3;
+        int a = 0;
+
+        for (int oy = 0; oy < dstHeight; oy++) {
+            for (int ox = 0; ox < dstWidth; ox++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+
+                for (int ty = rows.start[oy]; ty < rows.start[oy + 1]; ty++) {
+                    final int offset = rows.x[ty] * 3 + rows.y[ty] * stride;
+                    int rowR = 0;
+                    int rowG = 0;
+                    int rowB = 0;
+
+                    for (int tx = columns.start[ox]; tx < columns.start[ox + 1]; tx++) {
+                        final int p = offset + columns.x[tx] * 3 + columns.y[tx] * stride;
+                        final int w = columns.weight[tx];
+
+                        rowR += w * (rgb[p] & 0xff);
+                        rowG += w * (rgb[p + 1] & 0xff);
+                        rowB += w * (rgb[p + 2] & 0xff);
+                    }
+
+                    final int w = rows.weight[ty];
+                    r += w * rowR;
+                    g += w * rowG;
+                    b += w * rowB;
+                }
+
+                out[a++] = (byte) ((r + ROUND) >> (2 * WEIGHT_BITS));
+                out[a++] = (byte) ((g + ROUND) >> (2 * WEIGHT_BITS));
+                out[a++] = (byte) ((b + ROUND) >> (2 * WEIGHT_BITS));
+            }
+        }
+    }
+
+    /**
+     * Decodes and resamples a NV21 frame, only the source pixels which contribute to the output are decoded.
+     * The result equals decoding the frame with {@link NV21Converter} followed by {@link #resampleRGB}.
+     *
+     * @param yuv NV21 frame of srcWidth * srcHeight pixels
+     * @param out output array with at least dstWidth * dstHeight * 3 values
+     */
+    public void resampleNV21(byte[] yuv, byte[] out) {
+        final int frameSize = srcWidth * srcHeight;
+        int a = 0;
+
+        for (int oy = 0; oy < dstHeight; oy++) {
+            for (int ox = 0; ox < dstWidth; ox++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+
+                for (int ty = rows.start[oy]; ty < rows.start[oy + 1]; ty++) {
+                    final int rowX = rows.x[ty];
+                    final int rowY = rows.y[ty];
+                    int rowR = 0;
+                    int rowG = 0;
+                    int rowB = 0;
+
+                    for (int tx = columns.start[ox]; tx < columns.start[ox + 1]; tx++) {
+                        final int x = rowX + columns.x[tx];
+                        final int y = rowY + columns.y[tx];
+                        final int rgb = NV21Converter.convertPixel(yuv, y * srcWidth + x, frameSize + (y >> 1) * srcWidth + (x & ~1));
+                        final int w = columns.weight[tx];
+
+                        rowR += w * ((rgb >> 16) & 0xff);
+                        rowG += w * ((rgb >> 8) & 0xff);
+                        rowB += w * (rgb & 0xff);
+                    }
+
+                    final int w = rows.weight[ty];
+                    r += w * rowR;
+                    g += w * rowG;
+                    b += w * rowB;
+                }
+
+                out[a++] = (byte) ((r + ROUND) >> (2 * WEIGHT_BITS));
+                out[a++] = (byte) ((g + ROUND) >> (2 * WEIGHT_BITS));
+                out[a++] = (byte) ((b + ROUND) >> (2 * WEIGHT_BITS));
+            }
+        }
+    }
+
+    /**
+     * Source pixels and weights for every pixel along one output axis.
+     * Taps of output pixel i are stored at start[i] to start[i + 1] - 1, the source position
+     * is split into x and y so that either source axis can be addressed.
+     */
+    private static class Axis {
+        final int[] start;
+        final int[] x;
+        final int[] y;
+        final int[] weight;
+
+        /**
+         * @param size       number of output pixels
+         * @param scale      output pixels per source pixel
+         * @param centered   align centers of source and output instead of their origins
+         * @param flip       output axis runs opposite to the source axis
+         * @param sourceSize number of source pixels along the mapped source axis
+         * @param horizontal the mapped source axis is the x axis
+         */
+        Axis(int size, double scale, boolean centered, boolean flip, int sourceSize, boolean horizontal) {
+            final double footprint = 1.0 / scale;
+            final int maxTaps = footprint > 1 ? (int) Math.ceil(footprint) + 1 : 2;
+
+            start = new int[size + 1];
+            int[] index = new int[size * maxTaps];
+            weight = new int[size * maxTaps];
+
+            double[] coverage = new double[maxTaps];
+            int taps = 0;
+
+            for (int i = 0; i < size; i++) {
+                // Footprint of the output pixel in source coordinates
+                double lo = ((centered ? i - size / 2.0 : i) * footprint);
+                double hi = lo + footprint;
+
+                if (flip) {
+                    double tmp = lo;
+                    lo = -hi;
+                    hi = -tmp;
+                }
+
+                if (centered) {
+                    lo += sourceSize / 2.0;
+                    hi += sourceSize / 2.0;
+                }
+
+                start[i] = taps;
+
+                if (footprint > 1) {
+                    // Area average of all source pixels covered by the footprint
+                    int first = Math.max(0, (int) Math.floor(lo));
+                    int last = Math.min(sourceSize - 1, (int) Math.ceil(hi) - 1);
+                    int n = 0;
+                    double total = 0;
+
+                    for (int k = first; k <= last; k++) {
+                        coverage[n] = Math.min(hi, k + 1) - Math.max(lo, k);
+                        total += coverage[n];
+                        index[taps + n] = k;
+                        n++;
+                    }
+
+                    if (n == 0 || total <= 0) {
+                        // Footprint is outside of the source, repeat the edge pixel
+                        index[taps] = Math.min(sourceSize - 1, Math.max(0, (int) Math.floor(lo)));
+                        coverage[0] = total = 1;
+                        n = 1;
+                    }
+
+                    quantize(coverage, n, total, taps);
+                    taps += n;
+                } else {
+                    // Bilinear interpolation between the two nearest pixel centers
+                    double center = (lo + hi) / 2 - 0.5;
+                    int left = (int) Math.floor(center);
+                    double fraction = center - left;
+
+                    index[taps] = Math.min(sourceSize - 1, Math.max(0, left));
+                    index[taps + 1] = Math.min(sourceSize - 1, Math.max(0, left + 1));
+                    coverage[0] = 1 - fraction;
+                    coverage[1] = fraction;
+
+                    quantize(coverage, 2, 1, taps);
+                    taps += 2;
+                }
+            }
+
+            start[size] = taps;
+
+            x = new int[taps];
+            y = new int[taps];
+            for (int t = 0; t < taps; t++) {
+                if (horizontal) {
+                    x[t] = index[t];
+                } else {
+                    y[t] = index[t];
+                }
+            }
+        }
+
+        /**
+         * Converts relative weights to fixed point values which add up to exactly one
+         */
+        private void quantize(double[] coverage, int n, double total, int offset) {
+            int sum = 0;
+            int largest = 0;
+
+            for (int k = 0; k < n; k++) {
+                weight[offset + k] = (int) Math.round(coverage[k] / total * (1 << WEIGHT_BITS));
+                sum += weight[offset + k];
+
+                if (weight[offset + k] > weight[offset + largest]) {
+                    largest = k;
+                }
+            }
+
+            weight[offset + largest] += (1 << WEIGHT_BITS) - sum;
+        }
+    }
+}
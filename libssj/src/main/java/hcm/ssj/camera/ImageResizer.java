@@ -28,8 +28,6 @@
 package hcm.ssj.camera;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
@@ -42,6 +40,7 @@ import hcm.ssj.core.stream.Stream;
 
 /**
  * Transformer that re-sizes image to necessary dimensions.
+ * Accepts RGB images and NV21 camera frames, cropping, rotation and scaling are done in one pass.
  *
  * @author Vitaly
  */
@@ -52,11 +51,10 @@ public class ImageResizer extends Transformer {
     private int width;
     private int height;
     private int size;
-    private int[] intValues;
-    private Bitmap rgbBitmap;
-    private Bitmap finalBitmap;
-    private Canvas canvas;
-    private Matrix frameToCropTransform;
+    private boolean nv21;
+    private ImageResampler resampler;
+    private int[] previewValues;
+    private Bitmap previewBitmap;
     public ImageResizer() {
         _name = "ImageResizer";
     }
@@ -71,58 +69,50 @@ public class ImageResizer extends Transformer {
         // Get image dimensions
         width = ((ImageStream) stream_in[0]).width;
         height = ((ImageStream) stream_in[0]).height;
-
-        // Create bitmap for the original image
-        rgbBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        nv21 = ((ImageStream) stream_in[0]).format == Cons.ImageFormat.NV21.val;
 
         size = options.size.get();
 
-        // Size of the final image can't be larger than that of the original.
-        if (size <= 0 || size >= width || size >= height) {
+        // Size of the cropped image can't be larger than that of the original.
+        if (size <= 0 || (options.cropImage.get() && (size >= width || size >= height))) {
             Log.e("Invalid crop size. Crop size must be smaller than width and height.");
+            resampler = null;
             return;
         }
 
-        intValues = new int[size * size];
-
-        // Create bitmap for the cropped image
-        finalBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-
         // Transform image to be of a quadratic form as Inception model only
         // accepts images with the same width and height
-        frameToCropTransform = CameraUtil.getTransformationMatrix(
-                width, height, size, size,
-                options.rotation.get(), options.maintainAspect.get());
+        try {
+            resampler = new ImageResampler(width, height, size, size,
+                    options.rotation.get(), options.maintainAspect.get(), options.cropImage.get());
+        } catch (IllegalArgumentException e) {
+            throw new SSJFatalException("unsupported rotation " + options.rotation.get(), e);
+        }
 
-        Matrix cropToFrameTransform = new Matrix();
-        frameToCropTransform.invert(cropToFrameTransform);
-        canvas = new Canvas(finalBitmap);
+        if (options.savePreview.get()) {
+            previewValues = new int[size * size];
+            previewBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        }
     }
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        if (size <= 0 || size >= width || size >= height) {
+        if (resampler == null) {
             Log.e("Invalid crop size. Crop size must be smaller than width and height.");
             return;
         }
 
-        // Convert byte array to integer array
-        int[] rgb = CameraUtil.decodeBytes(stream_in[0].ptrB(), width, height);
-
-        Bitmap bitmap;
-
-        if (options.cropImage.get()) {
-            bitmap = cropImage(rgb);
+        if (nv21) {
+            resampler.resampleNV21(stream_in[0].ptrB(), stream_out.ptrB());
         } else {
-            bitmap = resizeImage(rgb);
+            resampler.resampleRGB(stream_in[0].ptrB(), stream_out.ptrB());
         }
 
         if (options.savePreview.get()) {
-            CameraUtil.saveBitmap(bitmap);
+            CameraUtil.decodeBytes(stream_out.ptrB(), previewValues, size, size);
+            previewBitmap.setPixels(previewValues, 0, size, 0, 0, size, size);
+            CameraUtil.saveBitmap(previewBitmap);
         }
-
-        //bitmapToByteArray(bitmap, stream_out.ptrB());
-        CameraUtil.convertBitmapToByteArray(bitmap, intValues, stream_out.ptrB());
     }
 
     @Override
@@ -158,86 +148,12 @@ public class ImageResizer extends Transformer {
         ((ImageStream) stream_out).format = Cons.ImageFormat.FLEX_RGB_888.val; // Android ImageFormat.FLEX_RGB_888;
     }
 
-    /**
-     * Converts bitmap to corresponding byte array and writes it
-     * to the output buffer.
-     *
-     * @param bitmap Bitmap to convert to byte array.
-     * @param out    Output buffer.
-     * @deprecated Use CameraUtil.convertBitmapToByteArray() instead
-     */
-    private void bitmapToByteArray(Bitmap bitmap, byte[] out) {
-        bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
-
-        for (int i = 0; i < bitmap.getWidth() * bitmap.getHeight(); ++i) {
-            final int pixel = intValues[i];
-            out[i * 3] = (byte) ((pixel >> 16) & 0xFF);
-            out[i * 3 + 1] = (byte) ((pixel >> 8) & 0xFF);
-            out[i * 3 + 2] = (byte) (pixel & 0xFF);
-        }
-    }
-
-    /**
-     * Forces an image to be of the same width and height.
-     *
-     * @param rgb RGB integer values.
-     * @return Cropped image.
-     */
-    public Bitmap resizeImage(int[] rgb) {
-        rgbBitmap.setPixels(rgb, 0, width, 0, 0, width, height);
-
-        // Resize bitmap to a quadratic form
-        canvas.drawBitmap(rgbBitmap, frameToCropTransform, null);
-
-        return finalBitmap;
-    }
-
-    /**
-     * Crops out the center of the given image.
-     *
-     * @param rgb RGB pixel values of an image.
-     * @return Cropped bitmap.
-     */
-    public Bitmap cropImage(int[] rgb) {
-        // Size of the final image can't be larger than that of the original.
-        if (size >= width || size >= height) {
-            Log.e("Invalid crop size. Crop size must be smaller than width and height.");
-            return null;
-        }
-
-        // Calculate matrix offsets
-        int heightMargin = (height - size) / 2;
-        int widthMargin = (width - size) / 2;
-
-        // Cut out the center of the original image.
-        for (int y = heightMargin, cy = 0; y < height - heightMargin; y++, cy++) {
-            for (int x = widthMargin, cx = 0; x < width - widthMargin; x++, cx++) {
-                // Copy pixels from the original pixel matrix to the cropped one
-                intValues[cy * size + cx] = rgb[y * width + x];
-            }
-        }
-
-        int[] cropped = new int[size * size];
-
-        // Rotate the final image 90 degrees.
-        for (int x = size - 1, destX = 0; x > 0; x--, destX++) {
-            for (int y = 0; y < size; y++) {
-                cropped[size * y + x] = intValues[size * destX + y];
-            }
-        }
-
-        // Set pixel values of the cropped image
-        finalBitmap.setPixels(cropped, 0, size, 0, 0, size, size);
-
-        return finalBitmap;
-    }
-
     public class Options extends OptionList {
         public final Option<Integer> size = new Option<>("size", 0, Integer.class, "size of the image after resizing");
-        public final Option<Integer> rotation = new Option<>("rotation", 90, Integer.class, "rotation of the resulting image");
+        public final Option<Integer> rotation = new Option<>("rotation", 90, Integer.class, "clockwise rotation of the resulting image (multiple of 90)");
         public final Option<Boolean> maintainAspect = new Option<>("maintainAspect", true, Boolean.class, "maintain aspect ration");
         public final Option<Boolean> savePreview = new Option<>("savePreview", false, Boolean.class, "save preview image");
-        public final Option<Boolean> cropImage = new Option<>("cropImage", false, Boolean.class, "crop image instead of resizing");
+        public final Option<Boolean> cropImage = new Option<>("cropImage", false, Boolean.class, "crop the center of the image instead of resizing");
 
         private Options() {
             addOptions();
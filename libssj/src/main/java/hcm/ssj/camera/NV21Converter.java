@@ -0,0 +1,400 @@
+/*
+ * NV21Converter.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.camera;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Table-driven conversion of NV21 camera frames.<br>
+ * Red and blue only depend on two components each and are looked up directly from 256x256 tables,
+ * green is combined from precomputed per-Y, per-U and per-V contributions. The tables hold exactly
+ * the products the reference implementations ({@link CameraUtil#convertNV21ToRGB_slow}) compute and
+ * are combined in the same order, which makes the results bit-exact.<br>
+ * All methods write into caller-owned buffers. Large frames are split into bands of rows
+ * which are converted in parallel.
+ */
+public final class NV21Converter {
+    /**
+     * Frames (or scaled outputs) with at least this many pixels are converted in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 640 * 480;
+
+    private static final float[] TABLE_Y = new float[256];
+    private static final float[] TABLE_GV = new float[256];
+    private static final float[] TABLE_GU = new float[256];
+
+    // Indexed by (y << 8) | v and (y << 8) | u
+    private static final byte[] TABLE_R = new byte[256 * 256];
+    private static final byte[] TABLE_B = new byte[256 * 256];
+
+    static {
+        float[] rv = new float[256];
+        float[] bu = new float[256];
+
+        for (int i = 0; i < 256; i++) {
+            TABLE_Y[i] = 1.164f * ((i < 16 ? 16 : i) - 16);
+            TABLE_GV[i] = 0.813f * (i - 128);
+            TABLE_GU[i] = 0.391f * (i - 128);
+            rv[i] = 1.596f * (i - 128);
+            bu[i] = 2.018f * (i - 128);
+        }
+
+        for (int y = 0; y < 256; y++) {
+            for (int c = 0; c < 256; c++) {
+                TABLE_R[(y << 8) | c] = (byte) clamp((int) (TABLE_Y[y] + rv[c]));
+                TABLE_B[(y << 8) | c] = (byte) clamp((int) (TABLE_Y[y] + bu[c]));
+            }
+        }
+    }
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor = null;
+
+    private NV21Converter() {
+    }
+
+    /**
+     * Decodes a NV21 frame into interleaved 8 bit RGB values.
+     *
+     * @param rgb    Output array with at least width * height * 3 values.
+     * @param yuv    NV21 frame.
+     * @param width  Width of image in pixels.
+     * @param height Height of image in pixels.
+     * @param bgr    store pixels in BGR instead of RGB order
+     */
+    public static void convertToRGB(final byte[] rgb, final byte[] yuv, final int width, final int height, final boolean bgr) {
+        run((height + 1) >> 1, width * height, new Rows() {
+            @Override
+            void convert(int from, int to) {
+                convertRowsToRGB(rgb, yuv, width, height, bgr, from, to);
+            }
+        });
+    }
+
+    /**
+     * Decodes a NV21 frame into packed ARGB pixels.
+     *
+     * @param argb   Output array with at least width * height values.
+     * @param yuv    NV21 frame.
+     * @param width  Width of image in pixels.
+     * @param height Height of image in pixels.
+     * @param abgr   store blue in the high and red in the low byte
+     */
+    public static void convertToARGB(final int[] argb, final byte[] yuv, final int width, final int height, final boolean abgr) {
+        run((height + 1) >> 1, width * height, new Rows() {
+            @Override
+            void convert(int from, int to) {
+                convertRowsToARGB(argb, yuv, width, height, abgr, from, to);
+            }
+        });
+    }
+
+    /**
+     * Decodes and downscales a NV21 frame into interleaved 8 bit RGB values in one pass.
+     * Only the pixels which end up in the output are converted (nearest neighbour sampling).
+     *
+     * @param rgb       Output array with at least outWidth * outHeight * 3 values.
+     * @param yuv       NV21 frame.
+     * @param width     Width of image in pixels.
+     * @param height    Height of image in pixels.
+     * @param outWidth  Width of the output in pixels.
+     * @param outHeight Height of the output in pixels.
+     */
+    public static void convertToRGB(final byte[] rgb, final byte[] yuv, final int width, final int height, final int outWidth, final int outHeight) {
+        final int[] columns = sampleColumns(width, outWidth);
+
+        run(outHeight, outWidth * outHeight, new Rows() {
+            @Override
+            void convert(int from, int to) {
+                final int frameSize = width * height;
+
+                for (int oy = from; oy < to; oy++) {
+                    final int y = sample(oy, height, outHeight);
+                    final int lumaRow = y * width;
+                    final int chromaRow = frameSize + (y >> 1) * width;
+
+                    for (int ox = 0, a = oy * outWidth * 3; ox < outWidth; ox++) {
+                        final int x = columns[ox];
+                        final int c = chromaRow + (x & ~1);
+                        final int v = yuv[c] & 0xff;
+                        final int u = yuv[c + 1] & 0xff;
+                        final int l = yuv[lumaRow + x] & 0xff;
+
+                        rgb[a++] = TABLE_R[(l << 8) | v];
+                        rgb[a++] = (byte) clamp((int) (TABLE_Y[l] - TABLE_GV[v] - TABLE_GU[u]));
+                        rgb[a++] = TABLE_B[(l << 8) | u];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes a NV21 frame into normalized RGB values, i.e. (value - mean) / std per channel.
+     *
+     * @param out    Output array with at least width * height * 3 values.
+     * @param yuv    NV21 frame.
+     * @param width  Width of image in pixels.
+     * @param height Height of image in pixels.
+     * @param mean   value subtracted from every channel
+     * @param std    divisor of every channel
+     */
+    public static void convertToNormalized(float[] out, byte[] yuv, int width, int height, float mean, float std) {
+        convertToNormalized(out, yuv, width, height, width, height, mean, std);
+    }
+
+    /**
+     * Decodes, downscales and normalizes a NV21 frame in one pass, e.g. to fill the input of a model.
+     * The result equals {@link #convertToRGB(byte[], byte[], int, int, int, int)} followed by
+     * (value - mean) / std per channel.
+     *
+     * @param out       Output array with at least outWidth * outHeight * 3 values.
+     * @param yuv       NV21 frame.
+     * @param width     Width of image in pixels.
+     * @param height    Height of image in pixels.
+     * @param outWidth  Width of the output in pixels.
+     * @param outHeight Height of the output in pixels.
+     * @param mean      value subtracted from every channel
+     * @param std       divisor of every channel
+     */
+    public static void convertToNormalized(final float[] out, final byte[] yuv, final int width, final int height, final int outWidth, final int outHeight, float mean, float std) {
+        final int[] columns = sampleColumns(width, outWidth);
+
+        // Only 256 distinct results per channel
+        final float[] normalized = new float[256];
+        for (int i = 0; i < 256; i++) {
+            normalized[i] = (i - mean) / std;
+        }
+
+        run(outHeight, outWidth * outHeight, new Rows() {
+            @Override
+            void convert(int from, int to) {
+                final int frameSize = width * height;
+
+                for (int oy = from; oy < to; oy++) {
+                    final int y = sample(oy, height, outHeight);
+                    final int lumaRow = y * width;
+                    final int chromaRow = frameSize + (y >> 1) * width;
+
+                    for (int ox = 0, a = oy * outWidth * 3; ox < outWidth; ox++) {
+                        final int x = columns[ox];
+                        final int c = chromaRow + (x & ~1);
+                        final int v = yuv[c] & 0xff;
+                        final int u = yuv[c + 1] & 0xff;
+                        final int l = yuv[lumaRow + x] & 0xff;
+
+                        out[a++] = normalized[TABLE_R[(l << 8) | v] & 0xff];
+                        out[a++] = normalized[clamp((int) (TABLE_Y[l] - TABLE_GV[v] - TABLE_GU[u]))];
+                        out[a++] = normalized[TABLE_B[(l << 8) | u] & 0xff];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Converts a single pixel.
+     *
+     * @param yuv    NV21 frame.
+     * @param luma   index of the Y value, i.e. y * width + x
+     * @param chroma index of the V value, i.e. width * height + (y / 2) * width + (x & ~1)
+     * @return packed RGB value (0x00RRGGBB)
+     */
+    static int convertPixel(byte[] yuv, int luma, int chroma) {
+        final int l = yuv[luma] & 0xff;
+        final int v = yuv[chroma] & 0xff;
+        final int u = yuv[chroma + 1] & 0xff;
+
+        return ((TABLE_R[(l << 8) | v] & 0xff) << 16)
+                | (clamp((int) (TABLE_Y[l] - TABLE_GV[v] - TABLE_GU[u])) << 8)
+                | (TABLE_B[(l << 8) | u] & 0xff);
+    }
+
+    /**
+     * Converts pairs of rows which share the same chroma row.
+     */
+    private static void convertRowsToRGB(byte[] rgb, byte[] yuv, int width, int height, boolean bgr, int from, int to) {
+        final int frameSize = width * height;
+        final int first = bgr ? 2 : 0;
+        final int last = bgr ? 0 : 2;
+
+        for (int pair = from; pair < to; pair++) {
+            final int row = pair << 1;
+            final int rows = Math.min(2, height - row);
+            final int chromaRow = frameSize + pair * width;
+
+            for (int x = 0; x < width; x += 2) {
+                final int v = yuv[chromaRow + x] & 0xff;
+                final int u = yuv[chromaRow + x + 1] & 0xff;
+                final float gv = TABLE_GV[v];
+                final float gu = TABLE_GU[u];
+                final int columns = Math.min(2, width - x);
+
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        final int p = (row + r) * width + x + c;
+                        final int a = p * 3;
+                        final int l = yuv[p] & 0xff;
+
+                        rgb[a + first] = TABLE_R[(l << 8) | v];
+                        rgb[a + 1] = (byte) clamp((int) (TABLE_Y[l] - gv - gu));
+                        rgb[a + last] = TABLE_B[(l << 8) | u];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts pairs of rows which share the same chroma row.
+     */
+    private static void convertRowsToARGB(int[] argb, byte[] yuv, int width, int height, boolean abgr, int from, int to) {
+        final int frameSize = width * height;
+        final int shiftR = abgr ? 0 : 16;
+        final int shiftB = abgr ? 16 : 0;
+
+        for (int pair = from; pair < to; pair++) {
+            final int row = pair << 1;
+            final int rows = Math.min(2, height - row);
+            final int chromaRow = frameSize + pair * width;
+
+            for (int x = 0; x < width; x += 2) {
+                final int v = yuv[chromaRow + x] & 0xff;
+                final int u = yuv[chromaRow + x + 1] & 0xff;
+                final float gv = TABLE_GV[v];
+                final float gu = TABLE_GU[u];
+                final int columns = Math.min(2, width - x);
+
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        final int p = (row + r) * width + x + c;
+                        final int l = yuv[p] & 0xff;
+
+                        argb[p] = 0xff000000
+                                | ((TABLE_R[(l << 8) | v] & 0xff) << shiftR)
+                                | (clamp((int) (TABLE_Y[l] - gv - gu)) << 8)
+                                | ((TABLE_B[(l << 8) | u] & 0xff) << shiftB);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        if ((value & ~0xff) != 0) {
+            return value < 0 ? 0 : 255;
+        }
+
+        return value;
+    }
+
+    /**
+     * @return source coordinate for the center of an output pixel
+     */
+    private static int sample(int out, int size, int outSize) {
+        return (int) (((2L * out + 1) * size) / (2L * outSize));
+    }
+
+    private static int[] sampleColumns(int width, int outWidth) {
+        int[] columns = new int[outWidth];
+        for (int i = 0; i < outWidth; i++) {
+            columns[i] = sample(i, width, outWidth);
+        }
+
+        return columns;
+    }
+
+    /**
+     * Runs the conversion of all rows, split into one band per core for large images.
+     * The calling thread converts the last band itself.
+     */
+    private static void run(int rows, int pixels, final Rows task) {
+        final int bands = Math.min(THREADS, rows);
+
+        if (bands < 2 || pixels < PARALLEL_THRESHOLD) {
+            task.convert(0, rows);
+            return;
+        }
+
+        ExecutorService pool = getExecutor();
+        final CountDownLatch done = new CountDownLatch(bands - 1);
+        final Throwable[] error = new Throwable[1];
+
+        for (int i = 0; i < bands - 1; i++) {
+            final int from = rows * i / bands;
+            final int to = rows * (i + 1) / bands;
+
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.convert(from, to);
+                    } catch (Throwable t) {
+                        error[0] = t;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        task.convert(rows * (bands - 1) / bands, rows);
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error[0] != null) {
+            throw new RuntimeException("conversion failed", error[0]);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "NV21Converter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    private static abstract class Rows {
+        abstract void convert(int from, int to);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * VisionPreprocessor.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.camera;
+
+import android.graphics.Bitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Provider;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.stream.ImageStream;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Pre-processing of camera frames which is shared by all vision models running on the same image stream.<br>
+ * Components with the same image source and rotation obtain the same instance through {@link #get}.
+ * Each frame is rotated and converted once by the first component which acquires it, all others reuse
+ * the result, including normalized model inputs of any size. Frames are kept in a small pool and
+ * recycled as soon as no component references them anymore, so no memory is allocated per frame.
+ */
+public class VisionPreprocessor {
+    private static final Map<Key, VisionPreprocessor> instances = new HashMap<>();
+
+    private final Key key;
+    private final int srcWidth;
+    private final int srcHeight;
+    private final boolean nv21;
+    private final int width;
+    private final int height;
+    private final ImageResampler rotator;
+    private final List<Frame> frames = new ArrayList<>();
+    private int users;
+
+    private VisionPreprocessor(Key key, int srcWidth, int srcHeight, boolean nv21, int rotation) {
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("rotation must be a multiple of 90 degrees");
+        }
+
+        this.key = key;
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.nv21 = nv21;
+
+        boolean transpose = (rotation / 90) % 2 != 0;
+        width = transpose ? srcHeight : srcWidth;
+        height = transpose ? srcWidth : srcHeight;
+
+        rotator = new ImageResampler(srcWidth, srcHeight, width, height, rotation, false, false);
+    }
+
+    /**
+     * Returns the pre-processor for an image stream, every call has to be paired with {@link #release(VisionPreprocessor)}.
+     *
+     * @param stream   RGB or NV21 image stream
+     * @param rotation clockwise rotation in degrees, must be a multiple of 90
+     * @return instance shared by all components which consume the same source with the same rotation
+     */
+    public static synchronized VisionPreprocessor get(Stream stream, int rotation) {
+        ImageStream image = (ImageStream) stream;
+        boolean nv21 = image.format == Cons.ImageFormat.NV21.val;
+
+        // Streams without source (e.g. in tests) cannot be matched and get their own instance
+        Key key = stream.source != null ? new Key(stream.source, image.width, image.height, nv21, rotation) : null;
+        VisionPreprocessor preprocessor = key != null ? instances.get(key) : null;
+
+        if (preprocessor == null) {
+            preprocessor = new VisionPreprocessor(key, image.width, image.height, nv21, rotation);
+
+            if (key != null) {
+                instances.put(key, preprocessor);
+            }
+        }
+
+        preprocessor.users++;
+
+        return preprocessor;
+    }
+
+    /**
+     * Releases a pre-processor obtained by {@link #get}, it is discarded once the last component released it.
+     */
+    public static synchronized void release(VisionPreprocessor preprocessor) {
+        if (preprocessor == null || --preprocessor.users > 0) {
+            return;
+        }
+
+        if (preprocessor.key != null) {
+            instances.remove(preprocessor.key);
+        }
+
+        synchronized (preprocessor) {
+            for (Frame frame : preprocessor.frames) {
+                frame.bitmap.recycle();
+            }
+
+            preprocessor.frames.clear();
+        }
+    }
+
+    /**
+     * @return width of the rotated frames
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the rotated frames
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the pre-processed version of the current stream frame.
+     * The frame is only converted if no other component acquired it before.
+     *
+     * @param stream image stream the pre-processor was created for
+     * @return frame which stays valid until it is passed to {@link #release(Frame)}
+     */
+    public synchronized Frame acquire(Stream stream) {
+        Frame frame = null;
+        Frame free = null;
+
+        for (Frame f : frames) {
+            if (f.time == stream.time) {
+                frame = f;
+                break;
+            }
+
+            if (f.users == 0 && (free == null || f.time < free.time)) {
+                free = f;
+            }
+        }
+
+        if (frame == null) {
+            if (free == null) {
+                free = new Frame();
+                frames.add(free);
+            }
+
+            frame = free;
+            frame.update(stream.ptrB(), stream.time);
+        }
+
+        frame.users++;
+
+        return frame;
+    }
+
+    /**
+     * Returns a frame obtained by {@link #acquire} to the pool, its buffers must not be used afterwards.
+     */
+    public synchronized void release(Frame frame) {
+        frame.users--;
+    }
+
+    /**
+     * Rotated frame with lazily created representations for the different consumers.
+     */
+    public class Frame {
+        private final byte[] rgb = new byte[width * height * 3];
+        private final int[] argb = new int[width * height];
+        private final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        private final List<ModelInput> inputs = new ArrayList<>();
+        private double time = -1;
+        private boolean bitmapValid;
+        private int users;
+
+        private void update(byte[] data, double time) {
+            if (nv21) {
+                rotator.resampleNV21(data, rgb);
+            } else {
+                rotator.resampleRGB(data, rgb);
+            }
+
+            this.time = time;
+            bitmapValid = false;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return rotated frame as interleaved RGB bytes, must not be modified
+         */
+        public byte[] getRGB() {
+            return rgb;
+        }
+
+        /**
+         * @return rotated frame as bitmap, must not be modified or recycled
+         */
+        public synchronized Bitmap getBitmap() {
+            if (!bitmapValid) {
+                CameraUtil.decodeBytes(rgb, argb, width, height);
+                bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+                bitmapValid = true;
+            }
+
+            return bitmap;
+        }
+
+        /**
+         * Returns the frame resized to a square model input, the aspect ratio is not maintained.
+         * Each value is normalized with (value - normShift) / normDiv.
+         *
+         * @param size      width and height of the model input
+         * @param normShift value subtracted before normalization
+         * @param normDiv   divisor for normalization
+         * @return direct buffer in native byte order with size * size * 3 float values, must not be modified
+         */
+        public synchronized ByteBuffer getModelInput(int size, float normShift, float normDiv) {
+            ModelInput input = null;
+
+            for (ModelInput i : inputs) {
+                if (i.size == size && i.normShift == normShift && i.normDiv == normDiv) {
+                    input = i;
+                    break;
+                }
+            }
+
+            if (input == null) {
+                input = new ModelInput(size, normShift, normDiv);
+                inputs.add(input);
+            }
+
+            if (input.time != time) {
+                input.update(rgb);
+                input.time = time;
+            }
+
+            return input.buffer;
+        }
+    }
+
+    private class ModelInput {
+        final int size;
+        final float normShift;
+        final float normDiv;
+        final ImageResampler resampler;
+        final byte[] rgb;
+        final float[] table = new float[256];
+        final ByteBuffer buffer;
+        final FloatBuffer floats;
+        double time = -1;
+
+        ModelInput(int size, float normShift, float normDiv) {
+            this.size = size;
+            this.normShift = normShift;
+            this.normDiv = normDiv;
+
+            resampler = new ImageResampler(width, height, size, size, 0, false, false);
+            rgb = new byte[size * size * 3];
+
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (i - normShift) / normDiv;
+            }
+
+            buffer = ByteBuffer.allocateDirect(rgb.length * Util.sizeOf(Cons.Type.FLOAT));
+            buffer.order(ByteOrder.nativeOrder());
+            floats = buffer.asFloatBuffer();
+        }
+
+        void update(byte[] frame) {
+            resampler.resampleRGB(frame, rgb);
+
+            for (int i = 0; i < rgb.length; i++) {
+                floats.put(i, table[rgb[i] & 0xFF]);
+            }
+        }
+    }
+
+    private static class Key {
+        final Provider source;
+        final int width;
+        final int height;
+        final boolean nv21;
+        final int rotation;
+
+        Key(Provider source, int width, int height, boolean nv21, int rotation) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.nv21 = nv21;
+            this.rotation = ((rotation % 360) + 360) % 360;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+
+            return source == other.source && width == other.width && height == other.height && nv21 == other.nv21 && rotation == other.rotation;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((System.identityHashCode(source) * 31 + width) * 31 + height) * 31 + rotation * 2 + (nv21 ? 1 : 0);
+        }
+    }
+}
@@ -38,17 +38,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 
 import hcm.ssj.file.FileCons;
-import hcm.ssj.file.SimpleXmlParser;
+import hcm.ssj.file.XmlTagReader;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -197,8 +197,19 @@ public class Annotation {
 
         boolean add_empty = emptyClassName != null;
 
+        // class names in the order of their IDs, ties between classes are resolved in this order
+        String[] class_names = new String[classes.size()];
+        HashMap<String, Integer> class_index = new HashMap<>();
+        for (int j = 0; j < classes.size(); j++) {
+            class_names[j] = classes.valueAt(j);
+            class_index.put(class_names[j], j);
+        }
+
+        sort();
+        Index index = new Index(entries, class_index);
+
         if (duration <= 0) {
-            duration = entries.get(entries.size() - 1).to;
+            duration = index.getEnd();
         }
 
         int n_frames = (int) (duration / frame_s);
@@ -207,74 +218,55 @@ public class Annotation {
         double frame_from = 0;
         double frame_to = frame_dur;
 
-        HashMap<String, Double> percent_class = new HashMap<>();
+        double[] percent_class = new double[class_names.length];
         double percent_garbage;
 
-        // copy labels and clear annotation
-        Annotation original = new Annotation(this);
-        original.sort();
         entries.clear();
 
         if (add_empty)
             classes.put(Cons.GARBAGE_CLASS_ID, emptyClassName);
 
-        int iter = 0;
-        int last_iter = iter;
-        int clone_end = original.getEntries().size();
-
         for (int i = 0; i < n_frames; i++) {
             Entry new_entry = new Entry(emptyClassName, frame_from, frame_from + frame_dur);
 
-            for (int j = 0; j < original.classes.size(); j++) {
-                percent_class.put(original.classes.valueAt(j), 0.0);
-            }
+            Arrays.fill(percent_class, 0);
             percent_garbage = 0;
+            boolean found_at_least_one = false;
 
-            // skip labels before the current frame
-            iter = last_iter;
-            while (iter != clone_end && original.getEntries().get(iter).to < frame_from) {
-                iter++;
-                last_iter++;
-            }
+            // find all labels within the current frame
+            for (int iter = index.first(frame_from); iter < index.size() && index.from[iter] < frame_to; iter++) {
+                double dur = (min(frame_to, index.to[iter]) - max(frame_from, index.from[iter])) / frame_dur;
+                found_at_least_one = true;
 
-            if (iter != clone_end) {
-                boolean found_at_least_one = false;
-
-                // find all classes within the current frame
-                while (iter != clone_end && original.getEntries().get(iter).from < frame_to) {
-                    Entry e = original.getEntries().get(iter);
-                    double dur = (min(frame_to, e.to) - max(frame_from, e.from)) / frame_dur;
-                    if (e.classlabel == null) {
-                        percent_garbage += dur;
-                    } else {
-                        percent_class.put(e.classlabel, percent_class.get(e.classlabel) + dur);
-                    }
-                    iter++;
-                    found_at_least_one = true;
+                if (dur <= 0) {
+                    continue;
                 }
 
-                if (found_at_least_one) {
-                    // find dominant class
-                    double max_percent = percent_garbage;
-                    double percent_sum = percent_garbage;
-                    String max_class = null;
-
-                    for (int j = 0; j < original.classes.size(); j++) {
-                        String cl = original.classes.valueAt(j);
-                        if (max_percent < percent_class.get(cl)) {
-                            max_class = cl;
-                            max_percent = percent_class.get(cl);
-                        }
-                        percent_sum += percent_class.get(cl);
-                    }
+                if (index.label[iter] < 0) {
+                    percent_garbage += dur;
+                } else {
+                    percent_class[index.label[iter]] += dur;
+                }
+            }
+
+            if (found_at_least_one) {
+                // find dominant class
+                double max_percent = percent_garbage;
+                double percent_sum = percent_garbage;
+                String max_class = null;
 
-                    // add label
-                    if (percent_sum > empty_percent && max_class != null) {
-                        new_entry.classlabel = max_class;
-                        addEntry(new_entry);
-                    } else if (add_empty) {
-                        addEntry(new_entry);
+                for (int j = 0; j < class_names.length; j++) {
+                    if (max_percent < percent_class[j]) {
+                        max_class = class_names[j];
+                        max_percent = percent_class[j];
                     }
+                    percent_sum += percent_class[j];
+                }
+
+                // add label
+                if (percent_sum > empty_percent && max_class != null) {
+                    new_entry.classlabel = max_class;
+                    addEntry(new_entry);
                 } else if (add_empty) {
                     addEntry(new_entry);
                 }
@@ -299,63 +291,44 @@ public class Annotation {
             path += "." + FileCons.FILE_EXTENSION_ANNO;
         }
 
-        /*
-         * INFO
-         */
-        SimpleXmlParser simpleXmlParser = new SimpleXmlParser();
-        SimpleXmlParser.XmlValues xmlValues = simpleXmlParser.parse(
-                new FileInputStream(new File(path)),
-                new String[]{"annotation", "info"},
-                new String[]{"size"}
-        );
-
-        /*
-         * SCHEME
-         */
-        simpleXmlParser = new SimpleXmlParser();
-        xmlValues = simpleXmlParser.parse(
-                new FileInputStream(new File(path)),
-                new String[]{"annotation", "scheme"},
-                new String[]{"type"}
-        );
-
-        for (String[] scheme : xmlValues.foundAttributes) {
-            if (!scheme[0].equalsIgnoreCase("DISCRETE")) {
-                Log.e("unsupported annotation scheme: " + scheme[0]);
-                return;
+        XmlTagReader reader = XmlTagReader.open(new File(path));
+        while (reader.next()) {
+            if (reader.getName().equals("scheme")) {
+                String type = reader.getAttribute("type", "");
+                if (!type.equalsIgnoreCase("DISCRETE")) {
+                    Log.e("unsupported annotation scheme: " + type);
+                    return;
+                }
+            } else if (reader.getName().equals("item")) {
+                classes.put(Integer.parseInt(reader.getAttribute("id")), reader.getAttribute("name")); //id, name
             }
         }
 
-        /*
-         * SCHEME ITEMS
-         */
-        simpleXmlParser = new SimpleXmlParser();
-        xmlValues = simpleXmlParser.parse(
-                new FileInputStream(new File(path)),
-                new String[]{"annotation", "scheme", "item"},
-                new String[]{"id", "name"}
-        );
-
-        for (String[] item : xmlValues.foundAttributes) {
-            classes.put(Integer.valueOf(item[0]), item[1]); //id, name
-        }
-
         loadData(path + FileCons.TAG_DATA_FILE);
     }
 
     private void loadData(String path) throws IOException, XmlPullParserException {
-        InputStream inputStream = new FileInputStream(new File(path));
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-
-        String line = reader.readLine();
-        while (line != null) {
-            String[] tokens = line.split(FileCons.DELIMITER_ANNOTATION);
-            Entry e = new Entry(classes.get(Integer.valueOf(tokens[2])),
-                    Double.valueOf(tokens[0]),
-                    Double.valueOf(tokens[1]),
-                    Float.valueOf(tokens[3]));
-            addEntry(e);
-            line = reader.readLine();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(path))), 65536);
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // from;to;class;confidence
+                int a = line.indexOf(FileCons.DELIMITER_ANNOTATION);
+                int b = line.indexOf(FileCons.DELIMITER_ANNOTATION, a + 1);
+                int c = line.indexOf(FileCons.DELIMITER_ANNOTATION, b + 1);
+                if (a < 0 || b < 0 || c < 0) {
+                    continue;
+                }
+
+                Entry e = new Entry(classes.get(Integer.parseInt(line.substring(b + 1, c))),
+                        Double.parseDouble(line.substring(0, a)),
+                        Double.parseDouble(line.substring(a + 1, b)),
+                        Float.parseFloat(line.substring(c + 1)));
+                addEntry(e);
+            }
+        } finally {
+            reader.close();
         }
     }
 
@@ -372,7 +345,7 @@ public class Annotation {
             return;
 
         if (filename.endsWith(FileCons.FILE_EXTENSION_ANNO + FileCons.TAG_DATA_FILE)) {
-            filename = filename.substring(0, path.length() - 2);
+            filename = filename.substring(0, filename.length() - 2);
         } else if (!filename.endsWith(FileCons.FILE_EXTENSION_ANNO)) {
             filename += "." + FileCons.FILE_EXTENSION_ANNO;
         }
@@ -409,26 +382,85 @@ public class Annotation {
     }
 
     private void saveData(String path) throws IOException, XmlPullParserException {
-        OutputStream ouputStream = new FileOutputStream(new File(path));
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(ouputStream));
+        HashMap<String, Integer> class_ids = new HashMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            class_ids.put(classes.valueAt(i), classes.keyAt(i));
+        }
 
-        StringBuilder builder = new StringBuilder();
-        for (Entry e : entries) {
-            builder.delete(0, builder.length());
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(path))), 65536);
 
-            builder.append(e.from).append(FileCons.DELIMITER_ANNOTATION);
-            builder.append(e.to).append(FileCons.DELIMITER_ANNOTATION);
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (Entry e : entries) {
+                builder.setLength(0);
 
-            int class_index = classes.indexOfValue(e.classlabel);
-            builder.append(classes.keyAt(class_index)).append(FileCons.DELIMITER_ANNOTATION);
-            builder.append(e.confidence);
+                builder.append(e.from).append(FileCons.DELIMITER_ANNOTATION);
+                builder.append(e.to).append(FileCons.DELIMITER_ANNOTATION);
+                builder.append(class_ids.get(e.classlabel)).append(FileCons.DELIMITER_ANNOTATION);
+                builder.append(e.confidence);
 
-            writer.write(builder.toString());
-            writer.newLine();
+                writer.append(builder);
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
         }
+    }
 
-        writer.flush();
-        writer.close();
+    /**
+     * Entries sorted by start time in primitive arrays.
+     * The running maximum of the end times allows finding the first entry overlapping a point in time by binary search.
+     */
+    private static class Index {
+        final double[] from;
+        final double[] to;
+        final int[] label;
+        final double[] maxTo;
+
+        Index(ArrayList<Entry> entries, HashMap<String, Integer> class_index) {
+            int n = entries.size();
+            from = new double[n];
+            to = new double[n];
+            label = new int[n];
+            maxTo = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                Entry e = entries.get(i);
+                Integer cl = (e.classlabel == null) ? null : class_index.get(e.classlabel);
+
+                from[i] = e.from;
+                to[i] = e.to;
+                label[i] = (cl == null) ? -1 : cl; // unknown labels count as garbage
+                maxTo[i] = (i == 0) ? e.to : max(maxTo[i - 1], e.to);
+            }
+        }
+
+        int size() {
+            return from.length;
+        }
+
+        double getEnd() {
+            return maxTo[maxTo.length - 1];
+        }
+
+        /**
+         * @return index of the first entry ending at or after the given time
+         */
+        int first(double time) {
+            int lo = 0;
+            int hi = maxTo.length;
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxTo[mid] < time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            return lo;
+        }
     }
 
     public class Entry {
@@ -0,0 +1,569 @@
+/*
+ * AsciiBuilder.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds text directly as bytes in a reusable array.<br>
+ * Numbers are formatted without creating intermediate strings and independent of the locale.
+ * Floating point values are written with the fewest significant digits which still parse back
+ * to the identical value, in the same notation as Float.toString and Double.toString.
+ * Text is encoded as UTF-8.
+ */
+public class AsciiBuilder {
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NAN = {'N', 'a', 'N'};
+    private static final byte[] INFINITY = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Powers of ten 10^k for k = -348, -340, ..., 340 as f * 2^e, f normalized to 64 bits and rounded to nearest
+    private static final int CACHED_POWER_MIN_EXP = -348;
+    private static final int CACHED_POWER_STEP = 8;
+    private static final long[] CACHED_POWER_F = new long[87];
+    private static final int[] CACHED_POWER_E = new int[87];
+
+    static {
+        for (int i = 0; i < CACHED_POWER_F.length; i++) {
+            int k = CACHED_POWER_MIN_EXP + i * CACHED_POWER_STEP;
+            BigInteger ten = BigInteger.TEN.pow(Math.abs(k));
+            BigInteger f;
+            int e;
+
+            // One additional bit for rounding
+            if (k >= 0) {
+                e = ten.bitLength() - 64;
+                f = e > 0 ? ten.shiftRight(e - 1) : ten.shiftLeft(1 - e);
+            } else {
+                e = -ten.bitLength() - 63;
+                f = BigInteger.ONE.shiftLeft(1 - e).divide(ten);
+            }
+
+            f = f.add(BigInteger.ONE).shiftRight(1);
+            if (f.bitLength() > 64) {
+                f = f.shiftRight(1);
+                e++;
+            }
+
+            CACHED_POWER_F[i] = f.longValue();
+            CACHED_POWER_E[i] = e;
+        }
+    }
+
+    private byte[] data;
+    private int length = 0;
+    private final byte[] digits = new byte[20];
+
+    private long candidateMantissa;
+    private int candidateDigits;
+    private int candidateExp;
+
+    public AsciiBuilder() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity initial capacity in bytes
+     */
+    public AsciiBuilder(int capacity) {
+        data = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * @return internal array, valid up to {@link #length()}
+     */
+    public byte[] array() {
+        return data;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Resets the builder without releasing its memory
+     */
+    public AsciiBuilder clear() {
+        length = 0;
+        return this;
+    }
+
+    public AsciiBuilder append(boolean value) {
+        return append(value ? TRUE : FALSE, 0, value ? TRUE.length : FALSE.length);
+    }
+
+    public AsciiBuilder append(byte[] bytes, int off, int len) {
+        ensure(len);
+        System.arraycopy(bytes, off, data, length, len);
+        length += len;
+        return this;
+    }
+
+    public AsciiBuilder append(AsciiBuilder other) {
+        return append(other.data, 0, other.length);
+    }
+
+    public AsciiBuilder append(char c) {
+        ensure(3);
+
+        if (c < 0x80) {
+            data[length++] = (byte) c;
+        } else if (c < 0x800) {
+            data[length++] = (byte) (0xC0 | (c >> 6));
+            data[length++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            data[length++] = (byte) (0xE0 | (c >> 12));
+            data[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            data[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+
+        return this;
+    }
+
+    public AsciiBuilder append(CharSequence text) {
+        if (text == null) {
+            text = "null";
+        }
+
+        int len = text.length();
+        ensure(len);
+
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+
+            if (c < 0x80) {
+                ensure(1);
+                data[length++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                data[length++] = (byte) (0xF0 | (cp >> 18));
+                data[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                data[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                data[length++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                append(c);
+            }
+        }
+
+        return this;
+    }
+
+    public AsciiBuilder append(Object value) {
+        return append(String.valueOf(value));
+    }
+
+    public AsciiBuilder append(int value) {
+        return append((long) value);
+    }
+
+    public AsciiBuilder append(long value) {
+        ensure(20);
+
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append("-9223372036854775808");
+            }
+            data[length++] = '-';
+            value = -value;
+        }
+
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        while (n > 0) {
+            data[length++] = digits[--n];
+        }
+
+        return this;
+    }
+
+    public AsciiBuilder append(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value) || value == 0) {
+            return appendSpecial(value, Float.floatToRawIntBits(value) < 0);
+        }
+
+        if (!shortest(Math.abs(value), 9)) {
+            return append(Float.toString(value));
+        }
+
+        return appendDecimal(value < 0, candidateMantissa, candidateDigits, candidateExp);
+    }
+
+    public AsciiBuilder append(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || value == 0) {
+            return appendSpecial(value, Double.doubleToRawLongBits(value) < 0);
+        }
+
+        if (!grisu(Math.abs(value))) {
+            // Shortest digits could not be determined with 64 bit precision, happens for about 0.5% of all values
+            return append(Double.toString(value));
+        }
+
+        return appendDecimal(value < 0, candidateMantissa, candidateDigits, candidateExp);
+    }
+
+    /**
+     * @return content decoded as UTF-8
+     */
+    @Override
+    public String toString() {
+        return new String(data, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private AsciiBuilder appendSpecial(double value, boolean negative) {
+        if (Double.isNaN(value)) {
+            return append(NAN, 0, NAN.length);
+        }
+        if (negative) {
+            append('-');
+        }
+        if (Double.isInfinite(value)) {
+            return append(INFINITY, 0, INFINITY.length);
+        }
+        return append("0.0");
+    }
+
+    /**
+     * Writes mantissa * 10^(exp - p + 1) in the notation of Double.toString:
+     * plain for 10^-3 <= |x| < 10^7, computerized scientific notation otherwise
+     *
+     * @param mantissa significant digits
+     * @param p        number of significant digits
+     * @param exp      decimal exponent of the first digit
+     */
+    private AsciiBuilder appendDecimal(boolean negative, long mantissa, int p, int exp) {
+        // Strip trailing zeros
+        while (p > 1 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            p--;
+        }
+
+        int n = 0;
+        for (long m = mantissa; n < p; m /= 10) {
+            digits[n++] = (byte) ('0' + m % 10);
+        }
+
+        ensure(p + 28);
+
+        if (negative) {
+            data[length++] = '-';
+        }
+
+        if (exp >= -3 && exp < 7) {
+            if (exp < 0) {
+                data[length++] = '0';
+                data[length++] = '.';
+                for (int i = -1; i > exp; i--) {
+                    data[length++] = '0';
+                }
+                while (n > 0) {
+                    data[length++] = digits[--n];
+                }
+            } else {
+                for (int i = 0; i <= exp; i++) {
+                    data[length++] = n > 0 ? digits[--n] : (byte) '0';
+                }
+                data[length++] = '.';
+                if (n == 0) {
+                    data[length++] = '0';
+                }
+                while (n > 0) {
+                    data[length++] = digits[--n];
+                }
+            }
+        } else {
+            data[length++] = digits[--n];
+            data[length++] = '.';
+            if (n == 0) {
+                data[length++] = '0';
+            }
+            while (n > 0) {
+                data[length++] = digits[--n];
+            }
+            data[length++] = 'E';
+            append(exp);
+        }
+
+        return this;
+    }
+
+    /**
+     * Searches the fewest significant digits which parse back to value. Since every decimal
+     * with p digits also has p + 1 digits, round-tripping is monotonic in p and the
+     * precision can be found by bisection.
+     *
+     * @return false if no candidate could be verified, the result is stored in the candidate fields
+     */
+    private boolean shortest(float value, int maxDigits) {
+        int exp = (int) Math.floor(Math.log10(value));
+
+        // log10 may be off by one next to powers of ten
+        double normalized = scale(value, -exp);
+        if (normalized < 1) {
+            exp--;
+        } else if (normalized >= 10) {
+            exp++;
+        }
+
+        if (!candidate(value, maxDigits, exp)) {
+            return false;
+        }
+
+        int low = 1;
+        int high = maxDigits;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candidate(value, mid, exp)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        return candidate(value, low, exp);
+    }
+
+    /**
+     * Rounds value to p significant digits and checks whether the result parses back to value
+     *
+     * @param exp decimal exponent of the first digit
+     */
+    private boolean candidate(float value, int p, int exp) {
+        long mantissa = Math.round(scale(value, p - 1 - exp));
+
+        // Rounding may carry into an additional digit
+        if (mantissa >= (long) POW10[p]) {
+            mantissa /= 10;
+            exp++;
+        }
+
+        candidateMantissa = mantissa;
+        candidateDigits = p;
+        candidateExp = exp;
+
+        return parsesToFloat(mantissa, exp - p + 1, value);
+    }
+
+    private static double scale(double value, int exp) {
+        if (exp >= 0) {
+            return exp < POW10.length ? value * POW10[exp] : value * Math.pow(10, exp);
+        }
+        return -exp < POW10.length ? value / POW10[-exp] : value / Math.pow(10, -exp);
+    }
+
+    /**
+     * Checks whether mantissa * 10^exp parses to value. The product is evaluated in double
+     * precision, which is off by a few units in the last place at most. Rounding it to float
+     * is therefore exact unless it lies next to the midpoint between two floats.
+     */
+    private static boolean parsesToFloat(long mantissa, int exp, float value) {
+        if (mantissa >= (1L << 53)) {
+            return false;
+        }
+
+        double parsed = scale(mantissa, exp);
+        if (parsed < Float.MIN_NORMAL || parsed > Float.MAX_VALUE) {
+            return false;
+        }
+
+        long distance = (Double.doubleToRawLongBits(parsed) & 0x1FFFFFFFL) - 0x10000000L;
+        if (distance > -64 && distance < 64) {
+            return false;
+        }
+
+        return (float) parsed == value;
+    }
+
+    /**
+     * Generates the shortest digits of value with the Grisu3 algorithm (Loitsch, "Printing Floating-Point
+     * Numbers Quickly and Accurately with Integers", 2010). The boundaries of the rounding interval are scaled
+     * by a cached power of ten into 64 bit fixed point numbers, the digits are then generated with long arithmetic.
+     * The result is rejected if the imprecision of the scaling leaves it uncertain whether it is shortest and closest.
+     *
+     * @param value positive finite double
+     * @return false if the digits could not be verified, the result is stored in the candidate fields
+     */
+    private boolean grisu(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        long significand = bits & 0xFFFFFFFFFFFFFL;
+        int biasedExp = (int) (bits >>> 52);
+
+        long f = biasedExp == 0 ? significand : significand | (1L << 52);
+        int e = biasedExp == 0 ? -1074 : biasedExp - 1075;
+
+        // Boundaries are halfway to the neighbours, the lower one is closer for powers of two
+        boolean closer = significand == 0 && biasedExp > 1;
+        long plus = (f << 1) + 1;
+        long minus = closer ? (f << 2) - 1 : (f << 1) - 1;
+        int minusExp = closer ? e - 2 : e - 1;
+
+        // Normalize, all three share the exponent of the upper boundary
+        int shift = Long.numberOfLeadingZeros(plus);
+        plus <<= shift;
+        minus <<= minusExp - (e - 1 - shift);
+        f <<= shift + 1;
+        e -= shift + 1;
+
+        // Choose 10^k such that the scaled binary exponent lies in [-60, -32]
+        int k = (int) Math.ceil((-60 - (e + 64) + 63) * 0.30102999566398114);
+        int index = (k - CACHED_POWER_MIN_EXP - 1) / CACHED_POWER_STEP + 1;
+        long power = CACHED_POWER_F[index];
+        int s = -(e + CACHED_POWER_E[index] + 64);
+
+        // Each product is off by less than one unit
+        long w = multiplyHigh(f, power);
+        long unit = 1;
+        long tooLow = multiplyHigh(minus, power) - unit;
+        long tooHigh = multiplyHigh(plus, power) + unit;
+        long unsafeInterval = tooHigh - tooLow;
+
+        long one = 1L << s;
+        long integrals = tooHigh >>> s;
+        long fractionals = tooHigh & (one - 1);
+
+        long divisor = 1;
+        int kappa = 1;
+        while (divisor * 10 <= integrals) {
+            divisor *= 10;
+            kappa++;
+        }
+
+        int decimalExp = kappa - 1 - (CACHED_POWER_MIN_EXP + index * CACHED_POWER_STEP);
+        long mantissa = 0;
+        int p = 0;
+
+        while (kappa > 0) {
+            mantissa = mantissa * 10 + integrals / divisor;
+            p++;
+            integrals %= divisor;
+            kappa--;
+
+            long rest = (integrals << s) + fractionals;
+            if (less(rest, unsafeInterval)) {
+                return roundWeed(mantissa, p, decimalExp, tooHigh - w, unsafeInterval, rest, divisor << s, unit);
+            }
+
+            divisor /= 10;
+        }
+
+        while (p < 17) {
+            fractionals *= 10;
+            unit *= 10;
+            unsafeInterval *= 10;
+
+            mantissa = mantissa * 10 + (fractionals >>> s);
+            p++;
+            fractionals &= one - 1;
+
+            if (less(fractionals, unsafeInterval)) {
+                return roundWeed(mantissa, p, decimalExp, (tooHigh - w) * unit, unsafeInterval, fractionals, one, unit);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the last digit towards w as long as the result stays within the unsafe interval and checks
+     * whether the result is guaranteed to lie within the rounding interval and to be closest to w.
+     * All distances are unsigned and in units of the scaled fixed point numbers.
+     *
+     * @param rest      distance between the generated digits and tooHigh
+     * @param tenKappa  weight of the last digit
+     */
+    private boolean roundWeed(long mantissa, int p, int exp, long distanceTooHighW, long unsafeInterval, long rest, long tenKappa, long unit) {
+        long smallDistance = distanceTooHighW - unit;
+        long bigDistance = distanceTooHighW + unit;
+
+        while (less(rest, smallDistance) && !less(unsafeInterval - rest, tenKappa)
+                && (less(rest + tenKappa, smallDistance) || !less(smallDistance - rest, rest + tenKappa - smallDistance))) {
+            mantissa--;
+            rest += tenKappa;
+        }
+
+        // Another candidate might be closer to the actual value
+        if (less(rest, bigDistance) && !less(unsafeInterval - rest, tenKappa)
+                && (less(rest + tenKappa, bigDistance) || less(rest + tenKappa - bigDistance, bigDistance - rest))) {
+            return false;
+        }
+
+        if (less(rest, 2 * unit) || less(unsafeInterval - 4 * unit, rest)) {
+            return false;
+        }
+
+        candidateMantissa = mantissa;
+        candidateDigits = p;
+        candidateExp = exp;
+
+        return true;
+    }
+
+    /**
+     * @return upper 64 bits of the unsigned 128 bit product, rounded
+     */
+    private static long multiplyHigh(long x, long y) {
+        long a = x >>> 32;
+        long b = x & 0xFFFFFFFFL;
+        long c = y >>> 32;
+        long d = y & 0xFFFFFFFFL;
+
+        long bc = b * c;
+        long ad = a * d;
+        long tmp = ((b * d) >>> 32) + (ad & 0xFFFFFFFFL) + (bc & 0xFFFFFFFFL) + (1L << 31);
+
+        return a * c + (ad >>> 32) + (bc >>> 32) + (tmp >>> 32);
+    }
+
+    /**
+     * Unsigned comparison
+     */
+    private static boolean less(long a, long b) {
+        return a + Long.MIN_VALUE < b + Long.MIN_VALUE;
+    }
+
+    private void ensure(int size) {
+        if (length + size > data.length) {
+            byte[] tmp = new byte[Math.max(length + size, data.length * 2)];
+            System.arraycopy(data, 0, tmp, 0, length);
+            data = tmp;
+        }
+    }
+}
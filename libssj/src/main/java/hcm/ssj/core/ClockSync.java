@@ -0,0 +1,264 @@
+/*
+ * ClockSync.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NTP-style estimation of the offset and drift between the local clock and the clock of a master.<br>
+ * An exchange consists of several request/response round trips. Each round trip yields the four
+ * timestamps t0 (request sent, local), t1 (request received, master), t2 (response sent, master)
+ * and t3 (response received, local). Only the round trip with the smallest delay of an exchange is
+ * used, as it is least affected by queueing. The offsets of the last exchanges are fitted with a line
+ * over local time, whose slope is the drift of the local clock.
+ * <p>
+ * All times are in microseconds.
+ */
+public class ClockSync {
+
+    public static final int MESSAGE_SIZE = 13 + 3 * 8; // tag + t0, t1, t2
+    private static final byte[] TAG_REQUEST = "SSJ:SYNC:NREQ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TAG_RESPONSE = "SSJ:SYNC:NRSP".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Clock to synchronize, must not be corrected by the results of the synchronization
+     */
+    public interface TimeSource {
+        long getTimeUs();
+    }
+
+    private final TimeSource clock;
+
+    // Best round trip of the current exchange
+    private long bestRtt;
+    private double bestOffset;
+    private long bestTime;
+
+    // Best round trips of the last exchanges
+    private final long[] times;
+    private final double[] offsets;
+    private int count;
+    private int next;
+
+    private double offset;
+    private double drift;
+    private long rtt;
+    private double residual;
+    private int exchanges;
+
+    /**
+     * @param clock  local clock
+     * @param window number of exchanges used for drift estimation
+     */
+    public ClockSync(TimeSource clock, int window) {
+        this.clock = clock;
+
+        times = new long[Math.max(1, window)];
+        offsets = new double[Math.max(1, window)];
+
+        reset();
+    }
+
+    public synchronized void reset() {
+        bestRtt = Long.MAX_VALUE;
+        count = 0;
+        next = 0;
+        offset = 0;
+        drift = 0;
+        rtt = 0;
+        residual = 0;
+        exchanges = 0;
+    }
+
+    public static boolean isRequest(byte[] msg, int length) {
+        return length >= MESSAGE_SIZE && startsWith(msg, TAG_REQUEST);
+    }
+
+    public static boolean isResponse(byte[] msg, int length) {
+        return length >= MESSAGE_SIZE && startsWith(msg, TAG_RESPONSE);
+    }
+
+    /**
+     * Writes a request containing the current local time
+     *
+     * @param dst buffer of at least MESSAGE_SIZE bytes
+     * @return length of the request
+     */
+    public int createRequest(byte[] dst) {
+        System.arraycopy(TAG_REQUEST, 0, dst, 0, TAG_REQUEST.length);
+        ByteBuffer.wrap(dst).order(ByteOrder.LITTLE_ENDIAN).putLong(13, clock.getTimeUs());
+
+        return MESSAGE_SIZE;
+    }
+
+    /**
+     * Turns a request into the response of the master
+     *
+     * @param msg     request, overwritten by the response
+     * @param recvUs  master time at which the request was received
+     * @param master  master clock
+     * @return length of the response
+     */
+    public static int respond(byte[] msg, long recvUs, TimeSource master) {
+        System.arraycopy(TAG_RESPONSE, 0, msg, 0, TAG_RESPONSE.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(msg).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(21, recvUs);
+        buffer.putLong(29, master.getTimeUs());
+
+        return MESSAGE_SIZE;
+    }
+
+    /**
+     * Adds the round trip of a response to the current exchange
+     *
+     * @param msg    response of the master
+     * @param recvUs local time at which the response was received
+     */
+    public synchronized void addResponse(byte[] msg, long recvUs) {
+        ByteBuffer buffer = ByteBuffer.wrap(msg).order(ByteOrder.LITTLE_ENDIAN);
+        long t0 = buffer.getLong(13);
+        long t1 = buffer.getLong(21);
+        long t2 = buffer.getLong(29);
+
+        long delay = (recvUs - t0) - (t2 - t1);
+        if (delay >= 0 && delay < bestRtt) {
+            bestRtt = delay;
+            bestOffset = ((t1 - t0) + (t2 - recvUs)) / 2.0;
+            bestTime = (t0 + recvUs) / 2;
+        }
+    }
+
+    /**
+     * Finishes the current exchange and updates the estimates
+     *
+     * @return false if no response was received during the exchange
+     */
+    public synchronized boolean update() {
+        if (bestRtt == Long.MAX_VALUE) {
+            return false;
+        }
+
+        times[next] = bestTime;
+        offsets[next] = bestOffset;
+        next = (next + 1) % times.length;
+        count = Math.min(count + 1, times.length);
+
+        rtt = bestRtt;
+        bestRtt = Long.MAX_VALUE;
+        exchanges++;
+
+        fit();
+        return true;
+    }
+
+    private void fit() {
+        // Least squares line through the offsets, relative to the most recent exchange for precision
+        long origin = times[(next + times.length - 1) % times.length];
+        double meanT = 0, meanO = 0;
+
+        for (int i = 0; i < count; i++) {
+            meanT += times[i] - origin;
+            meanO += offsets[i];
+        }
+        meanT /= count;
+        meanO /= count;
+
+        double cov = 0, var = 0;
+        for (int i = 0; i < count; i++) {
+            double t = times[i] - origin - meanT;
+            cov += t * (offsets[i] - meanO);
+            var += t * t;
+        }
+
+        drift = (var > 0) ? cov / var : 0;
+        offset = meanO - drift * meanT;
+
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double r = offsets[i] - (offset + drift * (times[i] - origin));
+            sum += r * r;
+        }
+        residual = Math.sqrt(sum / count);
+
+        // Store the offset relative to the local time origin
+        offset -= drift * origin;
+    }
+
+    /**
+     * @param localUs local time
+     * @return estimated difference between master and local clock at the given local time
+     */
+    public synchronized double getOffsetUs(long localUs) {
+        return offset + drift * localUs;
+    }
+
+    /**
+     * @return estimated master time at the given local time
+     */
+    public double getMasterTimeUs(long localUs) {
+        return localUs + getOffsetUs(localUs);
+    }
+
+    /**
+     * @return drift of the local clock relative to the master (e.g. 1e-4 if the master runs 100 ppm faster)
+     */
+    public synchronized double getDrift() {
+        return drift;
+    }
+
+    /**
+     * @return round trip delay of the best sample of the last exchange
+     */
+    public synchronized long getRttUs() {
+        return rtt;
+    }
+
+    /**
+     * @return root mean square deviation of the measured offsets from the fitted line
+     */
+    public synchronized double getResidualUs() {
+        return residual;
+    }
+
+    public synchronized int getExchangeCount() {
+        return exchanges;
+    }
+
+    private static boolean startsWith(byte[] msg, byte[] tag) {
+        for (int i = 0; i < tag.length; i++) {
+            if (msg[i] != tag[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -71,7 +71,8 @@ public class Cons {
 
     public enum FileType {
         ASCII,
-        BINARY
+        BINARY,
+        CHUNKED
     }
 
     public enum AudioFormat {
@@ -44,6 +44,7 @@ public abstract class Consumer extends Component {
     protected boolean _doWakeLock = true;
     private Stream[] _stream_in;
     private int[] _readPos = null;
+    private int[] _readerID = null;
     private int[] _bufferID_in;
     private int[] _num_frame;
     private int[] _num_delta;
@@ -97,8 +98,10 @@ public abstract class Consumer extends Component {
         }
 
         //maintain update rate starting from now
-        if (_triggerChannel == null)
+        if (_triggerChannel == null) {
+            _timer.setRealtime(_frame.options.realtime.get());
             _timer.reset();
+        }
 
         while (!_terminate && _frame.isRunning()) {
             try {
@@ -122,12 +125,17 @@ public abstract class Consumer extends Component {
                         _stream_in[i].adjust(numSamples);
                     } else {
                         pos = _readPos[i];
-                        _readPos[i] += _num_frame[i];
                     }
 
                     ok &= _frame.getData(_bufferID_in[i], _stream_in[i].ptr(), pos, _stream_in[i].num);
                     if (ok)
                         _stream_in[i].time = (double) pos / _stream_in[i].sr;
+
+                    // release only after reading, otherwise the writer may overwrite the frame
+                    if (_triggerChannel == null) {
+                        _readPos[i] += _num_frame[i];
+                        _frame.releaseData(_bufferID_in[i], _readerID[i], _readPos[i]);
+                    }
                 }
 
                 //if we received data from all sources, process it
@@ -205,6 +213,7 @@ public abstract class Consumer extends Component {
         try {
             _bufferID_in = new int[sources.length];
             _readPos = new int[sources.length];
+            _readerID = new int[sources.length];
             _stream_in = new Stream[sources.length];
             _num_frame = new int[sources.length];
             _num_delta = new int[sources.length];
@@ -220,6 +229,7 @@ public abstract class Consumer extends Component {
             //allocate local input buffer
             for (int i = 0; i < sources.length; i++) {
                 _bufferID_in[i] = sources[i].getBufferID();
+                _readerID[i] = _frame.registerReader(_bufferID_in[i]);
                 _stream_in[i] = Stream.create(sources[i], _num_frame[i], _num_delta[i]);
             }
 
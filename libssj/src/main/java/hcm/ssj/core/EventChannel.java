@@ -151,6 +151,11 @@ public class EventChannel {
 
             // Notify event listeners
             for (final EventListener listener : _listeners) {
+                if (listener instanceof EventHandler) {
+                    // Wake handlers waiting for input directly, without a detour through the thread pool
+                    ((EventHandler) listener).signalEvents();
+                }
+
                 _frame.threadPool.execute(new Runnable() {
                     @Override
                     public void run() {
@@ -177,6 +182,12 @@ public class EventChannel {
 
         synchronized (_lock) {
             _lock.notifyAll();
+
+            for (EventListener listener : _listeners) {
+                if (listener instanceof EventHandler) {
+                    ((EventHandler) listener).signalEvents();
+                }
+            }
         }
 
         Log.i("shut down complete");
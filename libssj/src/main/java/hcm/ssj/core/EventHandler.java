@@ -45,6 +45,9 @@ public abstract class EventHandler extends Component implements EventListener {
     protected Pipeline _frame;
     protected boolean _doWakeLock = false;
 
+    private final Object _eventLock = new Object();
+    private boolean _eventsPending = false;
+
     public EventHandler() {
         _frame = Pipeline.getInstance();
     }
@@ -109,6 +112,15 @@ public abstract class EventHandler extends Component implements EventListener {
         _safeToKill = true;
     }
 
+    @Override
+    public void close() {
+        // Handlers without input channels are not woken up by closing them
+        _terminate = true;
+        signalEvents();
+
+        super.close();
+    }
+
     /**
      * initialization specific to sensor implementation
      */
@@ -117,12 +129,52 @@ public abstract class EventHandler extends Component implements EventListener {
 
     /**
      * thread processing method, alternative to notify(), called in loop
+     * <p>
+     * Implementations reading from the input channels should call {@link #waitForEvents(long)}
+     * first and then process all events which are available without blocking.
      */
     protected void process() throws SSJFatalException {
-        try {
-            Thread.sleep(SLEEP_ON_COMPONENT_IDLE);
-        } catch (InterruptedException e) {
-            Log.w("thread interrupt");
+        waitForEvents(SLEEP_ON_COMPONENT_IDLE);
+    }
+
+    /**
+     * Blocks until a new event has been pushed to any of the input channels since the last call,
+     * the channels are closed or the timeout expires.
+     * Events pushed while the previous batch was processed are not lost, the call returns immediately in that case.
+     *
+     * @param timeout maximum time to wait in ms
+     * @return true if new events are available
+     */
+    protected boolean waitForEvents(long timeout) {
+        synchronized (_eventLock) {
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+
+            while (!_eventsPending && !_terminate && remaining > 0) {
+                try {
+                    _eventLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Log.w("thread interrupt");
+                    break;
+                }
+
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            boolean pending = _eventsPending;
+            _eventsPending = false;
+
+            return pending;
+        }
+    }
+
+    /**
+     * Called by the input channels when a new event was pushed or the channel was closed
+     */
+    void signalEvents() {
+        synchronized (_eventLock) {
+            _eventsPending = true;
+            _eventLock.notifyAll();
         }
     }
 
@@ -41,6 +41,10 @@ import java.nio.charset.StandardCharsets;
 class NetworkSync {
 
     private final int NUM_REPETITIONS = 10;
+    private final int NTP_WINDOW = 8; //number of exchanges used for drift estimation
+    private final int NTP_REQUEST_SPACING = 5; //ms
+    private final long NTP_STEP_THRESHOLD = 128000; //offsets above are corrected immediately (in us)
+    private final double NTP_MAX_SLEW_RATE = 500e-6;
     final private Object waitForStartMonitor = new Object();
     final private Object waitForStopMonitor = new Object();
     private final Pipeline frame;
@@ -52,6 +56,7 @@ class NetworkSync {
 
     private final SyncListener listener;
     private SyncSender sender;
+    private ClockSync clockSync;
 
     private final Pipeline.SyncType type;
 
@@ -77,7 +82,16 @@ class NetworkSync {
         listener = new SyncListener(port);
         new Thread(listener).start();
 
-        if (type == Pipeline.SyncType.CONTINUOUS && interval > 0 && !isMaster) {
+        if (type == Pipeline.SyncType.NTP && !isMaster) {
+            clockSync = new ClockSync(new ClockSync.TimeSource() {
+                @Override
+                public long getTimeUs() {
+                    return frame.getLocalTimeUs();
+                }
+            }, NTP_WINDOW);
+        }
+
+        if ((type == Pipeline.SyncType.CONTINUOUS || type == Pipeline.SyncType.NTP) && interval > 0 && !isMaster) {
             sender = new SyncSender(interval);
             new Thread(sender).start();
         }
@@ -118,7 +132,11 @@ class NetworkSync {
     }
 
     private void send(byte[] data, InetAddress addr) throws IOException {
-        DatagramPacket packet = new DatagramPacket(data, data.length, addr, port);
+        send(data, data.length, addr);
+    }
+
+    private void send(byte[] data, int length, InetAddress addr) throws IOException {
+        DatagramPacket packet = new DatagramPacket(data, length, addr, port);
         sendSocket.send(packet);
     }
 
@@ -191,12 +209,27 @@ class NetworkSync {
         @Override
         public void run() {
             long[] tmp = new long[2];
-            byte[] data = new byte[29];
+            byte[] data = new byte[Math.max(29, ClockSync.MESSAGE_SIZE)];
+            ClockSync.TimeSource masterClock = new ClockSync.TimeSource() {
+                @Override
+                public long getTimeUs() {
+                    return frame.getTimeUs();
+                }
+            };
 
             while (!terminate) {
                 try {
                     DatagramPacket packet = new DatagramPacket(data, data.length);
                     recvSocket.receive(packet);
+
+                    if (ClockSync.isRequest(data, packet.getLength()) && isMaster && type != Pipeline.SyncType.START_STOP) {
+                        send(data, ClockSync.respond(data, frame.getTimeUs(), masterClock), packet.getAddress());
+                        continue;
+                    } else if (ClockSync.isResponse(data, packet.getLength()) && clockSync != null) {
+                        clockSync.addResponse(data, frame.getLocalTimeUs());
+                        continue;
+                    }
+
                     Log.d("received packet from " + packet.getAddress().toString());
 
                     //check data
@@ -231,7 +264,7 @@ class NetworkSync {
                         Util.arraycopy(tmp, 0, data, 21, 8);
 
                         Log.d("sending time to slave (" + packet.getAddress().toString() + "): " + tmp[0]);
-                        send(data, packet.getAddress());
+                        send(data, 29, packet.getAddress());
                     } else if (!isMaster && str.startsWith("SSI:STRT")) {
                         if (!str.startsWith("SSI:STRT:RUN1"))
                             Log.w("Only RUN & QUIT is currently supported.");
@@ -263,8 +296,10 @@ class NetworkSync {
     private class SyncSender implements Runnable {
         boolean terminate = false;
         private final Timer timer;
+        private final int interval;
 
         SyncSender(int interval) {
+            this.interval = interval;
             timer = new Timer(interval);
         }
 
@@ -279,7 +314,10 @@ class NetworkSync {
             long[] tmp = new long[1];
 
             while (!terminate) {
-                if (frame.isRunning()) {
+                if (frame.isRunning() && clockSync != null) {
+                    correctClock();
+                    requestTimeNtp();
+                } else if (frame.isRunning()) {
                     frame.adjustTime(listener.getDelta());
                     listener.reset();
 
@@ -301,5 +339,43 @@ class NetworkSync {
                 timer.sync();
             }
         }
+
+        private void requestTimeNtp() {
+            byte[] data = new byte[ClockSync.MESSAGE_SIZE];
+
+            for (int i = 0; i < NUM_REPETITIONS && !terminate; i++) {
+                try {
+                    send(data, clockSync.createRequest(data), hostAddr);
+
+                    //spread requests so they do not queue up behind each other
+                    Thread.sleep(NTP_REQUEST_SPACING);
+                } catch (IOException e) {
+                    Log.e("error sending sync message", e);
+                } catch (InterruptedException e) {
+                    Log.w("thread interrupt");
+                }
+            }
+        }
+
+        private void correctClock() {
+            if (!clockSync.update()) {
+                return;
+            }
+
+            long local = frame.getLocalTimeUs();
+            double error = clockSync.getMasterTimeUs(local) - frame.getTimeUs();
+            double drift = clockSync.getDrift();
+
+            if (clockSync.getExchangeCount() == 1 || Math.abs(error) > NTP_STEP_THRESHOLD) {
+                frame.adjustClock((long) error, drift);
+            } else {
+                //slew the remaining offset until the next exchange
+                double slew = Math.max(-NTP_MAX_SLEW_RATE, Math.min(NTP_MAX_SLEW_RATE, error / (interval * 1000.0)));
+                frame.adjustClock(0, drift + slew);
+            }
+
+            Log.i("clock offset " + Math.round(error) + " us, drift " + Math.round(drift * 1e7) / 10.0 + " ppm, rtt "
+                  + clockSync.getRttUs() + " us, jitter " + Math.round(clockSync.getResidualUs()) + " us");
+        }
     }
 }
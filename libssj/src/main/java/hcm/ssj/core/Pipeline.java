@@ -27,6 +27,7 @@
 
 package hcm.ssj.core;
 
+import android.os.Build;
 import android.os.SystemClock;
 
 import java.io.File;
@@ -66,7 +67,11 @@ public class Pipeline {
     private long startTime = 0; //virtual clock
     private long startTimeSystem = 0; //real clock
     private long createTime = 0; //real clock
-    private long timeOffset = 0;
+    private final Object clockLock = new Object();
+    private long timeOffset = 0; //corrections of the virtual clock (in microseconds)
+    private double timeSlew = 0;
+    private double timeSlewRate = 0;
+    private long timeSlewStart = 0;
 
     private NetworkSync sync = null;
     private final HashSet<Component> components = new HashSet<>();
@@ -154,8 +159,10 @@ public class Pipeline {
             }
 
             Log.i("preparing buffers");
-            for (TimeBuffer b : buffers)
+            for (TimeBuffer b : buffers) {
                 b.reset();
+                b.setBlocking(!options.realtime.get());
+            }
 
             for (Component c : components) {
                 Log.i("starting " + c.getComponentName());
@@ -179,6 +186,13 @@ public class Pipeline {
                 }
             }
 
+            synchronized (clockLock) {
+                timeOffset = 0;
+                timeSlew = 0;
+                timeSlewRate = 0;
+                timeSlewStart = 0;
+            }
+
             startTimeSystem = System.currentTimeMillis();
             startTime = SystemClock.elapsedRealtime();
 
@@ -561,6 +575,23 @@ public class Pipeline {
         buffers.get(buffer_id).pushZeroes(num);
     }
 
+    /**
+     * Registers a continuous reader of a buffer. If the pipeline does not run in real time,
+     * the buffer keeps samples until all of its registered readers have released them.
+     *
+     * @return id of the reader
+     */
+    int registerReader(int buffer_id) {
+        return buffers.get(buffer_id).addReader();
+    }
+
+    /**
+     * Informs the buffer that the reader does not need samples before the given one anymore
+     */
+    void releaseData(int buffer_id, int reader, int sample) {
+        buffers.get(buffer_id).release(reader, sample);
+    }
+
     boolean getData(int buffer_id, Object data, double start_time, double duration) {
         if (!isRunning()) {
             return false;
@@ -864,15 +895,58 @@ public class Pipeline {
      * @return elapsed time since start of the pipeline (in milliseconds)
      */
     public long getTimeMs() {
+        return getTimeUs() / 1000;
+    }
+
+    /**
+     * @return elapsed time since start of the pipeline (in microseconds)
+     */
+    long getTimeUs() {
         if (startTime == 0)
             return 0;
 
-        return SystemClock.elapsedRealtime() - startTime + timeOffset;
+        long local = getLocalTimeUs();
+
+        synchronized (clockLock) {
+            return local + timeOffset + (long) (timeSlew + (local - timeSlewStart) * timeSlewRate);
+        }
+    }
+
+    /**
+     * @return elapsed time since start of the pipeline without clock corrections (in microseconds)
+     */
+    long getLocalTimeUs() {
+        // elapsedRealtimeNanos requires API 17, older devices fall back to millisecond resolution
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return SystemClock.elapsedRealtimeNanos() / 1000 - startTime * 1000;
+        }
+
+        return (SystemClock.elapsedRealtime() - startTime) * 1000;
     }
 
     void adjustTime(long offset) {
         Log.d("adjusting clock by " + offset + " ms");
-        timeOffset += offset;
+
+        synchronized (clockLock) {
+            timeOffset += offset * 1000;
+        }
+    }
+
+    /**
+     * Corrects the virtual clock
+     *
+     * @param step offset applied immediately (in microseconds)
+     * @param rate additional microseconds per microsecond of local time from now on, corrects offsets without jumps
+     */
+    void adjustClock(long step, double rate) {
+        synchronized (clockLock) {
+            long local = getLocalTimeUs();
+
+            timeSlew += (local - timeSlewStart) * timeSlewRate;
+            timeSlewStart = local;
+            timeSlewRate = rate;
+            timeOffset += step;
+        }
     }
 
     /**
@@ -949,7 +1023,11 @@ public class Pipeline {
     public enum SyncType {
         NONE,
         START_STOP,
-        CONTINUOUS
+        CONTINUOUS,
+        /**
+         * Continuous sync with round trip filtering and drift estimation, corrects the clock smoothly
+         */
+        NTP
     }
 
     public class Options extends OptionList {
@@ -982,9 +1060,9 @@ public class Pipeline {
          */
         public final Option<Integer> syncPort = new Option<>("syncPort", 0, Integer.class, "port for synchronizing pipeline over network");
         /**
-         * define time between clock sync attempts (requires CONTINUOUS sync). Default: 1.0
+         * define time between clock sync attempts (requires CONTINUOUS or NTP sync). Default: 10.0
          */
-        public final Option<Float> syncInterval = new Option<>("syncInterval", 10.0f, Float.class, "define time between clock sync attempts (requires CONTINUOUS sync)");
+        public final Option<Float> syncInterval = new Option<>("syncInterval", 10.0f, Float.class, "define time between clock sync attempts (requires CONTINUOUS or NTP sync)");
         /**
          * write system log to file. Default: false
          */
@@ -1001,6 +1079,11 @@ public class Pipeline {
          * repeated log entries with a duration delta smaller than the timeout value are ignored. Default: 1.0
          */
         public final Option<Double> logtimeout = new Option<>("logtimeout", 1.0, Double.class, "ignore repeated entries < timeout");
+        /**
+         * Run components in real time. If disabled, sources provide data as fast as their readers process it,
+         * e.g. to analyse recordings faster than real time. Not suited for live sensors. Default: true
+         */
+        public final Option<Boolean> realtime = new Option<>("realtime", true, Boolean.class, "run components in real time, disable to process file sources as fast as possible");
         /**
          * Shut down pipeline if runtime error is encountered
          */
@@ -66,7 +66,9 @@ public abstract class SensorChannel extends Provider {
         PowerManager mgr = (PowerManager) SSJApplication.getAppContext().getSystemService(Context.POWER_SERVICE);
         PowerManager.WakeLock wakeLock = mgr.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, _name);
 
-        WatchDog dog = new WatchDog(_bufferID, _watchInterval, _syncInterval);
+        // Without real time, the buffer must not be filled up or aligned with the wall clock
+        boolean realtime = _frame.options.realtime.get();
+        WatchDog dog = new WatchDog(_bufferID, realtime ? _watchInterval : 0, realtime ? _syncInterval : 0);
 
         if (_sensor == null) {
             Log.w("provider has not been attached to any sensor");
@@ -91,6 +93,7 @@ public abstract class SensorChannel extends Provider {
             _frame.error(this.getComponentName(), "exception in enter", e);
         }
 
+        _timer.setRealtime(realtime);
         _timer.reset();
 
         while (!_terminate) {
@@ -43,6 +43,9 @@ public class TimeBuffer {
     public final static int STATUS_DURATION_TOO_LARGE = -6;
     public final static int STATUS_UNKNOWN_DATA = -7;
     public final static int STATUS_ERROR = -9; //unknown error, buffer is probably closed
+
+    //larger sync corrections (relative to the time since the last sync) are applied at once
+    private final static double MAX_SLEW_RATE = 0.05;
     private final Object _lock = new Object();
     private final byte[] _buffer;
     private long _position;
@@ -57,11 +60,19 @@ public class TimeBuffer {
     private final int _bytesPerSample;
     private final double _sampleDuration;
 
-    private int _offsetSamples;
+    private int _offsetSamples; //offset once the current adjustment is finished
+    private double _slewFrom;
+    private long _slewStart;
+    private long _slewLength;
+    private double _lastSyncTime;
     private int _lastAccessedSample;
 
     private final Provider _owner;
 
+    //next sample required by each continuous reader, only enforced in blocking mode
+    private long[] _readers = new long[0];
+    private boolean _blocking = false;
+
     public TimeBuffer(double capacity, double sr, int dim, int bytesPerValue, Cons.Type type, Provider owner) {
         _owner = owner;
 
@@ -83,11 +94,52 @@ public class TimeBuffer {
     public void reset() {
         _position = 0;
         _offsetSamples = 0;
+        _slewLength = 0;
+        _lastSyncTime = -1;
         _lastAccessedSample = 0;
+        Arrays.fill(_readers, 0);
 
         _terminate = false;
     }
 
+    /**
+     * In blocking mode, push waits instead of overwriting samples which have not been released by all readers yet
+     */
+    public void setBlocking(boolean blocking) {
+        synchronized (_lock) {
+            _blocking = blocking;
+            _lock.notifyAll();
+        }
+    }
+
+    public int addReader() {
+        synchronized (_lock) {
+            _readers = Arrays.copyOf(_readers, _readers.length + 1);
+            return _readers.length - 1;
+        }
+    }
+
+    /**
+     * @param reader id of the reader
+     * @param sample first sample the reader still needs
+     */
+    public void release(int reader, long sample) {
+        synchronized (_lock) {
+            _readers[reader] = sample;
+            if (_blocking) {
+                _lock.notifyAll();
+            }
+        }
+    }
+
+    private long getOldestRequiredSample() {
+        long oldest = Long.MAX_VALUE;
+        for (long sample : _readers) {
+            oldest = Math.min(oldest, sample);
+        }
+        return oldest;
+    }
+
     public void close() {
         _terminate = true;
 
@@ -98,6 +150,20 @@ public class TimeBuffer {
 
     public void push(Object data, int numBytes) {
         synchronized (_lock) {
+            if (_blocking) {
+                long end = (_position + numBytes) / _bytesPerSample;
+                while (end - getOldestRequiredSample() > _capacitySamples && !_terminate) {
+                    try {
+                        _lock.wait();
+                    } catch (InterruptedException e) {
+                        Log.w("thread interrupt");
+                    }
+                }
+
+                if (_terminate)
+                    return;
+            }
+
             //compute actual position of data within buffer
             int pos_mod = (int) (_position % _buffer.length);
 
@@ -192,7 +258,9 @@ public class TimeBuffer {
 
     public int get(Object dst, int startSample, int numSamples) {
         //correct position for sync
-        startSample -= _offsetSamples;
+        synchronized (_lock) {
+            startSample -= getOffsetSamples(startSample);
+        }
 
         // check if requested duration is too small
         if (numSamples == 0) {
@@ -238,9 +306,47 @@ public class TimeBuffer {
         return (_offsetSamples + positionSamples) * _sampleDuration;
     }
 
+    /**
+     * Aligns the newest sample with the given time.
+     * Small corrections are spread over the samples until the next call instead of being applied at once,
+     * so readers only see single samples being repeated or skipped.
+     */
     public void setReadTime(double time) {
-        double delta = getReadTime() - time;
-        _offsetSamples -= (int) (delta * _sr + 0.5);
+        synchronized (_lock) {
+            double delta = getReadTime() - time;
+            int target = _offsetSamples - (int) (delta * _sr + 0.5);
+
+            long sample = (long) (time * _sr + 0.5);
+            double current = getOffsetSamples(sample);
+            double horizon = (_lastSyncTime >= 0) ? (time - _lastSyncTime) * _sr : 0;
+
+            if (horizon <= 0 || Math.abs(target - current) > horizon * MAX_SLEW_RATE) {
+                _slewLength = 0;
+            } else {
+                _slewFrom = current;
+                _slewStart = sample;
+                _slewLength = (long) horizon;
+            }
+
+            _offsetSamples = target;
+            _lastSyncTime = time;
+        }
+    }
+
+    /**
+     * @param sample position in pipeline time (in samples)
+     * @return offset between pipeline time and buffer position at the given sample
+     */
+    private int getOffsetSamples(long sample) {
+        if (_slewLength == 0 || sample >= _slewStart + _slewLength) {
+            return _offsetSamples;
+        }
+
+        if (sample <= _slewStart) {
+            return (int) Math.round(_slewFrom);
+        }
+
+        return (int) Math.round(_slewFrom + (_offsetSamples - _slewFrom) * (sample - _slewStart) / _slewLength);
     }
 
     public long getPositionAbs() {
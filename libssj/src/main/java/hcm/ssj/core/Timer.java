@@ -46,6 +46,7 @@ public class Timer {
     private final ArrayList<Long> _history = new ArrayList<Long>();
 
     private boolean _syncFailFlag;
+    private boolean _realtime = true;
 
     public Timer() {
         reset();
@@ -89,8 +90,18 @@ public class Timer {
         _offset = milliseconds;
     }
 
+    //disables waiting, sync() only advances the sync point (e.g. to process recordings as fast as possible)
+    public void setRealtime(boolean realtime) {
+        _realtime = realtime;
+    }
+
     //equivalent to SSI's wait()
     public void sync() {
+        if (!_realtime) {
+            _next += _delta;
+            return;
+        }
+
         _now = SystemClock.elapsedRealtime() - _init;
         while (_now < _next) {
             try {
@@ -43,6 +43,7 @@ public abstract class Transformer extends Provider {
     private Stream[] _stream_in;
     private int[] _bufferID_in;
     private int[] _readPos;
+    private int[] _readerID;
     private int[] _num_frame;
     private int[] _num_delta;
     private Timer _timer;
@@ -89,6 +90,7 @@ public abstract class Transformer extends Provider {
         }
 
         //maintain update rate starting from now
+        _timer.setRealtime(_frame.options.realtime.get());
         _timer.reset();
 
         while (!_terminate && _frame.isRunning()) {
@@ -104,6 +106,7 @@ public abstract class Transformer extends Provider {
                         _stream_in[i].time = (double) _readPos[i] / _stream_in[i].sr;
 
                     _readPos[i] += _num_frame[i];
+                    _frame.releaseData(_bufferID_in[i], _readerID[i], _readPos[i]);
                 }
 
                 //if we received data from all sources, process it
@@ -172,6 +175,7 @@ public abstract class Transformer extends Provider {
             _bufferID_in = new int[sources.length];
             _stream_in = new Stream[sources.length];
             _readPos = new int[sources.length];
+            _readerID = new int[sources.length];
             _num_frame = new int[sources.length];
             _num_delta = new int[sources.length];
 
@@ -192,6 +196,7 @@ public abstract class Transformer extends Provider {
             //allocate local input buffer
             for (int i = 0; i < sources.length; i++) {
                 _bufferID_in[i] = sources[i].getBufferID();
+                _readerID[i] = _frame.registerReader(_bufferID_in[i]);
                 _stream_in[i] = Stream.create(sources[i], _num_frame[i], _num_delta[i]);
             }
 
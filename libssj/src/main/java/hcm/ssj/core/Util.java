@@ -699,6 +699,19 @@ public class Util {
     }
 
     public static void eventToXML(StringBuilder builder, Event ev, boolean sendAsMap, String[] mapKeys) {
+        AsciiBuilder xml = new AsciiBuilder();
+        eventToXML(xml, ev, sendAsMap, mapKeys);
+        builder.append(xml.toString());
+    }
+
+    /**
+     * Writes the XML representation of an event without creating intermediate strings
+     */
+    public static void eventToXML(AsciiBuilder builder, Event ev) {
+        eventToXML(builder, ev, false, null);
+    }
+
+    public static void eventToXML(AsciiBuilder builder, Event ev, boolean sendAsMap, String[] mapKeys) {
         builder.append("<event sender=\"").append(ev.sender).append("\"");
         builder.append(" event=\"").append(ev.name).append("\"");
         builder.append(" from=\"").append(ev.time).append("\"");
@@ -709,11 +722,11 @@ public class Util {
         if (sendAsMap && ev.type != Cons.Type.STRING) {
             builder.append("map");
         } else {
-            builder.append(ev.type);
+            builder.append(ev.type.name());
         }
 
         builder.append("\"");
-        builder.append(" state=\"").append(ev.state).append("\"");
+        builder.append(" state=\"").append(ev.state.name()).append("\"");
         builder.append(" glue=\"0\">");
 
         switch (ev.type) {
@@ -838,7 +851,7 @@ public class Util {
         builder.append("</event>");
     }
 
-    private static void addTupleBefore(StringBuilder builder, String[] mapKeys, int i) {
+    private static void addTupleBefore(AsciiBuilder builder, String[] mapKeys, int i) {
         builder.append("<tuple string=\"");
 
         if (mapKeys != null && i < mapKeys.length) {
@@ -29,20 +29,19 @@ package hcm.ssj.core.stream;
 
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Serializable;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Provider;
 import hcm.ssj.core.Util;
+import hcm.ssj.file.AsciiStreamParser;
+import hcm.ssj.file.ChunkedStreamReader;
 import hcm.ssj.file.FileCons;
+import hcm.ssj.file.MappedStreamReader;
 import hcm.ssj.file.SimpleXmlParser;
 
 /**
@@ -169,11 +168,21 @@ public abstract class Stream implements Serializable {
         xmlValues = simpleXmlParser.parse(
                 new FileInputStream(header),
                 new String[]{"stream", "chunk"},
-                new String[]{"from", "num"}
+                new String[]{"from", "num", "byte"}
         );
 
-        double time = Double.valueOf(xmlValues.foundAttributes.get(0)[0]);
-        int num = Integer.valueOf(xmlValues.foundAttributes.get(0)[1]);
+        int chunks = xmlValues.foundAttributes.size();
+        double time = chunks > 0 ? Double.valueOf(xmlValues.foundAttributes.get(0)[0]) : 0;
+
+        long[] chunkPos = new long[chunks];
+        int[] chunkNum = new int[chunks];
+        int num = 0;
+        for (int i = 0; i < chunks; i++) {
+            String[] chunk = xmlValues.foundAttributes.get(i);
+            chunkNum[i] = Integer.valueOf(chunk[1]);
+            chunkPos[i] = chunk[2] != null ? Long.valueOf(chunk[2]) : 0;
+            num += chunkNum[i];
+        }
 
         Stream stream = create(num, dim, sr, type);
         stream.time = time;
@@ -182,63 +191,46 @@ public abstract class Stream implements Serializable {
             loadDataASCII(stream, path + FileCons.TAG_DATA_FILE);
         } else if (ftype.equals("BINARY")) {
             loadDataBinary(stream, path + FileCons.TAG_DATA_FILE);
+        } else if (ftype.equals("CHUNKED")) {
+            loadDataChunked(stream, path + FileCons.TAG_DATA_FILE, chunkPos, chunkNum);
         }
 
         return stream;
     }
 
     private static void loadDataASCII(Stream stream, String path) throws IOException, XmlPullParserException {
-        InputStream inputStream = new FileInputStream(new File(path));
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-
-        int cnt = 0;
-        String line = reader.readLine();
-        while (line != null) {
-            String[] tokens = line.split(FileCons.DELIMITER_DIMENSION);
-            for (String value : tokens) {
-                switch (stream.type) {
-                    case BYTE:
-                    case IMAGE:
-                        stream.ptrB()[cnt++] = Byte.valueOf(value);
-                        break;
-                    case CHAR:
-                        stream.ptrC()[cnt++] = (char) Byte.valueOf(value).byteValue();
-                        break;
-                    case SHORT:
-                        stream.ptrS()[cnt++] = Short.valueOf(value);
-                        break;
-                    case INT:
-                        stream.ptrI()[cnt++] = Integer.valueOf(value);
-                        break;
-                    case LONG:
-                        stream.ptrL()[cnt++] = Long.valueOf(value);
-                        break;
-                    case FLOAT:
-                        stream.ptrF()[cnt++] = Float.valueOf(value);
-                        break;
-                    case DOUBLE:
-                        stream.ptrD()[cnt++] = Double.valueOf(value);
-                        break;
-                    case BOOL:
-                        stream.ptrBool()[cnt++] = Boolean.valueOf(value);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("Stream type not supported");
-                }
+        AsciiStreamParser parser = new AsciiStreamParser(new FileInputStream(new File(path)), FileCons.DELIMITER_DIMENSION);
+
+        try {
+            int len = parser.read(stream);
+            if (len < stream.num) {
+                Log.w("expected " + stream.num + " samples, found " + len);
             }
-            line = reader.readLine();
+        } finally {
+            parser.close();
         }
     }
 
     private static void loadDataBinary(Stream stream, String path) throws IOException, XmlPullParserException {
-        InputStream inputStream = new FileInputStream(new File(path));
-        BufferedInputStream reader = new BufferedInputStream(inputStream);
-
-        byte[] buffer = new byte[stream.tot];
-        int len = reader.read(buffer, 0, stream.tot);
-        while (len != -1) {
-            Util.arraycopy(buffer, 0, stream.ptr(), 0, len);
-            len = reader.read(buffer, 0, stream.tot);
+        MappedStreamReader reader = new MappedStreamReader(new File(path), stream.type, stream.dim);
+
+        try {
+            int len = reader.read(stream);
+            if (len < stream.num) {
+                Log.w("expected " + stream.num + " samples, found " + len);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void loadDataChunked(Stream stream, String path, long[] chunkPos, int[] chunkNum) throws IOException {
+        ChunkedStreamReader reader = new ChunkedStreamReader(new File(path), stream.type, stream.dim, chunkPos, chunkNum);
+
+        try {
+            reader.read(stream);
+        } finally {
+            reader.close();
         }
     }
 
@@ -35,7 +35,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.HashMap;
-import java.util.List;
 
 import hcm.ssj.camera.CameraUtil;
 import hcm.ssj.core.Cons;
@@ -53,6 +52,7 @@ import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.ml.TFLiteWrapper;
 import hcm.ssj.ssd.Detection;
+import hcm.ssj.ssd.DetectionBuffer;
 import hcm.ssj.ssd.SingleShotMultiBoxDetector;
 
 /**
@@ -93,7 +93,6 @@ public class FaceCrop extends Transformer {
     private Matrix rotationMatrix;
     private int rotatedWidth = -1;
     private int rotatedHeight = -1;
-    private List<Detection> detectionList;
     private Detection currentDetection;
     private int width;
     private int height;
@@ -153,7 +152,7 @@ public class FaceCrop extends Transformer {
 		modelInterpreter = new Interpreter(modelFile, interpreterOptions);
 
 		 */
-        tfLiteWrapper = new TFLiteWrapper(options.useGPU.get());
+        tfLiteWrapper = new TFLiteWrapper(options.useGPU.get(), options.cache.get());
         tfLiteWrapper.loadModel(modelFile);
 
 
@@ -167,11 +166,13 @@ public class FaceCrop extends Transformer {
 
         // Create bitmap for the original image
         inputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        originalInputArray = new int[width * height];
         rotationMatrix = new Matrix();
         rotationMatrix.postRotate(options.rotation.get());
 
         // Create SSD helper class
         ssd = new SingleShotMultiBoxDetector();
+        currentDetection = new Detection();
     }
 
     @Override
@@ -185,7 +186,7 @@ public class FaceCrop extends Transformer {
         outputs.put(1, scoresResult);
 
         // Convert byte array to integer array
-        originalInputArray = CameraUtil.decodeBytes(stream_in[0].ptrB(), width, height);
+        CameraUtil.decodeBytes(stream_in[0].ptrB(), originalInputArray, width, height);
 
         // Create bitmap from byte array
         inputBitmap.setPixels(originalInputArray, 0, width, 0, 0, width, height);
@@ -203,10 +204,10 @@ public class FaceCrop extends Transformer {
         tfLiteWrapper.runMultiInputOutput(new Object[]{imgData}, outputs);
 
         // Calculate detections from model results
-        detectionList = ssd.process(boxesResult, scoresResult);
+        DetectionBuffer detections = ssd.detect(boxesResult, scoresResult);
 
-        if (detectionList.size() > 0) {
-            currentDetection = detectionList.get(0);
+        if (detections.size() > 0) {
+            detections.copyTo(0, currentDetection);
 
             // Cache width and height of rotated input image
             if (rotatedWidth < 0) {
@@ -327,6 +328,7 @@ public class FaceCrop extends Transformer {
         public final Option<Integer> paddingVertical = new Option<>("paddingVertical", 0, Integer.class, "increase vertical face crop by custom number of pixels on each side");
         public final Option<Boolean> outputPositionEvents = new Option<>("outputPositionEvents", false, Boolean.class, "if true outputs face position as events");
         public final Option<Boolean> useGPU = new Option<>("useGPU", true, Boolean.class, "if true tries to use GPU for better performance");
+        public final Option<Boolean> cache = new Option<>("cache", true, Boolean.class, "keep memory-mapped model files in memory to speed up subsequent pipeline starts");
 
         private Options() {
             addOptions();
@@ -0,0 +1,479 @@
+/*
+ * AsciiStreamParser.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Streaming parser for ASCII stream data files.<br>
+ * Every line holds one sample, values are separated by any of the separator characters.
+ * The input is scanned in a reusable byte buffer and numbers are parsed directly into the
+ * primitive sample arrays, no objects are created per value. Values the fast path can not
+ * represent exactly (e.g. many significant digits, NaN) are handed to the JDK parsers.
+ */
+public class AsciiStreamParser {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] POW10F = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    private byte[] token = new byte[64];
+    private int tokenLength = 0;
+
+    private boolean scanNegative;
+    private int scanExponent;
+
+    private final boolean[] separators = new boolean[128];
+    private String separator = null;
+
+    /**
+     * @param input     stream to read from
+     * @param separator value separator, every character of the string is treated as separator
+     */
+    public AsciiStreamParser(InputStream input, String separator) {
+        this.input = input;
+        setSeparator(separator);
+    }
+
+    /**
+     * @param separator value separator, every character of the string is treated as separator
+     */
+    public void setSeparator(String separator) {
+        if (separator == null || separator.equals(this.separator)) {
+            return;
+        }
+
+        this.separator = separator;
+
+        for (int i = 0; i < separators.length; i++) {
+            separators[i] = false;
+        }
+        for (int i = 0; i < separator.length(); i++) {
+            char c = separator.charAt(i);
+            if (c < separators.length) {
+                separators[c] = true;
+            }
+        }
+    }
+
+    /**
+     * Continues parsing from a new input, e.g. to start over at the beginning of a file
+     *
+     * @param input stream to read from
+     */
+    public void reset(InputStream input) throws IOException {
+        close();
+        this.input = input;
+        pos = 0;
+        limit = 0;
+    }
+
+    /**
+     * Fills the stream with the next stream.num samples
+     *
+     * @return number of samples read, less than stream.num if the end of the input has been reached
+     */
+    public int read(Stream stream) throws IOException {
+        return read(stream.ptr(), 0, stream.num, stream.type, stream.dim);
+    }
+
+    /**
+     * Parses samples into a primitive array
+     *
+     * @param dst       destination array matching the type
+     * @param dstSample index of the first sample in the destination array
+     * @param num       number of samples to read
+     * @param type      sample type
+     * @param dim       sample dimension
+     * @return number of samples read, less than num if the end of the input has been reached
+     */
+    public int read(Object dst, int dstSample, int num, Cons.Type type, int dim) throws IOException {
+        for (int i = 0; i < num; i++) {
+            if (!readSample(dst, (dstSample + i) * dim, type, dim)) {
+                return i;
+            }
+        }
+
+        return num;
+    }
+
+    /**
+     * Skips lines without parsing them
+     *
+     * @param lines number of lines to skip
+     * @return number of lines skipped
+     */
+    public long skip(long lines) throws IOException {
+        long skipped = 0;
+
+        while (skipped < lines) {
+            int c = next();
+            if (c == -1) {
+                break;
+            }
+            if (c == '\n') {
+                skipped++;
+            }
+        }
+
+        return skipped;
+    }
+
+    public void close() throws IOException {
+        if (input != null) {
+            input.close();
+            input = null;
+        }
+    }
+
+    /**
+     * Parses one line into dim values starting at index pos. Missing values are set to zero,
+     * surplus values are ignored. Empty lines are skipped.
+     *
+     * @return false if the end of the input has been reached
+     */
+    private boolean readSample(Object dst, int pos, Cons.Type type, int dim) throws IOException {
+        int c = skipSeparators(true);
+        if (c == -1) {
+            return false;
+        }
+
+        int k = 0;
+        while (c != -1 && c != '\n' && c != '\r') {
+            c = readToken(c);
+
+            if (k < dim) {
+                store(dst, pos + k, type);
+                k++;
+            }
+
+            c = skipSeparators(false);
+        }
+
+        for (; k < dim; k++) {
+            tokenLength = 0;
+            store(dst, pos + k, type);
+        }
+
+        return true;
+    }
+
+    private void store(Object dst, int index, Cons.Type type) {
+        switch (type) {
+            case BYTE:
+            case IMAGE:
+                ((byte[]) dst)[index] = (byte) parseLong(Byte.MIN_VALUE, Byte.MAX_VALUE);
+                break;
+            case CHAR:
+                // FileWriter stores characters as such, other sources store their numeric value
+                ((char[]) dst)[index] = tokenLength == 1 ? (char) token[0] : (char) (byte) parseLong(Byte.MIN_VALUE, Byte.MAX_VALUE);
+                break;
+            case SHORT:
+                ((short[]) dst)[index] = (short) parseLong(Short.MIN_VALUE, Short.MAX_VALUE);
+                break;
+            case INT:
+                ((int[]) dst)[index] = (int) parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+                break;
+            case LONG:
+                ((long[]) dst)[index] = parseLong();
+                break;
+            case FLOAT:
+                ((float[]) dst)[index] = parseFloat();
+                break;
+            case DOUBLE:
+                ((double[]) dst)[index] = parseDouble();
+                break;
+            case BOOL:
+                ((boolean[]) dst)[index] = parseBoolean();
+                break;
+            default:
+                throw new UnsupportedOperationException("Stream type not supported");
+        }
+    }
+
+    /**
+     * @param lineStart true to also skip line breaks
+     * @return first character which is not a separator or -1
+     */
+    private int skipSeparators(boolean lineStart) throws IOException {
+        int c = next();
+
+        while (c != -1 && (isSeparator(c) || (lineStart && (c == '\n' || c == '\r')))) {
+            c = next();
+        }
+
+        if (!lineStart && c == '\r') {
+            c = next();
+            if (c != '\n' && c != -1) {
+                pos--;
+            }
+            c = '\n';
+        }
+
+        return c;
+    }
+
+    /**
+     * Copies the token starting with c into the token buffer
+     *
+     * @return character following the token
+     */
+    private int readToken(int c) throws IOException {
+        tokenLength = 0;
+
+        while (c != -1 && c != '\n' && c != '\r' && !isSeparator(c)) {
+            if (tokenLength == token.length) {
+                byte[] tmp = new byte[token.length * 2];
+                System.arraycopy(token, 0, tmp, 0, tokenLength);
+                token = tmp;
+            }
+            token[tokenLength++] = (byte) c;
+            c = next();
+        }
+
+        // Line breaks and separators are evaluated by the caller
+        if (c != -1) {
+            pos--;
+        }
+
+        return c;
+    }
+
+    private boolean isSeparator(int c) {
+        return c < separators.length && separators[c];
+    }
+
+    private int next() throws IOException {
+        if (pos == limit) {
+            if (input == null) {
+                return -1;
+            }
+
+            int len = input.read(buffer, 0, buffer.length);
+            if (len <= 0) {
+                return -1;
+            }
+
+            pos = 0;
+            limit = len;
+        }
+
+        return buffer[pos++] & 0xFF;
+    }
+
+    /**
+     * @throws NumberFormatException if the value does not fit into the range of the stream type, like Short.valueOf etc.
+     */
+    private long parseLong(long min, long max) {
+        long value = parseLong();
+
+        if (value < min || value > max) {
+            throw new NumberFormatException("Value out of range. Value:\"" + tokenString() + "\" Radix:10");
+        }
+
+        return value;
+    }
+
+    private long parseLong() {
+        if (tokenLength == 0) {
+            return 0;
+        }
+
+        int i = 0;
+        boolean negative = false;
+
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        // Longer numbers might overflow, the JDK parser reports them
+        if (i == tokenLength || tokenLength - i > 18) {
+            return Long.parseLong(tokenString());
+        }
+
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            int d = token[i] - '0';
+            if (d < 0 || d > 9) {
+                return Long.parseLong(tokenString());
+            }
+            value = value * 10 + d;
+        }
+
+        return negative ? -value : value;
+    }
+
+    private double parseDouble() {
+        if (tokenLength == 0) {
+            return 0;
+        }
+
+        long mantissa = scanMantissa();
+        if (mantissa >= 0 && scanExponent >= -22 && scanExponent <= 22 && mantissa < (1L << 53)) {
+            double value = scanExponent >= 0 ? mantissa * POW10[scanExponent] : mantissa / POW10[-scanExponent];
+            return scanNegative ? -value : value;
+        }
+
+        return Double.parseDouble(tokenString());
+    }
+
+    private float parseFloat() {
+        if (tokenLength == 0) {
+            return 0;
+        }
+
+        long mantissa = scanMantissa();
+        if (mantissa >= 0 && scanExponent >= -10 && scanExponent <= 10 && mantissa < (1L << 24)) {
+            float value = scanExponent >= 0 ? mantissa * POW10F[scanExponent] : mantissa / POW10F[-scanExponent];
+            return scanNegative ? -value : value;
+        }
+
+        if (mantissa >= 0 && scanExponent >= -22 && scanExponent <= 22 && mantissa < (1L << 53)) {
+            double value = scanExponent >= 0 ? mantissa * POW10[scanExponent] : mantissa / POW10[-scanExponent];
+
+            // Rounding the double again is exact unless it hit the midpoint between two floats
+            long bits = Double.doubleToRawLongBits(value);
+            if ((value == 0 || (value >= Float.MIN_NORMAL && value <= Float.MAX_VALUE)) && (bits & 0x1FFFFFFFL) != 0x10000000L) {
+                return scanNegative ? -(float) value : (float) value;
+            }
+        }
+
+        return Float.parseFloat(tokenString());
+    }
+
+    private boolean parseBoolean() {
+        return tokenLength == 4
+                && (token[0] | 0x20) == 't'
+                && (token[1] | 0x20) == 'r'
+                && (token[2] | 0x20) == 'u'
+                && (token[3] | 0x20) == 'e';
+    }
+
+    /**
+     * Splits a decimal number into sign, integer mantissa and decimal exponent
+     *
+     * @return mantissa or -1 if the token can not be handled exactly by the fast path
+     */
+    private long scanMantissa() {
+        int i = 0;
+        scanNegative = false;
+        scanExponent = 0;
+
+        if (token[0] == '-' || token[0] == '+') {
+            scanNegative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = 0;
+        boolean point = false;
+        boolean any = false;
+
+        for (; i < tokenLength; i++) {
+            int c = token[i];
+
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros do not count as significant digits
+                    if (point) {
+                        fraction++;
+                    }
+                    continue;
+                }
+                if (++digits > MAX_MANTISSA_DIGITS) {
+                    return -1;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    fraction++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!any) {
+            return -1;
+        }
+
+        int exponent = 0;
+        if (i < tokenLength) {
+            if (token[i] != 'e' && token[i] != 'E' || ++i == tokenLength) {
+                return -1;
+            }
+
+            boolean negative = false;
+            if (token[i] == '-' || token[i] == '+') {
+                negative = token[i] == '-';
+                if (++i == tokenLength) {
+                    return -1;
+                }
+            }
+
+            for (; i < tokenLength; i++) {
+                int d = token[i] - '0';
+                if (d < 0 || d > 9 || exponent > 1000) {
+                    return -1;
+                }
+                exponent = exponent * 10 + d;
+            }
+
+            if (negative) {
+                exponent = -exponent;
+            }
+        }
+
+        scanExponent = mantissa == 0 ? 0 : exponent - fraction;
+        return mantissa;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * AsyncFileWriter.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import hcm.ssj.core.Log;
+
+/**
+ * Writes data to a file on a dedicated I/O thread.<br>
+ * Callers copy their data into pooled buffers which are handed to the I/O thread once full
+ * and returned to the pool after they have been written. This way slow flash writes do not
+ * stall consumers. If all buffers are in flight, the caller either blocks until a buffer is
+ * free or the data is dropped, depending on the overflow policy.
+ */
+public class AsyncFileWriter {
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    /**
+     * When written data is forced to the storage device
+     */
+    public enum SyncPolicy {
+        NONE,
+        CLOSE,
+        BUFFER
+    }
+
+    /**
+     * What happens if no free buffer is available
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP
+    }
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final String name;
+    private final FileOutputStream output;
+    private final FileChannel channel;
+    private final int bufferSize;
+    private final SyncPolicy sync;
+    private final OverflowPolicy overflow;
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final Thread thread;
+
+    private ByteBuffer current = null;
+    private byte[] scratch = new byte[1024];
+    private boolean closed = false;
+
+    private volatile IOException error = null;
+    private volatile long bytesWritten = 0;
+    private long bytesDropped = 0;
+    private int maxQueueDepth = 0;
+
+    /**
+     * Creates a writer with default buffers which syncs on close and blocks on overflow
+     *
+     * @param file file to write, existing files are truncated
+     */
+    public AsyncFileWriter(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT, SyncPolicy.CLOSE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param file        file to write, existing files are truncated
+     * @param bufferSize  size of each buffer in bytes
+     * @param bufferCount number of buffers in the pool
+     * @param sync        when written data is forced to the storage device
+     * @param overflow    behaviour if the storage device can not keep up
+     */
+    public AsyncFileWriter(File file, int bufferSize, int bufferCount, SyncPolicy sync, OverflowPolicy overflow) throws IOException {
+        this.name = file.getName();
+        this.bufferSize = Math.max(1024, bufferSize);
+        this.sync = sync;
+        this.overflow = overflow;
+
+        int count = Math.max(2, bufferCount);
+        free = new ArrayBlockingQueue<>(count);
+        filled = new ArrayBlockingQueue<>(count + 1);
+
+        for (int i = 0; i < count; i++) {
+            free.add(ByteBuffer.allocateDirect(this.bufferSize));
+        }
+
+        output = new FileOutputStream(file);
+        channel = output.getChannel();
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                process();
+            }
+        }, "AsyncFileWriter-" + name);
+        // A writer which is never closed must not keep the process alive
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Copies data into the write buffers
+     *
+     * @param data source array
+     * @param off  start offset in the source array
+     * @param len  number of bytes to write
+     * @return false if the data was dropped due to the overflow policy
+     * @throws IOException if the writer is closed or a previous write failed
+     */
+    public boolean write(byte[] data, int off, int len) throws IOException {
+        check();
+
+        if (overflow == OverflowPolicy.DROP && !hasCapacity(len)) {
+            bytesDropped += len;
+            return false;
+        }
+
+        while (len > 0) {
+            if (current == null) {
+                current = acquire();
+            }
+
+            int n = Math.min(len, current.remaining());
+            current.put(data, off, n);
+            off += n;
+            len -= n;
+
+            if (!current.hasRemaining()) {
+                submit();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes text UTF-8 encoded, without creating intermediate strings
+     *
+     * @param text text to write
+     * @return false if the text was dropped due to the overflow policy
+     * @throws IOException if the writer is closed or a previous write failed
+     */
+    public boolean write(CharSequence text) throws IOException {
+        int length = text.length();
+
+        if (scratch.length < length * 3) {
+            scratch = new byte[Math.max(length * 3, scratch.length * 2)];
+        }
+
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c < 0x80) {
+                scratch[n++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[n++] = (byte) (0xC0 | (c >> 6));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                scratch[n++] = (byte) (0xF0 | (cp >> 18));
+                scratch[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                scratch[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                scratch[n++] = (byte) (0xE0 | (c >> 12));
+                scratch[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return write(scratch, 0, n);
+    }
+
+    /**
+     * Hands the partially filled buffer to the I/O thread
+     */
+    public void flush() throws IOException {
+        check();
+
+        if (current != null && current.position() > 0) {
+            submit();
+        }
+    }
+
+    /**
+     * Writes all pending data, syncs according to the policy and closes the file.
+     * Blocks until the I/O thread has finished.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            if (current != null && current.position() > 0) {
+                submit();
+            }
+
+            put(filled, END);
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while closing " + name, e);
+            }
+
+            if (error == null && sync != SyncPolicy.NONE) {
+                channel.force(true);
+            }
+        } finally {
+            closed = true;
+            channel.close();
+            output.close();
+        }
+
+        if (bytesDropped > 0) {
+            Log.w(name + ": dropped " + bytesDropped + " bytes, storage too slow");
+        }
+        Log.d(name + ": wrote " + bytesWritten + " bytes, max queue depth " + maxQueueDepth);
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return number of buffers waiting to be written
+     */
+    public int getQueueDepth() {
+        return filled.size();
+    }
+
+    /**
+     * @return highest number of buffers waiting to be written at the same time
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of bytes written to the file so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return number of bytes dropped due to the overflow policy
+     */
+    public long getBytesDropped() {
+        return bytesDropped;
+    }
+
+    private void check() throws IOException {
+        if (closed) {
+            throw new IOException(name + " already closed");
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return true if len bytes fit into the current and the free buffers
+     */
+    private boolean hasCapacity(int len) {
+        int available = (current != null ? current.remaining() : 0) + free.size() * bufferSize;
+        return len <= available;
+    }
+
+    private ByteBuffer acquire() throws IOException {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for buffer", e);
+        }
+    }
+
+    private void submit() throws IOException {
+        current.flip();
+        put(filled, current);
+        current = null;
+
+        int depth = filled.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+
+    private void put(BlockingQueue<ByteBuffer> queue, ByteBuffer buffer) throws IOException {
+        try {
+            queue.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while queueing buffer", e);
+        }
+    }
+
+    private void process() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = filled.take();
+            } catch (InterruptedException e) {
+                // Only the END marker terminates the thread, otherwise callers would block forever
+                continue;
+            }
+
+            if (buffer == END) {
+                break;
+            }
+
+            if (error == null) {
+                try {
+                    int len = buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    if (sync == SyncPolicy.BUFFER) {
+                        channel.force(false);
+                    }
+                    bytesWritten += len;
+                } catch (IOException e) {
+                    Log.e("could not write " + name, e);
+                    error = e;
+                }
+            }
+
+            buffer.clear();
+            free.offer(buffer);
+        }
+    }
+}
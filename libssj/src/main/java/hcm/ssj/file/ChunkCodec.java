@@ -0,0 +1,380 @@
+/*
+ * ChunkCodec.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import hcm.ssj.core.Cons;
+
+/**
+ * Encoder and decoder for the chunks of CHUNKED stream files.<br>
+ * Every value is predicted by the value of the same dimension in the previous sample.
+ * Integer types store the zigzag encoded difference, floating point types the XOR of the
+ * bit patterns, both as variable length integers. The result is optionally deflated.
+ * Chunks do not depend on each other and can be decoded in any order.
+ * <p>
+ * Chunk layout: flags (1 byte), length of the encoded values (4 bytes, little-endian), payload
+ */
+public class ChunkCodec {
+    public static final int HEADER_SIZE = 5;
+    private static final int FLAG_DEFLATE = 1;
+
+    private final Cons.Type type;
+    private final int dim;
+    private final boolean compress;
+
+    private byte[] raw = new byte[1024];
+    private byte[] out = new byte[1024];
+    private Deflater deflater;
+    private Inflater inflater;
+    private int readPos;
+
+    /**
+     * @param type     sample type
+     * @param dim      sample dimension
+     * @param compress deflate encoded chunks
+     */
+    public ChunkCodec(Cons.Type type, int dim, boolean compress) {
+        this.type = type;
+        this.dim = dim;
+        this.compress = compress;
+    }
+
+    /**
+     * Encodes samples into a chunk
+     *
+     * @param src primitive sample array
+     * @param num number of samples
+     * @return length of the chunk, the data is available through {@link #getBuffer()}
+     */
+    public int encode(Object src, int num) {
+        int len = encodeValues(src, num * dim);
+
+        if (!compress) {
+            ensureOut(HEADER_SIZE + len);
+            System.arraycopy(raw, 0, out, HEADER_SIZE, len);
+            writeHeader(0, len);
+
+            return HEADER_SIZE + len;
+        }
+
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+        }
+
+        deflater.reset();
+        deflater.setInput(raw, 0, len);
+        deflater.finish();
+
+        int pos = HEADER_SIZE;
+        while (!deflater.finished()) {
+            ensureOut(pos + 1024);
+            pos += deflater.deflate(out, pos, out.length - pos);
+        }
+
+        writeHeader(FLAG_DEFLATE, len);
+
+        return pos;
+    }
+
+    /**
+     * @return buffer containing the last encoded chunk
+     */
+    public byte[] getBuffer() {
+        return out;
+    }
+
+    /**
+     * Decodes a chunk
+     *
+     * @param chunk chunk data
+     * @param len   length of the chunk
+     * @param dst   primitive sample array
+     * @param num   number of samples in the chunk
+     */
+    public void decode(byte[] chunk, int len, Object dst, int num) throws IOException {
+        if (len < HEADER_SIZE) {
+            throw new IOException("invalid chunk");
+        }
+
+        int flags = chunk[0];
+        int rawLength = (chunk[1] & 0xFF) | (chunk[2] & 0xFF) << 8 | (chunk[3] & 0xFF) << 16 | (chunk[4] & 0xFF) << 24;
+
+        byte[] values;
+        int offset;
+
+        if ((flags & FLAG_DEFLATE) != 0) {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+
+            ensureRaw(rawLength);
+            inflater.reset();
+            inflater.setInput(chunk, HEADER_SIZE, len - HEADER_SIZE);
+
+            try {
+                int pos = 0;
+                while (pos < rawLength) {
+                    int n = inflater.inflate(raw, pos, rawLength - pos);
+                    if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    pos += n;
+                }
+                if (pos != rawLength) {
+                    throw new IOException("chunk truncated");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("invalid chunk", e);
+            }
+
+            values = raw;
+            offset = 0;
+        } else {
+            values = chunk;
+            offset = HEADER_SIZE;
+        }
+
+        decodeValues(values, offset, dst, num * dim);
+    }
+
+    private void writeHeader(int flags, int rawLength) {
+        out[0] = (byte) flags;
+        out[1] = (byte) rawLength;
+        out[2] = (byte) (rawLength >> 8);
+        out[3] = (byte) (rawLength >> 16);
+        out[4] = (byte) (rawLength >> 24);
+    }
+
+    private int encodeValues(Object src, int n) {
+        // Worst case: ten bytes per value
+        ensureRaw(n * 10);
+        int pos = 0;
+
+        switch (type) {
+            case IMAGE: {
+                System.arraycopy(src, 0, raw, 0, n);
+                pos = n;
+                break;
+            }
+            case BOOL: {
+                boolean[] in = (boolean[]) src;
+                for (int i = 0; i < n; i++) {
+                    raw[pos++] = (byte) (in[i] ? 1 : 0);
+                }
+                break;
+            }
+            case BYTE: {
+                byte[] in = (byte[]) src;
+                for (int i = 0; i < n; i++) {
+                    pos = writeSigned(in[i] - (i < dim ? 0 : in[i - dim]), pos);
+                }
+                break;
+            }
+            case CHAR: {
+                char[] in = (char[]) src;
+                for (int i = 0; i < n; i++) {
+                    pos = writeSigned(in[i] - (i < dim ? 0 : in[i - dim]), pos);
+                }
+                break;
+            }
+            case SHORT: {
+                short[] in = (short[]) src;
+                for (int i = 0; i < n; i++) {
+                    pos = writeSigned(in[i] - (i < dim ? 0 : in[i - dim]), pos);
+                }
+                break;
+            }
+            case INT: {
+                int[] in = (int[]) src;
+                for (int i = 0; i < n; i++) {
+                    pos = writeSigned((long) in[i] - (i < dim ? 0 : in[i - dim]), pos);
+                }
+                break;
+            }
+            case LONG: {
+                long[] in = (long[]) src;
+                for (int i = 0; i < n; i++) {
+                    pos = writeSigned(in[i] - (i < dim ? 0 : in[i - dim]), pos);
+                }
+                break;
+            }
+            case FLOAT: {
+                float[] in = (float[]) src;
+                for (int i = 0; i < n; i++) {
+                    int bits = Float.floatToRawIntBits(in[i]) ^ (i < dim ? 0 : Float.floatToRawIntBits(in[i - dim]));
+                    pos = writeUnsigned(bits & 0xFFFFFFFFL, pos);
+                }
+                break;
+            }
+            case DOUBLE: {
+                double[] in = (double[]) src;
+                for (int i = 0; i < n; i++) {
+                    long bits = Double.doubleToRawLongBits(in[i]) ^ (i < dim ? 0 : Double.doubleToRawLongBits(in[i - dim]));
+                    pos = writeUnsigned(bits, pos);
+                }
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException("Stream type not supported");
+        }
+
+        return pos;
+    }
+
+    private void decodeValues(byte[] src, int pos, Object dst, int n) {
+        switch (type) {
+            case IMAGE: {
+                System.arraycopy(src, pos, dst, 0, n);
+                break;
+            }
+            case BOOL: {
+                boolean[] o = (boolean[]) dst;
+                for (int i = 0; i < n; i++) {
+                    o[i] = src[pos++] != 0;
+                }
+                break;
+            }
+            case BYTE: {
+                byte[] o = (byte[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long v = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = (byte) (unzigzag(v) + (i < dim ? 0 : o[i - dim]));
+                }
+                break;
+            }
+            case CHAR: {
+                char[] o = (char[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long v = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = (char) (unzigzag(v) + (i < dim ? 0 : o[i - dim]));
+                }
+                break;
+            }
+            case SHORT: {
+                short[] o = (short[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long v = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = (short) (unzigzag(v) + (i < dim ? 0 : o[i - dim]));
+                }
+                break;
+            }
+            case INT: {
+                int[] o = (int[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long v = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = (int) (unzigzag(v) + (i < dim ? 0 : o[i - dim]));
+                }
+                break;
+            }
+            case LONG: {
+                long[] o = (long[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long v = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = unzigzag(v) + (i < dim ? 0 : o[i - dim]);
+                }
+                break;
+            }
+            case FLOAT: {
+                float[] o = (float[]) dst;
+                for (int i = 0; i < n; i++) {
+                    int bits = (int) readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = Float.intBitsToFloat(bits ^ (i < dim ? 0 : Float.floatToRawIntBits(o[i - dim])));
+                }
+                break;
+            }
+            case DOUBLE: {
+                double[] o = (double[]) dst;
+                for (int i = 0; i < n; i++) {
+                    long bits = readUnsigned(src, pos);
+                    pos = readPos;
+                    o[i] = Double.longBitsToDouble(bits ^ (i < dim ? 0 : Double.doubleToRawLongBits(o[i - dim])));
+                }
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException("Stream type not supported");
+        }
+    }
+
+    private int writeSigned(long value, int pos) {
+        return writeUnsigned((value << 1) ^ (value >> 63), pos);
+    }
+
+    private int writeUnsigned(long value, int pos) {
+        while ((value & ~0x7FL) != 0) {
+            raw[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        raw[pos++] = (byte) value;
+
+        return pos;
+    }
+
+    private long readUnsigned(byte[] src, int pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = src[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        readPos = pos;
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void ensureRaw(int size) {
+        if (raw.length < size) {
+            raw = new byte[size];
+        }
+    }
+
+    private void ensureOut(int size) {
+        if (out.length < size) {
+            byte[] tmp = new byte[Math.max(size, out.length * 2)];
+            System.arraycopy(out, 0, tmp, 0, out.length);
+            out = tmp;
+        }
+    }
+}
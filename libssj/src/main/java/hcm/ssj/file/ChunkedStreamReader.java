@@ -0,0 +1,170 @@
+/*
+ * ChunkedStreamReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Random access reader for CHUNKED stream data files.<br>
+ * The chunk index of the header maps every chunk to its position in the data file,
+ * so seeking only needs to load and decode the chunk containing the target sample.
+ */
+public class ChunkedStreamReader implements StreamDataReader {
+    private final RandomAccessFile file;
+    private final long fileLength;
+    private final int dim;
+    private final long[] offsets;
+    private final int[] nums;
+    private final long[] starts;
+    private final long sampleCount;
+
+    private final ChunkCodec codec;
+    private final Stream decoded;
+    private byte[] data = new byte[0];
+    private int current = -1;
+    private long position = 0;
+
+    /**
+     * @param file    CHUNKED stream data file
+     * @param type    sample type
+     * @param dim     sample dimension
+     * @param offsets byte position of every chunk in the file
+     * @param nums    number of samples of every chunk
+     */
+    public ChunkedStreamReader(File file, Cons.Type type, int dim, long[] offsets, int[] nums) throws IOException {
+        if (offsets.length != nums.length) {
+            throw new IOException("invalid chunk index");
+        }
+
+        this.dim = dim;
+        this.offsets = offsets;
+        this.nums = nums;
+        this.starts = new long[nums.length];
+
+        int max = 1;
+        long count = 0;
+        for (int i = 0; i < nums.length; i++) {
+            starts[i] = count;
+            count += nums[i];
+            max = Math.max(max, nums[i]);
+        }
+        this.sampleCount = count;
+
+        this.codec = new ChunkCodec(type, dim, true);
+        this.decoded = Stream.create(max, dim, 1, type);
+
+        this.file = new RandomAccessFile(file, "r");
+        this.fileLength = this.file.length();
+    }
+
+    @Override
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void seek(long sample) {
+        position = Math.max(0, Math.min(sample, sampleCount));
+    }
+
+    /**
+     * Reads stream.num samples into the stream
+     *
+     * @return number of samples read, less than stream.num if the end of the file has been reached
+     */
+    public int read(Stream stream) throws IOException {
+        return read(stream.ptr(), 0, stream.num);
+    }
+
+    @Override
+    public int read(Object dst, int dstSample, int num) throws IOException {
+        int read = 0;
+
+        while (read < num && position < sampleCount) {
+            if (current < 0 || position < starts[current] || position >= starts[current] + nums[current]) {
+                load(findChunk(position));
+            }
+
+            int src = (int) (position - starts[current]);
+            int len = Math.min(num - read, nums[current] - src);
+
+            System.arraycopy(decoded.ptr(), src * dim, dst, (dstSample + read) * dim, len * dim);
+
+            read += len;
+            position += len;
+        }
+
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int findChunk(long sample) {
+        int low = 0;
+        int high = starts.length - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= sample) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void load(int chunk) throws IOException {
+        long end = chunk + 1 < offsets.length ? offsets[chunk + 1] : fileLength;
+        int len = (int) (end - offsets[chunk]);
+
+        if (data.length < len) {
+            data = new byte[len];
+        }
+
+        file.seek(offsets[chunk]);
+        file.readFully(data, 0, len);
+
+        codec.decode(data, len, decoded.ptr(), nums[chunk]);
+        current = chunk;
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * EventLogCodec.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.event.Event;
+
+/**
+ * Binary event log format.<br>
+ * Layout (little-endian):
+ * <ul>
+ * <li>header: magic, version, index interval (int), pipeline start time in ms (long)</li>
+ * <li>records: length of the rest of the record (int), type (byte), state (byte), time (long),
+ * dur (int), sender and name (short length + UTF-8, 0xFFFF followed by an int length for longer strings),
+ * type-tagged payload</li>
+ * <li>footer: index entries (int count, then time (long), record position (long), event number (int)),
+ * position of the index (long), index magic</li>
+ * </ul>
+ * The footer is written on close. Logs without footer (e.g. after a crash) are indexed by scanning.<br>
+ * The record encoding is also used to transmit events between pipelines (see WireProtocol).
+ */
+public class EventLogCodec {
+    static final int MAGIC = 0x454A5353; // "SSJE"
+    static final int INDEX_MAGIC = 0x494A5353; // "SSJI"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 17;
+    static final int FOOTER_SIZE = 12;
+    static final int INDEX_ENTRY_SIZE = 20;
+    static final int LONG_STRING = 0xFFFF;
+
+    private static final Cons.Type[] TYPES = Cons.Type.values();
+    private static final Event.State[] STATES = Event.State.values();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @return buffer containing the encoded data from position 0 to its position
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    void encodeHeader(int indexInterval, long startTime) {
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(indexInterval);
+        buffer.putLong(startTime);
+    }
+
+    void encodeFooter(long[] times, long[] positions, int[] numbers, int count, long indexPosition) {
+        buffer.clear();
+        ensure(4 + count * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(times[i]);
+            buffer.putLong(positions[i]);
+            buffer.putInt(numbers[i]);
+        }
+        buffer.putLong(indexPosition);
+        buffer.putInt(INDEX_MAGIC);
+    }
+
+    public void encode(Event ev) {
+        buffer.clear();
+        buffer.putInt(0);
+
+        buffer.put((byte) ev.type.ordinal());
+        buffer.put((byte) ev.state.ordinal());
+        buffer.putLong(ev.time);
+        buffer.putInt(ev.dur);
+        putString(ev.sender);
+        putString(ev.name);
+
+        switch (ev.type) {
+            case BYTE: {
+                byte[] data = ev.ptrB();
+                putCount(data, data == null ? 0 : data.length, 1);
+                if (data != null) {
+                    buffer.put(data);
+                }
+                break;
+            }
+            case SHORT: {
+                short[] data = ev.ptrShort();
+                putCount(data, data == null ? 0 : data.length, 2);
+                if (data != null) {
+                    for (short v : data) {
+                        buffer.putShort(v);
+                    }
+                }
+                break;
+            }
+            case INT: {
+                int[] data = ev.ptrI();
+                putCount(data, data == null ? 0 : data.length, 4);
+                if (data != null) {
+                    for (int v : data) {
+                        buffer.putInt(v);
+                    }
+                }
+                break;
+            }
+            case LONG: {
+                long[] data = ev.ptrL();
+                putCount(data, data == null ? 0 : data.length, 8);
+                if (data != null) {
+                    for (long v : data) {
+                        buffer.putLong(v);
+                    }
+                }
+                break;
+            }
+            case FLOAT: {
+                float[] data = ev.ptrF();
+                putCount(data, data == null ? 0 : data.length, 4);
+                if (data != null) {
+                    for (float v : data) {
+                        buffer.putFloat(v);
+                    }
+                }
+                break;
+            }
+            case DOUBLE: {
+                double[] data = ev.ptrD();
+                putCount(data, data == null ? 0 : data.length, 8);
+                if (data != null) {
+                    for (double v : data) {
+                        buffer.putDouble(v);
+                    }
+                }
+                break;
+            }
+            case BOOL: {
+                boolean[] data = ev.ptrBool();
+                putCount(data, data == null ? 0 : data.length, 1);
+                if (data != null) {
+                    for (boolean v : data) {
+                        buffer.put((byte) (v ? 1 : 0));
+                    }
+                }
+                break;
+            }
+            case CHAR:
+            case STRING: {
+                String data = ev.ptrStr();
+                ensure(5 + (data == null ? 0 : data.length() * 3));
+                buffer.put((byte) (data == null ? 0 : 1));
+                int start = buffer.position();
+                buffer.putInt(0);
+                putChars(data);
+                buffer.putInt(start, buffer.position() - start - 4);
+                break;
+            }
+            case MAP: {
+                Map<String, String> data = ev.ptrMap();
+                putCount(data, data == null ? 0 : data.size(), 0);
+                if (data != null) {
+                    for (Map.Entry<String, String> entry : data.entrySet()) {
+                        putString(entry.getKey());
+                        putString(entry.getValue());
+                    }
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        buffer.putInt(0, buffer.position() - 4);
+    }
+
+    /**
+     * Decodes the record at the position of the buffer and moves the position to the next record
+     */
+    public static Event decode(ByteBuffer src) {
+        int length = src.getInt();
+        int end = src.position() + length;
+
+        Cons.Type type = TYPES[src.get()];
+        Event ev = Event.create(type);
+
+        ev.state = STATES[src.get()];
+        ev.time = src.getLong();
+        ev.dur = src.getInt();
+        ev.sender = getString(src);
+        ev.name = getString(src);
+
+        switch (type) {
+            case BYTE: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    byte[] data = new byte[n];
+                    src.get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case SHORT: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    short[] data = new short[n];
+                    src.asShortBuffer().get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case INT: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    int[] data = new int[n];
+                    src.asIntBuffer().get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case LONG: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    long[] data = new long[n];
+                    src.asLongBuffer().get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case FLOAT: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    float[] data = new float[n];
+                    src.asFloatBuffer().get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case DOUBLE: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    double[] data = new double[n];
+                    src.asDoubleBuffer().get(data);
+                    ev.setData(data);
+                }
+                break;
+            }
+            case BOOL: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    boolean[] data = new boolean[n];
+                    for (int i = 0; i < n; i++) {
+                        data[i] = src.get() != 0;
+                    }
+                    ev.setData(data);
+                }
+                break;
+            }
+            case CHAR:
+            case STRING: {
+                boolean present = src.get() != 0;
+                String data = getChars(src, src.getInt());
+                if (present) {
+                    ev.setData(data);
+                }
+                break;
+            }
+            case MAP: {
+                int n = src.getInt();
+                if (n >= 0) {
+                    Map<String, String> data = new HashMap<>();
+                    for (int i = 0; i < n; i++) {
+                        String key = getString(src);
+                        data.put(key, getString(src));
+                    }
+                    ev.setData(data);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        src.position(end);
+        return ev;
+    }
+
+    /**
+     * Reads only the time of the record at the position of the buffer and moves to the next record
+     */
+    static long skip(ByteBuffer src) {
+        int length = src.getInt();
+        long time = src.getLong(src.position() + 2);
+        src.position(src.position() + length);
+
+        return time;
+    }
+
+    /**
+     * Writes the number of elements, -1 for null, and reserves space for the payload
+     */
+    private void putCount(Object data, int count, int bytesPerValue) {
+        ensure(4 + count * bytesPerValue);
+        buffer.putInt(data == null ? -1 : count);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            value = "";
+        }
+
+        ensure(6 + value.length() * 3);
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        putChars(value);
+        int length = buffer.position() - start - 2;
+
+        if (length < LONG_STRING) {
+            buffer.putShort(start, (short) length);
+        } else {
+            // Too long for the short prefix: escape it and insert an int length in front of the characters
+            System.arraycopy(buffer.array(), start + 2, buffer.array(), start + 6, length);
+            buffer.putShort(start, (short) LONG_STRING);
+            buffer.putInt(start + 2, length);
+            buffer.position(start + 6 + length);
+        }
+    }
+
+    private void putChars(String value) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer src) {
+        int length = src.getShort() & 0xFFFF;
+
+        return getChars(src, length == LONG_STRING ? src.getInt() : length);
+    }
+
+    private static String getChars(ByteBuffer src, int n) {
+        if (src.hasArray()) {
+            String value = new String(src.array(), src.arrayOffset() + src.position(), n, StandardCharsets.UTF_8);
+            src.position(src.position() + n);
+
+            return value;
+        }
+
+        byte[] bytes = new byte[n];
+        src.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer tmp = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            tmp.put(buffer);
+            buffer = tmp;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * EventLogReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.event.Event;
+
+/**
+ * Reads binary event logs written by the FileEventWriter (format BINARY).<br>
+ * The time index stored at the end of the file allows to seek to a point in time without
+ * decoding the preceding events, which requires the events to be logged in chronological order.
+ * Logs without index are indexed by skipping over all records once.
+ */
+public class EventLogReader {
+    private final MappedByteBuffer buffer;
+    private final long startTime;
+    private final int indexInterval;
+    private final int end;
+    private int eventCount;
+
+    private long[] indexTimes;
+    private int[] indexPositions;
+
+    private int position;
+    private int number;
+
+    public EventLogReader(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("event log too large: " + file.getName());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            raf.close();
+        }
+
+        if (buffer.capacity() < EventLogCodec.HEADER_SIZE || buffer.getInt(0) != EventLogCodec.MAGIC) {
+            throw new IOException("not an event log: " + file.getName());
+        }
+        if (buffer.get(4) > EventLogCodec.VERSION) {
+            throw new IOException("unsupported event log version " + buffer.get(4));
+        }
+
+        indexInterval = buffer.getInt(5);
+        startTime = buffer.getLong(9);
+
+        int size = buffer.capacity();
+        if (size >= EventLogCodec.HEADER_SIZE + EventLogCodec.FOOTER_SIZE
+                && buffer.getInt(size - 4) == EventLogCodec.INDEX_MAGIC) {
+            end = (int) buffer.getLong(size - EventLogCodec.FOOTER_SIZE);
+            readIndex(size - EventLogCodec.FOOTER_SIZE);
+        } else {
+            Log.w("no index found in " + file.getName() + ", scanning events");
+            end = scanIndex(size);
+        }
+
+        position = EventLogCodec.HEADER_SIZE;
+        number = 0;
+    }
+
+    private void readIndex(int footer) {
+        buffer.position(end);
+        int count = buffer.getInt();
+
+        indexTimes = new long[count];
+        indexPositions = new int[count];
+        int lastNumber = 0;
+
+        for (int i = 0; i < count; i++) {
+            indexTimes[i] = buffer.getLong();
+            indexPositions[i] = (int) buffer.getLong();
+            lastNumber = buffer.getInt();
+        }
+
+        // Count the events behind the last index entry
+        eventCount = lastNumber;
+        buffer.position(count > 0 ? indexPositions[count - 1] : EventLogCodec.HEADER_SIZE);
+        while (buffer.position() < end) {
+            EventLogCodec.skip(buffer);
+            eventCount++;
+        }
+    }
+
+    private int scanIndex(int size) {
+        int count = 0;
+        int capacity = 16;
+        indexTimes = new long[capacity];
+        indexPositions = new int[capacity];
+
+        buffer.position(EventLogCodec.HEADER_SIZE);
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+
+            // Truncated record, e.g. after a crash
+            if (length < 16 || start + 4 + length > size) {
+                break;
+            }
+
+            long time = EventLogCodec.skip(buffer);
+
+            if (eventCount % indexInterval == 0) {
+                if (count == capacity) {
+                    capacity *= 2;
+                    indexTimes = Arrays.copyOf(indexTimes, capacity);
+                    indexPositions = Arrays.copyOf(indexPositions, capacity);
+                }
+                indexTimes[count] = time;
+                indexPositions[count] = start;
+                count++;
+            }
+            eventCount++;
+        }
+
+        indexTimes = Arrays.copyOf(indexTimes, count);
+        indexPositions = Arrays.copyOf(indexPositions, count);
+
+        return buffer.position();
+    }
+
+    /**
+     * @return pipeline start time of the recording in ms
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return number of the next event returned by read()
+     */
+    public int getPosition() {
+        return number;
+    }
+
+    public boolean isEndOfFile() {
+        return position >= end;
+    }
+
+    /**
+     * Moves to the first event with a time greater or equal to the given time
+     *
+     * @param time time relative to the start of the recording in ms
+     */
+    public void seek(long time) {
+        int i = Arrays.binarySearch(indexTimes, time);
+
+        if (i < 0) {
+            i = -i - 2;
+        } else {
+            // Events may share a time, go back to the first entry with it
+            while (i > 0 && indexTimes[i - 1] == time) {
+                i--;
+            }
+            // Previous block might end with events of the same time
+            i--;
+        }
+
+        if (i < 0) {
+            position = EventLogCodec.HEADER_SIZE;
+            number = 0;
+        } else {
+            position = indexPositions[i];
+            number = i * indexInterval;
+        }
+
+        buffer.position(position);
+        while (buffer.position() < end) {
+            int start = buffer.position();
+            if (EventLogCodec.skip(buffer) >= time) {
+                buffer.position(start);
+                break;
+            }
+            number++;
+        }
+        position = buffer.position();
+    }
+
+    /**
+     * @return next event or null if the end of the log is reached
+     */
+    public Event read() {
+        if (position >= end) {
+            return null;
+        }
+
+        buffer.position(position);
+        Event ev = EventLogCodec.decode(buffer);
+        position = buffer.position();
+        number++;
+
+        return ev;
+    }
+
+    /**
+     * Pushes all remaining events into an event channel, keeping their relative timing
+     *
+     * @param channel target channel
+     * @param speed   replay speed, 1 = real-time, 2 = twice as fast, 0 = as fast as possible
+     * @return number of replayed events
+     */
+    public int replay(EventChannel channel, double speed) throws InterruptedException {
+        int count = 0;
+        long firstTime = 0;
+        long wallStart = System.currentTimeMillis();
+
+        Event ev;
+        while ((ev = read()) != null) {
+            if (count == 0) {
+                firstTime = ev.time;
+            } else if (speed > 0) {
+                long wait = wallStart + (long) ((ev.time - firstTime) / speed) - System.currentTimeMillis();
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+            }
+
+            channel.pushEvent(ev);
+            count++;
+        }
+
+        return count;
+    }
+
+    public void close() {
+        position = end;
+    }
+}
@@ -46,6 +46,7 @@ public class FileCons {
     public static final String FILE_EXTENSION_STREAM = "stream";
     public static final String FILE_EXTENSION_EVENT = "events";
     public static final String FILE_EXTENSION_ANNO_PLAIN = "anno";
+    public static final String FILE_EXTENSION_EVENT_LOG = "eventlog";
     public static final String FILE_EXTENSION_ANNO = "annotation";
     public static final String FILE_EXTENSION_TRAINER = "trainer";
     public static final String FILE_EXTENSION_MODEL = "model";
@@ -0,0 +1,152 @@
+/*
+ * FileEventReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.IOException;
+
+import hcm.ssj.core.EventHandler;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.FilePath;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+
+/**
+ * Replays a binary event log (see FileEventWriter, format BINARY) into the pipeline.<br>
+ * Event times are moved to the time base of the running pipeline.
+ */
+public class FileEventReader extends EventHandler {
+    public class Options extends OptionList {
+        public final Option<FilePath> file = new Option<>("file", null, FilePath.class, "event log file");
+        public final Option<Double> speed = new Option<>("speed", 1.0, Double.class, "replay speed (1 = real-time, 0 = as fast as possible)");
+        public final Option<Double> offset = new Option<>("offset", 0.0, Double.class, "start of the replay within the log (in seconds)");
+        public final Option<Boolean> loop = new Option<>("loop", false, Boolean.class, "restart the replay at the end of the log");
+
+        private Options() {
+            addOptions();
+        }
+    }
+
+    public final Options options = new Options();
+
+    private EventLogReader reader;
+    private long firstTime;
+    private long replayStart;
+    private boolean first;
+
+    public FileEventReader() {
+        _name = "FileEventReader";
+    }
+
+    @Override
+    public OptionList getOptions() {
+        return options;
+    }
+
+    @Override
+    public void enter() throws SSJFatalException {
+        if (_evchannel_out == null) {
+            throw new SSJFatalException("no outgoing event channel defined");
+        }
+
+        if (options.file.get() == null || options.file.get().value == null) {
+            throw new SSJFatalException("event log not set");
+        }
+
+        try {
+            reader = new EventLogReader(new File(options.file.get().value));
+        } catch (IOException e) {
+            throw new SSJFatalException("error opening event log", e);
+        }
+
+        if (reader.getEventCount() == 0) {
+            Log.w("event log is empty: " + options.file.get().value);
+        } else {
+            Log.i("replaying " + reader.getEventCount() + " events from " + options.file.get().value);
+        }
+        rewind();
+    }
+
+    private void rewind() {
+        reader.seek((long) (options.offset.get() * 1000));
+        first = true;
+    }
+
+    @Override
+    protected void process() throws SSJFatalException {
+        Event ev = reader.read();
+
+        if (ev == null) {
+            // Nothing to replay since the last rewind (empty log or offset past the end), looping would only spin
+            if (options.loop.get() && !first) {
+                rewind();
+            } else {
+                super.process();
+            }
+            return;
+        }
+
+        long now = (long) (_frame.getTime() * 1000);
+        double speed = options.speed.get();
+
+        if (first) {
+            firstTime = ev.time;
+            replayStart = now;
+            first = false;
+        }
+
+        if (speed > 0) {
+            long due = replayStart + (long) ((ev.time - firstTime) / speed);
+
+            while (!_terminate && due > now) {
+                try {
+                    Thread.sleep(Math.min(due - now, 100));
+                } catch (InterruptedException e) {
+                    Log.w("thread interrupt");
+                }
+                now = (long) (_frame.getTime() * 1000);
+            }
+
+            ev.time = due;
+        } else {
+            ev.time = now;
+        }
+
+        _evchannel_out.pushEvent(ev);
+    }
+
+    @Override
+    protected void flush() throws SSJFatalException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
@@ -28,15 +28,16 @@
 package hcm.ssj.file;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import hcm.ssj.core.AsciiBuilder;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
@@ -50,6 +51,7 @@ import hcm.ssj.core.option.OptionList;
 
 import static hcm.ssj.file.FileCons.FILE_EXTENSION_ANNO_PLAIN;
 import static hcm.ssj.file.FileCons.FILE_EXTENSION_EVENT;
+import static hcm.ssj.file.FileCons.FILE_EXTENSION_EVENT_LOG;
 
 /**
  * writes events to file
@@ -57,11 +59,18 @@ import static hcm.ssj.file.FileCons.FILE_EXTENSION_EVENT;
  */
 public class FileEventWriter extends EventHandler implements IFileWriter {
     public Options options = new Options();
-    StringBuilder _builder = new StringBuilder();
+    AsciiBuilder _builder = new AsciiBuilder();
     byte[] _buffer;
-    ArrayList<Event> unprocessedEvents = new ArrayList<>();
+    HashMap<String, Event> unprocessedEvents = new HashMap<>();
+    EventLogCodec _codec;
+    long _position;
+    int _eventCount;
+    int _indexCount;
+    long[] _indexTimes;
+    long[] _indexPositions;
+    int[] _indexNumbers;
     private File file;
-    private FileOutputStream fileOutputStream = null;
+    private AsyncFileWriter fileWriter = null;
     private boolean headerWritten = false;
 
     public FileEventWriter() {
@@ -80,7 +89,7 @@ public class FileEventWriter extends EventHandler implements IFileWriter {
         }
 
         _buffer = new byte[Cons.MAX_EVENT_SIZE];
-        _builder.delete(0, _builder.length());
+        _builder.clear();
 
         //create file
         if (options.filePath.get() == null) {
@@ -98,23 +107,36 @@ public class FileEventWriter extends EventHandler implements IFileWriter {
                 case ANNO_PLAIN:
                     defaultName += "." + FILE_EXTENSION_ANNO_PLAIN;
                     break;
+                case BINARY:
+                    defaultName += "." + FILE_EXTENSION_EVENT_LOG;
+                    break;
             }
 
             Log.w("file name not set, setting to " + defaultName);
             options.fileName.set(defaultName);
         }
         file = new File(fileDirectory, options.fileName.get());
-        fileOutputStream = getFileConnection(file, fileOutputStream);
+        fileWriter = getFileConnection(file, fileWriter);
 
         headerWritten = false;
         unprocessedEvents.clear();
+
+        if (options.format.get() == Format.BINARY) {
+            _codec = new EventLogCodec();
+            _position = 0;
+            _eventCount = 0;
+            _indexCount = 0;
+            _indexTimes = new long[16];
+            _indexPositions = new long[16];
+            _indexNumbers = new int[16];
+        }
     }
 
     @Override
     public synchronized void notify(Event event) {
         //write header
         if (!headerWritten && options.format.get() == Format.EVENT) {
-            _builder.delete(0, _builder.length());
+            _builder.clear();
             _builder.append("<events ssi-v=\"2\" ssj-v=\"");
             _builder.append(Pipeline.getVersion());
             _builder.append("\">");
@@ -131,89 +153,132 @@ public class FileEventWriter extends EventHandler implements IFileWriter {
             _builder.append("<time ms=\"").append(_frame.getStartTimeMs()).append("\" local=\"").append(local).append("\" system=\"").append(system).append("\"/>");
             _builder.append(FileCons.DELIMITER_LINE);
 
-            write(_builder.toString(), fileOutputStream);
+            write(_builder, fileWriter);
             headerWritten = true;
         }
 
-        _builder.delete(0, _builder.length());
+        if (options.format.get() == Format.BINARY) {
+            writeBinary(event);
+            return;
+        }
+
+        _builder.clear();
 
         if (options.format.get() == Format.EVENT) {
             Util.eventToXML(_builder, event);
             _builder.append(FileCons.DELIMITER_LINE);
 
-            write(_builder.toString(), fileOutputStream);
+            write(_builder, fileWriter);
         } else if (options.format.get() == Format.ANNO_PLAIN) {
             if (event.state == Event.State.CONTINUED) {
-                unprocessedEvents.add(event);
-            } else {
-                //search for event start
-                Event start = null;
-                for (int j = 0; j < unprocessedEvents.size(); j++) {
-                    if (unprocessedEvents.get(j).name.equals(event.name)) {
-                        start = unprocessedEvents.get(j);
-                        unprocessedEvents.remove(j);
-                        break;
-                    }
+                //keep the first start of an event until it is completed
+                if (!unprocessedEvents.containsKey(event.name)) {
+                    unprocessedEvents.put(event.name, event);
                 }
+            } else {
+                Event start = unprocessedEvents.remove(event.name);
 
                 double to = (event.time + event.dur) / 1000.0;
                 double from = (start != null) ? start.time / 1000.0 : event.time / 1000.0;
                 _builder.append(from).append(" ").append(to).append(" ").append(event.name);
 
-                writeLine(_builder.toString(), fileOutputStream);
+                writeLine(_builder, fileWriter);
+            }
+        }
+    }
+
+    /**
+     * Appends an event record to the binary event log and adds an index entry every n events
+     */
+    private void writeBinary(Event event) {
+        writeBinaryHeader();
+
+        long position = _position;
+
+        _codec.encode(event);
+        if (!write(_codec.getBuffer(), fileWriter)) {
+            // Dropped events are neither counted nor indexed
+            return;
+        }
+
+        if (_eventCount % options.indexInterval.get() == 0) {
+            if (_indexCount == _indexTimes.length) {
+                _indexTimes = Arrays.copyOf(_indexTimes, _indexCount * 2);
+                _indexPositions = Arrays.copyOf(_indexPositions, _indexCount * 2);
+                _indexNumbers = Arrays.copyOf(_indexNumbers, _indexCount * 2);
             }
+
+            _indexTimes[_indexCount] = event.time;
+            _indexPositions[_indexCount] = position;
+            _indexNumbers[_indexCount] = _eventCount;
+            _indexCount++;
+        }
+
+        _eventCount++;
+    }
+
+    private void writeBinaryHeader() {
+        if (!headerWritten) {
+            _codec.encodeHeader(options.indexInterval.get(), _frame.getStartTimeMs());
+            write(_codec.getBuffer(), fileWriter);
+            headerWritten = true;
         }
     }
 
     public void flush() throws SSJFatalException {
         //write footer
         if (options.format.get() == Format.EVENT) {
-            _builder.delete(0, _builder.length());
+            _builder.clear();
             _builder.append("</events>");
-            writeLine(_builder.toString(), fileOutputStream);
+            writeLine(_builder, fileWriter);
+        } else if (options.format.get() == Format.BINARY) {
+            // A session without events still yields a valid (empty) log
+            writeBinaryHeader();
+            _codec.encodeFooter(_indexTimes, _indexPositions, _indexNumbers, _indexCount, _position);
+            write(_codec.getBuffer(), fileWriter);
         }
 
-        fileOutputStream = closeStream(fileOutputStream);
+        fileWriter = closeStream(fileWriter);
     }
 
     /**
-     * @param stream FileOutputStream
-     * @return FileOutputStream
+     * @param writer AsyncFileWriter
+     * @return AsyncFileWriter
      */
-    private FileOutputStream closeStream(FileOutputStream stream) {
-        if (stream != null) {
+    private AsyncFileWriter closeStream(AsyncFileWriter writer) {
+        if (writer != null) {
             try {
-                stream.close();
-                stream = null;
+                writer.close();
+                writer = null;
             } catch (IOException e) {
                 Log.e("could not close writer");
             }
         }
-        return stream;
+        return writer;
     }
 
     /**
      * @param file   File
-     * @param stream FileOutputStream
-     * @return FileOutputStream
+     * @param writer AsyncFileWriter
+     * @return AsyncFileWriter
      */
-    private FileOutputStream getFileConnection(File file, FileOutputStream stream) {
+    private AsyncFileWriter getFileConnection(File file, AsyncFileWriter writer) {
         try {
-            stream = new FileOutputStream(file);
-        } catch (FileNotFoundException e) {
+            writer = new AsyncFileWriter(file, options.bufferSize.get() * 1024, AsyncFileWriter.DEFAULT_BUFFER_COUNT, options.sync.get(), options.overflow.get());
+        } catch (IOException e) {
             Log.e("file not found");
         }
-        return stream;
+        return writer;
     }
 
     /**
-     * @param line   String
-     * @param stream FileOutputStream
+     * @param text   AsciiBuilder
+     * @param writer AsyncFileWriter
      */
-    private void write(String line, FileOutputStream stream) {
-        if (stream != null) {
+    private void write(AsciiBuilder text, AsyncFileWriter writer) {
+        if (writer != null) {
             try {
-                stream.write(line.getBytes());
+                writer.write(text.array(), 0, text.length());
             } catch (IOException e) {
                 Log.e("could not write data");
             }
@@ -221,14 +286,33 @@ public class FileEventWriter extends EventHandler implements IFileWriter {
     }
 
     /**
-     * @param line   String
-     * @param stream FileOutputStream
+     * @param data   ByteBuffer, written from 0 to its position
+     * @param writer AsyncFileWriter
+     * @return false if the data has not been written
      */
-    private void writeLine(String line, FileOutputStream stream) {
-        if (stream != null) {
+    private boolean write(ByteBuffer data, AsyncFileWriter writer) {
+        if (writer != null) {
             try {
-                line += FileCons.DELIMITER_LINE;
-                stream.write(line.getBytes());
+                if (writer.write(data.array(), 0, data.position())) {
+                    _position += data.position();
+                    return true;
+                }
+            } catch (IOException e) {
+                Log.e("could not write data");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param text   AsciiBuilder
+     * @param writer AsyncFileWriter
+     */
+    private void writeLine(AsciiBuilder text, AsyncFileWriter writer) {
+        if (writer != null) {
+            try {
+                text.append(FileCons.DELIMITER_LINE);
+                writer.write(text.array(), 0, text.length());
             } catch (IOException e) {
                 Log.e("could not write line");
             }
@@ -237,10 +321,20 @@ public class FileEventWriter extends EventHandler implements IFileWriter {
 
     public enum Format {
         EVENT,
-        ANNO_PLAIN
+        ANNO_PLAIN,
+        BINARY
     }
 
     public class Options extends IFileWriter.Options {
         public final Option<Format> format = new Option<>("format", Format.EVENT, Format.class, "format of event file");
+        public final Option<Integer> indexInterval = new Option<>("indexInterval", 1000, Integer.class, "number of events between two entries of the time index (BINARY format only)");
+        public final Option<Integer> bufferSize = new Option<>("bufferSize", 64, Integer.class, "size of the asynchronous write buffers (in KB)");
+        public final Option<AsyncFileWriter.SyncPolicy> sync = new Option<>("sync", AsyncFileWriter.SyncPolicy.CLOSE, AsyncFileWriter.SyncPolicy.class, "when written data is forced to the storage device");
+        public final Option<AsyncFileWriter.OverflowPolicy> overflow = new Option<>("overflow", AsyncFileWriter.OverflowPolicy.BLOCK, AsyncFileWriter.OverflowPolicy.class, "block or drop data if the storage device can not keep up");
+
+        private Options() {
+            super();
+            addOptions();
+        }
     }
 }
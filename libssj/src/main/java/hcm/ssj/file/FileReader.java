@@ -27,24 +27,22 @@
 
 package hcm.ssj.file;
 
-
-import org.xmlpull.v1.XmlPullParserException;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
+import hcm.ssj.core.Monitor;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.Sensor;
+import hcm.ssj.core.Util;
 import hcm.ssj.core.option.FilePath;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
 
 /**
  * File reader for SSJ.<br>
@@ -54,8 +52,8 @@ public class FileReader extends Sensor {
     public final Options options = new Options();
     private File fileHeader;
     private File fileReal;
-    private BufferedInputStream inputBinary = null;
-    private BufferedReader inputASCII = null;
+    private StreamDataReader inputBinary = null;
+    private AsciiStreamParser inputASCII = null;
     private int pos;
     private SimpleHeader simpleHeader = null;
     private boolean initialized = false;
@@ -95,12 +93,12 @@ public class FileReader extends Sensor {
         try {
             readerInit();
             simpleHeader = getSimpleHeader();
-        } catch (IOException | XmlPullParserException e) {
+        } catch (IOException e) {
             throw new SSJFatalException("unable to initialize file reader", e);
         }
 
-        if (simpleHeader._ftype.equals("BINARY")) {
-            inputBinary = getFileConnection(fileReal, inputBinary);
+        if (simpleHeader._ftype.equals("BINARY") || simpleHeader._ftype.equals("CHUNKED")) {
+            inputBinary = getFileConnection(fileReal, inputBinary, simpleHeader);
         } else if (simpleHeader._ftype.equals("ASCII")) {
             inputASCII = getFileConnection(fileReal, inputASCII);
         }
@@ -112,28 +110,9 @@ public class FileReader extends Sensor {
     /**
      * @return SimpleHeader
      */
-    protected SimpleHeader getSimpleHeader() throws IOException, XmlPullParserException {
+    protected SimpleHeader getSimpleHeader() throws IOException {
         if (simpleHeader == null) {
-            SimpleXmlParser simpleXmlParser = new SimpleXmlParser();
-            SimpleXmlParser.XmlValues xmlValues = simpleXmlParser.parse(
-                    new FileInputStream(fileHeader),
-                    new String[]{"stream", "info"},
-                    new String[]{"ftype", "sr", "dim", "byte", "type"}
-            );
-            simpleHeader = new SimpleHeader();
-            simpleHeader._ftype = xmlValues.foundAttributes.get(0)[0];
-            simpleHeader._sr = xmlValues.foundAttributes.get(0)[1];
-            simpleHeader._dim = xmlValues.foundAttributes.get(0)[2];
-            simpleHeader._byte = xmlValues.foundAttributes.get(0)[3];
-            simpleHeader._type = xmlValues.foundAttributes.get(0)[4];
-            xmlValues = simpleXmlParser.parse(
-                    new FileInputStream(fileHeader),
-                    new String[]{"stream", "chunk"},
-                    new String[]{"from", "to", "num"}
-            );
-            simpleHeader._from = xmlValues.foundAttributes.get(0)[0];
-            simpleHeader._to = xmlValues.foundAttributes.get(0)[1];
-            simpleHeader._num = xmlValues.foundAttributes.get(0)[2];
+            simpleHeader = SimpleHeader.load(fileHeader);
         }
         return simpleHeader;
     }
@@ -155,10 +134,10 @@ public class FileReader extends Sensor {
     }
 
     /**
-     * @param reader BufferedReader
-     * @return BufferedReader
+     * @param reader StreamDataReader
+     * @return StreamDataReader
      */
-    private BufferedInputStream closeStream(BufferedInputStream reader) {
+    private StreamDataReader closeStream(StreamDataReader reader) {
         if (reader != null) {
             try {
                 reader.close();
@@ -171,10 +150,10 @@ public class FileReader extends Sensor {
     }
 
     /**
-     * @param reader BufferedReader
-     * @return BufferedReader
+     * @param reader AsciiStreamParser
+     * @return AsciiStreamParser
      */
-    private BufferedReader closeStream(BufferedReader reader) {
+    private AsciiStreamParser closeStream(AsciiStreamParser reader) {
         if (reader != null) {
             try {
                 reader.close();
@@ -198,35 +177,41 @@ public class FileReader extends Sensor {
 
     /**
      * @param file   File
-     * @param stream BufferedInputStream
-     * @return BufferedInputStream
+     * @param stream StreamDataReader
+     * @param header SimpleHeader
+     * @return StreamDataReader
      */
-    private BufferedInputStream getFileConnection(File file, BufferedInputStream stream) {
+    private StreamDataReader getFileConnection(File file, StreamDataReader stream, SimpleHeader header) {
         if (stream != null) {
             stream = closeStream(stream);
         }
         try {
-            InputStream inputStream = new FileInputStream(file);
-            stream = new BufferedInputStream(inputStream);
-        } catch (FileNotFoundException e) {
-            Log.e("file not found", e);
+            Cons.Type type = Cons.Type.valueOf(header._type);
+            int dim = Integer.parseInt(header._dim);
+
+            if (header._ftype.equals("CHUNKED")) {
+                stream = new ChunkedStreamReader(file, type, dim, header._chunkPos, header._chunkNum);
+            } else {
+                stream = new MappedStreamReader(file, type, dim);
+            }
+        } catch (IOException e) {
+            Log.e("could not open file", e);
         }
         return stream;
     }
 
     /**
      * @param file   File
-     * @param reader BufferedReader
-     * @return BufferedReader
+     * @param reader AsciiStreamParser
+     * @return AsciiStreamParser
      */
-    private BufferedReader getFileConnection(File file, BufferedReader reader) {
+    private AsciiStreamParser getFileConnection(File file, AsciiStreamParser reader) {
         if (reader != null) {
             reader = closeStream(reader);
         }
         try {
             InputStream inputStream = new FileInputStream(file);
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-
+            reader = new AsciiStreamParser(inputStream, FileCons.DELIMITER_DIMENSION);
         } catch (FileNotFoundException e) {
             Log.e("file not found", e);
         }
@@ -234,73 +219,96 @@ public class FileReader extends Sensor {
     }
 
     /**
-     * @param reader BufferedReader
-     * @return String
+     * Fills the stream with the next samples of the ASCII file.
+     * Values are parsed directly into the stream without intermediate strings.
+     *
+     * @param stream    Stream
+     * @param separator value separator
+     * @return number of samples read from the file
      */
-    private String readLine(BufferedReader reader) {
-        String line = null;
-        if (reader != null) {
-            try {
-                line = reader.readLine();
-            } catch (IOException e) {
-                Log.e("could not read line", e);
-            }
+    protected int getDataASCII(Stream stream, String separator) {
+        if (inputASCII == null) {
+            return 0;
         }
-        return line;
-    }
 
-    /**
-     * @param stream BufferedInputStream
-     * @return String
-     */
-    private int read(BufferedInputStream stream, byte[] buffer, int numBytes) {
         int ret = 0;
-        if (stream != null) {
-            try {
-                ret = stream.read(buffer, 0, numBytes);
-            } catch (IOException e) {
-                Log.e("could not read line", e);
+        try {
+            inputASCII.setSeparator(separator);
+            ret = inputASCII.read(stream);
+
+            while (ret < stream.num && options.loop.get()) {
+                Log.d("end of file reached, looping");
+                inputASCII.reset(new FileInputStream(fileReal));
+
+                int len = inputASCII.read(stream.ptr(), ret, stream.num - ret, stream.type, stream.dim);
+                if (len == 0) {
+                    break;
+                }
+                ret += len;
             }
+        } catch (IOException | NumberFormatException e) {
+            Log.e("could not read from file", e);
+        }
+
+        if (ret < stream.num) {
+            //notify listeners
+            Monitor.notifyMonitor();
+            Util.fillZeroes(stream.ptr(), ret * stream.dim, (stream.num - ret) * stream.dim);
         }
+
         return ret;
     }
 
     /**
-     * @return String
+     * Fills the stream with the next samples of the binary or chunked file.
+     * Binary samples are copied directly from the memory-mapped file into the stream,
+     * chunks are decoded on demand.
+     *
+     * @param stream Stream
+     * @return number of samples read from the file
      */
-    protected String getDataASCII() {
-
-        String data = readLine(inputASCII);
-        if (data == null && options.loop.get()) {
-            Log.d("end of file reached, looping");
-            inputASCII = getFileConnection(fileReal, inputASCII);
-            data = readLine(inputASCII);
+    protected int getDataBinary(Stream stream) {
+        if (inputBinary == null) {
+            return 0;
         }
-        return data;
-    }
 
-    protected int getDataBinary(byte[] buffer, int numBytes) {
-        int ret = read(inputBinary, buffer, numBytes);
-        if (ret == -1 && options.loop.get()) {
-            Log.d("end of file reached, looping");
-            inputBinary = getFileConnection(fileReal, inputBinary);
-            ret = read(inputBinary, buffer, numBytes);
+        int ret = 0;
+        try {
+            ret = inputBinary.read(stream.ptr(), 0, stream.num);
 
-            if (ret <= 0)
-                Log.e("unexpected error reading from file");
+            while (ret < stream.num && options.loop.get() && inputBinary.getSampleCount() > 0) {
+                Log.d("end of file reached, looping");
+                inputBinary.seek(0);
+                ret += inputBinary.read(stream.ptr(), ret, stream.num - ret);
+            }
+        } catch (IOException e) {
+            Log.e("could not read from file", e);
         }
 
-        if (numBytes != ret)
-            Log.e("unexpected amount of bytes read from file");
+        if (ret < stream.num) {
+            //notify listeners
+            Monitor.notifyMonitor();
+            Util.fillZeroes(stream.ptr(), ret * stream.dim, (stream.num - ret) * stream.dim);
+        }
 
         return ret;
     }
 
-    protected void skip(int bytes) {
-        try {
-            inputBinary.skip(bytes);
-        } catch (IOException e) {
-            Log.e("exception while skipping bytes", e);
+    /**
+     * Moves the read position to a sample. Binary and chunked files are repositioned without
+     * touching the samples in between, ASCII files have to skip line by line.
+     *
+     * @param sample index of the next sample to read
+     */
+    protected void seek(long sample) {
+        if (inputBinary != null) {
+            inputBinary.seek(sample);
+        } else if (inputASCII != null) {
+            try {
+                inputASCII.skip(sample);
+            } catch (IOException e) {
+                Log.e("exception while skipping lines", e);
+            }
         }
     }
 
@@ -27,14 +27,10 @@
 
 package hcm.ssj.file;
 
-import org.xmlpull.v1.XmlPullParserException;
-
 import java.io.IOException;
-import java.util.Arrays;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
-import hcm.ssj.core.Monitor;
 import hcm.ssj.core.SSJException;
 import hcm.ssj.core.SSJFatalException;
 import hcm.ssj.core.SensorChannel;
@@ -50,11 +46,9 @@ import hcm.ssj.core.stream.Stream;
 public class FileReaderChannel extends SensorChannel {
     public final Options options = new Options();
     private FileReader fileReader;
-    private byte[] buffer;
     private double sampleRate;
     private int dimension;
     private int num;
-    private int bytes;
     private Cons.Type type;
     private Cons.FileType ftype;
     /**
@@ -81,13 +75,12 @@ public class FileReaderChannel extends SensorChannel {
         try {
             fileReader.readerInit();
             simpleHeader = fileReader.getSimpleHeader();
-        } catch (IOException | XmlPullParserException e) {
+        } catch (IOException e) {
             throw new SSJException("error initializing file reader", e);
         }
 
         sampleRate = Double.parseDouble(simpleHeader._sr);
         dimension = Integer.parseInt(simpleHeader._dim);
-        bytes = Integer.parseInt(simpleHeader._byte);
 
         double minChunk = 1.0 / sampleRate;
         if (options.chunk.get() < minChunk) {
@@ -98,14 +91,12 @@ public class FileReaderChannel extends SensorChannel {
         num = (int) (sampleRate * options.chunk.get() + 0.5);
         type = Cons.Type.valueOf(simpleHeader._type);
         ftype = Cons.FileType.valueOf(simpleHeader._ftype);
-
-        buffer = new byte[num * dimension * bytes];
     }
 
     @Override
     public void enter(Stream stream_out) throws SSJFatalException {
         if (options.offset.get() > 0) {
-            fileReader.skip((int) (stream_out.sr * options.offset.get()));
+            fileReader.seek((long) (stream_out.sr * options.offset.get()));
         }
     }
 
@@ -115,112 +106,14 @@ public class FileReaderChannel extends SensorChannel {
     @Override
     protected boolean process(Stream stream_out) throws SSJFatalException {
         if (ftype == Cons.FileType.ASCII) {
-            for (int i = 0; i < num; ++i) {
-                switch (type) {
-                    case BOOL: {
-                        boolean[] out = stream_out.ptrBool();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Boolean.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    case BYTE: {
-                        byte[] out = stream_out.ptrB();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Byte.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    case CHAR: {
-                        char[] out = stream_out.ptrC();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = separated[k].charAt(0);
-                        }
-                        break;
-                    }
-                    case SHORT: {
-                        short[] out = stream_out.ptrS();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Short.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    case INT: {
-                        int[] out = stream_out.ptrI();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Integer.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    case LONG: {
-                        long[] out = stream_out.ptrL();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Long.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    case FLOAT: {
-                        float[] out = stream_out.ptrF();
-
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Float.parseFloat(separated[k]);
-                        }
-                        break;
-                    }
-                    case DOUBLE: {
-                        double[] out = stream_out.ptrD();
-                        String[] separated = getData();
-                        for (int k = 0; k < dimension; k++) {
-                            out[i * dimension + k] = Double.valueOf(separated[k]);
-                        }
-                        break;
-                    }
-                    default:
-                        Log.w("unsupported data type");
-                        return false;
-                }
-            }
-        } else if (ftype == Cons.FileType.BINARY) {
-            int numBytes = num * dimension * bytes;
-            fileReader.getDataBinary(buffer, numBytes);
-            Util.arraycopy(buffer, 0, stream_out.ptr(), 0, numBytes);
+            fileReader.getDataASCII(stream_out, options.separator.get());
+        } else if (ftype == Cons.FileType.BINARY || ftype == Cons.FileType.CHUNKED) {
+            fileReader.getDataBinary(stream_out);
         }
 
         return true;
     }
 
-    /**
-     * @return String[]
-     */
-    private String[] getData() {
-        String data = fileReader.getDataASCII();
-        String[] result;
-
-        if (data != null) {
-            result = data.split(options.separator.get());
-        } else {
-            //notify listeners
-            Monitor.notifyMonitor();
-            result = new String[dimension];
-            Arrays.fill(result, "0");
-        }
-
-        return result;
-    }
-
     /**
      * @return double
      */
@@ -29,17 +29,18 @@ package hcm.ssj.file;
 
 import android.text.TextUtils;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import hcm.ssj.core.AsciiBuilder;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
 import hcm.ssj.core.Log;
@@ -61,16 +62,21 @@ import static hcm.ssj.file.FileCons.FILE_EXTENSION_STREAM;
 public class FileWriter extends Consumer implements IFileWriter {
     public final Options options = new Options();
     private Cons.FileType fileType;
-    private FileOutputStream fileOutputStream = null;
+    private AsyncFileWriter dataWriter = null;
     private FileOutputStream fileOutputStreamHeader = null;
-    private BufferedOutputStream byteStream;
     private byte[] buffer;
     private int sampleCount = 0;
+    private double startTime = 0;
     private SimpleHeader simpleHeader;
-    private StringBuilder stringBuilder;
+    private AsciiBuilder asciiBuilder;
     private File file;
     private Merge merge = null;
     private Stream stream_merged;
+    private ChunkCodec codec;
+    private Stream chunk;
+    private int chunkFill = 0;
+    private long chunkOffset = 0;
+    private ArrayList<long[]> chunks = new ArrayList<>();
 
     public FileWriter() {
         _name = this.getClass().getSimpleName();
@@ -135,13 +141,19 @@ public class FileWriter extends Consumer implements IFileWriter {
         fileOutputStreamHeader = getFileConnection(fileHeader, fileOutputStreamHeader);
 
         sampleCount = 0;
-        fileOutputStream = getFileConnection(fileReal, fileOutputStream);
+        startTime = -1;
+        dataWriter = getDataConnection(fileReal);
 
         if (fileType == Cons.FileType.BINARY) {
-            byteStream = new BufferedOutputStream(fileOutputStream);
             buffer = new byte[stream.tot];
         } else if (fileType == Cons.FileType.ASCII) {
-            stringBuilder = new StringBuilder();
+            asciiBuilder = new AsciiBuilder(stream.num * stream.dim * 16);
+        } else if (fileType == Cons.FileType.CHUNKED) {
+            codec = new ChunkCodec(stream.type, stream.dim, options.compress.get());
+            chunk = Stream.create(Math.max(1, (int) (options.chunk.get() * stream.sr + 0.5)), stream.dim, stream.sr, stream.type);
+            chunkFill = 0;
+            chunkOffset = 0;
+            chunks.clear();
         }
     }
 
@@ -153,13 +165,18 @@ public class FileWriter extends Consumer implements IFileWriter {
     protected final void consume(Stream[] stream_in, Event trigger) throws SSJFatalException {
         Stream input = stream_in[0];
 
+        // Time of the first sample, the header refers to it
+        if (startTime < 0) {
+            startTime = input.time;
+        }
+
         if (options.merge.get() && stream_in.length > 1) {
             merge.transform(stream_in, stream_merged);
             input = stream_merged;
         }
 
         if (fileType == Cons.FileType.ASCII) {
-            stringBuilder.delete(0, stringBuilder.length());
+            asciiBuilder.clear();
         }
 
         if (fileType == Cons.FileType.ASCII) {
@@ -168,104 +185,104 @@ public class FileWriter extends Consumer implements IFileWriter {
                     boolean[] in = input.ptrBool();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case BYTE: {
                     byte[] in = input.ptrB();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case CHAR: {
                     char[] in = input.ptrC();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case SHORT: {
                     short[] in = input.ptrS();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case INT: {
                     int[] in = input.ptrI();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case LONG: {
                     long[] in = input.ptrL();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case FLOAT: {
                     float[] in = input.ptrF();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 case DOUBLE: {
                     double[] in = input.ptrD();
                     for (int i = 0, j = 0; i < input.num; i++) {
                         for (int k = 0; k < input.dim; k++, j++) {
-                            stringBuilder.append(in[j]);
-                            stringBuilder.append(options.separator.get());
+                            asciiBuilder.append(in[j]).append(options.separator.get());
                         }
-                        stringBuilder.append(FileCons.DELIMITER_LINE);
+                        asciiBuilder.append(FileCons.DELIMITER_LINE);
+                    }
+                    if (write(asciiBuilder.array(), asciiBuilder.length())) {
+                        sampleCount += input.num;
                     }
-                    sampleCount += input.num;
-                    write(stringBuilder.toString(), fileOutputStream);
                     break;
                 }
                 default:
@@ -273,12 +290,45 @@ public class FileWriter extends Consumer implements IFileWriter {
                     break;
             }
         } else if (fileType == Cons.FileType.BINARY) {
-            sampleCount += input.num;
             Util.arraycopy(input.ptr(), 0, buffer, 0, input.tot);
-            write(buffer, byteStream);
+            if (write(buffer, buffer.length)) {
+                sampleCount += input.num;
+            }
+        } else if (fileType == Cons.FileType.CHUNKED) {
+            int pos = 0;
+            while (pos < input.num) {
+                int len = Math.min(input.num - pos, chunk.num - chunkFill);
+                System.arraycopy(input.ptr(), pos * input.dim, chunk.ptr(), chunkFill * input.dim, len * input.dim);
+                chunkFill += len;
+                pos += len;
+
+                if (chunkFill == chunk.num) {
+                    writeChunk();
+                }
+            }
+            sampleCount += input.num;
         }
     }
 
+    /**
+     * Encodes the buffered samples and appends them to the chunk index
+     */
+    private void writeChunk() {
+        if (chunkFill == 0) {
+            return;
+        }
+
+        int len = codec.encode(chunk.ptr(), chunkFill);
+
+        // Dropped chunks are left out of the index
+        if (write(codec.getBuffer(), len)) {
+            chunks.add(new long[]{chunkOffset, chunkFill});
+            chunkOffset += len;
+        }
+
+        chunkFill = 0;
+    }
+
     /**
      * @param stream_in Stream[]
      */
@@ -291,10 +341,10 @@ public class FileWriter extends Consumer implements IFileWriter {
             input = stream_merged;
         }
 
-        if (fileType == Cons.FileType.BINARY)
-            byteStream = (BufferedOutputStream) closeStream(byteStream);
+        if (fileType == Cons.FileType.CHUNKED)
+            writeChunk();
 
-        fileOutputStream = (FileOutputStream) closeStream(fileOutputStream);
+        dataWriter = closeStream(dataWriter);
 
         writeHeader(input);
         fileOutputStreamHeader = (FileOutputStream) closeStream(fileOutputStreamHeader);
@@ -309,7 +359,7 @@ public class FileWriter extends Consumer implements IFileWriter {
         simpleHeader._dim = String.valueOf(stream.dim);
         simpleHeader._byte = String.valueOf(stream.bytes);
         simpleHeader._type = stream.type.name();
-        simpleHeader._from = "0";
+        simpleHeader._from = String.valueOf(Math.max(0, startTime));
         simpleHeader._ms = String.valueOf(_frame.getStartTimeMs());
 
         SimpleDateFormat sdf = new SimpleDateFormat(SimpleHeader.DATE_FORMAT, Locale.getDefault());
@@ -325,9 +375,30 @@ public class FileWriter extends Consumer implements IFileWriter {
         writeLine(simpleHeader.getLine3(), fileOutputStreamHeader);
         writeLine(simpleHeader.getLine4(), fileOutputStreamHeader);
 
-        simpleHeader._num = String.valueOf(sampleCount);
-        simpleHeader._to = String.valueOf(stream.time + stream.num / stream.sr);
-        writeLine(simpleHeader.getLine5(), fileOutputStreamHeader);
+        if (fileType == Cons.FileType.CHUNKED) {
+            double from = Math.max(0, startTime);
+            long start = 0;
+            for (long[] entry : chunks) {
+                simpleHeader._from = String.valueOf(from + start / stream.sr);
+                simpleHeader._to = String.valueOf(from + (start + entry[1]) / stream.sr);
+                simpleHeader._pos = String.valueOf(entry[0]);
+                simpleHeader._num = String.valueOf(entry[1]);
+                writeLine(simpleHeader.getLine5(), fileOutputStreamHeader);
+                start += entry[1];
+            }
+
+            // Readers expect at least one chunk, also for empty recordings
+            if (chunks.isEmpty()) {
+                simpleHeader._to = simpleHeader._from;
+                simpleHeader._pos = "0";
+                simpleHeader._num = "0";
+                writeLine(simpleHeader.getLine5(), fileOutputStreamHeader);
+            }
+        } else {
+            simpleHeader._num = String.valueOf(sampleCount);
+            simpleHeader._to = String.valueOf(stream.time + stream.num / stream.sr);
+            writeLine(simpleHeader.getLine5(), fileOutputStreamHeader);
+        }
         writeLine(simpleHeader.getLine6(), fileOutputStreamHeader);
     }
 
@@ -347,6 +418,35 @@ public class FileWriter extends Consumer implements IFileWriter {
         return stream;
     }
 
+    /**
+     * @param writer AsyncFileWriter
+     * @return AsyncFileWriter
+     */
+    private AsyncFileWriter closeStream(AsyncFileWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+                writer = null;
+            } catch (IOException e) {
+                Log.e("could not close writer", e);
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * @param file File
+     * @return AsyncFileWriter
+     */
+    private AsyncFileWriter getDataConnection(File file) {
+        try {
+            return new AsyncFileWriter(file, options.bufferSize.get() * 1024, AsyncFileWriter.DEFAULT_BUFFER_COUNT, options.sync.get(), options.overflow.get());
+        } catch (IOException e) {
+            Log.e("could not open file", e);
+        }
+        return null;
+    }
+
     /**
      * @param file   File
      * @param stream FileOutputStream
@@ -362,31 +462,19 @@ public class FileWriter extends Consumer implements IFileWriter {
     }
 
     /**
-     * @param data   byte[]
-     * @param stream BufferedOutputStream
-     */
-    private void write(byte[] data, BufferedOutputStream stream) {
-        if (data != null) {
-            try {
-                stream.write(data);
-            } catch (IOException e) {
-                Log.e("could not write data", e);
-            }
-        }
-    }
-
-    /**
-     * @param line   String
-     * @param stream FileOutputStream
+     * @param data byte[]
+     * @param len  int
+     * @return false if the data has not been written
      */
-    private void write(String line, FileOutputStream stream) {
-        if (stream != null) {
+    private boolean write(byte[] data, int len) {
+        if (dataWriter != null) {
             try {
-                stream.write(line.getBytes());
+                return dataWriter.write(data, 0, len);
             } catch (IOException e) {
                 Log.e("could not write data", e);
             }
         }
+        return false;
     }
 
     /**
@@ -409,8 +497,13 @@ public class FileWriter extends Consumer implements IFileWriter {
      */
     public class Options extends IFileWriter.Options {
         public final Option<String> separator = new Option<>("separator", FileCons.DELIMITER_DIMENSION, String.class, "");
-        public final Option<Cons.FileType> type = new Option<>("type", Cons.FileType.ASCII, Cons.FileType.class, "file type (ASCII or BINARY)");
+        public final Option<Cons.FileType> type = new Option<>("type", Cons.FileType.ASCII, Cons.FileType.class, "file type (ASCII, BINARY or CHUNKED)");
+        public final Option<Double> chunk = new Option<>("chunk", 10.0, Double.class, "duration of a chunk in CHUNKED files (in seconds)");
+        public final Option<Boolean> compress = new Option<>("compress", true, Boolean.class, "deflate chunks of CHUNKED files");
         public final Option<Boolean> merge = new Option<>("merge", true, Boolean.class, "merge multiple input streams");
+        public final Option<Integer> bufferSize = new Option<>("bufferSize", 256, Integer.class, "size of the asynchronous write buffers (in KB)");
+        public final Option<AsyncFileWriter.SyncPolicy> sync = new Option<>("sync", AsyncFileWriter.SyncPolicy.CLOSE, AsyncFileWriter.SyncPolicy.class, "when written data is forced to the storage device");
+        public final Option<AsyncFileWriter.OverflowPolicy> overflow = new Option<>("overflow", AsyncFileWriter.OverflowPolicy.BLOCK, AsyncFileWriter.OverflowPolicy.class, "block or drop data if the storage device can not keep up");
 
         /**
          *
@@ -0,0 +1,263 @@
+/*
+ * MappedStreamReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Random access reader for binary stream data files (.stream~).<br>
+ * The file is memory-mapped in windows, samples are copied straight from the mapping
+ * into the primitive arrays of a stream without intermediate byte buffers.
+ * Since there is no clock involved, recorded sessions can be read as fast as the storage allows.
+ */
+public class MappedStreamReader implements StreamDataReader {
+    private static final int WINDOW_SIZE = 32 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Cons.Type type;
+    private final int dim;
+    private final int bytesPerSample;
+    private final long sampleCount;
+    private final int windowSamples;
+    private final long dataOffset;
+
+    private MappedByteBuffer window = null;
+    private Object view = null;
+    private long windowStart = 0;
+    private int windowLength = 0;
+    private long position = 0;
+
+    /**
+     * @param file binary stream data file
+     * @param type sample type
+     * @param dim  sample dimension
+     */
+    public MappedStreamReader(File file, Cons.Type type, int dim) throws IOException {
+        this(file, type, dim, 0, -1);
+    }
+
+    /**
+     * Reads samples embedded in another file format, e.g. the data chunk of a WAV file
+     *
+     * @param file   file containing little-endian samples
+     * @param type   sample type
+     * @param dim    sample dimension
+     * @param offset position of the first sample in bytes
+     * @param length length of the sample data in bytes, -1 to read until the end of the file
+     */
+    public MappedStreamReader(File file, Cons.Type type, int dim, long offset, long length) throws IOException {
+        this.type = type;
+        this.dim = dim;
+        this.bytesPerSample = dim * Util.sizeOf(type);
+
+        if (bytesPerSample <= 0) {
+            throw new IOException("unsupported stream type " + type);
+        }
+
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.dataOffset = offset;
+
+        long available = Math.max(0, channel.size() - offset);
+        this.sampleCount = ((length < 0) ? available : Math.min(length, available)) / bytesPerSample;
+        this.windowSamples = Math.max(1, WINDOW_SIZE / bytesPerSample);
+    }
+
+    /**
+     * @return number of samples in the file
+     */
+    @Override
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return index of the next sample to read
+     */
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return true if all samples have been read
+     */
+    public boolean isEndOfFile() {
+        return position >= sampleCount;
+    }
+
+    /**
+     * Moves the read position, O(1) independent of the target position
+     *
+     * @param sample index of the next sample to read
+     */
+    @Override
+    public void seek(long sample) {
+        position = Math.max(0, Math.min(sample, sampleCount));
+    }
+
+    /**
+     * Reads stream.num samples into the stream
+     *
+     * @return number of samples read, less than stream.num if the end of the file has been reached
+     */
+    public int read(Stream stream) throws IOException {
+        return read(stream.ptr(), 0, stream.num);
+    }
+
+    /**
+     * Reads samples into a primitive array matching the stream type
+     *
+     * @param dst       destination array
+     * @param dstSample index of the first sample in the destination array
+     * @param num       number of samples to read
+     * @return number of samples read, less than num if the end of the file has been reached
+     */
+    @Override
+    public int read(Object dst, int dstSample, int num) throws IOException {
+        int read = 0;
+
+        while (read < num && position < sampleCount) {
+            if (position < windowStart || position >= windowStart + windowLength) {
+                map(position);
+            }
+
+            int len = (int) Math.min(num - read, windowStart + windowLength - position);
+            int src = (int) (position - windowStart) * dim;
+            int off = (dstSample + read) * dim;
+
+            copy(dst, src, off, len * dim);
+
+            read += len;
+            position += len;
+        }
+
+        return read;
+    }
+
+    /**
+     * Releases the file, the mapping is freed once it is no longer referenced
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        view = null;
+        channel.close();
+        file.close();
+    }
+
+    private void map(long sample) throws IOException {
+        windowStart = (sample / windowSamples) * windowSamples;
+        windowLength = (int) Math.min(windowSamples, sampleCount - windowStart);
+
+        window = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + windowStart * bytesPerSample, (long) windowLength * bytesPerSample);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+
+        switch (type) {
+            case CHAR:
+                view = window.asCharBuffer();
+                break;
+            case SHORT:
+                view = window.asShortBuffer();
+                break;
+            case INT:
+                view = window.asIntBuffer();
+                break;
+            case LONG:
+                view = window.asLongBuffer();
+                break;
+            case FLOAT:
+                view = window.asFloatBuffer();
+                break;
+            case DOUBLE:
+                view = window.asDoubleBuffer();
+                break;
+            default:
+                view = window;
+                break;
+        }
+    }
+
+    private void copy(Object dst, int src, int off, int len) {
+        switch (type) {
+            case BYTE:
+            case IMAGE:
+                window.position(src);
+                window.get((byte[]) dst, off, len);
+                break;
+            case BOOL:
+                boolean[] out = (boolean[]) dst;
+                for (int i = 0; i < len; i++) {
+                    out[off + i] = window.get(src + i) != 0;
+                }
+                break;
+            case CHAR:
+                ((CharBuffer) view).position(src);
+                ((CharBuffer) view).get((char[]) dst, off, len);
+                break;
+            case SHORT:
+                ((ShortBuffer) view).position(src);
+                ((ShortBuffer) view).get((short[]) dst, off, len);
+                break;
+            case INT:
+                ((IntBuffer) view).position(src);
+                ((IntBuffer) view).get((int[]) dst, off, len);
+                break;
+            case LONG:
+                ((LongBuffer) view).position(src);
+                ((LongBuffer) view).get((long[]) dst, off, len);
+                break;
+            case FLOAT:
+                ((FloatBuffer) view).position(src);
+                ((FloatBuffer) view).get((float[]) dst, off, len);
+                break;
+            case DOUBLE:
+                ((DoubleBuffer) view).position(src);
+                ((DoubleBuffer) view).get((double[]) dst, off, len);
+                break;
+            default:
+                throw new UnsupportedOperationException("Stream type not supported");
+        }
+    }
+}
@@ -27,6 +27,12 @@
 
 package hcm.ssj.file;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Simple header file.<br>
  * Created by Frank Gaibler on 31.08.2015.
@@ -35,7 +41,13 @@ class SimpleHeader {
     protected final static String DATE_FORMAT = "yyyy/MM/dd HH:mm:ss:SSS";
     private final static String _version = "1.0";
     private final static String _ssi_v = "2";
-    private final static String _byte2 = "0";
+    private final static int CACHE_SIZE = 64;
+    private final static Map<String, SimpleHeader> cache = new LinkedHashMap<String, SimpleHeader>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SimpleHeader> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
     protected String _ftype = "ASCII";
     protected String _sr = "50.0";
     protected String _dim = "1";
@@ -47,6 +59,88 @@ class SimpleHeader {
     protected String _from = "0.0";
     protected String _to = "0.0";
     protected String _num = "0";
+    protected String _pos = "0";
+    protected long[] _chunkPos = null;
+    protected int[] _chunkNum = null;
+    private long fileModified = 0;
+    private long fileLength = 0;
+
+    /**
+     * Parses a header file in a single pass.<br>
+     * Parsed headers are cached as long as the file does not change and must therefore not be modified.
+     *
+     * @param file header file
+     * @return SimpleHeader
+     * @throws IOException if the file could not be read or does not contain a chunk
+     */
+    protected static SimpleHeader load(File file) throws IOException {
+        String key = file.getAbsolutePath();
+
+        synchronized (cache) {
+            SimpleHeader cached = cache.get(key);
+            if (cached != null && cached.fileModified == file.lastModified() && cached.fileLength == file.length()) {
+                return cached;
+            }
+        }
+
+        SimpleHeader header = new SimpleHeader();
+        header.fileModified = file.lastModified();
+        header.fileLength = file.length();
+
+        long[] chunkPos = new long[4];
+        int[] chunkNum = new int[4];
+        int chunks = 0;
+        long num = 0;
+
+        XmlTagReader reader = XmlTagReader.open(file);
+        while (reader.next()) {
+            switch (reader.getName()) {
+                case "info":
+                    header._ftype = reader.getAttribute("ftype", header._ftype);
+                    header._sr = reader.getAttribute("sr", header._sr);
+                    header._dim = reader.getAttribute("dim", header._dim);
+                    header._byte = reader.getAttribute("byte", header._byte);
+                    header._type = reader.getAttribute("type", header._type);
+                    break;
+                case "time":
+                    header._ms = reader.getAttribute("ms", header._ms);
+                    header._local = reader.getAttribute("local", header._local);
+                    header._system = reader.getAttribute("system", header._system);
+                    break;
+                case "chunk":
+                    if (chunks == chunkPos.length) {
+                        chunkPos = Arrays.copyOf(chunkPos, chunks * 2);
+                        chunkNum = Arrays.copyOf(chunkNum, chunks * 2);
+                    }
+
+                    String pos = reader.getAttribute("byte");
+                    chunkPos[chunks] = pos != null ? Long.parseLong(pos) : 0;
+                    chunkNum[chunks] = Integer.parseInt(reader.getAttribute("num", "0"));
+                    num += chunkNum[chunks];
+
+                    if (chunks == 0) {
+                        header._from = reader.getAttribute("from", header._from);
+                    }
+                    header._to = reader.getAttribute("to", header._to);
+                    chunks++;
+                    break;
+            }
+        }
+
+        if (chunks == 0) {
+            throw new IOException("no data chunk in " + file.getName());
+        }
+
+        header._chunkPos = Arrays.copyOf(chunkPos, chunks);
+        header._chunkNum = Arrays.copyOf(chunkNum, chunks);
+        header._num = String.valueOf(num);
+
+        synchronized (cache) {
+            cache.put(key, header);
+        }
+
+        return header;
+    }
 
     /**
      * @return String
@@ -80,7 +174,7 @@ class SimpleHeader {
      * @return String
      */
     protected String getLine5() {
-        return "<chunk from=\"" + _from + "\" to=\"" + _to + "\" byte=\"" + _byte2 + "\" num=\"" + _num + "\"/>";
+        return "<chunk from=\"" + _from + "\" to=\"" + _to + "\" byte=\"" + _pos + "\" num=\"" + _num + "\"/>";
     }
 
     /**
@@ -0,0 +1,62 @@
+/*
+ * StreamDataReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.IOException;
+
+/**
+ * Random access to the samples of a stream data file (.stream~).
+ */
+public interface StreamDataReader {
+    /**
+     * @return number of samples in the file
+     */
+    long getSampleCount();
+
+    /**
+     * @return index of the next sample to read
+     */
+    long getPosition();
+
+    /**
+     * @param sample index of the next sample to read
+     */
+    void seek(long sample);
+
+    /**
+     * Reads samples into a primitive array matching the stream type
+     *
+     * @param dst       destination array
+     * @param dstSample index of the first sample in the destination array
+     * @param num       number of samples to read
+     * @return number of samples read, less than num if the end of the file has been reached
+     */
+    int read(Object dst, int dstSample, int num) throws IOException;
+
+    void close() throws IOException;
+}
@@ -0,0 +1,220 @@
+/*
+ * XmlTagReader.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal single-pass reader for the start tags and attributes of small XML files like stream headers
+ * and annotation schemes. Text content, comments and processing instructions are skipped,
+ * the nesting of tags is not validated.
+ */
+public class XmlTagReader {
+    private final String text;
+    private int pos = 0;
+
+    private String name;
+    private int attributes = 0;
+    private String[] keys = new String[8];
+    private String[] values = new String[8];
+
+    public XmlTagReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Reads a file completely
+     */
+    public static XmlTagReader open(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+
+        InputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < data.length) {
+                int read = in.read(data, n, data.length - n);
+                if (read < 0) {
+                    break;
+                }
+                n += read;
+            }
+
+            return new XmlTagReader(new String(data, 0, n, StandardCharsets.UTF_8));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Advances to the next start tag
+     *
+     * @return false if there are no more start tags
+     * @throws IOException if the tag is not terminated
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int start = text.indexOf('<', pos);
+            if (start < 0 || start + 1 >= text.length()) {
+                pos = text.length();
+                return false;
+            }
+
+            char c = text.charAt(start + 1);
+            if (c == '!' && text.startsWith("<!--", start)) {
+                pos = skipTo(start, "-->");
+                continue;
+            }
+            if (c == '?' || c == '!' || c == '/') {
+                pos = skipTo(start, ">");
+                continue;
+            }
+
+            pos = start + 1;
+            int end = pos;
+            while (end < text.length() && !isNameEnd(text.charAt(end))) {
+                end++;
+            }
+            name = text.substring(pos, end);
+            pos = end;
+
+            readAttributes();
+            return true;
+        }
+    }
+
+    /**
+     * @return name of the current tag
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return value of an attribute of the current tag or null if the tag does not have the attribute
+     */
+    public String getAttribute(String key) {
+        for (int i = 0; i < attributes; i++) {
+            if (keys[i].equals(key)) {
+                return values[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return value of an attribute of the current tag or the given default value
+     */
+    public String getAttribute(String key, String defaultValue) {
+        String value = getAttribute(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    private void readAttributes() throws IOException {
+        attributes = 0;
+
+        while (true) {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+
+            if (pos >= text.length()) {
+                throw new IOException("unterminated tag <" + name);
+            }
+
+            char c = text.charAt(pos);
+            if (c == '>' || c == '/') {
+                pos = skipTo(pos, ">");
+                return;
+            }
+
+            int eq = text.indexOf('=', pos);
+            if (eq < 0) {
+                throw new IOException("invalid attribute in tag <" + name);
+            }
+            String key = text.substring(pos, eq).trim();
+
+            int open = eq + 1;
+            while (open < text.length() && Character.isWhitespace(text.charAt(open))) {
+                open++;
+            }
+            if (open >= text.length() || (text.charAt(open) != '"' && text.charAt(open) != '\'')) {
+                throw new IOException("unquoted attribute " + key + " in tag <" + name);
+            }
+
+            int close = text.indexOf(text.charAt(open), open + 1);
+            if (close < 0) {
+                throw new IOException("unterminated attribute " + key + " in tag <" + name);
+            }
+
+            if (attributes == keys.length) {
+                String[] k = new String[keys.length * 2];
+                String[] v = new String[keys.length * 2];
+                System.arraycopy(keys, 0, k, 0, attributes);
+                System.arraycopy(values, 0, v, 0, attributes);
+                keys = k;
+                values = v;
+            }
+
+            keys[attributes] = key;
+            values[attributes] = unescape(text.substring(open + 1, close));
+            attributes++;
+
+            pos = close + 1;
+        }
+    }
+
+    private int skipTo(int from, String end) throws IOException {
+        int index = text.indexOf(end, from);
+        if (index < 0) {
+            throw new IOException("unterminated tag at " + from);
+        }
+
+        return index + end.length();
+    }
+
+    private static boolean isNameEnd(char c) {
+        return Character.isWhitespace(c) || c == '>' || c == '/';
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
@@ -37,6 +37,7 @@ import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 import hcm.ssj.core.Cons;
@@ -59,6 +60,7 @@ public class BluetoothEventReader extends EventHandler {
     boolean _connected = false;
     byte[] _buffer;
     XmlPullParser _parser;
+    ByteBuffer _msg;
     PowerManager _mgr;
     PowerManager.WakeLock _wakeLock;
     private BluetoothConnection _conn;
@@ -94,7 +96,9 @@ public class BluetoothEventReader extends EventHandler {
 
         Log.i("connected to " + dev.getName() + " @ " + dev.getAddress());
 
-        if (!options.parseXmlToEvent.get()) {
+        if (options.binary.get()) {
+            _msg = null;
+        } else if (!options.parseXmlToEvent.get()) {
             _buffer = new byte[Cons.MAX_EVENT_SIZE];
         } else {
             try {
@@ -115,7 +119,14 @@ public class BluetoothEventReader extends EventHandler {
         }
 
         try {
-            if (!options.parseXmlToEvent.get()) {
+            if (options.binary.get()) {
+                _msg = WireProtocol.readMessage(_conn.input(), _msg);
+                _wakeLock.acquire();
+
+                if (WireProtocol.getKind(_msg) == WireProtocol.MSG_EVENT) {
+                    _evchannel_out.pushEvent(WireProtocol.getEvent(_msg));
+                }
+            } else if (!options.parseXmlToEvent.get()) {
                 int len = _conn.input().read(_buffer);
                 _wakeLock.acquire();
 
@@ -210,6 +221,7 @@ public class BluetoothEventReader extends EventHandler {
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "if this is a client");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.SERVER, BluetoothConnection.Type.class, "");
         public final Option<Boolean> parseXmlToEvent = new Option<>("parseXmlToEvent", true, Boolean.class, "attempt to convert the message to an SSJ event format");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "receive binary encoded events instead of XML (sender must use the binary protocol too)");
 
         /**
          *
@@ -30,10 +30,9 @@ package hcm.ssj.ioput;
 import android.bluetooth.BluetoothDevice;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.UUID;
 
+import hcm.ssj.core.AsciiBuilder;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
@@ -50,9 +49,9 @@ import hcm.ssj.file.FileCons;
  */
 public class BluetoothEventWriter extends EventHandler {
     public final Options options = new Options();
-    byte[] _buffer;
     int[] _evID;
-    StringBuilder _builder = new StringBuilder();
+    AsciiBuilder _builder = new AsciiBuilder();
+    WireProtocol _protocol = new WireProtocol();
     private BluetoothConnection _conn;
     private boolean _connected = false;
     public BluetoothEventWriter() {
@@ -89,7 +88,6 @@ public class BluetoothEventWriter extends EventHandler {
 
         Log.i("connected to " + dev.getName() + " @ " + dev.getAddress());
 
-        _buffer = new byte[Cons.MAX_EVENT_SIZE];
         _evID = new int[_evchannel_in.size()];
 
         _connected = true;
@@ -97,42 +95,53 @@ public class BluetoothEventWriter extends EventHandler {
 
     @Override
     protected void process() throws SSJFatalException {
+        if (!waitForEvents(Cons.SLEEP_ON_COMPONENT_IDLE)) {
+            return;
+        }
+
         if (!_connected || !_conn.isConnected()) {
             return;
         }
 
-        _builder.delete(0, _builder.length());
+        boolean binary = options.binary.get();
+        _builder.clear();
+        _protocol.clear();
 
-        _builder.append("<events ssi-v=\"2\" ssj-v=\"");
-        _builder.append(Pipeline.getVersion());
-        _builder.append("\">");
+        if (!binary) {
+            _builder.append("<events ssi-v=\"2\" ssj-v=\"");
+            _builder.append(Pipeline.getVersion());
+            _builder.append("\">");
+        }
 
         int count = 0;
         for (int i = 0; i < _evchannel_in.size(); ++i) {
-            Event ev = _evchannel_in.get(i).getEvent(_evID[i], false);
-            if (ev == null) {
-                continue;
+            // Send all events which arrived since the last wake-up in one batch
+            Event ev;
+            while ((ev = _evchannel_in.get(i).getEvent(_evID[i], false)) != null) {
+                _evID[i] = ev.id + 1;
+                count++;
+
+                //build event
+                if (binary) {
+                    _protocol.appendEvent(ev);
+                } else {
+                    Util.eventToXML(_builder, ev);
+                    _builder.append(FileCons.DELIMITER_LINE);
+                }
             }
-
-            _evID[i] = ev.id + 1;
-            count++;
-
-            //build event
-            Util.eventToXML(_builder, ev);
-            _builder.append(FileCons.DELIMITER_LINE);
         }
 
         if (count > 0) {
-            _builder.append("</events>");
-
-            ByteBuffer buf = ByteBuffer.wrap(_buffer);
-            buf.order(ByteOrder.BIG_ENDIAN);
-
-            //store event
-            buf.put(_builder.toString().getBytes());
+            if (!binary) {
+                _builder.append("</events>");
+            }
 
             try {
-                _conn.output().write(_buffer, 0, buf.position());
+                if (binary) {
+                    _conn.output().write(_protocol.array(), 0, _protocol.length());
+                } else {
+                    _conn.output().write(_builder.array(), 0, _builder.length());
+                }
                 _conn.output().flush();
                 _conn.notifyDataTranferResult(true);
             } catch (IOException e) {
@@ -183,6 +192,7 @@ public class BluetoothEventWriter extends EventHandler {
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "we need an address if this is the first time these two devices connect");
         public final Option<String> connectionName = new Option<>("connectionName", "SSJ", String.class, "must match that of the peer");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.CLIENT, BluetoothConnection.Type.class, "");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "send binary encoded events instead of XML (receiver must use the binary protocol too)");
 
         /**
          *
@@ -32,6 +32,7 @@ import android.bluetooth.BluetoothDevice;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 import hcm.ssj.core.Log;
@@ -52,6 +53,8 @@ public class BluetoothReader extends Sensor {
     protected BluetoothConnection _conn;
     protected byte[][] _recvData;
     protected int numStreams;
+    private WireProtocol.StreamDecoder _decoder;
+    private ByteBuffer _msg;
     public BluetoothReader() {
         _name = "BluetoothReader";
     }
@@ -89,13 +92,19 @@ public class BluetoothReader extends Sensor {
 
         Log.i("setting up sensor to receive " + numStreams + " streams");
         _recvData = new byte[numStreams][];
+        Stream[] streams = new Stream[numStreams];
         for (int i = 0; i < _provider.size(); ++i) {
             BluetoothChannel ch = (BluetoothChannel) _provider.get(i);
             _recvData[ch.options.channel_id.get()] = new byte[ch.getOutputStream().tot];
+            streams[ch.options.channel_id.get()] = ch.getOutputStream();
+        }
+
+        if (options.binary.get()) {
+            _decoder = new WireProtocol.StreamDecoder(streams);
         }
 
         //use object input streams if we expect more than one input
-        _conn.connect(numStreams > 1);
+        _conn.connect(numStreams > 1 && !options.binary.get());
 
         BluetoothDevice dev = _conn.getConnectedDevice();
         Log.i("connected to " + dev.getName() + " @ " + dev.getAddress());
@@ -108,7 +117,10 @@ public class BluetoothReader extends Sensor {
         }
 
         try {
-            if (numStreams == 1) {
+            if (options.binary.get()) {
+                _msg = WireProtocol.readMessage(_conn.input(), _msg);
+                _decoder.decode(_msg, _recvData);
+            } else if (numStreams == 1) {
                 ((DataInputStream) _conn.input()).readFully(_recvData[0]);
             } else if (numStreams > 1) {
                 Stream[] recvStreams = (Stream[]) ((ObjectInputStream) _conn.input()).readObject();
@@ -135,6 +147,10 @@ public class BluetoothReader extends Sensor {
         } catch (IOException e) {
             Log.e("failed closing connection", e);
         }
+
+        if (_decoder != null && _decoder.getLostFrames() > 0) {
+            Log.w(_decoder.getLostFrames() + " frames lost");
+        }
     }
 
     @Override
@@ -178,6 +194,7 @@ public class BluetoothReader extends Sensor {
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "if this is a client");
         public final Option<Integer> numStreams = new Option<>("numStreams", null, Integer.class, "number of streams to be received (null = use number of defined SensorChannels)");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.SERVER, BluetoothConnection.Type.class, "");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "use the binary SSJ protocol with stream descriptors and timestamped frames (sender must use it too)");
 
         /**
          *
@@ -51,6 +51,9 @@ public class BluetoothWriter extends Consumer {
     private BluetoothConnection _conn;
     private byte[] _data;
     private boolean _connected = false;
+    private WireProtocol _protocol;
+    private int _seq;
+    private FrameCodec[] _codecs;
 
     public BluetoothWriter() {
         _name = "BluetoothWriter";
@@ -62,11 +65,11 @@ public class BluetoothWriter extends Consumer {
             switch (options.connectionType.get()) {
                 case SERVER:
                     _conn = new BluetoothServer(UUID.nameUUIDFromBytes(options.connectionName.get().getBytes()), options.serverName.get());
-                    _conn.connect(stream_in.length > 1); //use object output streams if we are sending more than one stream
+                    _conn.connect(stream_in.length > 1 && !options.binary.get()); //use object output streams if we are sending more than one stream
                     break;
                 case CLIENT:
                     _conn = new BluetoothClient(UUID.nameUUIDFromBytes(options.connectionName.get().getBytes()), options.serverName.get(), options.serverAddr.get());
-                    _conn.connect(stream_in.length > 1); //use object output streams if we are sending more than one stream
+                    _conn.connect(stream_in.length > 1 && !options.binary.get()); //use object output streams if we are sending more than one stream
                     break;
             }
         } catch (Exception e) {
@@ -79,8 +82,31 @@ public class BluetoothWriter extends Consumer {
             return;
         }
 
-        if (stream_in.length == 1) {
-            _data = new byte[stream_in[0].tot];
+        if (options.binary.get()) {
+            _protocol = new WireProtocol();
+            _seq = 0;
+            _codecs = new FrameCodec[stream_in.length];
+
+            for (int i = 0; i < stream_in.length; i++) {
+                if (options.compress.get() && FrameCodec.supports(stream_in[i].type)) {
+                    _codecs[i] = new FrameCodec(stream_in[i].type, stream_in[i].dim);
+                }
+                _protocol.appendDescriptor(i, stream_in[i], _codecs[i] != null ? WireProtocol.CODEC_DELTA : WireProtocol.CODEC_NONE);
+            }
+
+            try {
+                _conn.output().write(_protocol.array(), 0, _protocol.length());
+            } catch (IOException e) {
+                throw new SSJFatalException("failed sending stream descriptors", e);
+            }
+        } else {
+            if (options.compress.get()) {
+                Log.w("compression requires the binary protocol, sending uncompressed");
+            }
+
+            if (stream_in.length == 1) {
+                _data = new byte[stream_in[0].tot];
+            }
         }
 
         Log.i("connected to " + dev.getName() + " @ " + dev.getAddress());
@@ -93,7 +119,20 @@ public class BluetoothWriter extends Consumer {
         }
 
         try {
-            if (stream_in.length == 1) {
+            if (options.binary.get()) {
+                _protocol.clear();
+                for (int i = 0; i < stream_in.length; i++) {
+                    if (_codecs[i] != null) {
+                        // RFCOMM is reliable, only the first frame needs to be a keyframe
+                        _protocol.appendFrame(i, _seq, stream_in[i], _codecs[i], false);
+                    } else {
+                        _protocol.appendFrame(i, _seq, stream_in[i]);
+                    }
+                }
+                _seq++;
+
+                _conn.output().write(_protocol.array(), 0, _protocol.length());
+            } else if (stream_in.length == 1) {
                 Util.arraycopy(stream_in[0].ptr(), 0, _data, 0, _data.length);
                 _conn.output().write(_data);
             } else if (stream_in.length > 1) {
@@ -146,6 +185,8 @@ public class BluetoothWriter extends Consumer {
         public final Option<String> serverAddr = new Option<>("serverAddr", null, String.class, "if this is a client");
         public final Option<String> connectionName = new Option<>("connectionName", "SSJ", String.class, "must match that of the peer");
         public final Option<BluetoothConnection.Type> connectionType = new Option<>("connectionType", BluetoothConnection.Type.CLIENT, BluetoothConnection.Type.class, "");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "use the binary SSJ protocol with stream descriptors and timestamped frames (receiver must use it too)");
+        public final Option<Boolean> compress = new Option<>("compress", false, Boolean.class, "lossless delta compression of frames (requires binary protocol)");
 
         /**
          *
@@ -0,0 +1,392 @@
+/*
+ * FrameCodec.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Util;
+
+/**
+ * Lossless compression of stream frames for the WireProtocol.<br>
+ * Every value is predicted by the previous value of the same dimension, also across frames.
+ * Floating point values are encoded like in Gorilla (Pelkonen et al., VLDB 2015): the XOR
+ * with the prediction is stored as a single bit if zero, otherwise only its meaningful bits
+ * are stored, reusing the leading/trailing zero window of the previous value where possible.
+ * Integer values are stored as zigzag encoded differences with variable length.
+ * <p>
+ * Frames start with a flag byte. Keyframes reset the prediction so that decoding can resume
+ * after lost frames, all other frames require the previous frame to be decoded.
+ * Frames which do not compress (e.g. noise) are stored raw, which also resynchronizes the decoder.
+ */
+public class FrameCodec {
+    private static final int FLAG_KEYFRAME = 1;
+    private static final int FLAG_RAW = 2;
+
+    private final Cons.Type type;
+    private final int dim;
+    private final int width;
+    private final int bytes;
+
+    private final long[] prev;
+    private final int[] leading;
+    private final int[] trailing;
+    private boolean valid = false;
+
+    private byte[] out = new byte[1024];
+    private int pos;
+    private long acc;
+    private int accBits;
+
+    public FrameCodec(Cons.Type type, int dim) {
+        if (!supports(type)) {
+            throw new UnsupportedOperationException("Stream type not supported: " + type);
+        }
+
+        this.type = type;
+        this.dim = dim;
+        this.width = (type == Cons.Type.FLOAT) ? 32 : 64;
+        this.bytes = Util.sizeOf(type);
+
+        prev = new long[dim];
+        leading = new int[dim];
+        trailing = new int[dim];
+    }
+
+    public static boolean supports(Cons.Type type) {
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return maximum size of a frame before falling back to raw samples (encoded frames never exceed 1 + raw size)
+     */
+    private static int getMaxEncodedSize(Cons.Type type, int values) {
+        switch (type) {
+            case FLOAT:
+                return 1 + (values * (32 + 13) + 7) / 8;
+            case DOUBLE:
+                return 1 + (values * (64 + 13) + 7) / 8;
+            default:
+                return 1 + values * 10;
+        }
+    }
+
+    /**
+     * Forces the next frame to be a keyframe on the encoder side and drops frames until the next keyframe on the decoder side
+     */
+    public void reset() {
+        valid = false;
+    }
+
+    /**
+     * Encodes a frame
+     *
+     * @param src      primitive sample array
+     * @param num      number of samples
+     * @param keyframe encode the frame independent of the previous ones
+     * @return length of the encoded frame, the data is available through {@link #getBuffer()}
+     */
+    public int encode(Object src, int num, boolean keyframe) {
+        int n = num * dim;
+        keyframe |= !valid;
+
+        if (out.length < getMaxEncodedSize(type, n)) {
+            out = new byte[getMaxEncodedSize(type, n)];
+        }
+
+        if (keyframe) {
+            resetState();
+        }
+
+        out[0] = (byte) (keyframe ? FLAG_KEYFRAME : 0);
+        pos = 1;
+
+        switch (type) {
+            case BYTE: {
+                byte[] in = (byte[]) src;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeDelta(in[i], d);
+                }
+                break;
+            }
+            case SHORT: {
+                short[] in = (short[]) src;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeDelta(in[i], d);
+                }
+                break;
+            }
+            case INT: {
+                int[] in = (int[]) src;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeDelta(in[i], d);
+                }
+                break;
+            }
+            case LONG: {
+                long[] in = (long[]) src;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeDelta(in[i], d);
+                }
+                break;
+            }
+            case FLOAT: {
+                float[] in = (float[]) src;
+                acc = 0;
+                accBits = 0;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeXor(Float.floatToRawIntBits(in[i]) & 0xFFFFFFFFL, d);
+                }
+                flushBits();
+                break;
+            }
+            case DOUBLE: {
+                double[] in = (double[]) src;
+                acc = 0;
+                accBits = 0;
+                for (int i = 0, d = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1) {
+                    writeXor(Double.doubleToRawLongBits(in[i]), d);
+                }
+                flushBits();
+                break;
+            }
+        }
+
+        int raw = n * bytes;
+        if (pos - 1 > raw) {
+            // Prediction state is already up to date, only the window of the XOR encoding is dropped
+            out[0] |= FLAG_RAW;
+            Util.arraycopy(src, 0, out, 1, raw);
+            pos = 1 + raw;
+            Arrays.fill(leading, -1);
+        }
+
+        valid = true;
+        return pos;
+    }
+
+    public byte[] getBuffer() {
+        return out;
+    }
+
+    /**
+     * Decodes a frame into little-endian sample bytes (layout of Util.arraycopy)
+     *
+     * @param src frame data between position and limit
+     * @param dst sample bytes
+     * @param num number of samples
+     * @return false if the frame could not be decoded because a previous frame is missing
+     */
+    public boolean decode(ByteBuffer src, byte[] dst, int num) {
+        int n = num * dim;
+        int flags = src.get();
+
+        if ((flags & FLAG_RAW) != 0) {
+            src.get(dst, 0, n * bytes);
+            readRaw(dst, n);
+            valid = true;
+            return true;
+        }
+
+        if ((flags & FLAG_KEYFRAME) != 0) {
+            resetState();
+        } else if (!valid) {
+            return false;
+        }
+
+        acc = 0;
+        accBits = 0;
+
+        for (int i = 0, d = 0, o = 0; i < n; i++, d = (d + 1 == dim) ? 0 : d + 1, o += bytes) {
+            long value;
+            if (type == Cons.Type.FLOAT || type == Cons.Type.DOUBLE) {
+                value = readXor(src, d);
+            } else {
+                value = prev[d] + unzigzag(readVarint(src));
+                prev[d] = value;
+            }
+
+            for (int b = 0; b < bytes; b++) {
+                dst[o + b] = (byte) (value >>> (b * 8));
+            }
+        }
+
+        valid = true;
+        return true;
+    }
+
+    private void readRaw(byte[] src, int n) {
+        // Restore the prediction state from the last sample
+        for (int i = n - dim, d = 0; i < n; i++, d++) {
+            long value = 0;
+            for (int b = bytes - 1; b >= 0; b--) {
+                value = (value << 8) | (src[i * bytes + b] & 0xFF);
+            }
+
+            if (type != Cons.Type.FLOAT && type != Cons.Type.DOUBLE) {
+                // Sign extension, integer predictions are kept as signed values
+                value = (value << (64 - bytes * 8)) >> (64 - bytes * 8);
+            }
+
+            prev[d] = value;
+            leading[d] = -1;
+        }
+    }
+
+    private void resetState() {
+        for (int d = 0; d < dim; d++) {
+            prev[d] = 0;
+            leading[d] = -1;
+            trailing[d] = 0;
+        }
+    }
+
+    private void writeDelta(long value, int d) {
+        long delta = value - prev[d];
+        prev[d] = value;
+
+        long v = (delta << 1) ^ (delta >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[pos++] = (byte) v;
+    }
+
+    private void writeXor(long bits, int d) {
+        long xor = bits ^ prev[d];
+        prev[d] = bits;
+
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+
+        int lead = Math.min(31, Long.numberOfLeadingZeros(xor) - (64 - width));
+        int trail = Long.numberOfTrailingZeros(xor);
+
+        if (leading[d] >= 0 && lead >= leading[d] && trail >= trailing[d]) {
+            // Meaningful bits fit into the window of the previous value
+            writeBits(2, 2);
+            writeBits(xor >>> trailing[d], width - leading[d] - trailing[d]);
+        } else {
+            int length = width - lead - trail;
+            writeBits(3, 2);
+            writeBits(lead, 5);
+            writeBits(length - 1, 6);
+            writeBits(xor >>> trail, length);
+
+            leading[d] = lead;
+            trailing[d] = trail;
+        }
+    }
+
+    private long readXor(ByteBuffer src, int d) {
+        if (readBits(src, 1) == 0) {
+            return prev[d];
+        }
+
+        if (readBits(src, 1) == 1) {
+            leading[d] = (int) readBits(src, 5);
+            int length = (int) readBits(src, 6) + 1;
+            trailing[d] = width - leading[d] - length;
+        }
+
+        long xor = readBits(src, width - leading[d] - trailing[d]) << trailing[d];
+        prev[d] ^= xor;
+
+        return prev[d];
+    }
+
+    private void writeBits(long value, int n) {
+        if (n > 32) {
+            writeBits(value >>> 32, n - 32);
+            value &= 0xFFFFFFFFL;
+            n = 32;
+        }
+
+        acc = (acc << n) | (value & ((1L << n) - 1));
+        accBits += n;
+
+        while (accBits >= 8) {
+            accBits -= 8;
+            out[pos++] = (byte) (acc >>> accBits);
+        }
+    }
+
+    private void flushBits() {
+        if (accBits > 0) {
+            out[pos++] = (byte) (acc << (8 - accBits));
+            accBits = 0;
+        }
+    }
+
+    private long readBits(ByteBuffer src, int n) {
+        if (n > 32) {
+            long high = readBits(src, n - 32);
+            return (high << 32) | readBits(src, 32);
+        }
+
+        while (accBits < n) {
+            acc = (acc << 8) | (src.get() & 0xFF);
+            accBits += 8;
+        }
+
+        accBits -= n;
+        return (acc >>> accBits) & ((1L << n) - 1);
+    }
+
+    private static long readVarint(ByteBuffer src) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = src.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
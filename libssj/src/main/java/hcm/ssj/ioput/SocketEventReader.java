@@ -39,6 +39,8 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -58,6 +60,7 @@ import hcm.ssj.core.option.OptionList;
 public class SocketEventReader extends EventHandler {
     public final Options options = new Options();
     final int MAX_MSG_SIZE = 4096;
+    final int MAX_DATAGRAM_SIZE = 64 * 1024;
     DatagramSocket _socket;
     boolean _connected = false;
     byte[] _buffer;
@@ -93,9 +96,9 @@ public class SocketEventReader extends EventHandler {
             throw new SSJFatalException("ERROR: cannot bind socket", e);
         }
 
-        _buffer = new byte[MAX_MSG_SIZE];
+        _buffer = new byte[options.binary.get() ? MAX_DATAGRAM_SIZE : MAX_MSG_SIZE];
 
-        if (options.parseXmlToEvent.get()) {
+        if (options.parseXmlToEvent.get() && !options.binary.get()) {
             try {
                 _parser = Xml.newPullParser();
                 _parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
@@ -123,7 +126,26 @@ public class SocketEventReader extends EventHandler {
             return;
         }
 
-        if (!options.parseXmlToEvent.get()) {
+        if (options.binary.get()) {
+            ByteBuffer msg = ByteBuffer.wrap(_buffer, 0, packet.getLength()).order(ByteOrder.LITTLE_ENDIAN);
+
+            // A datagram may contain several messages
+            while (msg.remaining() >= 4) {
+                int next = msg.position() + 4 + msg.getInt();
+                if (next > packet.getLength()) {
+                    Log.w("truncated message");
+                    break;
+                }
+
+                msg.limit(next);
+                if (WireProtocol.getKind(msg) == WireProtocol.MSG_EVENT) {
+                    _evchannel_out.pushEvent(WireProtocol.getEvent(msg));
+                }
+
+                msg.limit(packet.getLength());
+                msg.position(next);
+            }
+        } else if (!options.parseXmlToEvent.get()) {
             Event ev = Event.create(Cons.Type.STRING);
             ev.setData(new String(_buffer, 0, packet.getLength()));
             _evchannel_out.pushEvent(ev);
@@ -205,6 +227,7 @@ public class SocketEventReader extends EventHandler {
         public Option<String> ip = new Option<>("ip", null, String.class, "");
         public Option<Integer> port = new Option<>("port", 0, Integer.class, "");
         public Option<Boolean> parseXmlToEvent = new Option<>("parseXmlToEvent", true, Boolean.class, "attempt to convert the message to an SSJ event format");
+        public Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "receive binary encoded events instead of XML (sender must use the binary protocol too)");
 
         /**
          *
@@ -35,6 +35,7 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.util.Arrays;
 
+import hcm.ssj.core.AsciiBuilder;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
@@ -52,8 +53,11 @@ import hcm.ssj.file.FileCons;
 public class SocketEventWriter extends EventHandler {
     public final static int SOCKET_TYPE_UDP = 0;
     public final static int SOCKET_TYPE_TCP = 1;
+    // Events are batched up to this size, the XML receiver reads messages of at most MAX_EVENT_SIZE bytes
+    private final static int MAX_BATCH_SIZE = Cons.MAX_EVENT_SIZE / 2;
     public Options options = new Options();
-    StringBuilder _builder = new StringBuilder();
+    AsciiBuilder _builder = new AsciiBuilder();
+    WireProtocol _protocol = new WireProtocol();
     byte[] _buffer;
     int[] _evID;
     String[] userMapKeys;
@@ -107,51 +111,75 @@ public class SocketEventWriter extends EventHandler {
 
     @Override
     protected void process() throws SSJFatalException {
-        if (!_connected) {
+        if (!waitForEvents(Cons.SLEEP_ON_COMPONENT_IDLE)) {
             return;
         }
 
-        _builder.delete(0, _builder.length());
+        if (!_connected) {
+            return;
+        }
 
-        _builder.append("<events ssi-v=\"2\" ssj-v=\"");
-        _builder.append(Pipeline.getVersion());
-        _builder.append("\">");
+        boolean binary = options.binary.get();
+        beginBatch(binary);
 
         int count = 0;
         for (int i = 0; i < _evchannel_in.size(); ++i) {
-            Event ev = _evchannel_in.get(i).getEvent(_evID[i], false);
-            if (ev == null) {
-                continue;
-            }
+            // Send all events which arrived since the last wake-up, split into messages the receiver can hold
+            Event ev;
+            while ((ev = _evchannel_in.get(i).getEvent(_evID[i], false)) != null) {
+                if (count > 0 && (binary ? _protocol.length() : _builder.length()) > MAX_BATCH_SIZE) {
+                    sendBatch(binary);
+                    beginBatch(binary);
+                    count = 0;
+                }
 
-            count++;
-            _evID[i] = ev.id + 1;
+                count++;
+                _evID[i] = ev.id + 1;
 
-            //build event
-            Util.eventToXML(_builder, ev, options.sendAsMap.get(), userMapKeys);
-            _builder.append(FileCons.DELIMITER_LINE);
+                //build event
+                if (binary) {
+                    _protocol.appendEvent(ev);
+                } else {
+                    Util.eventToXML(_builder, ev, options.sendAsMap.get(), userMapKeys);
+                    _builder.append(FileCons.DELIMITER_LINE);
+                }
+            }
         }
 
         if (count > 0) {
-            _builder.append("</events>");
-            byte[] data;
-            try {
-                switch (options.type.get()) {
-                    case SOCKET_TYPE_UDP:
-                        data = _builder.toString().getBytes();
-                        DatagramPacket pack = new DatagramPacket(data, data.length, _addr, options.port.get());
-                        _socket_udp.send(pack);
-                        break;
-                    case SOCKET_TYPE_TCP:
-                        data = _builder.toString().getBytes();
-                        _out.write(data);
-                        _out.flush();
-                        break;
-                }
+            sendBatch(binary);
+        }
+    }
+
+    private void beginBatch(boolean binary) {
+        _builder.clear();
+        _protocol.clear();
 
-            } catch (IOException e) {
-                Log.w("failed sending data", e);
+        if (!binary) {
+            _builder.append("<events ssi-v=\"2\" ssj-v=\"");
+            _builder.append(Pipeline.getVersion());
+            _builder.append("\">");
+        }
+    }
+
+    private void sendBatch(boolean binary) {
+        byte[] data = binary ? _protocol.array() : _builder.append("</events>").array();
+        int length = binary ? _protocol.length() : _builder.length();
+
+        try {
+            switch (options.type.get()) {
+                case SOCKET_TYPE_UDP:
+                    DatagramPacket pack = new DatagramPacket(data, length, _addr, options.port.get());
+                    _socket_udp.send(pack);
+                    break;
+                case SOCKET_TYPE_TCP:
+                    _out.write(data, 0, length);
+                    _out.flush();
+                    break;
             }
+
+        } catch (IOException e) {
+            Log.w("failed sending data", e);
         }
     }
 
@@ -185,6 +213,7 @@ public class SocketEventWriter extends EventHandler {
         public final Option<String> ip = new Option<>("ip", "127.0.0.1", String.class, "remote ip address");
         public final Option<Boolean> sendAsMap = new Option<>("sendAsMap", false, Boolean.class, "send values as map event");
         public final Option<String> mapKeys = new Option<>("mapKeys", "", String.class, "key for each dimension separated by comma");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "send binary encoded events instead of XML (receiver must use the binary protocol too)");
 
         private Options() {
             addOptions();
@@ -27,15 +27,11 @@
 
 package hcm.ssj.ioput;
 
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
@@ -44,19 +40,19 @@ import hcm.ssj.core.Sensor;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
 
 /**
  * Audio Sensor - get data from audio interface and forwards it
  * Created by Johnny on 05.03.2015.
  */
-public class SocketReader extends Sensor {
+public class SocketReader extends Sensor implements SocketReceiver.FrameListener {
     public final Options options = new Options();
     boolean _connected = false;
     byte[] _buffer;
-    private DatagramSocket _socket_udp = null;
-    private ServerSocket _server_tcp = null;
-    private Socket _client_tcp = null;
-    private DataInputStream _in;
+    private SocketReceiver.Registration _registration = null;
+    private WireProtocol.StreamDecoder _decoder = null;
+    private byte[][] _dst;
 
     public SocketReader() {
         _name = "SocketReader";
@@ -70,9 +66,7 @@ public class SocketReader extends Sensor {
     @Override
     public boolean connect() throws SSJFatalException {
         _connected = false;
-        _socket_udp = null;
-        _server_tcp = null;
-        _client_tcp = null;
+        _registration = null;
 
         Log.i("setting up socket (" + options.ip.get() + "@" + options.port.get() + " / " + options.type.get().toString() + ")");
 
@@ -84,28 +78,24 @@ public class SocketReader extends Sensor {
             }
         }
 
+        _buffer = new byte[_provider.get(0).getOutputStream().tot];
+
         try {
             InetAddress addr = InetAddress.getByName(options.ip.get());
             InetSocketAddress saddr = new InetSocketAddress(addr, options.port.get());
 
-            switch (options.type.get()) {
-                case UDP:
-                    _socket_udp = new DatagramSocket(null);
-                    _socket_udp.setReuseAddress(true);
-                    _socket_udp.bind(saddr);
-                    break;
-                case TCP:
-                    _server_tcp = new ServerSocket(options.port.get());
-                    Log.i("waiting for client ... ");
-                    _client_tcp = _server_tcp.accept();
-                    _in = new DataInputStream(_client_tcp.getInputStream());
-                    break;
+            // All socket readers share one receiver thread
+            if (options.binary.get()) {
+                _decoder = new WireProtocol.StreamDecoder(new Stream[]{_provider.get(0).getOutputStream()});
+                _dst = new byte[][]{_buffer};
+                _registration = SocketReceiver.getInstance().open(options.type.get(), saddr, 0, this);
+            } else {
+                _registration = SocketReceiver.getInstance().open(options.type.get(), saddr, _buffer.length, this);
             }
         } catch (IOException e) {
             throw new SSJFatalException("ERROR: cannot bind/connect socket", e);
         }
 
-        _buffer = new byte[_provider.get(0).getOutputStream().tot];
         _connected = true;
 
         Log.i("socket connected");
@@ -113,25 +103,33 @@ public class SocketReader extends Sensor {
         return true;
     }
 
+    @Override
+    public void onFrame(ByteBuffer frame) {
+        synchronized (this) {
+            if (_decoder != null) {
+                if (_decoder.decode(frame, _dst) < 0) {
+                    return;
+                }
+            } else {
+                frame.get(_buffer);
+            }
+            notifyAll();
+        }
+    }
+
     @Override
     protected void update() throws SSJFatalException {
         if (!_connected) {
             return;
         }
 
-        try {
-            switch (options.type.get()) {
-                case UDP:
-                    DatagramPacket packet = new DatagramPacket(_buffer, _buffer.length);
-                    _socket_udp.receive(packet);
-                    break;
-                case TCP:
-                    _in.readFully(_buffer);
-                    break;
+        // Frames are received on the shared receiver thread, only wait for new data here
+        synchronized (this) {
+            try {
+                wait(Cons.SLEEP_IN_LOOP);
+            } catch (InterruptedException e) {
+                Log.w("thread interrupt");
             }
-
-        } catch (IOException e) {
-            Log.w("failed receiving data", e);
         }
     }
 
@@ -139,27 +137,13 @@ public class SocketReader extends Sensor {
     public void disconnect() throws SSJFatalException {
         _connected = false;
 
-        try {
-            switch (options.type.get()) {
-                case UDP:
-                    if (_socket_udp != null) {
-                        _socket_udp.close();
-                        _socket_udp = null;
-                    }
-                    break;
-                case TCP:
-                    if (_client_tcp != null) {
-                        _client_tcp.close();
-                        _client_tcp = null;
-                    }
-                    if (_server_tcp != null) {
-                        _server_tcp.close();
-                        _server_tcp = null;
-                    }
-                    break;
-            }
-        } catch (Exception e) {
-            Log.w("failed closing socket", e);
+        if (_registration != null) {
+            _registration.close();
+            _registration = null;
+        }
+
+        if (_decoder != null && _decoder.getLostFrames() > 0) {
+            Log.w(_decoder.getLostFrames() + " frames lost");
         }
     }
 
@@ -171,6 +155,7 @@ public class SocketReader extends Sensor {
         public final Option<Cons.SocketType> type = new Option<>("type", Cons.SocketType.UDP, Cons.SocketType.class, "");
         public Option<String> ip = new Option<>("ip", null, String.class, "");
         public Option<Integer> port = new Option<>("port", 0, Integer.class, "");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "use the binary SSJ protocol with stream descriptor and timestamped frames (sender must use it too)");
 
         /**
          *
@@ -0,0 +1,380 @@
+/*
+ * SocketReceiver.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+
+/**
+ * Receives fixed-size stream frames of any number of UDP or TCP sockets on a single thread.<br>
+ * Packets containing several coalesced frames (see SocketSender) are split and every frame
+ * is handed to the listener of its socket in order. TCP servers accept any number of clients.<br>
+ * Alternatively, sockets can receive length-prefixed messages of the WireProtocol.
+ */
+public class SocketReceiver implements Runnable {
+    public interface FrameListener {
+        /**
+         * Called on the receiver thread for every complete frame or message
+         *
+         * @param frame buffer containing one frame (or one message without its length field) between position and limit,
+         *              only valid during the call
+         */
+        void onFrame(ByteBuffer frame);
+    }
+
+    /**
+     * Handle of a socket served by the receiver
+     */
+    public class Registration {
+        private final int frameBytes;
+        private final FrameListener listener;
+        private final ArrayList<SelectableChannel> channels = new ArrayList<>();
+
+        private Registration(int frameBytes, FrameListener listener) {
+            this.frameBytes = frameBytes;
+            this.listener = listener;
+        }
+
+        /**
+         * Closes the socket and all accepted connections
+         */
+        public void close() {
+            synchronized (SocketReceiver.this) {
+                for (SelectableChannel channel : channels) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        Log.w("failed closing socket", e);
+                    }
+                }
+                channels.clear();
+
+                registrations.remove(this);
+            }
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Per-connection read state
+     */
+    private static class Connection {
+        final Registration registration;
+        ByteBuffer buffer;
+
+        Connection(Registration registration, int capacity) {
+            this.registration = registration;
+            this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static final int MAX_DATAGRAM = 64 * 1024;
+    private static SocketReceiver _instance = null;
+
+    private final ArrayList<Registration> registrations = new ArrayList<>();
+    private final ArrayList<Runnable> pendingRegistrations = new ArrayList<>();
+    private Selector selector;
+    private Thread thread;
+
+    private long framesReceived = 0;
+
+    public static synchronized SocketReceiver getInstance() {
+        if (_instance == null) {
+            _instance = new SocketReceiver();
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Binds a socket and delivers its frames to the listener
+     *
+     * @param type       UDP or TCP
+     * @param address    local address to bind to
+     * @param frameBytes size of one frame in bytes, 0 for length-prefixed messages (see WireProtocol)
+     * @param listener   receives the frames
+     * @return handle for closing the socket
+     * @throws IOException if the socket could not be bound
+     */
+    public synchronized Registration open(Cons.SocketType type, InetSocketAddress address, final int frameBytes, FrameListener listener) throws IOException {
+        if (selector == null || !selector.isOpen()) {
+            selector = Selector.open();
+        }
+
+        final Registration registration = new Registration(frameBytes, listener);
+        final SelectableChannel channel;
+
+        if (type == Cons.SocketType.UDP) {
+            DatagramChannel udp = DatagramChannel.open();
+            udp.socket().setReuseAddress(true);
+            udp.socket().bind(address);
+            channel = udp;
+        } else {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.socket().setReuseAddress(true);
+            server.socket().bind(new InetSocketAddress(address.getPort()));
+            channel = server;
+        }
+
+        channel.configureBlocking(false);
+        registration.channels.add(channel);
+        registrations.add(registration);
+
+        // Channels can only be registered while the selector is not blocked, let the receiver thread do it
+        pendingRegistrations.add(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (channel instanceof DatagramChannel) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(registration, Math.max(MAX_DATAGRAM, frameBytes)));
+                    } else {
+                        channel.register(selector, SelectionKey.OP_ACCEPT, registration);
+                    }
+                } catch (ClosedChannelException e) {
+                    Log.w("socket closed before registration", e);
+                }
+            }
+        });
+
+        if (thread == null) {
+            thread = new Thread(this, "SSJ_SocketReceiver");
+            thread.start();
+        } else {
+            selector.wakeup();
+        }
+
+        return registration;
+    }
+
+    /**
+     * @return number of frames received by all sockets
+     */
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (this) {
+                for (Runnable r : pendingRegistrations) {
+                    r.run();
+                }
+                pendingRegistrations.clear();
+
+                if (registrations.isEmpty()) {
+                    try {
+                        selector.close();
+                    } catch (IOException e) {
+                        Log.w("failed closing selector", e);
+                    }
+                    thread = null;
+                    return;
+                }
+            }
+
+            try {
+                selector.select();
+            } catch (IOException e) {
+                Log.e("select failed", e);
+                continue;
+            }
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept(key);
+                    } else if (key.isReadable()) {
+                        if (key.channel() instanceof DatagramChannel) {
+                            receive(key);
+                        } else {
+                            read(key);
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.w("failed receiving data", e);
+                    if (!(key.channel() instanceof DatagramChannel)) {
+                        close(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        Registration registration = (Registration) key.attachment();
+        java.nio.channels.SocketChannel client = ((ServerSocketChannel) key.channel()).accept();
+
+        if (client == null) {
+            return;
+        }
+
+        client.configureBlocking(false);
+        client.socket().setTcpNoDelay(true);
+        client.register(selector, SelectionKey.OP_READ, new Connection(registration, Math.max(SocketSender.DEFAULT_TCP_PAYLOAD, registration.frameBytes)));
+
+        synchronized (this) {
+            registration.channels.add(client);
+        }
+
+        Log.i("client connected: " + client.socket().getRemoteSocketAddress());
+    }
+
+    private void receive(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        DatagramChannel channel = (DatagramChannel) key.channel();
+        ByteBuffer buffer = connection.buffer;
+
+        // Drain all queued datagrams
+        while (true) {
+            buffer.clear();
+            if (channel.receive(buffer) == null) {
+                break;
+            }
+
+            buffer.flip();
+            if (connection.registration.frameBytes > 0 && buffer.remaining() % connection.registration.frameBytes != 0) {
+                Log.w("datagram size " + buffer.remaining() + " is not a multiple of the frame size");
+            }
+            dispatch(connection, buffer);
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer buffer = connection.buffer;
+
+        int n = ((java.nio.channels.SocketChannel) key.channel()).read(buffer);
+        if (n < 0) {
+            Log.i("client disconnected");
+            close(key);
+            return;
+        }
+
+        buffer.flip();
+        dispatch(connection, buffer);
+
+        // Make room for messages larger than the buffer
+        if (connection.registration.frameBytes == 0 && buffer.remaining() >= 4) {
+            int required = 4 + buffer.getInt(buffer.position());
+            if (required <= 4 || required > WireProtocol.MAX_MESSAGE_SIZE) {
+                throw new IOException("invalid message length " + required);
+            }
+            if (required > buffer.capacity()) {
+                connection.buffer = ByteBuffer.allocateDirect(required).order(ByteOrder.LITTLE_ENDIAN);
+                connection.buffer.put(buffer);
+                return;
+            }
+        }
+
+        // Keep incomplete frame for the next read
+        buffer.compact();
+    }
+
+    private void dispatch(Connection connection, ByteBuffer buffer) {
+        int frameBytes = connection.registration.frameBytes;
+        int limit = buffer.limit();
+
+        if (frameBytes == 0) {
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt(buffer.position());
+                int next = buffer.position() + 4 + length;
+                if (length <= 0 || next > limit) {
+                    break;
+                }
+
+                buffer.position(buffer.position() + 4);
+                buffer.limit(next);
+
+                deliver(connection, buffer);
+
+                buffer.limit(limit);
+                buffer.position(next);
+            }
+
+            return;
+        }
+
+        while (buffer.remaining() >= frameBytes) {
+            int next = buffer.position() + frameBytes;
+            buffer.limit(next);
+
+            deliver(connection, buffer);
+
+            buffer.limit(limit);
+            buffer.position(next);
+        }
+    }
+
+    private void deliver(Connection connection, ByteBuffer buffer) {
+        // All sockets share this thread, a failing listener must not stop the others
+        try {
+            connection.registration.listener.onFrame(buffer);
+        } catch (RuntimeException e) {
+            Log.e("frame listener failed", e);
+        }
+        framesReceived++;
+    }
+
+        private void close(SelectionKey key) {
+        key.cancel();
+
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            Log.w("failed closing socket", e);
+        }
+
+        if (key.attachment() instanceof Connection) {
+            synchronized (this) {
+                ((Connection) key.attachment()).registration.channels.remove(key.channel());
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * SocketSender.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import hcm.ssj.core.Cons;
+
+/**
+ * Non-blocking sender for fixed-size stream frames based on java.nio channels.<br>
+ * Frames are copied into a pool of direct buffers and sent with a single gathering write
+ * once the next frame would exceed the payload limit (e.g. the MTU for UDP) or the oldest
+ * pending frame has waited longer than the latency budget. The latency budget is enforced by
+ * a flush thread, so frames are sent in time even if no further frame is committed.
+ * As all frames of a stream have the same size, receivers split coalesced packets without
+ * any additional framing.
+ */
+public class SocketSender {
+    /**
+     * Ethernet MTU minus IP and UDP header
+     */
+    public static final int DEFAULT_UDP_PAYLOAD = 1472;
+    public static final int DEFAULT_TCP_PAYLOAD = 64 * 1024;
+
+    private final DatagramChannel udp;
+    private final java.nio.channels.SocketChannel tcp;
+    private final GatheringByteChannel channel;
+    private Selector selector;
+
+    private final int frameBytes;
+    private final long maxDelay;
+    private final ByteBuffer[] frames;
+
+    private int pending = 0;
+    private int written = 0;
+    private long firstPending;
+    private boolean filling = false;
+
+    private final Thread flusher;
+    private boolean closed = false;
+    private IOException error = null;
+
+    private long framesSent = 0;
+    private long packetsSent = 0;
+    private long bytesSent = 0;
+
+    /**
+     * @param type       UDP or TCP
+     * @param remote     address of the receiver
+     * @param frameBytes size of one frame in bytes
+     * @param maxPayload maximum number of bytes sent at once, values &lt;= 0 select the default of the socket type
+     * @param maxDelay   maximum time a frame may wait for others to be sent along with it (in ms), 0 sends every frame immediately
+     * @throws IOException if the connection could not be established
+     */
+    public SocketSender(Cons.SocketType type, InetSocketAddress remote, int frameBytes, int maxPayload, int maxDelay) throws IOException {
+        this.frameBytes = frameBytes;
+        this.maxDelay = maxDelay * 1000000L;
+
+        if (maxPayload <= 0) {
+            maxPayload = (type == Cons.SocketType.UDP) ? DEFAULT_UDP_PAYLOAD : DEFAULT_TCP_PAYLOAD;
+        }
+
+        frames = new ByteBuffer[maxDelay > 0 ? Math.max(1, maxPayload / frameBytes) : 1];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = ByteBuffer.allocateDirect(frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (type == Cons.SocketType.UDP) {
+            udp = DatagramChannel.open();
+            udp.connect(remote);
+            tcp = null;
+            channel = udp;
+        } else {
+            tcp = java.nio.channels.SocketChannel.open(remote);
+            tcp.socket().setTcpNoDelay(true);
+            tcp.configureBlocking(false);
+            selector = Selector.open();
+            tcp.register(selector, SelectionKey.OP_WRITE);
+            udp = null;
+            channel = tcp;
+        }
+
+        if (maxDelay > 0 && frames.length > 1) {
+            flusher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    flushOnDeadline();
+                }
+            }, "SocketSender-" + remote.getPort());
+            // A sender which is never closed must not keep the process alive
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Sends the pending frames once the oldest of them reaches the latency budget
+     */
+    private synchronized void flushOnDeadline() {
+        while (!closed) {
+            try {
+                if (pending == 0) {
+                    wait();
+                } else {
+                    long remaining = firstPending + maxDelay - System.nanoTime();
+
+                    if (remaining > 0) {
+                        wait(remaining / 1000000L, (int) (remaining % 1000000L));
+                    } else {
+                        flush();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // Reported to the caller on the next frame, later frames are still sent
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Queues a frame and sends all pending frames if the payload limit or latency budget is reached
+     *
+     * @param data primitive array containing at least one frame (e.g. Stream.ptr())
+     */
+    public void send(Object data) throws IOException {
+        WireProtocol.putSamples(nextFrame(), data, frameBytes);
+        commitFrame();
+    }
+
+    /**
+     * @return empty buffer for the next frame, must be filled with exactly one frame before calling commitFrame()
+     */
+    public synchronized ByteBuffer nextFrame() {
+        ByteBuffer frame = frames[pending];
+        frame.clear();
+        filling = true;
+
+        return frame;
+    }
+
+    /**
+     * Queues the frame returned by nextFrame() and sends all pending frames if the payload limit or latency budget is reached
+     *
+     * @throws IOException if sending failed, the frames of the failed send are dropped
+     */
+    public synchronized void commitFrame() throws IOException {
+        frames[pending].flip();
+        filling = false;
+
+        if (pending == 0) {
+            firstPending = System.nanoTime();
+            notifyAll();
+        }
+        pending++;
+
+        if (pending == frames.length || System.nanoTime() - firstPending >= maxDelay) {
+            flush();
+        }
+
+        if (error != null) {
+            IOException e = error;
+            error = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Sends all pending frames followed by a message of arbitrary size (e.g. a stream descriptor)
+     */
+    public synchronized void send(byte[] data, int offset, int length) throws IOException {
+        flush();
+
+        ByteBuffer message = ByteBuffer.wrap(data, offset, length);
+        if (udp != null) {
+            bytesSent += udp.write(message);
+        } else {
+            while (message.hasRemaining()) {
+                int n = tcp.write(message);
+                bytesSent += n;
+
+                if (n == 0) {
+                    selector.select(100);
+                    selector.selectedKeys().clear();
+                }
+            }
+        }
+
+        packetsSent++;
+    }
+
+    /**
+     * Sends all pending frames
+     */
+    public synchronized void flush() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+
+        try {
+            if (udp != null) {
+                bytesSent += udp.write(frames, 0, pending);
+            } else {
+                // Wait for the socket to accept the remaining data instead of spinning on partial writes
+                while (frames[pending - 1].hasRemaining()) {
+                    long n = tcp.write(frames, written, pending - written);
+                    bytesSent += n;
+
+                    while (written < pending && !frames[written].hasRemaining()) {
+                        written++;
+                    }
+
+                    if (n == 0 && written < pending) {
+                        selector.select(100);
+                        selector.selectedKeys().clear();
+                    }
+                }
+            }
+
+            framesSent += pending;
+            packetsSent++;
+        } finally {
+            // Frames which could not be sent are dropped, the pool has to stay usable for the next frames
+            if (filling) {
+                // The frame currently being filled moves to the front of the pool
+                ByteBuffer frame = frames[pending];
+                frames[pending] = frames[0];
+                frames[0] = frame;
+            }
+
+            pending = 0;
+            written = 0;
+        }
+    }
+
+    /**
+     * Sends all pending frames and closes the connection
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            if (flusher != null) {
+                flusher.join();
+            }
+            if (error != null) {
+                throw error;
+            }
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing", e);
+        } finally {
+            channel.close();
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    /**
+     * @return number of datagrams (UDP) or gathering writes (TCP)
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+}
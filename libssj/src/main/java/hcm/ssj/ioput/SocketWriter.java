@@ -27,18 +27,14 @@
 
 package hcm.ssj.ioput;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Consumer;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
-import hcm.ssj.core.Util;
 import hcm.ssj.core.event.Event;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
@@ -51,12 +47,13 @@ public class SocketWriter extends Consumer {
 
 
     public final Options options = new Options();
-    private DatagramSocket _socket_udp;
-    private Socket _socket_tcp;
+    private SocketSender _sender;
     private InetAddress _addr;
-    private DataOutputStream _out;
-    private byte[] _data;
     private boolean _connected = false;
+    private WireProtocol _protocol;
+    private int _seq;
+    private int _descriptorInterval;
+    private FrameCodec _codec;
     public SocketWriter() {
         _name = "SocketWriter";
     }
@@ -71,21 +68,29 @@ public class SocketWriter extends Consumer {
         //start client
         try {
             _addr = InetAddress.getByName(options.ip.get());
-            switch (options.type.get()) {
-                case UDP:
-                    _socket_udp = new DatagramSocket();
-                    break;
-                case TCP:
-                    _socket_tcp = new Socket(_addr, options.port.get());
-                    _out = new DataOutputStream(_socket_tcp.getOutputStream());
-                    break;
+            _codec = null;
+            if (options.compress.get()) {
+                if (!options.binary.get() || !FrameCodec.supports(stream_in[0].type)) {
+                    Log.w("compression requires the binary protocol and a numeric stream, sending uncompressed");
+                } else {
+                    _codec = new FrameCodec(stream_in[0].type, stream_in[0].dim);
+                }
+            }
+
+            int frameBytes = stream_in[0].tot + (options.binary.get() ? WireProtocol.FRAME_HEADER_SIZE : 0) + (_codec != null ? 1 : 0);
+            _sender = new SocketSender(options.type.get(), new InetSocketAddress(_addr, options.port.get()), frameBytes, options.maxPayload.get(), options.maxDelay.get());
+
+            if (options.binary.get()) {
+                _protocol = new WireProtocol();
+                _seq = 0;
+                // UDP receivers may join at any time, repeat the descriptor about once per second
+                _descriptorInterval = Math.max(1, (int) (stream_in[0].sr / stream_in[0].num));
+                sendDescriptor(stream_in[0]);
             }
         } catch (IOException e) {
             throw new SSJFatalException("error in setting up connection", e);
         }
 
-        _data = new byte[stream_in[0].tot];
-
         Log.i("Streaming data to " + _addr.getHostName() + "@" + options.port + "(" + options.type.get().toString() + ")");
         _connected = true;
     }
@@ -96,38 +101,40 @@ public class SocketWriter extends Consumer {
         }
 
         try {
-            switch (options.type.get()) {
-                case UDP:
-                    Util.arraycopy(stream_in[0].ptr(), 0, _data, 0, _data.length);
-                    DatagramPacket pack = new DatagramPacket(_data, _data.length, _addr, options.port.get());
-                    _socket_udp.send(pack);
-                    break;
-                case TCP:
-                    Util.arraycopy(stream_in[0].ptr(), 0, _data, 0, _data.length);
-                    _out.write(_data);
-                    _out.flush();
-                    break;
+            if (options.binary.get()) {
+                if (options.type.get() == Cons.SocketType.UDP && _seq > 0 && _seq % _descriptorInterval == 0) {
+                    sendDescriptor(stream_in[0]);
+                }
+
+                if (_codec != null) {
+                    // Receivers can only join or resume after packet loss at keyframes
+                    boolean keyframe = options.type.get() == Cons.SocketType.UDP && _seq % _descriptorInterval == 0;
+                    WireProtocol.putFrame(_sender.nextFrame(), 0, _seq++, stream_in[0], _codec, keyframe);
+                } else {
+                    WireProtocol.putFrame(_sender.nextFrame(), 0, _seq++, stream_in[0]);
+                }
+                _sender.commitFrame();
+            } else {
+                _sender.send(stream_in[0].ptr());
             }
-
         } catch (IOException e) {
             Log.w("failed sending data", e);
         }
     }
 
+    private void sendDescriptor(Stream stream) throws IOException {
+        _protocol.clear();
+        _protocol.appendDescriptor(0, stream, _codec != null ? WireProtocol.CODEC_DELTA : WireProtocol.CODEC_NONE);
+        _sender.send(_protocol.array(), 0, _protocol.length());
+    }
+
     public void flush(Stream[] stream_in) throws SSJFatalException {
         _connected = false;
 
         try {
-            switch (options.type.get()) {
-                case UDP:
-                    _socket_udp.close();
-                    _socket_udp = null;
-                    break;
-                case TCP:
-                    _socket_tcp.close();
-                    _socket_tcp = null;
-                    break;
-            }
+            _sender.close();
+            Log.i("sent " + _sender.getFramesSent() + " frames in " + _sender.getPacketsSent() + " packets");
+            _sender = null;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -137,6 +144,10 @@ public class SocketWriter extends Consumer {
         public final Option<Integer> port = new Option<>("port", 34300, Integer.class, "");
         public final Option<String> ip = new Option<>("ip", "127.0.0.1", String.class, "");
         public final Option<Cons.SocketType> type = new Option<>("type", Cons.SocketType.UDP, Cons.SocketType.class, "");
+        public final Option<Integer> maxDelay = new Option<>("maxDelay", 0, Integer.class, "maximum time frames are held back to be sent together (in ms, 0 = send every frame immediately)");
+        public final Option<Integer> maxPayload = new Option<>("maxPayload", 0, Integer.class, "maximum number of bytes sent at once (0 = MTU for UDP, 64 KB for TCP)");
+        public final Option<Boolean> binary = new Option<>("binary", false, Boolean.class, "use the binary SSJ protocol with stream descriptor and timestamped frames (receiver must use it too)");
+        public final Option<Boolean> compress = new Option<>("compress", false, Boolean.class, "lossless delta compression of frames (requires binary protocol)");
 
         /**
          *
@@ -0,0 +1,395 @@
+/*
+ * StreamFanOut.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import hcm.ssj.core.Log;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Distributes stream frames to any number of TCP clients using the WireProtocol.<br>
+ * Clients subscribe to a subset of the streams, every frame is encoded once and the same
+ * message is queued for all subscribers. Each client has a bounded queue which is drained
+ * by a single non-blocking I/O thread. Clients whose queue overflows are disconnected so
+ * that a slow client can neither stall the pipeline nor delay other clients.
+ */
+public class StreamFanOut implements Runnable {
+    private final Stream[] streams;
+    private final int queueSize;
+    private final ArrayList<Client> clients = new ArrayList<>();
+    private final WireProtocol protocol = new WireProtocol();
+    private final byte[][] descriptors;
+
+    private ServerSocketChannel server;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    private int seq = 0;
+    private long evicted = 0;
+    private long framesQueued = 0;
+
+    /**
+     * @param streams   streams to distribute, their index is the stream id
+     * @param queueSize maximum number of messages queued per client
+     */
+    public StreamFanOut(Stream[] streams, int queueSize) {
+        this.streams = streams;
+        this.queueSize = queueSize;
+
+        descriptors = new byte[streams.length][];
+        for (int i = 0; i < streams.length; i++) {
+            protocol.clear();
+            protocol.appendDescriptor(i, streams[i]);
+            descriptors[i] = Arrays.copyOf(protocol.array(), protocol.length());
+        }
+    }
+
+    /**
+     * Starts accepting clients
+     *
+     * @param port local port, 0 selects any free port
+     */
+    public void open(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        thread = new Thread(this, "SSJ_StreamFanOut");
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Encodes the current frames of all subscribed streams once and queues them for all subscribers
+     *
+     * @param frames current frames, same order as the streams passed to the constructor
+     */
+    public void publish(Stream[] frames) {
+        boolean wakeup = false;
+
+        synchronized (clients) {
+            for (int i = 0; i < frames.length; i++) {
+                ByteBuffer message = null;
+
+                for (Client client : clients) {
+                    if (!client.subscribed[i] || client.evicted) {
+                        continue;
+                    }
+
+                    if (message == null) {
+                        protocol.clear();
+                        protocol.appendFrame(i, seq, frames[i]);
+                        message = ByteBuffer.wrap(Arrays.copyOf(protocol.array(), protocol.length()));
+                        framesQueued++;
+                    }
+
+                    wakeup |= client.offer(message.duplicate());
+                }
+            }
+        }
+
+        seq++;
+
+        if (wakeup) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Disconnects all clients and stops the server
+     */
+    public void close() {
+        running = false;
+
+        if (selector != null) {
+            selector.wakeup();
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Log.w("thread interrupt");
+            }
+            thread = null;
+        }
+    }
+
+    public int getClientCount() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    /**
+     * @return number of clients disconnected because they could not keep up
+     */
+    public long getEvictedCount() {
+        return evicted;
+    }
+
+    /**
+     * @return number of encoded frame messages
+     */
+    public long getFramesQueued() {
+        return framesQueued;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                Log.e("select failed", e);
+                break;
+            }
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+
+                if (!key.isValid()) {
+                    continue;
+                }
+
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(client);
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.w("client error", e);
+                    remove((Client) key.attachment());
+                }
+            }
+
+            updateClients();
+        }
+
+        synchronized (clients) {
+            for (Client client : new ArrayList<>(clients)) {
+                remove(client);
+            }
+        }
+
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            Log.w("failed closing server", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+
+        synchronized (clients) {
+            clients.add(client);
+        }
+
+        Log.i("client connected: " + channel.socket().getRemoteSocketAddress());
+    }
+
+    private void read(Client client) throws IOException {
+        ByteBuffer in = client.in;
+
+        if (client.channel.read(in) < 0) {
+            Log.i("client disconnected: " + client.channel.socket().getRemoteSocketAddress());
+            remove(client);
+            return;
+        }
+
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > in.capacity() - 4) {
+                throw new IOException("invalid message length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+
+            int next = in.position() + 4 + length;
+            in.position(in.position() + 4);
+
+            if (WireProtocol.getKind(in) == WireProtocol.MSG_SUBSCRIBE) {
+                subscribe(client, WireProtocol.getSubscription(in));
+            }
+
+            in.position(next);
+        }
+        in.compact();
+    }
+
+    private void subscribe(Client client, int[] ids) {
+        boolean[] subscribed = new boolean[streams.length];
+
+        if (ids.length == 0) {
+            Arrays.fill(subscribed, true);
+        }
+        for (int id : ids) {
+            if (id < streams.length) {
+                subscribed[id] = true;
+            }
+        }
+
+        synchronized (clients) {
+            // Announce newly subscribed streams before their first frame
+            for (int i = 0; i < streams.length; i++) {
+                if (subscribed[i] && !client.subscribed[i]) {
+                    client.offer(ByteBuffer.wrap(descriptors[i]));
+                }
+            }
+            client.subscribed = subscribed;
+        }
+    }
+
+    private void write(Client client) throws IOException {
+        while (true) {
+            ByteBuffer message;
+
+            synchronized (clients) {
+                message = client.queue.peek();
+            }
+
+            if (message == null) {
+                return;
+            }
+
+            client.channel.write(message);
+            if (message.hasRemaining()) {
+                // Socket buffer full, continue when writable again
+                return;
+            }
+
+            synchronized (clients) {
+                client.queue.poll();
+            }
+        }
+    }
+
+    private void updateClients() {
+        synchronized (clients) {
+            for (Client client : new ArrayList<>(clients)) {
+                if (client.evicted) {
+                    Log.w("client too slow, disconnecting " + client.channel.socket().getRemoteSocketAddress());
+                    evicted++;
+                    remove(client);
+                } else if (client.key.isValid()) {
+                    client.key.interestOps(SelectionKey.OP_READ | (client.queue.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                }
+            }
+        }
+    }
+
+    private void remove(Client client) {
+        if (client == null) {
+            return;
+        }
+
+        synchronized (clients) {
+            clients.remove(client);
+            client.queue.clear();
+        }
+
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            Log.w("failed closing client", e);
+        }
+    }
+
+    private class Client {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        final ByteBuffer in = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        boolean[] subscribed = new boolean[streams.length];
+        boolean evicted = false;
+        SelectionKey key;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Must be called while holding the client list lock
+         *
+         * @return true if the queue was empty before, i.e. the I/O thread needs to be woken up
+         */
+        boolean offer(ByteBuffer message) {
+            if (queue.size() >= queueSize) {
+                evicted = true;
+                queue.clear();
+                return true;
+            }
+
+            queue.add(message);
+            return queue.size() == 1;
+        }
+    }
+}
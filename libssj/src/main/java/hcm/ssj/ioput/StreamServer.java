@@ -0,0 +1,96 @@
+/*
+ * StreamServer.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.IOException;
+
+import hcm.ssj.core.Consumer;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJFatalException;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Serves the input streams to any number of remote pipelines or tools over TCP.<br>
+ * Clients connect, subscribe to a subset of the streams (see WireProtocol) and then receive
+ * descriptors and frames of the requested streams. Slow clients are disconnected once their
+ * queue is full.
+ */
+public class StreamServer extends Consumer {
+    public class Options extends OptionList {
+        public final Option<Integer> port = new Option<>("port", 34400, Integer.class, "port to accept clients on");
+        public final Option<Integer> queueSize = new Option<>("queueSize", 100, Integer.class, "maximum number of messages queued per client before it is disconnected");
+
+        private Options() {
+            addOptions();
+        }
+    }
+
+    public final Options options = new Options();
+
+    private StreamFanOut _fanOut;
+
+    public StreamServer() {
+        _name = "StreamServer";
+    }
+
+    @Override
+    public OptionList getOptions() {
+        return options;
+    }
+
+    @Override
+    public void enter(Stream[] stream_in) throws SSJFatalException {
+        _fanOut = new StreamFanOut(stream_in, options.queueSize.get());
+
+        try {
+            _fanOut.open(options.port.get());
+        } catch (IOException e) {
+            throw new SSJFatalException("error in setting up server", e);
+        }
+
+        Log.i("serving " + stream_in.length + " streams on port " + _fanOut.getPort());
+    }
+
+    @Override
+    protected void consume(Stream[] stream_in, Event trigger) throws SSJFatalException {
+        _fanOut.publish(stream_in);
+    }
+
+    @Override
+    public void flush(Stream[] stream_in) throws SSJFatalException {
+        if (_fanOut != null) {
+            Log.i(_fanOut.getFramesQueued() + " frames encoded, " + _fanOut.getEvictedCount() + " clients evicted");
+
+            _fanOut.close();
+            _fanOut = null;
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * WireProtocol.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ioput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import hcm.ssj.core.Cons;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.Util;
+import hcm.ssj.core.event.Event;
+import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.EventLogCodec;
+
+/**
+ * Binary protocol for exchanging streams and events between SSJ pipelines.<br>
+ * Every message starts with its length (int, without the length field itself) and its kind (byte),
+ * all values are little-endian:
+ * <ul>
+ * <li>DESCRIPTOR: magic, version, stream id, sample type, dim, num, bytes per value, sample rate, dimension names, frame codec.
+ * Sent once per stream before the first frame (repeated periodically over UDP)</li>
+ * <li>FRAME: stream id, sequence number, stream time, samples (raw or encoded with the codec of the descriptor)</li>
+ * <li>EVENT: event record as used by binary event logs (see EventLogCodec)</li>
+ * <li>SUBSCRIBE: number of stream ids (byte), stream ids. Sent by clients of a StreamServer, no ids selects all streams</li>
+ * </ul>
+ * Messages are appended to an internal buffer, several messages may be sent at once.
+ */
+public class WireProtocol {
+    public static final int MAGIC = 0x574A5353; // "SSJW"
+    public static final byte VERSION = 1;
+
+    public static final byte MSG_DESCRIPTOR = 1;
+    public static final byte MSG_FRAME = 2;
+    public static final byte MSG_EVENT = 3;
+    public static final byte MSG_SUBSCRIBE = 4;
+
+    public static final byte CODEC_NONE = 0;
+    public static final byte CODEC_DELTA = 1;
+
+    /**
+     * Size of length, kind, stream id, sequence number and time of a frame message
+     */
+    public static final int FRAME_HEADER_SIZE = 18;
+    public static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    private static final Cons.Type[] TYPES = Cons.Type.values();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+    private EventLogCodec codec;
+
+    public void clear() {
+        buffer.clear();
+    }
+
+    public byte[] array() {
+        return buffer.array();
+    }
+
+    public int length() {
+        return buffer.position();
+    }
+
+    public WireProtocol appendDescriptor(int streamId, Stream stream) {
+        return appendDescriptor(streamId, stream, CODEC_NONE);
+    }
+
+    /**
+     * @param codec codec used for the frames of the stream (CODEC_NONE or CODEC_DELTA)
+     */
+    public WireProtocol appendDescriptor(int streamId, Stream stream, byte codec) {
+        ensure(64 + (stream.desc == null ? 0 : stream.desc.length * 32));
+
+        int start = begin(MSG_DESCRIPTOR);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) streamId);
+        buffer.put((byte) stream.type.ordinal());
+        buffer.putInt(stream.dim);
+        buffer.putInt(stream.num);
+        buffer.putInt(stream.bytes);
+        buffer.putDouble(stream.sr);
+
+        int names = stream.desc == null ? 0 : stream.desc.length;
+        buffer.putShort((short) names);
+        for (int i = 0; i < names; i++) {
+            byte[] name = (stream.desc[i] == null ? "" : stream.desc[i]).getBytes(StandardCharsets.UTF_8);
+            ensure(2 + name.length);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        buffer.put(codec);
+
+        end(start);
+        return this;
+    }
+
+    public WireProtocol appendFrame(int streamId, int seq, Stream stream) {
+        ensure(FRAME_HEADER_SIZE + stream.tot);
+        putFrame(buffer, streamId, seq, stream);
+
+        return this;
+    }
+
+    public WireProtocol appendFrame(int streamId, int seq, Stream stream, FrameCodec codec, boolean keyframe) {
+        ensure(FRAME_HEADER_SIZE + 1 + stream.tot);
+        putFrame(buffer, streamId, seq, stream, codec, keyframe);
+
+        return this;
+    }
+
+    public WireProtocol appendEvent(Event ev) {
+        if (codec == null) {
+            codec = new EventLogCodec();
+        }
+
+        codec.encode(ev);
+        ByteBuffer record = codec.getBuffer();
+        ensure(5 + record.position());
+
+        int start = begin(MSG_EVENT);
+        buffer.put(record.array(), 0, record.position());
+        end(start);
+
+        return this;
+    }
+
+    /**
+     * @param streamIds ids of the requested streams, empty for all streams
+     */
+    public WireProtocol appendSubscribe(int... streamIds) {
+        ensure(6 + streamIds.length);
+
+        int start = begin(MSG_SUBSCRIBE);
+        buffer.put((byte) streamIds.length);
+        for (int id : streamIds) {
+            buffer.put((byte) id);
+        }
+        end(start);
+
+        return this;
+    }
+
+    /**
+     * Writes a frame message, e.g. directly into the buffers of a SocketSender
+     *
+     * @param dst    target buffer with at least FRAME_HEADER_SIZE + stream.tot bytes remaining
+     * @param seq    sequence number of the frame, increases by one per frame of a stream
+     * @param stream frame to send
+     */
+    public static void putFrame(ByteBuffer dst, int streamId, int seq, Stream stream) {
+        dst.putInt(FRAME_HEADER_SIZE - 4 + stream.tot);
+        dst.put(MSG_FRAME);
+        dst.put((byte) streamId);
+        dst.putInt(seq);
+        dst.putDouble(stream.time);
+        putSamples(dst, stream.ptr(), stream.tot);
+    }
+
+    /**
+     * Writes an encoded frame message
+     *
+     * @param dst      target buffer with at least FRAME_HEADER_SIZE + stream.tot + 1 bytes remaining
+     * @param codec    encoder of the stream, announced as CODEC_DELTA in the descriptor
+     * @param keyframe encode the frame independent of the previous ones, e.g. to allow receivers to join
+     */
+    public static void putFrame(ByteBuffer dst, int streamId, int seq, Stream stream, FrameCodec codec, boolean keyframe) {
+        int length = codec.encode(stream.ptr(), stream.num, keyframe);
+
+        dst.putInt(FRAME_HEADER_SIZE - 4 + length);
+        dst.put(MSG_FRAME);
+        dst.put((byte) streamId);
+        dst.putInt(seq);
+        dst.putDouble(stream.time);
+        dst.put(codec.getBuffer(), 0, length);
+    }
+
+    /**
+     * Copies samples into a buffer using the little-endian layout of Util.arraycopy
+     */
+    public static void putSamples(ByteBuffer dst, Object data, int bytes) {
+        int pos = dst.position();
+        ByteBuffer view = dst.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (data instanceof byte[]) {
+            view.put((byte[]) data, 0, bytes);
+        } else if (data instanceof short[]) {
+            view.asShortBuffer().put((short[]) data, 0, bytes / 2);
+        } else if (data instanceof int[]) {
+            view.asIntBuffer().put((int[]) data, 0, bytes / 4);
+        } else if (data instanceof long[]) {
+            view.asLongBuffer().put((long[]) data, 0, bytes / 8);
+        } else if (data instanceof float[]) {
+            view.asFloatBuffer().put((float[]) data, 0, bytes / 4);
+        } else if (data instanceof double[]) {
+            view.asDoubleBuffer().put((double[]) data, 0, bytes / 8);
+        } else if (dst.hasArray()) {
+            Util.arraycopy(data, 0, dst.array(), dst.arrayOffset() + pos, bytes);
+        } else {
+            byte[] tmp = new byte[bytes];
+            Util.arraycopy(data, 0, tmp, 0, bytes);
+            view.put(tmp);
+        }
+
+        dst.position(pos + bytes);
+    }
+
+    /**
+     * Reads the next message from a stream
+     *
+     * @param in     input stream
+     * @param buffer buffer to reuse, may be null
+     * @return buffer containing the message, positioned at the message kind
+     * @throws IOException on errors or if the stream ended
+     */
+    public static ByteBuffer readMessage(InputStream in, ByteBuffer buffer) throws IOException {
+        byte[] len = new byte[4];
+        readFully(in, len, 0, 4);
+        int length = (len[0] & 0xFF) | (len[1] & 0xFF) << 8 | (len[2] & 0xFF) << 16 | (len[3] & 0xFF) << 24;
+
+        if (length <= 0 || length > MAX_MESSAGE_SIZE) {
+            throw new IOException("invalid message length " + length);
+        }
+
+        if (buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, 4096)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        buffer.clear();
+        readFully(in, buffer.array(), buffer.arrayOffset(), length);
+        buffer.limit(length);
+
+        return buffer;
+    }
+
+    /**
+     * @param msg message positioned at its kind
+     * @return kind of the message
+     */
+    public static byte getKind(ByteBuffer msg) {
+        return msg.get(msg.position());
+    }
+
+    public static int getStreamId(ByteBuffer msg) {
+        return msg.get(msg.position() + 1) & 0xFF;
+    }
+
+    public static int getSequence(ByteBuffer msg) {
+        return msg.getInt(msg.position() + 2);
+    }
+
+    public static double getTime(ByteBuffer msg) {
+        return msg.getDouble(msg.position() + 6);
+    }
+
+    /**
+     * @return number of sample bytes of a frame message
+     */
+    public static int getSampleBytes(ByteBuffer msg) {
+        return msg.remaining() - (FRAME_HEADER_SIZE - 4);
+    }
+
+    /**
+     * Copies the samples of a frame message
+     *
+     * @return false if the size of the samples does not match the destination
+     */
+    public static boolean getSamples(ByteBuffer msg, byte[] dst) {
+        if (getSampleBytes(msg) != dst.length) {
+            return false;
+        }
+
+        int pos = msg.position();
+        msg.position(pos + FRAME_HEADER_SIZE - 4);
+        msg.get(dst);
+        msg.position(pos);
+
+        return true;
+    }
+
+    /**
+     * @param msg subscribe message positioned at its kind
+     * @return requested stream ids, empty for all streams
+     */
+    public static int[] getSubscription(ByteBuffer msg) {
+        int[] ids = new int[msg.get(msg.position() + 1) & 0xFF];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = msg.get(msg.position() + 2 + i) & 0xFF;
+        }
+
+        return ids;
+    }
+
+    public static Event getEvent(ByteBuffer msg) {
+        int pos = msg.position();
+        msg.position(pos + 1);
+        Event ev = EventLogCodec.decode(msg);
+        msg.position(pos);
+
+        return ev;
+    }
+
+    private static void readFully(InputStream in, byte[] dst, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = in.read(dst, off, len);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    private int begin(byte kind) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(kind);
+
+        return start;
+    }
+
+    private void end(int start) {
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+
+    private void ensure(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer tmp = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            tmp.put(buffer);
+            buffer = tmp;
+        }
+    }
+
+    /**
+     * Stream properties announced by the sender
+     */
+    public static class Descriptor {
+        public int streamId;
+        public Cons.Type type;
+        public int dim;
+        public int num;
+        public int bytes;
+        public double sr;
+        public String[] desc;
+        public byte codec;
+
+        /**
+         * @param msg descriptor message positioned at its kind
+         * @throws IOException if the message is not a valid descriptor of a supported version
+         */
+        public static Descriptor decode(ByteBuffer msg) throws IOException {
+            ByteBuffer src = msg.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            src.get();
+
+            if (src.getInt() != MAGIC) {
+                throw new IOException("invalid stream descriptor");
+            }
+            byte version = src.get();
+            if (version > VERSION) {
+                throw new IOException("unsupported protocol version " + version);
+            }
+
+            Descriptor d = new Descriptor();
+            d.streamId = src.get() & 0xFF;
+            d.type = TYPES[src.get()];
+            d.dim = src.getInt();
+            d.num = src.getInt();
+            d.bytes = src.getInt();
+            d.sr = src.getDouble();
+
+            d.desc = new String[src.getShort()];
+            for (int i = 0; i < d.desc.length; i++) {
+                byte[] name = new byte[src.getShort() & 0xFFFF];
+                src.get(name);
+                d.desc[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            // Older senders do not announce a codec
+            d.codec = src.hasRemaining() ? src.get() : CODEC_NONE;
+
+            return d;
+        }
+
+        /**
+         * @return true if frames of the described stream fit into the given stream
+         */
+        public boolean matches(Stream stream) {
+            return type == stream.type && dim == stream.dim && num == stream.num && bytes == stream.bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "stream " + streamId + " (" + type + ", dim " + dim + ", num " + num + ", " + sr + " Hz" + (codec == CODEC_DELTA ? ", delta encoded)" : ")");
+        }
+    }
+
+    /**
+     * Receiver side state of the streams of one connection.
+     * Checks announced streams against the expected ones, detects lost frames by their sequence numbers
+     * and decodes compressed frames. After a lost frame, compressed streams resume with the next keyframe.
+     */
+    public static class StreamDecoder {
+        private final Stream[] streams;
+        private final Descriptor[] descriptors;
+        private final boolean[] valid;
+        private final int[] nextSeq;
+        private final FrameCodec[] codecs;
+        private long lostFrames = 0;
+
+        /**
+         * @param streams expected streams, indexed by stream id
+         */
+        public StreamDecoder(Stream[] streams) {
+            this.streams = streams;
+            descriptors = new Descriptor[streams.length];
+            valid = new boolean[streams.length];
+            nextSeq = new int[streams.length];
+            codecs = new FrameCodec[streams.length];
+        }
+
+        /**
+         * Processes a descriptor or frame message
+         *
+         * @param msg message positioned at its kind
+         * @param dst destination of the samples per stream id
+         * @return id of the stream whose samples were copied, -1 if the message did not contain valid samples
+         */
+        public int decode(ByteBuffer msg, byte[][] dst) {
+            byte kind = getKind(msg);
+
+            if (kind == MSG_DESCRIPTOR) {
+                try {
+                    Descriptor d = Descriptor.decode(msg);
+                    if (d.streamId >= streams.length || streams[d.streamId] == null) {
+                        Log.w("unexpected " + d);
+                        return -1;
+                    }
+
+                    if (descriptors[d.streamId] == null) {
+                        Log.i("receiving " + d);
+                    }
+
+                    valid[d.streamId] = d.matches(streams[d.streamId]);
+                    if (!valid[d.streamId] && (descriptors[d.streamId] == null || descriptors[d.streamId].matches(streams[d.streamId]))) {
+                        Log.e(d + " does not match the configured channel (" + streams[d.streamId].type + ", dim " + streams[d.streamId].dim + ", num " + streams[d.streamId].num + ")");
+                    }
+                    if (valid[d.streamId] && d.codec != CODEC_NONE) {
+                        if (d.codec != CODEC_DELTA || !FrameCodec.supports(d.type)) {
+                            Log.e("unsupported codec " + d.codec + " for " + d);
+                            valid[d.streamId] = false;
+                        } else if (codecs[d.streamId] == null) {
+                            codecs[d.streamId] = new FrameCodec(d.type, d.dim);
+                        }
+                    } else {
+                        codecs[d.streamId] = null;
+                    }
+
+                    descriptors[d.streamId] = d;
+                } catch (IOException e) {
+                    Log.w("invalid descriptor", e);
+                }
+                return -1;
+            }
+
+            if (kind != MSG_FRAME) {
+                return -1;
+            }
+
+            int id = getStreamId(msg);
+            if (id >= valid.length || !valid[id]) {
+                // Frames are only accepted after a matching descriptor was received
+                return -1;
+            }
+
+            int seq = getSequence(msg);
+            if (seq != nextSeq[id] && nextSeq[id] != 0) {
+                int gap = seq - nextSeq[id];
+                if (gap > 0) {
+                    lostFrames += gap;
+                }
+
+                if (codecs[id] != null) {
+                    codecs[id].reset();
+                }
+            }
+            nextSeq[id] = seq + 1;
+
+            if (codecs[id] != null) {
+                ByteBuffer src = msg.duplicate();
+                src.position(msg.position() + FRAME_HEADER_SIZE - 4);
+
+                try {
+                    return codecs[id].decode(src, dst[id], streams[id].num) ? id : -1;
+                } catch (BufferUnderflowException e) {
+                    Log.w("invalid frame of stream " + id);
+                    codecs[id].reset();
+                    return -1;
+                }
+            }
+
+            return getSamples(msg, dst[id]) ? id : -1;
+        }
+
+        public Descriptor getDescriptor(int streamId) {
+            return descriptors[streamId];
+        }
+
+        public long getLostFrames() {
+            return lostFrames;
+        }
+    }
+}
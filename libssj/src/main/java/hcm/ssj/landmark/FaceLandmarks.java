@@ -44,10 +44,11 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
-import hcm.ssj.camera.CameraUtil;
+import hcm.ssj.camera.VisionPreprocessor;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
@@ -57,13 +58,14 @@ import hcm.ssj.core.Transformer;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
-import hcm.ssj.core.stream.ImageStream;
 import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileCons;
-import hcm.ssj.landmark.utils.LandmarkSmoothingCalculator;
+import hcm.ssj.landmark.utils.FaceTracker;
 import hcm.ssj.ml.TFLiteWrapper;
 import hcm.ssj.ssd.CalculatorOptions;
 import hcm.ssj.ssd.Detection;
+import hcm.ssj.ssd.DetectionBuffer;
+import hcm.ssj.ssd.FilterMethod;
 import hcm.ssj.ssd.Keypoint;
 import hcm.ssj.ssd.Landmark;
 import hcm.ssj.ssd.SingleShotMultiBoxDetector;
@@ -77,11 +79,12 @@ public class FaceLandmarks extends Transformer {
     private static final int LEGACY_MODEL_INPUT_SIZE = 224;
     private static final int LEGACY_LANDMARK_NUM = 68;
     private static final int LEGACY_OUTPUT_DIM = LEGACY_LANDMARK_NUM * 2;  // x, y for each landmark
+    private static final int LEGACY_LEFT_EYE_INDEX = 36;
+    private static final int LEGACY_RIGHT_EYE_INDEX = 45;
 
     private static final String DETECTION_MODEL_NAME = "face_detection_front.tflite";
     private static final String DETECTION_MODEL_PATH = FileCons.MODELS_DIR + File.separator + DETECTION_MODEL_NAME;
     private static final int DETECTION_MODEL_INPUT_SIZE = 128;
-    private static final int DETECTION_MODEL_INPUT_CHANNELS = 3;
 
     private static final String LANDMARK_MODEL_NAME = "face_landmark.tflite";
     private static final String LANDMARK_MODEL_PATH = FileCons.MODELS_DIR + File.separator + LANDMARK_MODEL_NAME;
@@ -91,48 +94,47 @@ public class FaceLandmarks extends Transformer {
     private static final int LANDMARK_NUM = 468;
     private static final int LANDMARK_DIM = LANDMARK_NUM * 3; // x, y, z for each landmark
     private static final int LANDMARK_OUTPUT_DIM = LANDMARK_NUM * 2; // x, y for each landmark
+    private static final int LEFT_EYE_INDEX = 33;
+    private static final int RIGHT_EYE_INDEX = 263;
     private static final double SCALE_FACTOR = 1.5;
     public final Options options = new Options();
     // Helper class to postprocess classifier results
     private SingleShotMultiBoxDetector ssd;
     private TFLiteWrapper detectionWrapper;
     private TFLiteWrapper landmarkWrapper;
-    // ByteBuffer to hold image data, to be feed into Tensorflow Lite as inputs.
-    private ByteBuffer detectionImgData = null;
+    // ByteBuffer to hold image data of all faces, to be feed into Tensorflow Lite as inputs.
     private ByteBuffer landmarkImgData = null;
-    private int[] originalInputArray;
-    private int[] detectionModelInputArray;
     private int[] landmarkModelInputArray;
-    // Create bitmap for the original image
-    private Bitmap inputBitmap;
+    // Rotation, conversion and detection input shared with other vision components on the same stream
+    private VisionPreprocessor preprocessor;
+    private VisionPreprocessor.Frame frame;
     // Rotated bitmap for original image
     private Bitmap rotatedBitmap;
-    private Bitmap detectionModelInputBitmap;
     private Bitmap landmarkModelInputBitmap;
     private Bitmap faceBitmap;
-    private Matrix rotationMatrix;
     private int rotatedWidth;
     private int rotatedHeight;
-    private Detection currentDetection;
     private double targetAngleRad;
-    private int width;
-    private int height;
     private File detectionModelFile;
     private File landmarkModelFile;
-    private List<Landmark> landmarkList;
-    private List<Landmark> smoothedLandmarkList;
-    private LandmarkSmoothingCalculator landmarkSmoother;
-    private double rotationRad;
-    private float faceCenterX;
-    private float faceCenterY;
-    private int boxSize;
-    private boolean faceDetected;
-    private boolean landmarksDetected;
-    private Keypoint leftKeypoint;
-    private Keypoint rightKeypoint;
     private FaceDet legacyLandmarkDetector;
     private List<VisionDetRet> legacyResults;
     private int outputDim;
+    // Fixed outputs of the detection and landmark models, one landmark result per face
+    private float[][][] boxesResult;
+    private float[][][] scoresResult;
+    private float[][][][] landmarkResult;
+    private float[][][][] faceFlagResult;
+    private HashMap<Integer, Object> detectionOutputs;
+    // Landmark inputs and outputs for a batch of n faces at index n - 1 and for each single face
+    private Object[][] batchInputs;
+    private Object[][] faceInputs;
+    private HashMap<Integer, Object>[] batchOutputs;
+    private HashMap<Integer, Object>[] faceOutputs;
+    private boolean batchInference;
+    // Faces of the current frame, the faces with landmarks are at the front
+    private Face[] faces;
+    private FaceTracker tracker;
 
     public FaceLandmarks() {
         _name = this.getClass().getSimpleName();
@@ -184,21 +186,27 @@ public class FaceLandmarks extends Transformer {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        // Get image dimensions
-        width = ((ImageStream) stream_in[0]).width;
-        height = ((ImageStream) stream_in[0]).height;
+        // Rotated frames and detection inputs are shared with other components on the same stream
+        try {
+            preprocessor = VisionPreprocessor.get(stream_in[0], options.rotation.get());
+        } catch (IllegalArgumentException e) {
+            throw new SSJFatalException("Unsupported rotation " + options.rotation.get(), e);
+        }
+
+        rotatedWidth = preprocessor.getWidth();
+        rotatedHeight = preprocessor.getHeight();
 
-        // Create bitmap for the original image
-        inputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        int maxFaces = Math.max(1, options.maxFaces.get());
 
         if (options.useLegacyModel.get()) {
             legacyLandmarkDetector = new FaceDet(LEGACY_MODEL_PATH);
         }
 
         // Create TFLite Wrappers
-        detectionWrapper = new TFLiteWrapper(options.useGPU.get());
-        landmarkWrapper = new TFLiteWrapper(options.useGPU.get());
+        detectionWrapper = new TFLiteWrapper(options.useGPU.get(), options.cache.get());
+        landmarkWrapper = new TFLiteWrapper(options.useGPU.get(), options.cache.get());
 
         // Get TFLite interpreter options
         Interpreter.Options interpreterOptions = detectionWrapper.getInterpreterOptions();
@@ -207,99 +215,165 @@ public class FaceLandmarks extends Transformer {
         detectionWrapper.loadModel(detectionModelFile, interpreterOptions);
         landmarkWrapper.loadModel(landmarkModelFile, interpreterOptions);
 
-        // Initialize model input buffer: size = width * height * channels * bytes per pixel (e.g., 4 for float)
-        detectionImgData = ByteBuffer.allocateDirect(DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_CHANNELS * Util.sizeOf(Cons.Type.FLOAT));
-        detectionImgData.order(ByteOrder.nativeOrder());
+        // Initialize model input buffer for all faces: size = faces * width * height * channels * bytes per pixel (e.g., 4 for float)
+        int faceBytes = LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_CHANNELS * Util.sizeOf(Cons.Type.FLOAT);
 
-        landmarkImgData = ByteBuffer.allocateDirect(LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_CHANNELS * Util.sizeOf(Cons.Type.FLOAT));
+        landmarkImgData = ByteBuffer.allocateDirect(maxFaces * faceBytes);
         landmarkImgData.order(ByteOrder.nativeOrder());
 
-        // Initialize model input and output integer arrays
-        detectionModelInputArray = new int[DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_SIZE];
-        landmarkModelInputArray = new int[LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE];
+        // Initialize model outputs
+        boxesResult = new float[1][896][16];
+        scoresResult = new float[1][896][1];
+        landmarkResult = new float[maxFaces][1][1][LANDMARK_DIM];
+        faceFlagResult = new float[maxFaces][1][1][1];
+
+        detectionOutputs = new HashMap<>();
+        detectionOutputs.put(0, boxesResult);
+        detectionOutputs.put(1, scoresResult);
+
+        // Batches and single faces are views on the same input buffer and output arrays
+        batchInputs = new Object[maxFaces][];
+        faceInputs = new Object[maxFaces][];
+        batchOutputs = new HashMap[maxFaces];
+        faceOutputs = new HashMap[maxFaces];
+
+        for (int i = 0; i < maxFaces; i++) {
+            batchInputs[i] = new Object[]{slice(landmarkImgData, 0, (i + 1) * faceBytes)};
+            faceInputs[i] = new Object[]{slice(landmarkImgData, i * faceBytes, faceBytes)};
+
+            batchOutputs[i] = new HashMap<>();
+            batchOutputs[i].put(0, Arrays.copyOf(landmarkResult, i + 1));
+            batchOutputs[i].put(1, Arrays.copyOf(faceFlagResult, i + 1));
+
+            faceOutputs[i] = new HashMap<>();
+            faceOutputs[i].put(0, new float[][][][]{landmarkResult[i]});
+            faceOutputs[i].put(1, new float[][][][]{faceFlagResult[i]});
+        }
+
+        batchInference = true;
+
+        faces = new Face[maxFaces];
+
+        for (int i = 0; i < maxFaces; i++) {
+            faces[i] = new Face();
+        }
+
+        // dlib does not tell whether the face is still inside the tracked region, so a lost face would never be detected again
+        boolean useTracking = options.useTracking.get();
+
+        if (useTracking && options.useLegacyModel.get()) {
+            Log.w("Tracking is not supported by the legacy model, detecting faces in every frame");
+            useTracking = false;
+        }
+
+        tracker = new FaceTracker(new FaceTracker.Callback() {
+            @Override
+            public int detectFaces() {
+                // Perform face detection on the rotated input resized and normalized to [-1, 1]
+                DetectionBuffer detections = detectFaceRegion(frame.getModelInput(DETECTION_MODEL_INPUT_SIZE, 127.5f, 127.5f));
+                int n = Math.min(detections.size(), faces.length);
+
+                for (int i = 0; i < n; i++) {
+                    detections.copyTo(i, faces[i].region);
+                }
 
-        rotationMatrix = new Matrix();
-        rotationMatrix.postRotate(options.rotation.get());
+                return n;
+            }
+
+            @Override
+            public int detectLandmarks(int n) {
+                return detectFaceLandmarks(n);
+            }
+
+            @Override
+            public void updateRegions(int n) {
+                for (int i = 0; i < n; i++) {
+                    updateTrackingRegion(faces[i]);
+                }
+            }
+        }, useTracking, options.maxTrackingFrames.get());
+
+        // Initialize model input integer array
+        landmarkModelInputArray = new int[LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE];
 
         // Create SSD helper class
         CalculatorOptions calculatorOptions = new CalculatorOptions();
         calculatorOptions.minScoreThresh = 0.5;
 
+        if (maxFaces > 1) {
+            calculatorOptions.filterMethod = FilterMethod.NON_MAX_SUPPRESSION;
+        }
+
         ssd = new SingleShotMultiBoxDetector(calculatorOptions);
 
         targetAngleRad = degreesToRadians(0);
-
-        landmarkList = new ArrayList<>();
-        smoothedLandmarkList = new ArrayList<>();
-
-        rotatedWidth = -1;
-        rotatedHeight = -1;
     }
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        // Convert byte array to integer array
-        originalInputArray = CameraUtil.decodeBytes(stream_in[0].ptrB(), width, height);
-
-        // Create bitmap from byte array
-        inputBitmap.setPixels(originalInputArray, 0, width, 0, 0, width, height);
+        // Rotated input, converted only once per frame for all components on this stream
+        frame = preprocessor.acquire(stream_in[0]);
+        rotatedBitmap = frame.getBitmap();
 
-        // Rotate original input
-        rotatedBitmap = Bitmap.createBitmap(inputBitmap, 0, 0, inputBitmap.getWidth(), inputBitmap.getHeight(), rotationMatrix, true);
+        // Face detection if tracking is disabled, due or lost, otherwise the regions of the previous landmarks are used
+        int faceNum = tracker.process();
 
-        // Cache width and height of rotated input image
-        if (rotatedWidth < 0) {
-            rotatedWidth = rotatedBitmap.getWidth();
-            rotatedHeight = rotatedBitmap.getHeight();
+        // Output stream
+        float[] out = stream_out.ptrF();
+        int outputIndex = 0;
 
-            landmarkSmoother = new LandmarkSmoothingCalculator(5, 10.0f, LANDMARK_NUM, rotatedWidth, rotatedHeight);
+        for (int i = 0; i < faceNum; i++) {
+            for (Landmark landmark : faces[i].landmarks) {
+                out[outputIndex++] = landmark.x / rotatedWidth;
+                out[outputIndex++] = landmark.y / rotatedHeight;
+                // out[outputIndex++] = landmark.visibility;
+            }
         }
 
-        // Reset variables
-        faceDetected = false;
-        landmarksDetected = false;
-
-        // Resize rotated original input to model input size
-        detectionModelInputBitmap = Bitmap.createScaledBitmap(rotatedBitmap, DETECTION_MODEL_INPUT_SIZE, DETECTION_MODEL_INPUT_SIZE, true);
-
-        // Convert and normalize bitmap to model input
-        detectionWrapper.convertBitmapToInputArray(detectionModelInputBitmap, detectionModelInputArray, detectionImgData);
+        // Send zeroes for faces which have not been recognized
+        Util.fillZeroes(out, outputIndex, (faces.length - faceNum) * outputDim);
 
-        // Perform face detection
-        List<Detection> detectionList = detectFaceRegion(detectionImgData);
+        // Hand the frame back to the shared pool
+        rotatedBitmap = null;
+        preprocessor.release(frame);
+        frame = null;
+    }
 
-        // Recycle landmark input image
-        detectionModelInputBitmap.recycle();
+    private DetectionBuffer detectFaceRegion(ByteBuffer modelInputBuffer) {
+        // Run inference
+        detectionWrapper.runMultiInputOutput(new Object[]{modelInputBuffer}, detectionOutputs);
 
-        // Set detection result
-        faceDetected = detectionList.size() > 0;
+        // Calculate detections from model results
+        return ssd.detect(boxesResult, scoresResult);
+    }
 
-        // Face detected
-        if (faceDetected) {
-            currentDetection = detectionList.get(0);
+    /**
+     * Detects the landmarks of the first n faces, each face region contains two key points: left eye and right eye.
+     * Faces with landmarks are moved to the front.
+     *
+     * @return number of faces with landmarks
+     */
+    private int detectFaceLandmarks(int n) {
+        int detected = 0;
 
-            // Face detection contains two key points: left eye and right eye
-            leftKeypoint = currentDetection.keypoints.get(0);
-            rightKeypoint = currentDetection.keypoints.get(1);
+        for (int i = 0; i < n; i++) {
+            Face face = faces[i];
 
-            // These keypoints will be used for rotation and scaling of the input image
-            faceBitmap = rotateAndScaleImage(rotatedBitmap, currentDetection, leftKeypoint, rightKeypoint);
+            // The eye keypoints are used for rotation and scaling of the input image
+            faceBitmap = rotateAndScaleImage(rotatedBitmap, face);
 
             if (options.useLegacyModel.get()) {
                 // Resize rotated and scaled input to model input size
                 landmarkModelInputBitmap = Bitmap.createScaledBitmap(faceBitmap, LEGACY_MODEL_INPUT_SIZE, LEGACY_MODEL_INPUT_SIZE, true);
 
                 // Perform legacy landmark detection
-                landmarksDetected = detectLegacyLandmarks(landmarkModelInputBitmap, landmarkList);
+                face.detected = detectLegacyLandmarks(landmarkModelInputBitmap, face);
             } else {
                 // Resize rotated and scaled input to model input size
                 landmarkModelInputBitmap = Bitmap.createScaledBitmap(faceBitmap, LANDMARK_MODEL_INPUT_SIZE, LANDMARK_MODEL_INPUT_SIZE, true);
 
-                // Convert and normalize bitmap to model input
-                landmarkWrapper.convertBitmapToInputArray(landmarkModelInputBitmap, landmarkModelInputArray, landmarkImgData, 0, 255.0f);
-
-                // Perform landmark detection
-                landmarksDetected = detectLandmarks(landmarkImgData, landmarkList);
+                // Convert and normalize bitmap to the model input of this face
+                landmarkWrapper.convertBitmapToInputArray(landmarkModelInputBitmap, landmarkModelInputArray, (ByteBuffer) faceInputs[i][0], 0, 255.0f);
             }
 
             // Recycle landmark input image
@@ -307,60 +381,98 @@ public class FaceLandmarks extends Transformer {
             faceBitmap.recycle();
         }
 
-        // Output stream
-        float[] out = stream_out.ptrF();
+        if (!options.useLegacyModel.get()) {
+            // Perform landmark detection for all faces at once
+            runLandmarkModel(n);
 
-        if (landmarksDetected) {
-            // Smooth landmarks
-            // landmarkSmoother.process(landmarkList, smoothedLandmarkList);
+            for (int i = 0; i < n; i++) {
+                faces[i].detected = detectLandmarks(i, faces[i]);
+            }
+        }
 
-            int outputIndex = 0;
+        for (int i = 0; i < n; i++) {
+            if (faces[i].detected) {
+                Face face = faces[detected];
+                faces[detected++] = faces[i];
+                faces[i] = face;
+            }
+        }
 
-            for (Landmark landmark : landmarkList) {
-                out[outputIndex++] = landmark.x / rotatedWidth;
-                out[outputIndex++] = landmark.y / rotatedHeight;
-                // out[outputIndex++] = landmark.visibility;
+        return detected;
+    }
+
+    /**
+     * Runs the landmark model on the inputs of the first n faces, as one batch if the model supports it.
+     */
+    private void runLandmarkModel(int n) {
+        if (n > 1 && batchInference) {
+            if (landmarkWrapper.resizeBatch(n)) {
+                landmarkWrapper.runMultiInputOutput(batchInputs[n - 1], batchOutputs[n - 1]);
+                return;
             }
-        } else {
-            // Send zeroes if no face has been recognized
-            Util.fillZeroes(out, 0, outputDim);
+
+            Log.w("Landmark model does not support batches, running inference for each face");
+            batchInference = false;
         }
 
-        // Free bitmap memory
-        rotatedBitmap.recycle();
+        landmarkWrapper.resizeBatch(1);
+
+        for (int i = 0; i < n; i++) {
+            landmarkWrapper.runMultiInputOutput(faceInputs[i], faceOutputs[i]);
+        }
     }
 
-    private List<Detection> detectFaceRegion(ByteBuffer modelInputBuffer) {
-        // Fixed output of blazeface model
-        float[][][] boxesResult = new float[1][896][16];
-        float[][][] scoresResult = new float[1][896][1];
+    /**
+     * Derives the face region of the next frame from the bounding box and the outer eye corners of the current landmarks.
+     */
+    private void updateTrackingRegion(Face face) {
+        float xMin = Float.MAX_VALUE;
+        float yMin = Float.MAX_VALUE;
+        float xMax = -Float.MAX_VALUE;
+        float yMax = -Float.MAX_VALUE;
+
+        for (Landmark landmark : face.landmarks) {
+            xMin = Math.min(xMin, landmark.x);
+            yMin = Math.min(yMin, landmark.y);
+            xMax = Math.max(xMax, landmark.x);
+            yMax = Math.max(yMax, landmark.y);
+        }
 
-        HashMap<Integer, Object> detectionOutputs = new HashMap<>();
-        detectionOutputs.put(0, boxesResult);
-        detectionOutputs.put(1, scoresResult);
+        Detection region = face.region;
 
-        // Run inference
-        detectionWrapper.runMultiInputOutput(new Object[]{modelInputBuffer}, detectionOutputs);
+        region.xMin = xMin / rotatedWidth;
+        region.yMin = yMin / rotatedHeight;
+        region.width = (xMax - xMin) / rotatedWidth;
+        region.height = (yMax - yMin) / rotatedHeight;
 
-        // Calculate detections from model results
-        return ssd.process(boxesResult, scoresResult);
+        Landmark leftEye = face.landmarks.get(options.useLegacyModel.get() ? LEGACY_LEFT_EYE_INDEX : LEFT_EYE_INDEX);
+        Landmark rightEye = face.landmarks.get(options.useLegacyModel.get() ? LEGACY_RIGHT_EYE_INDEX : RIGHT_EYE_INDEX);
+
+        region.keypoints.get(0).x = leftEye.x / rotatedWidth;
+        region.keypoints.get(0).y = leftEye.y / rotatedHeight;
+        region.keypoints.get(1).x = rightEye.x / rotatedWidth;
+        region.keypoints.get(1).y = rightEye.y / rotatedHeight;
     }
 
-    private Bitmap rotateAndScaleImage(Bitmap rotatedBitmap, Detection currentDetection, Keypoint leftKeypoint, Keypoint rightKeypoint) {
+    private Bitmap rotateAndScaleImage(Bitmap rotatedBitmap, Face face) {
+        Detection currentDetection = face.region;
+        Keypoint leftKeypoint = currentDetection.keypoints.get(0);
+        Keypoint rightKeypoint = currentDetection.keypoints.get(1);
+
         // Calculate rotation from keypoints
-        rotationRad = normalizeRadians(targetAngleRad - Math.atan2(-(rightKeypoint.y - leftKeypoint.y), rightKeypoint.x - leftKeypoint.x));
+        face.rotationRad = normalizeRadians(targetAngleRad - Math.atan2(-(rightKeypoint.y - leftKeypoint.y), rightKeypoint.x - leftKeypoint.x));
 
-        faceCenterX = currentDetection.xMin + currentDetection.width / 2.0f;
-        faceCenterY = currentDetection.yMin + currentDetection.height / 2.0f;
+        face.centerX = currentDetection.xMin + currentDetection.width / 2.0f;
+        face.centerY = currentDetection.yMin + currentDetection.height / 2.0f;
 
-        double xCenter = faceCenterX * rotatedWidth;
-        double yCenter = faceCenterY * rotatedHeight;
+        double xCenter = face.centerX * rotatedWidth;
+        double yCenter = face.centerY * rotatedHeight;
 
         double boxRadius = Math.max(currentDetection.width * rotatedWidth, currentDetection.height * rotatedHeight) / 2.0f;
 
-        boxSize = (int) (2 * boxRadius);
+        face.boxSize = (int) (2 * boxRadius);
 
-        int boxSizeScaled = (int) (SCALE_FACTOR * boxSize);
+        int boxSizeScaled = (int) (SCALE_FACTOR * face.boxSize);
 
         Bitmap faceBitmap = Bitmap.createBitmap(boxSizeScaled, boxSizeScaled, Bitmap.Config.ARGB_8888);
 
@@ -375,7 +487,7 @@ public class FaceLandmarks extends Transformer {
         // Set center point to (0,0) then rotate and translate back
         Matrix matrix = new Matrix();
         matrix.postTranslate((float) -xCenter, (float) -yCenter);
-        matrix.postRotate((float) -radiansToDegrees(rotationRad));
+        matrix.postRotate((float) -radiansToDegrees(face.rotationRad));
         matrix.postTranslate((float) (boxRadius * SCALE_FACTOR), (float) (boxRadius * SCALE_FACTOR));
 
         canvas.drawBitmap(rotatedBitmap, matrix, null);
@@ -383,41 +495,31 @@ public class FaceLandmarks extends Transformer {
         return faceBitmap;
     }
 
-    private boolean detectLandmarks(ByteBuffer landmarkImgData, List<Landmark> landmarkList) {
+    private boolean detectLandmarks(int index, Face face) {
         boolean detected = false;
 
-        // Fixed output of landmark detection model
-        float[][][][] landmarkResult = new float[1][1][1][LANDMARK_DIM];
-        float[][][][] faceFlagResult = new float[1][1][1][1];
-
-        HashMap<Integer, Object> landmarkOutputs = new HashMap<>();
-        landmarkOutputs.put(0, landmarkResult);
-        landmarkOutputs.put(1, faceFlagResult);
-
-        // Run inference
-        landmarkWrapper.runMultiInputOutput(new Object[]{landmarkImgData}, landmarkOutputs);
-
         // Set confidence that a face is present
-        float faceConfidence = faceFlagResult[0][0][0][0];
+        float faceConfidence = faceFlagResult[index][0][0][0];
 
         if (faceConfidence >= options.faceConfidenceThreshold.get()) {
             detected = true;
 
             // Convert landmarks
+            float[] result = landmarkResult[index][0][0];
             float landmarkX;
             float landmarkY;
             float landmarkZ;
 
-            float rotationSin = (float) Math.sin(rotationRad);
-            float rotationCos = (float) Math.cos(rotationRad);
+            float rotationSin = (float) Math.sin(face.rotationRad);
+            float rotationCos = (float) Math.cos(face.rotationRad);
 
-            landmarkList.clear();
+            face.landmarks.clear();
 
             // Based on: https://github.com/google/mediapipe/blob/master/mediapipe/calculators/util/landmark_projection_calculator.cc
-            for (int i = 0; i < landmarkResult[0][0][0].length; i += 3) {
+            for (int i = 0; i < result.length; i += 3) {
                 // Create relative landmark
-                landmarkX = landmarkResult[0][0][0][i] / LANDMARK_MODEL_INPUT_SIZE;
-                landmarkY = landmarkResult[0][0][0][i + 1] / LANDMARK_MODEL_INPUT_SIZE;
+                landmarkX = result[i] / LANDMARK_MODEL_INPUT_SIZE;
+                landmarkY = result[i + 1] / LANDMARK_MODEL_INPUT_SIZE;
 
                 // Subtract pivot point
                 landmarkX = landmarkX - 0.5f;
@@ -430,20 +532,20 @@ public class FaceLandmarks extends Transformer {
                 newX *= SCALE_FACTOR;
                 newY *= SCALE_FACTOR;
 
-                landmarkX = newX * boxSize + faceCenterX * rotatedWidth;
-                landmarkY = newY * boxSize + faceCenterY * rotatedHeight;
+                landmarkX = newX * face.boxSize + face.centerX * rotatedWidth;
+                landmarkY = newY * face.boxSize + face.centerY * rotatedHeight;
 
                 // Ignore landmark z for now
-                landmarkZ = landmarkResult[0][0][0][i + 2] / LANDMARK_MODEL_INPUT_SIZE * boxSize;
+                landmarkZ = result[i + 2] / LANDMARK_MODEL_INPUT_SIZE * face.boxSize;
 
-                landmarkList.add(new Landmark(landmarkX, landmarkY, landmarkZ));
+                face.landmarks.add(new Landmark(landmarkX, landmarkY, landmarkZ));
             }
         }
 
         return detected;
     }
 
-    private boolean detectLegacyLandmarks(Bitmap landmarkModelInputBitmap, List<Landmark> landmarkList) {
+    private boolean detectLegacyLandmarks(Bitmap landmarkModelInputBitmap, Face face) {
         boolean detected = false;
 
         // Call landmark detection with jni
@@ -457,10 +559,10 @@ public class FaceLandmarks extends Transformer {
             float landmarkX;
             float landmarkY;
 
-            float rotationSin = (float) Math.sin(rotationRad);
-            float rotationCos = (float) Math.cos(rotationRad);
+            float rotationSin = (float) Math.sin(face.rotationRad);
+            float rotationCos = (float) Math.cos(face.rotationRad);
 
-            landmarkList.clear();
+            face.landmarks.clear();
 
             List<Point> landmarks = legacyResults.get(0).getFaceLandmarks();
 
@@ -480,16 +582,27 @@ public class FaceLandmarks extends Transformer {
                 newX *= SCALE_FACTOR;
                 newY *= SCALE_FACTOR;
 
-                landmarkX = newX * boxSize + faceCenterX * rotatedWidth;
-                landmarkY = newY * boxSize + faceCenterY * rotatedHeight;
+                landmarkX = newX * face.boxSize + face.centerX * rotatedWidth;
+                landmarkY = newY * face.boxSize + face.centerY * rotatedHeight;
 
-                landmarkList.add(new Landmark(landmarkX, landmarkY));
+                face.landmarks.add(new Landmark(landmarkX, landmarkY));
             }
         }
 
         return detected;
     }
 
+    /**
+     * Creates a view on a part of a direct buffer, e.g. the model input of a single face.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
     public double degreesToRadians(double degrees) {
         return degrees * Math.PI / 180.0;
     }
@@ -516,11 +629,14 @@ public class FaceLandmarks extends Transformer {
         if (legacyLandmarkDetector != null) {
             legacyLandmarkDetector.release();
         }
+
+        VisionPreprocessor.release(preprocessor);
+        preprocessor = null;
     }
 
     @Override
     public int getSampleDimension(Stream[] stream_in) {
-        return outputDim;
+        return outputDim * Math.max(1, options.maxFaces.get());
     }
 
     @Override
@@ -551,11 +667,34 @@ public class FaceLandmarks extends Transformer {
         stream_out.desc[0] = "Landmark Y";
     }
 
+    /**
+     * Region, crop parameters and landmarks of one face.
+     */
+    private static class Face {
+        final Detection region = new Detection();
+        final List<Landmark> landmarks = new ArrayList<>();
+        double rotationRad;
+        float centerX;
+        float centerY;
+        int boxSize;
+        boolean detected;
+
+        Face() {
+            // Tracking regions contain the two eye keypoints
+            region.keypoints.add(new Keypoint());
+            region.keypoints.add(new Keypoint());
+        }
+    }
+
     public class Options extends OptionList {
         public final Option<Integer> rotation = new Option<>("rotation", 270, Integer.class, "rotation of the input image, use 270 for front camera and 90 for back camera");
         public final Option<Float> faceConfidenceThreshold = new Option<>("faceConfidenceThreshold", 0.5f, Float.class, "threshold for the face confidence score to determine whether a face is present");
         public final Option<Boolean> useGPU = new Option<>("useGPU", true, Boolean.class, "if true tries to use GPU for better performance");
+        public final Option<Boolean> cache = new Option<>("cache", true, Boolean.class, "keep memory-mapped model files in memory to speed up subsequent pipeline starts");
         public final Option<Boolean> useLegacyModel = new Option<>("useLegacyModel", false, Boolean.class, "if true uses old landmark detection model");
+        public final Option<Boolean> useTracking = new Option<>("useTracking", true, Boolean.class, "if true the face region of the previous landmarks is reused and face detection only runs if the face is lost (not supported by the legacy model)");
+        public final Option<Integer> maxFaces = new Option<>("maxFaces", 1, Integer.class, "maximum number of faces, landmarks of all faces are detected in one batched inference call if the model supports it");
+        public final Option<Integer> maxTrackingFrames = new Option<>("maxTrackingFrames", 30, Integer.class, "number of frames after which face detection runs again while tracking (0 = only if the face is lost)");
 
         private Options() {
             addOptions();
@@ -43,7 +43,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import hcm.ssj.camera.CameraUtil;
+import hcm.ssj.camera.VisionPreprocessor;
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.Pipeline;
@@ -53,13 +53,13 @@ import hcm.ssj.core.Transformer;
 import hcm.ssj.core.Util;
 import hcm.ssj.core.option.Option;
 import hcm.ssj.core.option.OptionList;
-import hcm.ssj.core.stream.ImageStream;
 import hcm.ssj.core.stream.Stream;
 import hcm.ssj.file.FileCons;
 import hcm.ssj.landmark.utils.LandmarkSmoothingCalculator;
 import hcm.ssj.ml.TFLiteWrapper;
 import hcm.ssj.ssd.CalculatorOptions;
 import hcm.ssj.ssd.Detection;
+import hcm.ssj.ssd.DetectionBuffer;
 import hcm.ssj.ssd.Keypoint;
 import hcm.ssj.ssd.Landmark;
 import hcm.ssj.ssd.SingleShotMultiBoxDetector;
@@ -77,7 +77,6 @@ public class PoseLandmarks extends Transformer {
     private static final String DETECTION_MODEL_NAME = "pose_detection.tflite";
     private static final String DETECTION_MODEL_PATH = FileCons.MODELS_DIR + File.separator + DETECTION_MODEL_NAME;
     private static final int DETECTION_MODEL_INPUT_SIZE = 128;
-    private static final int DETECTION_MODEL_INPUT_CHANNELS = 3;
     private static final String LANDMARK_FULL_MODEL_NAME = "pose_landmark_full_body.tflite";
     private static final String LANDMARK_UPPER_MODEL_NAME = "pose_landmark_upper_body.tflite";
     private static final int LANDMARK_MODEL_INPUT_SIZE = 256;
@@ -88,25 +87,18 @@ public class PoseLandmarks extends Transformer {
     private TFLiteWrapper detectionWrapper;
     private TFLiteWrapper landmarkWrapper;
     // ByteBuffer to hold image data, to be feed into Tensorflow Lite as inputs.
-    private ByteBuffer detectionImgData = null;
     private ByteBuffer landmarkImgData = null;
-    private int[] originalInputArray;
-    private int[] detectionModelInputArray;
     private int[] landmarkModelInputArray;
-    // Create bitmap for the original image
-    private Bitmap inputBitmap;
+    // Rotation, conversion and detection input shared with other vision components on the same stream
+    private VisionPreprocessor preprocessor;
     // Rotated bitmap for original image
     private Bitmap rotatedBitmap;
-    private Bitmap detectionModelInputBitmap;
     private Bitmap landmarkModelInputBitmap;
     private Bitmap poseBitmap;
-    private Matrix rotationMatrix;
     private int rotatedWidth;
     private int rotatedHeight;
     private Detection currentDetection;
     private double targetAngleRad;
-    private int width;
-    private int height;
     private File detectionModelFile;
     private File landmarkModelFile;
     private List<Landmark> landmarkList;
@@ -123,6 +115,16 @@ public class PoseLandmarks extends Transformer {
     private Keypoint centerKeypoint;
     private Keypoint scaleKeypoint;
     private int outputDim;
+    // Fixed outputs of the detection and landmark models
+    private float[][][] boxesResult;
+    private float[][][] scoresResult;
+    private float[][] landmarkResult;
+    private float[][] poseFlagResult;
+    private float[][][][] segmentationResult;
+    private Object[] landmarkInputs;
+    private HashMap<Integer, Object> detectionOutputs;
+    private HashMap<Integer, Object> landmarkOutputs;
+
     public PoseLandmarks() {
         _name = this.getClass().getSimpleName();
     }
@@ -169,13 +171,19 @@ public class PoseLandmarks extends Transformer {
 
     @Override
     public void enter(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        // Get image dimensions
-        width = ((ImageStream) stream_in[0]).width;
-        height = ((ImageStream) stream_in[0]).height;
+        // Rotated frames and detection inputs are shared with other components on the same stream
+        try {
+            preprocessor = VisionPreprocessor.get(stream_in[0], options.rotation.get());
+        } catch (IllegalArgumentException e) {
+            throw new SSJFatalException("Unsupported rotation " + options.rotation.get(), e);
+        }
+
+        rotatedWidth = preprocessor.getWidth();
+        rotatedHeight = preprocessor.getHeight();
 
         // Create TFLite Wrappers
-        detectionWrapper = new TFLiteWrapper(options.useGPU.get());
-        landmarkWrapper = new TFLiteWrapper(options.useGPU.get());
+        detectionWrapper = new TFLiteWrapper(options.useGPU.get(), options.cache.get());
+        landmarkWrapper = new TFLiteWrapper(options.useGPU.get(), options.cache.get());
 
         // Get TFLite interpreter options
         Interpreter.Options interpreterOptions = detectionWrapper.getInterpreterOptions();
@@ -185,20 +193,29 @@ public class PoseLandmarks extends Transformer {
         landmarkWrapper.loadModel(landmarkModelFile, interpreterOptions);
 
         // Initialize model input buffer: size = width * height * channels * bytes per pixel (e.g., 4 for float)
-        detectionImgData = ByteBuffer.allocateDirect(DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_CHANNELS * Util.sizeOf(Cons.Type.FLOAT));
-        detectionImgData.order(ByteOrder.nativeOrder());
-
         landmarkImgData = ByteBuffer.allocateDirect(LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_CHANNELS * Util.sizeOf(Cons.Type.FLOAT));
         landmarkImgData.order(ByteOrder.nativeOrder());
 
-        // Initialize model input and output integer arrays
-        detectionModelInputArray = new int[DETECTION_MODEL_INPUT_SIZE * DETECTION_MODEL_INPUT_SIZE];
+        // Initialize model input integer array
         landmarkModelInputArray = new int[LANDMARK_MODEL_INPUT_SIZE * LANDMARK_MODEL_INPUT_SIZE];
 
-        // Create bitmap for the original image
-        inputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        rotationMatrix = new Matrix();
-        rotationMatrix.postRotate(options.rotation.get());
+        // Initialize model outputs
+        boxesResult = new float[1][896][12];
+        scoresResult = new float[1][896][1];
+        landmarkResult = new float[1][options.onlyUpperBody.get() ? 124 : 156];
+        poseFlagResult = new float[1][1];
+        segmentationResult = new float[1][128][128][1];
+
+        landmarkInputs = new Object[]{landmarkImgData};
+
+        detectionOutputs = new HashMap<>();
+        detectionOutputs.put(0, boxesResult);
+        detectionOutputs.put(1, scoresResult);
+
+        landmarkOutputs = new HashMap<>();
+        landmarkOutputs.put(0, landmarkResult);
+        landmarkOutputs.put(1, poseFlagResult);
+        landmarkOutputs.put(2, segmentationResult);
 
         // Create SSD helper class
         CalculatorOptions calculatorOptions = new CalculatorOptions();
@@ -207,36 +224,23 @@ public class PoseLandmarks extends Transformer {
         calculatorOptions.minScoreThresh = 0.5;
 
         ssd = new SingleShotMultiBoxDetector(calculatorOptions);
+        currentDetection = new Detection();
 
         targetAngleRad = degreesToRadians(90);
 
         landmarkList = new ArrayList<>();
         smoothedLandmarkList = new ArrayList<>();
 
-        doPoseDetection = true;
+        landmarkSmoother = new LandmarkSmoothingCalculator(5, 10.0f, landmarkNum + AUX_LANDMARK_NUM, rotatedWidth, rotatedHeight);
 
-        rotatedWidth = -1;
-        rotatedHeight = -1;
+        doPoseDetection = true;
     }
 
     @Override
     public void transform(Stream[] stream_in, Stream stream_out) throws SSJFatalException {
-        // Convert byte array to integer array
-        originalInputArray = CameraUtil.decodeBytes(stream_in[0].ptrB(), width, height);
-
-        // Create bitmap from byte array
-        inputBitmap.setPixels(originalInputArray, 0, width, 0, 0, width, height);
-
-        // Rotate original input
-        rotatedBitmap = Bitmap.createBitmap(inputBitmap, 0, 0, inputBitmap.getWidth(), inputBitmap.getHeight(), rotationMatrix, true);
-
-        // Cache width and height of rotated input image
-        if (rotatedWidth < 0) {
-            rotatedWidth = rotatedBitmap.getWidth();
-            rotatedHeight = rotatedBitmap.getHeight();
-
-            landmarkSmoother = new LandmarkSmoothingCalculator(5, 10.0f, landmarkNum + AUX_LANDMARK_NUM, rotatedWidth, rotatedHeight);
-        }
+        // Rotated input, converted only once per frame for all components on this stream
+        VisionPreprocessor.Frame frame = preprocessor.acquire(stream_in[0]);
+        rotatedBitmap = frame.getBitmap();
 
         // Reset variables
         poseDetected = false;
@@ -244,24 +248,15 @@ public class PoseLandmarks extends Transformer {
 
         // Check if pose region should be detected or if previous aux keypoints should be used
         if (doPoseDetection) {
-            // Resize rotated original input to model input size
-            detectionModelInputBitmap = Bitmap.createScaledBitmap(rotatedBitmap, DETECTION_MODEL_INPUT_SIZE, DETECTION_MODEL_INPUT_SIZE, true);
-
-            // Convert and normalize bitmap to model input
-            detectionWrapper.convertBitmapToInputArray(detectionModelInputBitmap, detectionModelInputArray, detectionImgData);
-
-            // Perform pose detection
-            List<Detection> detectionList = detectPoseRegion(detectionImgData);
-
-            // Recycle landmark input image
-            detectionModelInputBitmap.recycle();
+            // Perform pose detection on the rotated input resized and normalized to [-1, 1]
+            DetectionBuffer detections = detectPoseRegion(frame.getModelInput(DETECTION_MODEL_INPUT_SIZE, 127.5f, 127.5f));
 
             // Set detection result
-            poseDetected = detectionList.size() > 0;
+            poseDetected = detections.size() > 0;
 
             // Pose detected
             if (poseDetected) {
-                currentDetection = detectionList.get(0);
+                detections.copyTo(0, currentDetection);
 
                 // Pose detection contains four key points: first two for full-body pose and two more for upper-body pose.
                 int centerIndex = 0;
@@ -293,7 +288,7 @@ public class PoseLandmarks extends Transformer {
             landmarkWrapper.convertBitmapToInputArray(landmarkModelInputBitmap, landmarkModelInputArray, landmarkImgData);
 
             // Perform landmark detection
-            landmarksDetected = detectLandmarks(landmarkImgData, landmarkList);
+            landmarksDetected = detectLandmarks(landmarkList);
 
             // Recycle landmark input image
             landmarkModelInputBitmap.recycle();
@@ -328,24 +323,17 @@ public class PoseLandmarks extends Transformer {
             Util.fillZeroes(out, 0, outputDim);
         }
 
-        // Free bitmap memory
-        rotatedBitmap.recycle();
+        // Hand the frame back to the shared pool
+        rotatedBitmap = null;
+        preprocessor.release(frame);
     }
 
-    private List<Detection> detectPoseRegion(ByteBuffer modelInputBuffer) {
-        // Fixed output of pose detection model
-        float[][][] boxesResult = new float[1][896][12];
-        float[][][] scoresResult = new float[1][896][1];
-
-        HashMap<Integer, Object> detectionOutputs = new HashMap<>();
-        detectionOutputs.put(0, boxesResult);
-        detectionOutputs.put(1, scoresResult);
-
+    private DetectionBuffer detectPoseRegion(ByteBuffer modelInputBuffer) {
         // Run inference
         detectionWrapper.runMultiInputOutput(new Object[]{modelInputBuffer}, detectionOutputs);
 
         // Calculate detections from model results
-        return ssd.process(boxesResult, scoresResult);
+        return ssd.detect(boxesResult, scoresResult);
     }
 
     private Bitmap rotateAndScaleImage(Bitmap rotatedBitmap, Keypoint centerKeypoint, Keypoint scaleKeypoint) {
@@ -388,25 +376,11 @@ public class PoseLandmarks extends Transformer {
         return poseBitmap;
     }
 
-    private boolean detectLandmarks(ByteBuffer landmarkImgData, List<Landmark> landmarkList) {
+    private boolean detectLandmarks(List<Landmark> landmarkList) {
         boolean detected = false;
 
-        // Fixed output of landmark detection model
-        float[][] landmarkResult = new float[1][156];
-        float[][] poseFlagResult = new float[1][1];
-        float[][][][] segmentationResult = new float[1][128][128][1];
-
-        if (options.onlyUpperBody.get()) {
-            landmarkResult = new float[1][124];
-        }
-
-        HashMap<Integer, Object> landmarkOutputs = new HashMap<>();
-        landmarkOutputs.put(0, landmarkResult);
-        landmarkOutputs.put(1, poseFlagResult);
-        landmarkOutputs.put(2, segmentationResult);
-
         // Run inference
-        landmarkWrapper.runMultiInputOutput(new Object[]{landmarkImgData}, landmarkOutputs);
+        landmarkWrapper.runMultiInputOutput(landmarkInputs, landmarkOutputs);
 
         // Set confidence that a pose is present
         float poseConfidence = poseFlagResult[0][0];
@@ -482,6 +456,9 @@ public class PoseLandmarks extends Transformer {
         if (landmarkWrapper != null) {
             landmarkWrapper.close();
         }
+
+        VisionPreprocessor.release(preprocessor);
+        preprocessor = null;
     }
 
     @Override
@@ -538,6 +515,7 @@ public class PoseLandmarks extends Transformer {
         public final Option<Boolean> onlyUpperBody = new Option<>("onlyUpperBody", false, Boolean.class, "only crop to upper body, if false crops to full body");
         public final Option<Float> poseConfidenceThreshold = new Option<>("poseConfidenceThreshold", 0.5f, Float.class, "threshold for the pose confidence score to determine whether a pose is present");
         public final Option<Boolean> useGPU = new Option<>("useGPU", true, Boolean.class, "if true tries to use GPU for better performance");
+        public final Option<Boolean> cache = new Option<>("cache", true, Boolean.class, "keep memory-mapped model files in memory to speed up subsequent pipeline starts");
 
         private Options() {
             addOptions();
@@ -0,0 +1,124 @@
+/*
+ * FaceTracker.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.landmark.utils;
+
+/**
+ * Decides for every frame whether faces are detected or tracked with the regions derived
+ * from the landmarks of the previous frame.<br>
+ * Detection runs if tracking is disabled, after maxTrackingFrames tracked frames or on the
+ * same frame if a tracked face got lost.
+ */
+public class FaceTracker {
+    public interface Callback {
+        /**
+         * Runs face detection and stores the regions of the detected faces
+         *
+         * @return number of detected faces
+         */
+        int detectFaces();
+
+        /**
+         * Detects the landmarks in the current regions of the first n faces and moves the faces with landmarks to the front
+         *
+         * @return number of faces with landmarks
+         */
+        int detectLandmarks(int n);
+
+        /**
+         * Derives the regions of the next frame from the landmarks of the first n faces
+         */
+        void updateRegions(int n);
+    }
+
+    private final Callback callback;
+    private final boolean useTracking;
+    private final int maxTrackingFrames;
+
+    private int faceNum = 0;
+    private boolean doDetection = true;
+    private int trackedFrames = 0;
+    private long detections = 0;
+
+    /**
+     * @param useTracking       if false faces are detected in every frame
+     * @param maxTrackingFrames number of tracked frames after which faces are detected again, 0 = only if a face is lost
+     */
+    public FaceTracker(Callback callback, boolean useTracking, int maxTrackingFrames) {
+        this.callback = callback;
+        this.useTracking = useTracking;
+        this.maxTrackingFrames = maxTrackingFrames;
+    }
+
+    /**
+     * Processes one frame
+     *
+     * @return number of faces with landmarks
+     */
+    public int process() {
+        int detectedFaces = 0;
+
+        if (!doDetection) {
+            trackedFrames++;
+
+            detectedFaces = callback.detectLandmarks(faceNum);
+
+            // A tracked face got lost, detect all faces again
+            if (detectedFaces < faceNum) {
+                detectedFaces = 0;
+            }
+        }
+
+        if (detectedFaces == 0) {
+            faceNum = callback.detectFaces();
+            trackedFrames = 0;
+            detections++;
+
+            if (faceNum > 0) {
+                detectedFaces = callback.detectLandmarks(faceNum);
+            }
+        }
+
+        faceNum = detectedFaces;
+
+        // Track the faces with the current landmarks until the next detection is due
+        doDetection = faceNum == 0 || !useTracking || (maxTrackingFrames > 0 && trackedFrames >= maxTrackingFrames);
+
+        if (!doDetection) {
+            callback.updateRegions(faceNum);
+        }
+
+        return faceNum;
+    }
+
+    /**
+     * @return number of frames in which face detection ran
+     */
+    public long getDetections() {
+        return detections;
+    }
+}
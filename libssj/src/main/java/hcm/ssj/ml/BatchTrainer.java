@@ -0,0 +1,202 @@
+/*
+ * BatchTrainer.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ml;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hcm.ssj.core.Annotation;
+import hcm.ssj.core.Log;
+import hcm.ssj.core.SSJException;
+import hcm.ssj.core.option.Option;
+import hcm.ssj.core.option.OptionList;
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Offline training of a model from recorded stream and annotation files.<br>
+ * Sessions are loaded and converted into training samples in parallel (one session per thread),
+ * the resulting training sets are merged into the model afterwards.
+ * Unlike the {@link Trainer}, no pipeline is required.
+ */
+public class BatchTrainer {
+    public final Options options = new Options();
+    private final ArrayList<Session> sessions = new ArrayList<>();
+    private final Model model;
+
+    /**
+     * @param model model to train, needs to be set up (either from a trainer file or by calling setup())
+     */
+    public BatchTrainer(Model model) {
+        this.model = model;
+    }
+
+    /**
+     * Adds a recorded session to the training data
+     *
+     * @param streamPath path to the stream file (.stream)
+     * @param annoPath   path to the annotation file (.annotation)
+     */
+    public void addSession(String streamPath, String annoPath) {
+        Session session = new Session();
+        session.name = new File(streamPath).getName();
+        session.stream_path = streamPath;
+        session.anno_path = annoPath;
+
+        sessions.add(session);
+    }
+
+    /**
+     * Adds already loaded data to the training data
+     *
+     * @param name   name of the session
+     * @param stream recorded data
+     * @param anno   annotation of the data
+     */
+    public void addSession(String name, Stream stream, Annotation anno) {
+        Session session = new Session();
+        session.name = name;
+        session.stream = stream;
+        session.anno = anno;
+
+        sessions.add(session);
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Trains the model with all sessions
+     *
+     * @return number of samples used for training
+     * @throws SSJException if a session could not be processed or the model does not support batch training
+     */
+    public int train() throws SSJException {
+        if (!model.isSetup()) {
+            throw new SSJException("model not initialized");
+        }
+        if (model.createTrainingSet() == null) {
+            throw new SSJException(model.getName() + " does not support batch training");
+        }
+
+        int threads = options.threads.get() > 0 ? options.threads.get() : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, sessions.size())));
+
+        long start = System.currentTimeMillis();
+
+        List<Future<TrainingSet>> futures = new ArrayList<>();
+        for (final Session session : sessions) {
+            futures.add(executor.submit(new Callable<TrainingSet>() {
+                @Override
+                public TrainingSet call() throws Exception {
+                    return process(session);
+                }
+            }));
+        }
+
+        List<TrainingSet> sets = new ArrayList<>();
+        int samples = 0;
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                TrainingSet set = futures.get(i).get();
+
+                samples += set.size();
+                sets.add(set);
+            }
+        } catch (InterruptedException e) {
+            throw new SSJException("batch training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new SSJException("error processing session", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        model.train(sets);
+
+        Log.i("trained " + model.getName() + " with " + samples + " samples from " + sessions.size() + " session(s) in " + (System.currentTimeMillis() - start) + "ms");
+
+        return samples;
+    }
+
+    /**
+     * Converts the annotated parts of a session into training samples.
+     * Runs on a worker thread, the model is only read.
+     */
+    private TrainingSet process(Session session) throws Exception {
+        Stream stream = session.stream;
+        Annotation anno = session.anno;
+
+        if (stream == null) {
+            stream = Stream.load(session.stream_path);
+        }
+        if (anno == null) {
+            anno = new Annotation();
+            anno.load(session.anno_path);
+        }
+
+        // Same feature selection as used by the online trainer
+        if (model.getInputDim() != null && stream.dim != model.getInputDim().length) {
+            stream = stream.select(model.getInputDim());
+        }
+
+        TrainingSet set = model.createTrainingSet();
+
+        for (Annotation.Entry e : anno.getEntries()) {
+            if (e.classlabel == null) {
+                continue;
+            }
+
+            int from = Math.max(0, (int) (e.from * stream.sr + 0.5));
+            int to = Math.min(stream.num, (int) (e.to * stream.sr + 0.5));
+
+            if (to > from) {
+                set.add(stream, from, to, e.classlabel);
+            }
+        }
+
+        Log.d("session " + session.name + ": " + set.size() + " samples");
+
+        return set;
+    }
+
+    public class Options extends OptionList {
+        public final Option<Integer> threads = new Option<>("threads", 0, Integer.class, "number of worker threads (0 = number of cores)");
+
+        private Options() {
+            super();
+            addOptions();
+        }
+    }
+}
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.List;
 
 import hcm.ssj.core.Annotation;
 import hcm.ssj.core.Component;
@@ -125,7 +126,7 @@ public abstract class Model extends Component {
             dirPath = trainerFile.substring(0, trainerFile.lastIndexOf(File.separator));
 
             try {
-                parseTrainerFile(FileUtils.getFile(dirPath, fileName));
+                loadTrainerFile(getFile(fileName));
             } catch (IOException | XmlPullParserException e) {
                 throw new SSJException("error parsing trainer file", e);
             }
@@ -156,15 +157,44 @@ public abstract class Model extends Component {
     }
 
     public void load() throws IOException {
-        loadModel(FileUtils.getFile(dirPath, modelFileName + "." + FileCons.FILE_EXTENSION_MODEL));
+        loadModel(getFile(modelFileName + "." + FileCons.FILE_EXTENSION_MODEL));
 
         if (modelOptionFileName != null && !modelOptionFileName.isEmpty()) {
-            loadOption(FileUtils.getFile(dirPath, modelOptionFileName + "." + FileCons.FILE_EXTENSION_OPTION));
+            loadOption(getFile(modelOptionFileName + "." + FileCons.FILE_EXTENSION_OPTION));
         }
 
         Log.d("model loaded (file: " + modelFileName + ")");
     }
 
+    /**
+     * Resolves a file relative to the model directory.
+     * Remote files are only downloaded once per process if caching is enabled.
+     */
+    private File getFile(String fileName) throws IOException {
+        boolean isURL = dirPath.startsWith("http://") || dirPath.startsWith("https://");
+
+        if (!isURL || !useCache()) {
+            return FileUtils.getFile(dirPath, fileName);
+        }
+
+        String url = dirPath + "/" + fileName;
+        File file = ModelCache.getInstance().getDownload(url);
+
+        if (file == null) {
+            file = FileUtils.getFile(dirPath, fileName);
+            ModelCache.getInstance().putDownload(url, file);
+        }
+
+        return file;
+    }
+
+    /**
+     * @return true if parsed models should be kept in the {@link ModelCache} between pipeline runs
+     */
+    protected boolean useCache() {
+        return getOptions().cache.get();
+    }
+
     public void validateInput(Stream[] input) throws IOException {
         if (!isTrained()) {
             throw new IOException("model not loaded or trained");
@@ -187,7 +217,40 @@ public abstract class Model extends Component {
         }
     }
 
-    private void parseTrainerFile(File file) throws XmlPullParserException, IOException, SSJException {
+    private void loadTrainerFile(File file) throws XmlPullParserException, IOException {
+        TrainerInfo info = useCache() ? ModelCache.getInstance().get(file, TrainerInfo.class) : null;
+
+        if (info == null) {
+            info = parseTrainerFile(file);
+
+            if (info == null) {
+                return;
+            }
+
+            if (useCache()) {
+                ModelCache.getInstance().put(file, info);
+            }
+        } else {
+            Log.d("using cached trainer file " + file.getName());
+        }
+
+        if (!_name.equals(info.expectedModel)) {
+            Log.w("trainer file demands a " + info.expectedModel + " model, we provide a " + _name + " model.");
+        }
+
+        // Cached values are shared, copy arrays which might be modified while loading the model
+        input_bytes = info.input_bytes;
+        input_dim = info.input_dim;
+        input_sr = info.input_sr;
+        input_type = info.input_type;
+        output_dim = info.output_dim;
+        output_names = info.output_names != null ? info.output_names.clone() : null;
+        select_dimensions = info.select_dimensions != null ? info.select_dimensions.clone() : null;
+        modelFileName = info.modelFileName;
+        modelOptionFileName = info.modelOptionFileName;
+    }
+
+    private TrainerInfo parseTrainerFile(File file) throws XmlPullParserException, IOException {
         XmlPullParser parser = Xml.newPullParser();
         parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
         parser.setInput(new FileReader(file));
@@ -196,9 +259,10 @@ public abstract class Model extends Component {
         parser.next();
         if (parser.getEventType() != XmlPullParser.START_TAG || !parser.getName().equalsIgnoreCase("trainer")) {
             Log.w("unknown or malformed trainer file");
-            return;
+            return null;
         }
 
+        TrainerInfo info = new TrainerInfo();
         ArrayList<String> classNamesList = new ArrayList<>();
 
         while (parser.next() != XmlPullParser.END_DOCUMENT) {
@@ -208,10 +272,10 @@ public abstract class Model extends Component {
                 parser.nextTag();
 
                 if (parser.getEventType() == XmlPullParser.START_TAG && parser.getName().equalsIgnoreCase("item")) {
-                    input_bytes = Integer.valueOf(parser.getAttributeValue(null, "byte"));
-                    input_dim = Integer.valueOf(parser.getAttributeValue(null, "dim"));
-                    input_sr = Float.valueOf(parser.getAttributeValue(null, "sr"));
-                    input_type = Cons.Type.valueOf(parser.getAttributeValue(null, "type"));
+                    info.input_bytes = Integer.valueOf(parser.getAttributeValue(null, "byte"));
+                    info.input_dim = Integer.valueOf(parser.getAttributeValue(null, "dim"));
+                    info.input_sr = Float.valueOf(parser.getAttributeValue(null, "sr"));
+                    info.input_type = Cons.Type.valueOf(parser.getAttributeValue(null, "type"));
                 }
             }
 
@@ -234,7 +298,7 @@ public abstract class Model extends Component {
                 parser.nextTag();
 
                 if (parser.getEventType() == XmlPullParser.START_TAG && parser.getName().equalsIgnoreCase("item")) {
-                    output_dim = Integer.parseInt(parser.getAttributeValue(null, "dim"));
+                    info.output_dim = Integer.parseInt(parser.getAttributeValue(null, "dim"));
                 }
             }
 
@@ -250,33 +314,29 @@ public abstract class Model extends Component {
                     }
 
                     String[] select = parser.getAttributeValue(null, "select").split(" ");
-                    select_dimensions = new int[select.length];
+                    info.select_dimensions = new int[select.length];
 
                     for (int i = 0; i < select.length; i++) {
-                        select_dimensions[i] = Integer.valueOf(select[i]);
+                        info.select_dimensions[i] = Integer.valueOf(select[i]);
                     }
                 }
             }
 
             // <model> tag
             if (parser.getEventType() == XmlPullParser.START_TAG && parser.getName().equalsIgnoreCase("model")) {
-                String expectedModel = parser.getAttributeValue(null, "create");
+                info.expectedModel = parser.getAttributeValue(null, "create");
 
-                if (!_name.equals(expectedModel)) {
-                    Log.w("trainer file demands a " + expectedModel + " model, we provide a " + _name + " model.");
-                }
-
-                modelFileName = parser.getAttributeValue(null, "path");
-                modelOptionFileName = parser.getAttributeValue(null, "option");
+                info.modelFileName = parser.getAttributeValue(null, "path");
+                info.modelOptionFileName = parser.getAttributeValue(null, "option");
 
                 // Remove model file extension
-                if (modelFileName != null && modelFileName.endsWith("." + FileCons.FILE_EXTENSION_MODEL)) {
-                    modelFileName = modelFileName.replaceFirst("(.*)\\." + FileCons.FILE_EXTENSION_MODEL + "$", "$1");
+                if (info.modelFileName != null && info.modelFileName.endsWith("." + FileCons.FILE_EXTENSION_MODEL)) {
+                    info.modelFileName = info.modelFileName.replaceFirst("(.*)\\." + FileCons.FILE_EXTENSION_MODEL + "$", "$1");
                 }
 
                 //  Remove option file extension
-                if (modelOptionFileName != null && modelOptionFileName.endsWith("." + FileCons.FILE_EXTENSION_OPTION)) {
-                    modelOptionFileName = modelOptionFileName.replaceFirst("(.*)\\." + FileCons.FILE_EXTENSION_OPTION + "$", "$1");
+                if (info.modelOptionFileName != null && info.modelOptionFileName.endsWith("." + FileCons.FILE_EXTENSION_OPTION)) {
+                    info.modelOptionFileName = info.modelOptionFileName.replaceFirst("(.*)\\." + FileCons.FILE_EXTENSION_OPTION + "$", "$1");
                 }
             }
 
@@ -287,20 +347,22 @@ public abstract class Model extends Component {
         }
 
         if (classNamesList.size() > 0) {
-            output_names = classNamesList.toArray(new String[0]);
+            info.output_names = classNamesList.toArray(new String[0]);
 
-            if (output_dim == 0) {
-                output_dim = output_names.length;
+            if (info.output_dim == 0) {
+                info.output_dim = info.output_names.length;
             }
         } else {
-            if (output_dim > 0) {
-                output_names = new String[output_dim];
+            if (info.output_dim > 0) {
+                info.output_names = new String[info.output_dim];
 
-                for (int i = 0; i < output_dim; i++) {
-                    output_names[i] = "out_" + i;
+                for (int i = 0; i < info.output_dim; i++) {
+                    info.output_names[i] = "out_" + i;
                 }
             }
         }
+
+        return info;
     }
 
     public void save(String path, String name) throws IOException {
@@ -415,6 +477,25 @@ public abstract class Model extends Component {
         isTrained = true;
     }
 
+    /**
+     * Creates an empty training set which can be filled independently of this model,
+     * e.g. from multiple threads, and merged via {@link #train(List)} afterwards
+     *
+     * @return new training set or null if the model does not support batch training
+     */
+    TrainingSet createTrainingSet() {
+        return null;
+    }
+
+    /**
+     * Train model with the samples of multiple training sets (batch training)
+     *
+     * @param sets training sets created by {@link #createTrainingSet()}
+     */
+    void train(List<TrainingSet> sets) {
+        Log.e(_name + " does not support batch training");
+    }
+
     /**
      * Load model from file
      */
@@ -490,8 +571,25 @@ public abstract class Model extends Component {
         return input_type;
     }
 
+    /**
+     * Content of a trainer file, kept in the {@link ModelCache} between pipeline runs
+     */
+    static class TrainerInfo {
+        int input_bytes = 0;
+        int input_dim = 0;
+        double input_sr = 0;
+        Cons.Type input_type = Cons.Type.UNDEF;
+        int output_dim = 0;
+        String[] output_names = null;
+        int[] select_dimensions = null;
+        String expectedModel;
+        String modelFileName;
+        String modelOptionFileName;
+    }
+
     public class Options extends OptionList {
         public final Option<FilePath> file = new Option<>("file", null, FilePath.class, "trainer file containing model information");
+        public final Option<Boolean> cache = new Option<>("cache", true, Boolean.class, "keep parsed model files in memory to speed up subsequent pipeline starts");
 
         public Options() {
             super();
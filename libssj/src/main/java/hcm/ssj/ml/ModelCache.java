@@ -0,0 +1,232 @@
+/*
+ * ModelCache.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import hcm.ssj.core.Log;
+
+/**
+ * Process-wide cache for model files which survives pipeline restarts.<br>
+ * Entries are keyed by the absolute file path and the type of the cached representation
+ * (e.g. memory-mapped bytes or parsed model parameters). An entry is only returned as long
+ * as modification time and length of the file did not change since it was cached.<br>
+ * Cached objects are shared between model instances and must therefore be treated as read-only.
+ */
+public class ModelCache {
+    private static ModelCache _instance = null;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, File> downloads = new HashMap<>();
+
+    /**
+     * Private constructor for singleton pattern.
+     */
+    private ModelCache() {
+    }
+
+    /**
+     * Method for accessing the singleton instance.
+     *
+     * @return singleton instance
+     */
+    public static synchronized ModelCache getInstance() {
+        if (_instance == null) {
+            _instance = new ModelCache();
+        }
+
+        return _instance;
+    }
+
+    /**
+     * Returns the cached representation of a file
+     *
+     * @param file file the object was created from
+     * @param type type of the cached representation
+     * @return cached object or null if the file is not cached or has been modified in the meantime
+     */
+    public synchronized <T> T get(File file, Class<T> type) {
+        String key = getKey(file, type);
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (!entry.isValid(file)) {
+            Log.d("cached " + type.getSimpleName() + " of " + file.getName() + " outdated");
+            entries.remove(key);
+
+            return null;
+        }
+
+        return type.cast(entry.value);
+    }
+
+    /**
+     * Stores a representation of a file in the cache
+     *
+     * @param file  file the object was created from
+     * @param value object to cache, must not be modified afterwards
+     */
+    public synchronized void put(File file, Object value) {
+        if (file == null || value == null) {
+            return;
+        }
+
+        entries.put(getKey(file, value.getClass()), new Entry(file, value));
+    }
+
+    /**
+     * Memory-maps a model file (read-only) or returns the mapping of a previous call
+     *
+     * @param file model file
+     * @return read-only buffer containing the file content
+     * @throws IOException if the file could not be mapped
+     */
+    public MappedByteBuffer map(File file) throws IOException {
+        MappedByteBuffer buffer = get(file, MappedByteBuffer.class);
+
+        if (buffer == null) {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+            try {
+                FileChannel channel = raf.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                raf.close();
+            }
+
+            synchronized (this) {
+                // Key by the base class, the mapping returned by the channel is a subclass
+                entries.put(getKey(file, MappedByteBuffer.class), new Entry(file, buffer));
+            }
+
+            Log.d("mapped " + file.getName() + " (" + buffer.capacity() + " bytes)");
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns the local copy of a remote file downloaded earlier in this process
+     *
+     * @param url remote location of the file
+     * @return local file or null if the file has not been downloaded yet or was deleted
+     */
+    public synchronized File getDownload(String url) {
+        File file = downloads.get(url);
+
+        if (file != null && !file.exists()) {
+            downloads.remove(url);
+            file = null;
+        }
+
+        return file;
+    }
+
+    /**
+     * Remembers the local copy of a remote file so it is not downloaded again on the next pipeline start
+     *
+     * @param url  remote location of the file
+     * @param file local copy
+     */
+    public synchronized void putDownload(String url, File file) {
+        downloads.put(url, file);
+    }
+
+    /**
+     * Checks whether a representation of a file is cached and still up to date
+     */
+    public synchronized boolean contains(File file, Class<?> type) {
+        Entry entry = entries.get(getKey(file, type));
+
+        return entry != null && entry.isValid(file);
+    }
+
+    /**
+     * Removes all cached representations of a file.
+     * Memory-mapped buffers are released once they are no longer referenced by any interpreter.
+     *
+     * @param file file to evict
+     */
+    public synchronized void evict(File file) {
+        String prefix = file.getAbsolutePath() + "|";
+
+        downloads.values().remove(file);
+
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public synchronized void clear() {
+        entries.clear();
+        downloads.clear();
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String getKey(File file, Class<?> type) {
+        return file.getAbsolutePath() + "|" + type.getName();
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final Object value;
+
+        Entry(File file, Object value) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.value = value;
+        }
+
+        boolean isValid(File file) {
+            return file.exists() && file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import hcm.ssj.core.Log;
@@ -223,29 +224,81 @@ public class NaiveBayes extends Model {
 
             // Train model for each feature dimension independently
             for (int j = 0; j < stream.dim; j++) {
-                trainOnSample(getDoubleValue(stream, i * stream.dim + j), j, classIndex, weight);
+                trainOnSample(getDoubleValue(stream, i * stream.dim + j), j, mean[classIndex], varianceSum[classIndex], weightSum[classIndex], weight);
             }
         }
 
         isTrained = true;
     }
 
-    private void trainOnSample(double featureValue, int featureIndex, int classIndex, double weight) {
+    private void trainOnSample(double featureValue, int featureIndex, double[] mean, double[] varianceSum, double[] weightSum, double weight) {
         if (Double.isInfinite(featureValue) || Double.isNaN(featureValue)) {
             Log.w("Invalid featureValue[" + featureIndex + "] = " + featureValue + " ignored for training");
             return;
         }
 
-        if (weightSum[classIndex][featureIndex] > 0.0) {
-            weightSum[classIndex][featureIndex] += weight;
+        if (weightSum[featureIndex] > 0.0) {
+            weightSum[featureIndex] += weight;
 
-            double lastMean = mean[classIndex][featureIndex];
+            double lastMean = mean[featureIndex];
 
-            mean[classIndex][featureIndex] += weight * (featureValue - lastMean) / weightSum[classIndex][featureIndex];
-            varianceSum[classIndex][featureIndex] += weight * (featureValue - lastMean) * (featureValue - mean[classIndex][featureIndex]);
+            mean[featureIndex] += weight * (featureValue - lastMean) / weightSum[featureIndex];
+            varianceSum[featureIndex] += weight * (featureValue - lastMean) * (featureValue - mean[featureIndex]);
         } else {
-            mean[classIndex][featureIndex] = featureValue;
-            weightSum[classIndex][featureIndex] = weight;
+            mean[featureIndex] = featureValue;
+            weightSum[featureIndex] = weight;
+        }
+    }
+
+    @Override
+    TrainingSet createTrainingSet() {
+        return new Statistics();
+    }
+
+    @Override
+    void train(List<TrainingSet> sets) {
+        if (classDistribution == null || classDistribution.length <= 0) {
+            Log.w("Base model not loaded");
+            return;
+        }
+
+        for (TrainingSet set : sets) {
+            Statistics statistics = (Statistics) set;
+
+            for (int classIndex = 0; classIndex < classCount; classIndex++) {
+                classDistribution[classIndex] += statistics.classDistribution[classIndex];
+
+                for (int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+                    mergeStatistics(classIndex, featureIndex, statistics.mean[classIndex][featureIndex], statistics.varianceSum[classIndex][featureIndex], statistics.weightSum[classIndex][featureIndex]);
+                }
+            }
+        }
+
+        isTrained = true;
+    }
+
+    /**
+     * Combines the model values of one feature with statistics gathered on a disjoint set of samples
+     * (pairwise update of mean and variance sum).
+     */
+    private void mergeStatistics(int classIndex, int featureIndex, double otherMean, double otherVarianceSum, double otherWeightSum) {
+        if (otherWeightSum <= 0.0) {
+            return;
+        }
+
+        double currentWeightSum = weightSum[classIndex][featureIndex];
+
+        if (currentWeightSum > 0.0) {
+            double totalWeightSum = currentWeightSum + otherWeightSum;
+            double diff = otherMean - mean[classIndex][featureIndex];
+
+            mean[classIndex][featureIndex] += diff * otherWeightSum / totalWeightSum;
+            varianceSum[classIndex][featureIndex] += otherVarianceSum + diff * diff * currentWeightSum * otherWeightSum / totalWeightSum;
+            weightSum[classIndex][featureIndex] = totalWeightSum;
+        } else {
+            mean[classIndex][featureIndex] = otherMean;
+            varianceSum[classIndex][featureIndex] = otherVarianceSum;
+            weightSum[classIndex][featureIndex] = otherWeightSum;
         }
     }
 
@@ -279,94 +332,133 @@ public class NaiveBayes extends Model {
 
     @Override
     public void loadModel(File file) {
-        BufferedReader reader;
-        try {
-            InputStream inputStream = new FileInputStream(file);
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-            reader = new BufferedReader(inputStreamReader);
-        } catch (FileNotFoundException e) {
-            Log.e("File not found");
-            return;
-        }
+        Parameters parameters = useCache() ? ModelCache.getInstance().get(file, Parameters.class) : null;
 
-        // Skip first comments
-        String line;
-        do {
-            line = readLine(reader);
-        }
-        while (line.startsWith("#"));
-
-        // Parse number of classes
-        String[] token = line.split("\t");
-        if (token.length > 0) {
-            int classNum = Integer.valueOf(token[0]);
+        if (parameters == null) {
+            parameters = parseModel(file);
 
-            if (classNum != output_dim) {
-                Log.w("Model definition (n_classes) mismatch between trainer and model file: " + classNum + " != " + output_dim);
+            if (parameters == null) {
+                return;
             }
 
-            classCount = output_dim;
+            if (useCache()) {
+                ModelCache.getInstance().put(file, parameters);
+            }
         } else {
-            Log.w("Can't read number of classes from classifier file " + file.getName() + "!");
-            return;
+            Log.d("using cached model " + file.getName());
         }
 
-        // Parse number of features
-        if (token.length > 1) {
-            featureCount = Integer.valueOf(token[1]);
-        } else {
-            Log.w("Can't read feature dimension from classifier file " + file.getName() + "'!");
-            return;
+        if (parameters.classCount != output_dim) {
+            Log.w("Model definition (n_classes) mismatch between trainer and model file: " + parameters.classCount + " != " + output_dim);
         }
 
-        for (int classIndex = 0; classIndex < classCount; classIndex++) {
-            // Load model values
-            do {
-                line = readLine(reader);
-            }
-            while (line.isEmpty() || line.startsWith("#"));
-            token = line.split("\t");
+        classCount = Math.min(output_dim, parameters.classCount);
+        featureCount = parameters.featureCount;
 
-            // Get class name
-            String name = token[0];
+        for (int classIndex = 0; classIndex < classCount; classIndex++) {
+            String name = parameters.classNames[classIndex];
             if (!name.equalsIgnoreCase(output_names[classIndex])) {
                 Log.w("Model definition (name of class " + classIndex + ") mismatch between trainer and model file:" + name + " != " + output_names[classIndex]);
 
                 // Overwrite class name
                 output_names[classIndex] = name;
             }
-            // Get class distribution
-            classDistribution[classIndex] = Double.valueOf(token[1]);
 
-            // Load feature values
-            for (int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+            // Cached parameters are shared between instances and must not be modified by online training
+            classDistribution[classIndex] = parameters.classDistribution[classIndex];
+            mean[classIndex] = parameters.mean[classIndex].clone();
+            varianceSum[classIndex] = parameters.varianceSum[classIndex].clone();
+            weightSum[classIndex] = parameters.weightSum[classIndex].clone();
+        }
+
+        isTrained = true;
+    }
+
+    /**
+     * Parses a model file without modifying the current model state
+     */
+    private Parameters parseModel(File file) {
+        BufferedReader reader;
+        try {
+            InputStream inputStream = new FileInputStream(file);
+            InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
+            reader = new BufferedReader(inputStreamReader);
+        } catch (FileNotFoundException e) {
+            Log.e("File not found");
+            return null;
+        }
+
+        Parameters parameters = new Parameters();
+
+        try {
+            // Skip first comments
+            String line;
+            do {
                 line = readLine(reader);
+            }
+            while (line.startsWith("#"));
+
+            // Parse number of classes
+            String[] token = line.split("\t");
+            if (token.length > 0) {
+                parameters.classCount = Integer.valueOf(token[0]);
+            } else {
+                Log.w("Can't read number of classes from classifier file " + file.getName() + "!");
+                return null;
+            }
+
+            // Parse number of features
+            if (token.length > 1) {
+                parameters.featureCount = Integer.valueOf(token[1]);
+            } else {
+                Log.w("Can't read feature dimension from classifier file " + file.getName() + "'!");
+                return null;
+            }
+
+            parameters.allocate();
+
+            for (int classIndex = 0; classIndex < parameters.classCount; classIndex++) {
+                // Load model values
+                do {
+                    line = readLine(reader);
+                }
+                while (line.isEmpty() || line.startsWith("#"));
                 token = line.split("\t");
 
-                if (token.length == SSI_FORMAT_LENGTH) {
-                    // Model is in offline (SSI) format with mean and std deviation
-                    mean[classIndex][featureIndex] = Double.valueOf(token[0]);
-                    varianceSum[classIndex][featureIndex] = Math.pow(Double.valueOf(token[1]), 2) * (INITIAL_MODEL_WEIGHT - 1);
-                    weightSum[classIndex][featureIndex] = INITIAL_MODEL_WEIGHT;
-                } else if (token.length == SSJ_FORMAT_LENGTH) {
-                    // Model is in online format with mean, variance sum and weight sum
-                    mean[classIndex][featureIndex] = Double.valueOf(token[0]);
-                    varianceSum[classIndex][featureIndex] = Double.valueOf(token[2]);
-                    weightSum[classIndex][featureIndex] = Double.valueOf(token[3]);
-                } else {
-                    Log.e("Unknown model format");
+                // Get class name and distribution
+                parameters.classNames[classIndex] = token[0];
+                parameters.classDistribution[classIndex] = Double.valueOf(token[1]);
+
+                // Load feature values
+                for (int featureIndex = 0; featureIndex < parameters.featureCount; featureIndex++) {
+                    line = readLine(reader);
+                    token = line.split("\t");
+
+                    if (token.length == SSI_FORMAT_LENGTH) {
+                        // Model is in offline (SSI) format with mean and std deviation
+                        parameters.mean[classIndex][featureIndex] = Double.valueOf(token[0]);
+                        parameters.varianceSum[classIndex][featureIndex] = Math.pow(Double.valueOf(token[1]), 2) * (INITIAL_MODEL_WEIGHT - 1);
+                        parameters.weightSum[classIndex][featureIndex] = INITIAL_MODEL_WEIGHT;
+                    } else if (token.length == SSJ_FORMAT_LENGTH) {
+                        // Model is in online format with mean, variance sum and weight sum
+                        parameters.mean[classIndex][featureIndex] = Double.valueOf(token[0]);
+                        parameters.varianceSum[classIndex][featureIndex] = Double.valueOf(token[2]);
+                        parameters.weightSum[classIndex][featureIndex] = Double.valueOf(token[3]);
+                    } else {
+                        Log.e("Unknown model format");
+                    }
                 }
             }
+        } finally {
+            // Close model file
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.e("Could not close reader");
+            }
         }
 
-        // Close model file
-        try {
-            reader.close();
-        } catch (IOException e) {
-            Log.e("Could not close reader");
-        }
-
-        isTrained = true;
+        return parameters;
     }
 
     /**
@@ -489,6 +581,69 @@ public class NaiveBayes extends Model {
         }
     }
 
+    /**
+     * Per class and feature statistics of a subset of the training samples
+     */
+    private class Statistics implements TrainingSet {
+        final double[] classDistribution = new double[classCount];
+        final double[][] mean = new double[classCount][featureCount];
+        final double[][] varianceSum = new double[classCount][featureCount];
+        final double[][] weightSum = new double[classCount][featureCount];
+        int size = 0;
+
+        @Override
+        public void add(Stream stream, int from, int to, String label) {
+            if (stream.dim != featureCount) {
+                Log.w("Feature dimension differs");
+                return;
+            }
+
+            Integer classIndex = classNameIndices.get(label);
+            if (classIndex == null) {
+                Log.w("Class name (" + label + ") not found, data ignored!");
+                return;
+            }
+
+            double weight = DEFAULT_SAMPLE_WEIGHT;
+
+            for (int i = from; i < to; i++) {
+                classDistribution[classIndex] += weight;
+
+                for (int j = 0; j < stream.dim; j++) {
+                    trainOnSample(getDoubleValue(stream, i * stream.dim + j), j, mean[classIndex], varianceSum[classIndex], weightSum[classIndex], weight);
+                }
+            }
+
+            size += to - from;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Model values as read from a model file, shared via the {@link ModelCache}
+     */
+    static class Parameters {
+        int classCount;
+        int featureCount;
+        String[] classNames;
+        double[] classDistribution;
+        double[][] mean;
+        double[][] varianceSum;
+        double[][] weightSum;
+
+        void allocate() {
+            classNames = new String[classCount];
+            classDistribution = new double[classCount];
+            mean = new double[classCount][featureCount];
+            varianceSum = new double[classCount][featureCount];
+            weightSum = new double[classCount][featureCount];
+        }
+    }
+
     /**
      * All options for OnlineNaiveBayes
      */
@@ -28,19 +28,30 @@
 package hcm.ssj.ml;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import hcm.ssj.core.Cons;
 import hcm.ssj.core.Log;
+import hcm.ssj.core.option.Option;
 import hcm.ssj.core.stream.Stream;
+import hcm.ssj.file.FileUtils;
+import hcm.ssj.file.SimpleXmlParser;
 import libsvm.svm;
 import libsvm.svm_model;
 import libsvm.svm_node;
+import libsvm.svm_parameter;
 import libsvm.svm_problem;
 
 /**
@@ -50,6 +61,7 @@ import libsvm.svm_problem;
 public class SVM extends Model {
     private static final int SVM_SCALE_UPPER = 1;
     private static final int SVM_SCALE_LOWER = -1;
+    private static final int MAX_HEADER_LINE_LENGTH = 1024;
     public final Options options = new Options();
     private int n_features;
     private double[] max = null;
@@ -91,7 +103,7 @@ public class SVM extends Model {
      * @param stream Stream
      * @return double[]
      */
-    protected float[] forward(Stream stream) {
+    public float[] forward(Stream stream) {
         if (!isTrained) {
             Log.w("not trained");
             return null;
@@ -133,6 +145,27 @@ public class SVM extends Model {
      * Load data from option file
      */
     protected void loadOption(File file) {
+        if (file == null || !file.exists()) {
+            return;
+        }
+
+        // Training parameters as written by SSI
+        SimpleXmlParser simpleXmlParser = new SimpleXmlParser();
+        try {
+            SimpleXmlParser.XmlValues xmlValues = simpleXmlParser.parse(
+                    new FileInputStream(file),
+                    new String[]{"options", "item"},
+                    new String[]{"name", "value"}
+            );
+
+            for (String[] item : xmlValues.foundAttributes) {
+                if (options.getOptionValue(item[0]) != null) {
+                    options.setOptionValue(item[0], item[1]);
+                }
+            }
+        } catch (Exception e) {
+            Log.e("error parsing SVM option file", e);
+        }
     }
 
     /**
@@ -143,6 +176,47 @@ public class SVM extends Model {
             Log.e("model file not set in options");
             return;
         }
+
+        Parameters parameters = useCache() ? ModelCache.getInstance().get(file, Parameters.class) : null;
+
+        if (parameters == null) {
+            parameters = parseModel(file);
+
+            if (parameters == null) {
+                return;
+            }
+
+            if (useCache()) {
+                ModelCache.getInstance().put(file, parameters);
+            }
+        } else {
+            Log.d("using cached model " + file.getName());
+        }
+
+        if (parameters.classNum != output_dim)
+            Log.w("model definition (n_classes) mismatch between trainer and model file: " + parameters.classNum + " != " + output_dim);
+
+        for (int i = 0; i < parameters.names.length; i++) {
+            if (!parameters.names[i].equalsIgnoreCase(output_names[i])) {
+                Log.w("model definition (name of class " + i + ") mismatch between trainer and model file:" + parameters.names[i] + " != " + output_names[i]);
+                output_names[i] = parameters.names[i];
+            }
+        }
+
+        // libsvm only reads the model and the scaling information during prediction, both can be shared
+        n_features = parameters.n_features;
+        max = parameters.max;
+        min = parameters.min;
+        model = parameters.model;
+
+        isTrained = true;
+    }
+
+    /**
+     * Parses a model file without modifying the current model state
+     */
+    private Parameters parseModel(File file) {
+        Parameters parameters = new Parameters();
         BufferedReader reader = null;
         try {
             InputStream inputStream = new FileInputStream(file);
@@ -158,14 +232,12 @@ public class SVM extends Model {
             //read num class and num features
             String[] token = line.split("\t");
             if (token.length > 0) {
-                int classNum = Integer.valueOf(token[0]);
-                if (classNum != output_dim)
-                    Log.w("model definition (n_classes) mismatch between trainer and model file: " + classNum + " != " + output_dim);
+                parameters.classNum = Integer.valueOf(token[0]);
             } else {
                 throw new IOException("can't read number of classes from classifier file " + file.getName() + "!");
             }
             if (token.length > 1) {
-                n_features = Integer.valueOf(token[1]);
+                parameters.n_features = Integer.valueOf(token[1]);
             } else {
                 throw new IOException("can't read feature dimension from classifier file " + file.getName() + "'!");
             }
@@ -176,20 +248,14 @@ public class SVM extends Model {
             } while (line.startsWith("#") || line.charAt(0) == '\n');
 
             // read class names
-            String[] names = line.split(" ");
-            for (int i = 0; i < names.length; i++) {
-                if (!names[i].equalsIgnoreCase(output_names[i])) {
-                    Log.w("model definition (name of class " + i + ") mismatch between trainer and model file:" + names[i] + " != " + output_names[i]);
-                    output_names[i] = names[i];
-                }
-            }
+            parameters.names = line.split(" ");
 
-            max = new double[n_features];
-            min = new double[n_features];
+            parameters.max = new double[parameters.n_features];
+            parameters.min = new double[parameters.n_features];
             if (scan(reader, "# Scaling: max\tmin") == null)
                 throw new IOException("can't read scaling information for SVM classifier from " + file.getName());
 
-            for (int i = 0; i < n_features; i++) {
+            for (int i = 0; i < parameters.n_features; i++) {
 
                 line = reader.readLine();
                 token = line.split("\t");
@@ -197,22 +263,25 @@ public class SVM extends Model {
                     throw new IOException("misformed scaling information for SVM classifier from " + file.getName());
                 }
 
-                max[i] = Double.valueOf(token[0]);
-                min[i] = Double.valueOf(token[1]);
+                parameters.max[i] = Double.valueOf(token[0]);
+                parameters.min[i] = Double.valueOf(token[1]);
             }
 
+            // skip empty lines and comments, but keep the first line of the libsvm model (svm_type)
             do {
+                reader.mark(MAX_HEADER_LINE_LENGTH);
                 line = reader.readLine();
             } while (line.isEmpty() || line.startsWith("#") || line.charAt(0) == '\n');
+            reader.reset();
 
             //read SVM model
-            model = svm.svm_load_model(reader);
+            parameters.model = svm.svm_load_model(reader);
         } catch (FileNotFoundException e) {
             Log.e("file not found");
-            return;
+            return null;
         } catch (IOException e) {
             Log.e("error reading SVM model", e);
-            return;
+            return null;
         } finally {
             try {
                 reader.close();
@@ -221,6 +290,139 @@ public class SVM extends Model {
             }
         }
 
+        return parameters;
+    }
+
+    /**
+     * Save model to file in the same format as SSI
+     */
+    @Override
+    void saveModel(File file) {
+        if (model == null) {
+            Log.e("model not trained");
+            return;
+        }
+
+        File svmFile = new File(file.getPath() + ".tmp");
+
+        try {
+            // libsvm can only write its part of the model to a file of its own
+            svm.svm_save_model(svmFile.getPath(), model);
+
+            OutputStream outputStream = new FileOutputStream(file);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream));
+
+            writer.write("# Classifier type:\tsvm\n# number of classes\tfeature space dimension\n");
+            writer.write(output_dim + "\t" + n_features + "\n");
+
+            writer.write("# class names\n");
+            for (int i = 0; i < output_dim; i++) {
+                writer.write(output_names[i]);
+                writer.write(i < output_dim - 1 ? " " : "\n");
+            }
+
+            writer.write("# Scaling: max\tmin\n");
+            for (int i = 0; i < n_features; i++) {
+                writer.write(max[i] + "\t" + min[i] + "\n");
+            }
+            writer.write("\n");
+            writer.flush();
+
+            InputStream inputStream = new FileInputStream(svmFile);
+            FileUtils.copyFile(inputStream, outputStream);
+            inputStream.close();
+
+            writer.close();
+        } catch (IOException e) {
+            Log.e("error writing SVM model", e);
+        } finally {
+            svmFile.delete();
+        }
+    }
+
+    @Override
+    TrainingSet createTrainingSet() {
+        return new Samples(select_dimensions != null ? select_dimensions.length : input_dim);
+    }
+
+    @Override
+    void train(List<TrainingSet> sets) {
+        int featureCount = 0;
+        int sampleCount = 0;
+
+        for (TrainingSet set : sets) {
+            featureCount = ((Samples) set).featureCount;
+            sampleCount += set.size();
+        }
+
+        if (sampleCount == 0) {
+            Log.w("no training samples");
+            return;
+        }
+
+        // Build one problem from all training sets
+        svm_problem problem = new svm_problem();
+        problem.l = sampleCount;
+        problem.x = new svm_node[sampleCount][];
+        problem.y = new double[sampleCount];
+
+        int pos = 0;
+        for (TrainingSet set : sets) {
+            Samples samples = (Samples) set;
+
+            for (int i = 0; i < samples.size(); i++) {
+                problem.x[pos] = samples.nodes.get(i);
+                problem.y[pos] = samples.labels[i];
+                pos++;
+            }
+        }
+
+        // Scale features to [lower, upper]
+        n_features = featureCount;
+        max = new double[n_features];
+        min = new double[n_features];
+        create_scaling(problem, n_features, max, min);
+
+        if (usInstance.length < n_features + 1) {
+            init(n_features, output_dim, output_names);
+        }
+
+        for (int i = 0; i < problem.l; i++) {
+            scale_instance(problem.x[i], n_features);
+        }
+
+        svm_parameter param = new svm_parameter();
+        param.svm_type = options.svm.get();
+        param.kernel_type = options.kernel.get();
+        param.degree = options.degree.get();
+        param.gamma = options.gamma.get() > 0 ? options.gamma.get() : 1.0 / n_features;
+        param.coef0 = options.coef0.get();
+        param.nu = options.nu.get();
+        param.C = options.C.get();
+        param.eps = options.eps.get();
+        param.p = options.p.get();
+        param.shrinking = options.shrink.get();
+        param.cache_size = 100;
+        param.probability = 1;
+        param.nr_weight = 0;
+        param.weight_label = new int[0];
+        param.weight = new double[0];
+
+        String error = svm.svm_check_parameter(problem, param);
+        if (error != null) {
+            Log.e("invalid SVM parameters: " + error);
+            return;
+        }
+
+        Log.i("training SVM with " + problem.l + " samples");
+
+        svm_model trainedModel = svm.svm_train(problem, param);
+
+        if (svm.svm_get_nr_class(trainedModel) != output_dim) {
+            Log.w("training data only contains " + svm.svm_get_nr_class(trainedModel) + " of " + output_dim + " classes");
+        }
+
+        model = trainedModel;
         isTrained = true;
     }
 
@@ -299,6 +501,84 @@ public class SVM extends Model {
         instance[n_idx].index = -1;
     }
 
+    /**
+     * Dense feature vectors and class indices of a subset of the training samples
+     */
+    private class Samples implements TrainingSet {
+        final int featureCount;
+        final ArrayList<svm_node[]> nodes = new ArrayList<>();
+        double[] labels = new double[64];
+
+        Samples(int featureCount) {
+            this.featureCount = featureCount;
+        }
+
+        @Override
+        public void add(Stream stream, int from, int to, String label) {
+            if (stream.dim != featureCount) {
+                Log.w("feature dimension differs");
+                return;
+            }
+            if (stream.type != Cons.Type.FLOAT) {
+                Log.w("invalid stream type");
+                return;
+            }
+
+            int classIndex = -1;
+            for (int i = 0; i < output_dim; i++) {
+                if (output_names[i].equals(label)) {
+                    classIndex = i;
+                    break;
+                }
+            }
+
+            if (classIndex < 0) {
+                Log.w("class name (" + label + ") not found, data ignored!");
+                return;
+            }
+
+            float[] ptr = stream.ptrF();
+
+            for (int i = from; i < to; i++) {
+                // Dense representation, scaling may turn zero values into non-zero values
+                svm_node[] instance = new svm_node[featureCount + 1];
+
+                for (int j = 0; j < featureCount; j++) {
+                    instance[j] = new svm_node();
+                    instance[j].index = j + 1;
+                    instance[j].value = ptr[i * featureCount + j];
+                }
+
+                instance[featureCount] = new svm_node();
+                instance[featureCount].index = -1;
+
+                if (nodes.size() == labels.length) {
+                    labels = Arrays.copyOf(labels, labels.length * 2);
+                }
+
+                labels[nodes.size()] = classIndex;
+                nodes.add(instance);
+            }
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * Model values as read from a model file, shared via the {@link ModelCache}
+     */
+    static class Parameters {
+        int classNum;
+        int n_features;
+        String[] names;
+        double[] max;
+        double[] min;
+        svm_model model;
+    }
+
     /**
      * All options for the transformer
      */
@@ -306,6 +586,17 @@ public class SVM extends Model {
         /**
          *
          */
+        public final Option<Integer> svm = new Option<>("svm", svm_parameter.C_SVC, Integer.class, "SVM type used for training (C-SVC=0, nu-SVC=1)");
+        public final Option<Integer> kernel = new Option<>("kernel", svm_parameter.LINEAR, Integer.class, "kernel type used for training (0=linear, 1=polynomial, 2=radial basis function, 3=sigmoid)");
+        public final Option<Integer> degree = new Option<>("degree", 3, Integer.class, "degree of polynomial kernel");
+        public final Option<Double> gamma = new Option<>("gamma", 0.0, Double.class, "gamma of kernel function (0 = 1 / number of features)");
+        public final Option<Double> coef0 = new Option<>("coef0", 0.0, Double.class, "coef0 of kernel function");
+        public final Option<Double> nu = new Option<>("nu", 0.5, Double.class, "nu in nu-SVC");
+        public final Option<Double> C = new Option<>("C", 1.0, Double.class, "cost in C-SVC");
+        public final Option<Double> eps = new Option<>("eps", 0.001, Double.class, "tolerance of termination criterion");
+        public final Option<Double> p = new Option<>("p", 0.1, Double.class, "epsilon in loss function of epsilon-SVR");
+        public final Option<Integer> shrink = new Option<>("shrink", 1, Integer.class, "whether to use the shrinking heuristics (0=false, 1=true)");
+
         private Options() {
             addOptions();
         }
@@ -36,6 +36,7 @@ import org.xmlpull.v1.XmlPullParser;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -131,7 +132,18 @@ public class TFLite extends Model {
             interpreterOptions.setNumThreads(Runtime.getRuntime().availableProcessors());
         }
 
-        modelInterpreter = new Interpreter(file, interpreterOptions);
+        if (useCache()) {
+            try {
+                // Interpreter reads the weights straight from the shared memory-mapped model
+                modelInterpreter = new Interpreter(ModelCache.getInstance().map(file), interpreterOptions);
+            } catch (IOException e) {
+                Log.w("could not map model file " + file.getName() + ", loading without cache", e);
+            }
+        }
+
+        if (modelInterpreter == null) {
+            modelInterpreter = new Interpreter(file, interpreterOptions);
+        }
 
         isTrained = true;
     }
@@ -34,6 +34,7 @@ import org.tensorflow.lite.gpu.CompatibilityList;
 import org.tensorflow.lite.gpu.GpuDelegate;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Map;
 
@@ -54,8 +55,19 @@ public class TFLiteWrapper {
 
     private final boolean useGPU;
 
+    // Share the memory-mapped model through the model cache
+    private final boolean useCache;
+
+    // Current size of the first input dimension
+    private int batchSize;
+
     public TFLiteWrapper(boolean useGPU) {
+        this(useGPU, true);
+    }
+
+    public TFLiteWrapper(boolean useGPU, boolean useCache) {
         this.useGPU = useGPU;
+        this.useCache = useCache;
     }
 
     public Interpreter.Options getInterpreterOptions() {
@@ -82,7 +94,24 @@ public class TFLiteWrapper {
     }
 
     public void loadModel(File modelFile, Interpreter.Options interpreterOptions) {
-        modelInterpreter = new Interpreter(modelFile, interpreterOptions);
+        Interpreter interpreter = null;
+
+        if (useCache) {
+            try {
+                // Memory-mapped models are kept in the model cache and shared between pipeline runs
+                interpreter = new Interpreter(ModelCache.getInstance().map(modelFile), interpreterOptions);
+            } catch (IOException e) {
+                Log.w("could not map model file " + modelFile.getName() + ", loading without cache", e);
+            }
+        }
+
+        if (interpreter == null) {
+            interpreter = new Interpreter(modelFile, interpreterOptions);
+        }
+
+        modelInterpreter = interpreter;
+
+        batchSize = modelInterpreter.getInputTensor(0).shape()[0];
     }
 
     public void loadModel(File modelFile) {
@@ -111,6 +140,61 @@ public class TFLiteWrapper {
         }
     }
 
+    /**
+     * Changes the first dimension of all model inputs, e.g. to run inference for several subjects in one call.
+     * Only succeeds if every output follows the new batch size, models which reshape to a fixed batch are rejected.
+     *
+     * @param batchSize number of samples per inference call
+     * @return false if the model does not support the batch size, the previous batch size is kept in this case
+     */
+    public boolean resizeBatch(int batchSize) {
+        if (modelInterpreter == null) {
+            return false;
+        }
+
+        if (batchSize == this.batchSize) {
+            return true;
+        }
+
+        int previousBatchSize = this.batchSize;
+
+        try {
+            setBatchSize(batchSize);
+
+            for (int i = 0; i < modelInterpreter.getOutputTensorCount(); i++) {
+                if (modelInterpreter.getOutputTensor(i).shape()[0] != batchSize) {
+                    throw new IllegalArgumentException("output " + i + " has a fixed batch size");
+                }
+            }
+
+            return true;
+        } catch (Exception e) {
+            Log.w("Model does not support batch size " + batchSize + ": " + e.getMessage());
+
+            try {
+                setBatchSize(previousBatchSize);
+            } catch (Exception ex) {
+                Log.e("Error while restoring batch size " + previousBatchSize, ex);
+            }
+
+            return false;
+        }
+    }
+
+    private void setBatchSize(int batchSize) {
+        for (int i = 0; i < modelInterpreter.getInputTensorCount(); i++) {
+            // Copy, the tensor returns its internal shape array
+            int[] shape = modelInterpreter.getInputTensor(i).shape().clone();
+            shape[0] = batchSize;
+
+            modelInterpreter.resizeInput(i, shape);
+        }
+
+        modelInterpreter.allocateTensors();
+
+        this.batchSize = batchSize;
+    }
+
     public void convertBitmapToInputArray(Bitmap inputBitmap, int[] inputArray, ByteBuffer imgData) {
         convertBitmapToInputArray(inputBitmap, inputArray, imgData, 127.5f, 127.5f);
     }
@@ -0,0 +1,52 @@
+/*
+ * TrainingSet.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ml;
+
+import hcm.ssj.core.stream.Stream;
+
+/**
+ * Container for training samples or sufficient statistics which can be filled independently
+ * of a model (e.g. on a worker thread) and is merged into the model afterwards.
+ */
+public interface TrainingSet {
+
+    /**
+     * Adds a range of samples to the training set
+     *
+     * @param stream data from where to extract the samples
+     * @param from   index of the first sample
+     * @param to     index after the last sample
+     * @param label  the label of the data, should match one of the model's classes
+     */
+    void add(Stream stream, int from, int to, String label);
+
+    /**
+     * @return number of samples added so far
+     */
+    int size();
+}
@@ -0,0 +1,181 @@
+/*
+ * DetectionBuffer.java
+ * Copyright (c) 2021
+ * Authors: Ionut Damian, Michael Dietz, Frank Gaibler, Daniel Langerenken, Simon Flutura,
+ * Vitalijs Krumins, Antonio Grieco
+ * *****************************************************
+ * This file is part of the Social Signal Interpretation for Java (SSJ) framework
+ * developed at the Lab for Human Centered Multimedia of the University of Augsburg.
+ *
+ * SSJ has been inspired by the SSI (http://openssi.net) framework. SSJ is not a
+ * one-to-one port of SSI to Java, it is an approximation. Nor does SSJ pretend
+ * to offer SSI's comprehensive functionality and performance (this is java after all).
+ * Nevertheless, SSJ borrows a lot of programming patterns from SSI.
+ *
+ * This library is free software; you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 3 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+package hcm.ssj.ssd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detections stored as primitive arrays (one array per field) with a fixed capacity.<br>
+ * Buffers are reused between frames, {@link #get(int)} and {@link #copyTo(int, Detection)}
+ * convert single entries to the {@link Detection} representation.
+ */
+public class DetectionBuffer {
+    public final int capacity;
+    public final int numKeypoints;
+
+    public final int[] id;
+    public final float[] yMin;
+    public final float[] xMin;
+    public final float[] width;
+    public final float[] height;
+    public final float[] score;
+    public final int[] classId;
+    // x and y of all keypoints of a detection, i.e. keypoints[(index * numKeypoints + keypointId) * 2]
+    public final float[] keypoints;
+
+    private int size = 0;
+
+    public DetectionBuffer(int capacity, int numKeypoints) {
+        this.capacity = capacity;
+        this.numKeypoints = numKeypoints;
+
+        id = new int[capacity];
+        yMin = new float[capacity];
+        xMin = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        score = new float[capacity];
+        classId = new int[capacity];
+        keypoints = new float[capacity * numKeypoints * 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a detection of another buffer
+     */
+    public void add(DetectionBuffer src, int index) {
+        id[size] = src.id[index];
+        yMin[size] = src.yMin[index];
+        xMin[size] = src.xMin[index];
+        width[size] = src.width[index];
+        height[size] = src.height[index];
+        score[size] = src.score[index];
+        classId[size] = src.classId[index];
+        System.arraycopy(src.keypoints, index * numKeypoints * 2, keypoints, size * numKeypoints * 2, numKeypoints * 2);
+
+        size++;
+    }
+
+    /**
+     * Reserves the next entry, fields have to be set by the caller
+     *
+     * @return index of the entry
+     */
+    int append() {
+        return size++;
+    }
+
+    public float getArea(int index) {
+        return width[index] * height[index];
+    }
+
+    /**
+     * Same as {@link Detection#getOverlap(Detection)}
+     */
+    public float getOverlap(int index, int other) {
+        float overlap = 0;
+
+        // Get top left coordinate of overlapping area
+        float overlapX1 = Math.max(xMin[index], xMin[other]);
+        float overlapY1 = Math.max(yMin[index], yMin[other]);
+
+        // Get bottom right coordinate of overlapping area
+        float overlapX2 = Math.min(xMin[index] + width[index], xMin[other] + width[other]);
+        float overlapY2 = Math.min(yMin[index] + height[index], yMin[other] + height[other]);
+
+        float overlapWidth = Math.max(0, overlapX2 - overlapX1);
+        float overlapHeight = Math.max(0, overlapY2 - overlapY1);
+
+        float overlapArea = overlapWidth * overlapHeight;
+
+        if (overlapArea > 0) {
+            // Overlap value is calculated by dividing the intersection through the total area
+            overlap = overlapArea / (getArea(index) + getArea(other) - overlapArea);
+        }
+
+        return overlap;
+    }
+
+    /**
+     * Converts an entry to a new detection object
+     */
+    public Detection get(int index) {
+        Detection detection = new Detection();
+        copyTo(index, detection);
+
+        return detection;
+    }
+
+    /**
+     * Copies an entry into an existing detection, its keypoint objects are reused if possible
+     */
+    public void copyTo(int index, Detection detection) {
+        detection.id = id[index];
+        detection.yMin = yMin[index];
+        detection.xMin = xMin[index];
+        detection.width = width[index];
+        detection.height = height[index];
+        detection.score = score[index];
+        detection.classId = classId[index];
+
+        if (detection.keypoints.size() != numKeypoints) {
+            detection.keypoints.clear();
+
+            for (int k = 0; k < numKeypoints; k++) {
+                detection.keypoints.add(new Keypoint());
+            }
+        }
+
+        for (int k = 0, offset = index * numKeypoints * 2; k < numKeypoints; k++, offset += 2) {
+            Keypoint keypoint = detection.keypoints.get(k);
+            keypoint.x = keypoints[offset];
+            keypoint.y = keypoints[offset + 1];
+        }
+    }
+
+    /**
+     * @return new list with all entries as detection objects
+     */
+    public List<Detection> toList() {
+        List<Detection> detections = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            detections.add(get(i));
+        }
+
+        return detections;
+    }
+}
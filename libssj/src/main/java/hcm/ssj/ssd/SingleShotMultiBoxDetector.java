@@ -27,22 +27,35 @@
 
 package hcm.ssj.ssd;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 import hcm.ssj.core.Log;
 
 /**
  * Created by Michael Dietz on 07.11.2019.
+ * <p>
+ * Anchors, candidates and results are kept in primitive arrays which are allocated once.
+ * Boxes whose raw score can not reach the score threshold are skipped before any sigmoid or
+ * box decoding, and non-maximum suppression repeatedly selects the best remaining candidate
+ * instead of sorting all of them.
  */
 public class SingleShotMultiBoxDetector {
     private final AnchorOptions anchorOptions;
     private final CalculatorOptions calculatorOptions;
 
-    private final List<Anchor> anchorList;
-    private final Comparator<Detection> detectionComparator;
+    private float[] anchorX;
+    private float[] anchorY;
+    private float[] anchorWidth;
+    private float[] anchorHeight;
+    private int numAnchors;
+
+    // Raw scores below this value stay below the score threshold
+    private final double rawScoreThresh;
+
+    private final DetectionBuffer candidates;
+    private final DetectionBuffer results;
+    private final boolean[] suppressed;
 
     public SingleShotMultiBoxDetector() {
         this(new AnchorOptions(), new CalculatorOptions());
@@ -60,13 +73,13 @@ public class SingleShotMultiBoxDetector {
         this.anchorOptions = anchorOptions;
         this.calculatorOptions = calculatorOptions;
 
-        anchorList = getAnchors();
-        detectionComparator = new Comparator<Detection>() {
-            @Override
-            public int compare(Detection d1, Detection d2) {
-                return Float.compare(d1.score, d2.score);
-            }
-        };
+        calculateAnchors();
+
+        rawScoreThresh = getRawScoreThreshold();
+
+        candidates = new DetectionBuffer(calculatorOptions.numBoxes, calculatorOptions.numKeypoints);
+        results = new DetectionBuffer(calculatorOptions.numBoxes, calculatorOptions.numKeypoints);
+        suppressed = new boolean[calculatorOptions.numBoxes];
     }
 
     private float calculateScale(float minScale, float maxScale, float strideIndex, int numStrides) {
@@ -76,24 +89,31 @@ public class SingleShotMultiBoxDetector {
     /**
      * Calculates anchors.
      *
-     * @return
      * @link https://github.com/google/mediapipe/blob/master/mediapipe/calculators/tflite/ssd_anchors_calculator.cc
      */
-    private List<Anchor> getAnchors() {
-        List<Anchor> anchors = new ArrayList<>();
+    private void calculateAnchors() {
+        anchorX = new float[0];
+        anchorY = new float[0];
+        anchorWidth = new float[0];
+        anchorHeight = new float[0];
+        numAnchors = 0;
 
         if (anchorOptions.strides.length != anchorOptions.numLayers) {
             Log.e("Stride count and numLayers must be equal!");
-            return anchors;
+            return;
         }
 
+        // Upper bound of anchors per location: all aspect ratios plus the interpolated one for each merged layer
+        final int maxAnchorsPerLocation = anchorOptions.strides.length * Math.max(3, anchorOptions.aspectRatios.length + 1);
+        float[] layerAnchorHeight = new float[maxAnchorsPerLocation];
+        float[] layerAnchorWidth = new float[maxAnchorsPerLocation];
+        float[] aspectRatios = new float[maxAnchorsPerLocation];
+        float[] scales = new float[maxAnchorsPerLocation];
+
         int layerId = 0;
 
         while (layerId < anchorOptions.strides.length) {
-            List<Float> anchorHeight = new ArrayList<>();
-            List<Float> anchorWidth = new ArrayList<>();
-            List<Float> aspectRatios = new ArrayList<>();
-            List<Float> scales = new ArrayList<>();
+            int anchorsPerLocation = 0;
 
             // For same strides, we merge the anchors in the same order.
             int lastSameStrideLayer = layerId;
@@ -102,32 +122,32 @@ public class SingleShotMultiBoxDetector {
 
                 if (lastSameStrideLayer == 0 && anchorOptions.reduceBoxesInLowestLayer) {
                     // For first layer, it can be specified to use predefined anchors.
-                    aspectRatios.add(1.0f);
-                    aspectRatios.add(2.0f);
-                    aspectRatios.add(0.5f);
-                    scales.add(0.1f);
-                    scales.add(scale);
-                    scales.add(scale);
+                    aspectRatios[anchorsPerLocation] = 1.0f;
+                    scales[anchorsPerLocation++] = 0.1f;
+                    aspectRatios[anchorsPerLocation] = 2.0f;
+                    scales[anchorsPerLocation++] = scale;
+                    aspectRatios[anchorsPerLocation] = 0.5f;
+                    scales[anchorsPerLocation++] = scale;
                 } else {
                     for (int aspectRatioId = 0; aspectRatioId < anchorOptions.aspectRatios.length; aspectRatioId++) {
-                        aspectRatios.add(anchorOptions.aspectRatios[aspectRatioId]);
-                        scales.add(scale);
+                        aspectRatios[anchorsPerLocation] = anchorOptions.aspectRatios[aspectRatioId];
+                        scales[anchorsPerLocation++] = scale;
                     }
 
                     if (anchorOptions.interpolatedScaleAspectRatio > 0.0f) {
                         final float scaleNext = lastSameStrideLayer == anchorOptions.strides.length - 1 ? 1.0f : calculateScale(anchorOptions.minScale, anchorOptions.maxScale, lastSameStrideLayer + 1, anchorOptions.strides.length);
 
-                        aspectRatios.add(anchorOptions.interpolatedScaleAspectRatio);
-                        scales.add((float) Math.sqrt(scale * scaleNext));
+                        aspectRatios[anchorsPerLocation] = anchorOptions.interpolatedScaleAspectRatio;
+                        scales[anchorsPerLocation++] = (float) Math.sqrt(scale * scaleNext);
                     }
                 }
                 lastSameStrideLayer += 1;
             }
 
-            for (int i = 0; i < aspectRatios.size(); i++) {
-                final float ratioSqrts = (float) Math.sqrt(aspectRatios.get(i));
-                anchorHeight.add(scales.get(i) / ratioSqrts);
-                anchorWidth.add(scales.get(i) * ratioSqrts);
+            for (int i = 0; i < anchorsPerLocation; i++) {
+                final float ratioSqrts = (float) Math.sqrt(aspectRatios[i]);
+                layerAnchorHeight[i] = scales[i] / ratioSqrts;
+                layerAnchorWidth[i] = scales[i] * ratioSqrts;
             }
 
             int stride = anchorOptions.strides[layerId];
@@ -139,40 +159,85 @@ public class SingleShotMultiBoxDetector {
                 featureMapWidth = anchorOptions.featureMapWidth[layerId];
             }
 
+            ensureAnchorCapacity(numAnchors + featureMapHeight * featureMapWidth * anchorsPerLocation);
+
             for (int y = 0; y < featureMapHeight; y++) {
                 for (int x = 0; x < featureMapWidth; x++) {
-                    for (int anchorId = 0; anchorId < anchorHeight.size(); anchorId++) {
-                        final float xCenter = (x + anchorOptions.anchorOffsetX) * 1.0f / featureMapWidth;
-                        final float yCenter = (y + anchorOptions.anchorOffsetY) * 1.0f / featureMapHeight;
-
-                        Anchor anchor = new Anchor();
-
-                        anchor.xCenter = xCenter;
-                        anchor.yCenter = yCenter;
+                    for (int anchorId = 0; anchorId < anchorsPerLocation; anchorId++) {
+                        anchorX[numAnchors] = (x + anchorOptions.anchorOffsetX) * 1.0f / featureMapWidth;
+                        anchorY[numAnchors] = (y + anchorOptions.anchorOffsetY) * 1.0f / featureMapHeight;
 
                         if (anchorOptions.fixedAnchorSize) {
-                            anchor.width = 1.0f;
-                            anchor.height = 1.0f;
+                            anchorWidth[numAnchors] = 1.0f;
+                            anchorHeight[numAnchors] = 1.0f;
                         } else {
-                            anchor.width = anchorWidth.get(anchorId);
-                            anchor.height = anchorHeight.get(anchorId);
+                            anchorWidth[numAnchors] = layerAnchorWidth[anchorId];
+                            anchorHeight[numAnchors] = layerAnchorHeight[anchorId];
                         }
 
-                        anchors.add(anchor);
+                        numAnchors++;
                     }
                 }
             }
 
             layerId = lastSameStrideLayer;
         }
+    }
 
-        return anchors;
+    private void ensureAnchorCapacity(int capacity) {
+        if (anchorX.length < capacity) {
+            anchorX = Arrays.copyOf(anchorX, capacity);
+            anchorY = Arrays.copyOf(anchorY, capacity);
+            anchorWidth = Arrays.copyOf(anchorWidth, capacity);
+            anchorHeight = Arrays.copyOf(anchorHeight, capacity);
+        }
     }
 
+    /**
+     * The sigmoid is monotonic, so the score threshold can be checked on the raw model output.
+     * The exact score of the remaining boxes is calculated like before.
+     */
+    private double getRawScoreThreshold() {
+        final double thresh = calculatorOptions.minScoreThresh;
+
+        if (!calculatorOptions.sigmoidScore) {
+            return thresh;
+        }
+
+        if (thresh <= 0 || thresh >= 1) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        // Small margin for rounding differences between both formulations
+        final double rawThresh = Math.log(thresh / (1.0 - thresh)) - 1e-4;
+
+        // Clipped scores may pass although the raw score does not
+        if (calculatorOptions.scoreClippingThresh > 0 && rawThresh <= -calculatorOptions.scoreClippingThresh) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        return rawThresh;
+    }
+
+    /**
+     * Decodes and filters the model output and returns the result as detection objects.
+     *
+     * @see #detect(float[][][], float[][][])
+     */
     public List<Detection> process(final float[][][] rawBoxes, final float[][][] rawScores) {
-        List<Detection> detections = new ArrayList<>();
+        return detect(rawBoxes, rawScores).toList();
+    }
 
-        int candidateIndex = 0;
+    /**
+     * Decodes and filters the model output without allocating memory.
+     *
+     * @param rawBoxes  box output of the model [1][numBoxes][numCoords]
+     * @param rawScores score output of the model [1][numBoxes][numClasses]
+     * @return detections ordered as by {@link #process}, the buffer is reused by the next call
+     */
+    public DetectionBuffer detect(final float[][][] rawBoxes, final float[][][] rawScores) {
+        candidates.clear();
+        results.clear();
 
         int highestScoreIndex = -1;
         int largestAreaIndex = -1;
@@ -182,12 +247,24 @@ public class SingleShotMultiBoxDetector {
 
         // Filter scores
         for (int boxIndex = 0; boxIndex < calculatorOptions.numBoxes; boxIndex++) {
+            final float[] boxScores = rawScores[0][boxIndex];
+
+            // Skip boxes which can not reach the threshold in any class
+            float maxRawScore = boxScores[0];
+            for (int classIndex = 1; classIndex < calculatorOptions.numClasses; classIndex++) {
+                maxRawScore = Math.max(maxRawScore, boxScores[classIndex]);
+            }
+
+            if (maxRawScore < rawScoreThresh) {
+                continue;
+            }
+
             double maxClassScore = Double.MIN_VALUE;
             int classId = -1;
 
             // Calculate max score across classes
             for (int classIndex = 0; classIndex < calculatorOptions.numClasses; classIndex++) {
-                double classScore = rawScores[0][boxIndex][classIndex];
+                double classScore = boxScores[classIndex];
 
                 if (calculatorOptions.sigmoidScore) {
                     if (calculatorOptions.scoreClippingThresh > 0) {
@@ -206,55 +283,52 @@ public class SingleShotMultiBoxDetector {
 
             if (maxClassScore >= calculatorOptions.minScoreThresh) {
                 // Box candidate detected
-                Detection detection = decodeBox(candidateIndex, anchorList.get(boxIndex), rawBoxes[0][boxIndex], (float) maxClassScore, classId);
+                final int candidateIndex = decodeBox(boxIndex, rawBoxes[0][boxIndex], (float) maxClassScore, classId);
 
                 // For filter purposes
-                double area = detection.width * detection.height;
+                double area = candidates.getArea(candidateIndex);
 
                 if (area > largestArea) {
                     largestArea = area;
                     largestAreaIndex = candidateIndex;
                 }
 
-                if (detection.score > highestScore) {
-                    highestScore = detection.score;
+                if (candidates.score[candidateIndex] > highestScore) {
+                    highestScore = candidates.score[candidateIndex];
                     highestScoreIndex = candidateIndex;
                 }
-
-                // Add detection to candidate list
-                detections.add(detection);
-                candidateIndex += 1;
             }
         }
 
-        if (detections.size() > 0) {
+        if (candidates.size() > 0) {
             switch (calculatorOptions.filterMethod) {
                 case HIGHEST_SCORE:
-                    Detection highestScoreDetection = detections.get(highestScoreIndex);
-                    detections.clear();
-                    detections.add(highestScoreDetection);
+                    results.add(candidates, Math.max(0, highestScoreIndex));
                     break;
                 case LARGEST_AREA:
-                    Detection largestAreaDetection = detections.get(largestAreaIndex);
-                    detections.clear();
-                    detections.add(largestAreaDetection);
+                    results.add(candidates, Math.max(0, largestAreaIndex));
                     break;
                 case NON_MAX_SUPPRESSION:
-                    detections = weightedNonMaxSuppression(detections);
+                    nonMaxSuppression();
                     break;
             }
         }
 
-        return detections;
+        return results;
     }
 
-    private Detection decodeBox(int id, Anchor anchor, final float[] rawBoxValues, float score, int classId) {
+    private int decodeBox(int anchorIndex, final float[] rawBoxValues, float score, int classId) {
         if (rawBoxValues.length != calculatorOptions.numCoords) {
             Log.e("rawBoxValues.length != calculatorOptions.numCoords");
         }
 
         final int boxOffset = calculatorOptions.boxCoordOffset;
 
+        final float anchorXCenter = anchorX[anchorIndex];
+        final float anchorYCenter = anchorY[anchorIndex];
+        final float anchorW = anchorWidth[anchorIndex];
+        final float anchorH = anchorHeight[anchorIndex];
+
         float yCenter = rawBoxValues[boxOffset];
         float xCenter = rawBoxValues[boxOffset + 1];
         float height = rawBoxValues[boxOffset + 2];
@@ -267,15 +341,15 @@ public class SingleShotMultiBoxDetector {
             height = rawBoxValues[boxOffset + 3];
         }
 
-        xCenter = xCenter / calculatorOptions.xScale * anchor.width + anchor.xCenter;
-        yCenter = yCenter / calculatorOptions.yScale * anchor.height + anchor.yCenter;
+        xCenter = xCenter / calculatorOptions.xScale * anchorW + anchorXCenter;
+        yCenter = yCenter / calculatorOptions.yScale * anchorH + anchorYCenter;
 
         if (calculatorOptions.applyExponentialOnBoxSize) {
-            height = (float) (Math.exp(height / calculatorOptions.hScale) * anchor.height);
-            width = (float) (Math.exp(width / calculatorOptions.wScale) * anchor.width);
+            height = (float) (Math.exp(height / calculatorOptions.hScale) * anchorH);
+            width = (float) (Math.exp(width / calculatorOptions.wScale) * anchorW);
         } else {
-            height = height / calculatorOptions.hScale * anchor.height;
-            width = width / calculatorOptions.wScale * anchor.width;
+            height = height / calculatorOptions.hScale * anchorH;
+            width = width / calculatorOptions.wScale * anchorW;
         }
 
         final float yMin = yCenter - (height / 2.0f);
@@ -283,75 +357,68 @@ public class SingleShotMultiBoxDetector {
         final float yMax = yCenter + (height / 2.0f);
         final float xMax = xCenter + (width / 2.0f);
 
-        Detection detection = new Detection();
-        detection.id = id;
-        detection.yMin = calculatorOptions.flipVertically ? 1.0f - yMax : yMin;
-        detection.xMin = xMin;
-        detection.width = xMax - xMin;
-        detection.height = yMax - yMin;
-        detection.score = score;
-        detection.classId = classId;
+        final int index = candidates.append();
 
-        if (calculatorOptions.numKeypoints > 0) {
-            List<Keypoint> keypoints = new ArrayList<>();
+        candidates.id[index] = index;
+        candidates.yMin[index] = calculatorOptions.flipVertically ? 1.0f - yMax : yMin;
+        candidates.xMin[index] = xMin;
+        candidates.width[index] = xMax - xMin;
+        candidates.height[index] = yMax - yMin;
+        candidates.score[index] = score;
+        candidates.classId[index] = classId;
 
-            for (int keypointId = 0; keypointId < calculatorOptions.numKeypoints; keypointId++) {
-                final int keypointOffset = boxOffset + calculatorOptions.keypointCoordOffset + keypointId * calculatorOptions.numValuesPerKeypoint;
+        for (int keypointId = 0, k = index * calculatorOptions.numKeypoints * 2; keypointId < calculatorOptions.numKeypoints; keypointId++, k += 2) {
+            final int keypointOffset = boxOffset + calculatorOptions.keypointCoordOffset + keypointId * calculatorOptions.numValuesPerKeypoint;
 
-                float keypointY = rawBoxValues[keypointOffset];
-                float keypointX = rawBoxValues[keypointOffset + 1];
+            float keypointY = rawBoxValues[keypointOffset];
+            float keypointX = rawBoxValues[keypointOffset + 1];
 
-                if (calculatorOptions.reverseOutputOrder) {
-                    keypointX = rawBoxValues[keypointOffset];
-                    keypointY = rawBoxValues[keypointOffset + 1];
-                }
-
-                keypointX = keypointX / calculatorOptions.xScale * anchor.width + anchor.xCenter;
-                keypointY = keypointY / calculatorOptions.yScale * anchor.height + anchor.yCenter;
-
-                Keypoint keypoint = new Keypoint();
-                keypoint.x = keypointX;
-                keypoint.y = calculatorOptions.flipVertically ? 1.0f - keypointY : keypointY;
-
-                keypoints.add(keypoint);
+            if (calculatorOptions.reverseOutputOrder) {
+                keypointX = rawBoxValues[keypointOffset];
+                keypointY = rawBoxValues[keypointOffset + 1];
             }
 
-            detection.keypoints = keypoints;
+            keypointX = keypointX / calculatorOptions.xScale * anchorW + anchorXCenter;
+            keypointY = keypointY / calculatorOptions.yScale * anchorH + anchorYCenter;
+
+            candidates.keypoints[k] = keypointX;
+            candidates.keypoints[k + 1] = calculatorOptions.flipVertically ? 1.0f - keypointY : keypointY;
         }
 
-        return detection;
+        return index;
     }
 
-    private List<Detection> weightedNonMaxSuppression(List<Detection> detections) {
-        List<Detection> remaining = new ArrayList<>(detections);
-        List<Detection> picked = new ArrayList<>();
-        List<Detection> suppressed = new ArrayList<>();
+    /**
+     * Picks the remaining candidate with the highest score (the later one on equal scores)
+     * and suppresses all remaining candidates which overlap it by more than the threshold.
+     */
+    private void nonMaxSuppression() {
+        final int count = candidates.size();
+        int remaining = count;
+
+        Arrays.fill(suppressed, 0, count, false);
 
-        // Sort list by score ascending
-        Collections.sort(remaining, detectionComparator);
+        while (remaining > 0) {
+            int pick = -1;
 
-        int lastIndex;
-        Detection pick;
-        while (!remaining.isEmpty()) {
-            // Move last element (with highest score) into picked list
-            lastIndex = remaining.size() - 1;
+            for (int i = 0; i < count; i++) {
+                if (!suppressed[i] && (pick < 0 || candidates.score[i] >= candidates.score[pick])) {
+                    pick = i;
+                }
+            }
 
-            pick = remaining.get(lastIndex);
-            picked.add(pick);
-            remaining.remove(pick);
+            results.add(candidates, pick);
+            suppressed[pick] = true;
+            remaining--;
 
             // Compare overlap with all remaining detections
-            for (Detection remainingDetection : remaining) {
+            for (int i = 0; i < count; i++) {
                 // Remove detection if overlap with pick is bigger than threshold
-                if (pick.getOverlap(remainingDetection) > calculatorOptions.nmsThreshold) {
-                    suppressed.add(remainingDetection);
+                if (!suppressed[i] && candidates.getOverlap(pick, i) > calculatorOptions.nmsThreshold) {
+                    suppressed[i] = true;
+                    remaining--;
                 }
             }
-
-            remaining.removeAll(suppressed);
-            suppressed.clear();
         }
-
-        return picked;
     }
 }
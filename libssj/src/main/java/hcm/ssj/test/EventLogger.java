@@ -30,7 +30,7 @@ package hcm.ssj.test;
 import java.util.Arrays;
 import java.util.Map;
 
-import hcm.ssj.core.EventChannel;
+import hcm.ssj.core.Cons;
 import hcm.ssj.core.EventHandler;
 import hcm.ssj.core.Log;
 import hcm.ssj.core.SSJFatalException;
@@ -42,7 +42,7 @@ import hcm.ssj.core.option.OptionList;
  */
 public class EventLogger extends EventHandler {
     public final Options options = new Options();
-    int _lastBehavEventID;
+    int[] _evID;
 
     public EventLogger() {
         _name = "EventLogger";
@@ -57,64 +57,69 @@ public class EventLogger extends EventHandler {
 
     @Override
     public void enter() throws SSJFatalException {
-        _lastBehavEventID = -1;
-
         if (_evchannel_in == null || _evchannel_in.size() == 0) {
             throw new RuntimeException("no input channels");
         }
+
+        _evID = new int[_evchannel_in.size()];
     }
 
     @Override
     protected void process() throws SSJFatalException {
-        for (EventChannel ch : _evchannel_in) {
-            Event ev = ch.getEvent(_lastBehavEventID + 1, true);
-            if (ev == null) {
-                return;
-            }
+        if (!waitForEvents(Cons.SLEEP_ON_COMPONENT_IDLE)) {
+            return;
+        }
 
-            _lastBehavEventID = ev.id;
-
-            String msg = "";
-            switch (ev.type) {
-                case BYTE:
-                    msg = Arrays.toString(ev.ptrB());
-                    break;
-                case CHAR:
-                    msg = ev.ptrStr();
-                    break;
-                case STRING:
-                    msg = ev.ptrStr();
-                    break;
-                case SHORT:
-                    msg = Arrays.toString(ev.ptrShort());
-                    break;
-                case INT:
-                    msg = Arrays.toString(ev.ptrI());
-                    break;
-                case LONG:
-                    msg = Arrays.toString(ev.ptrL());
-                    break;
-                case FLOAT:
-                    msg = Arrays.toString(ev.ptrF());
-                    break;
-                case DOUBLE:
-                    msg = Arrays.toString(ev.ptrD());
-                    break;
-                case BOOL:
-                    msg = Arrays.toString(ev.ptrBool());
-                    break;
-                case MAP:
-                    Map<String, String> map = ev.ptrMap();
-
-                    for (String key : map.keySet()) {
-                        msg += key + "=" + map.get(key) + " ";
-                    }
-
-                    break;
+        for (int i = 0; i < _evchannel_in.size(); i++) {
+            Event ev;
+            while ((ev = _evchannel_in.get(i).getEvent(_evID[i], false)) != null) {
+                _evID[i] = ev.id + 1;
+                log(ev);
             }
+        }
+    }
 
-            Log.i(ev.sender + "_" + ev.name + "_" + ev.id + " (" + ev.state.toString() + ", " + ev.time + ", " + ev.dur + ") : " + msg);
+    private void log(Event ev) {
+        String msg = "";
+        switch (ev.type) {
+            case BYTE:
+                msg = Arrays.toString(ev.ptrB());
+                break;
+            case CHAR:
+                msg = ev.ptrStr();
+                break;
+            case STRING:
+                msg = ev.ptrStr();
+                break;
+            case SHORT:
+                msg = Arrays.toString(ev.ptrShort());
+                break;
+            case INT:
+                msg = Arrays.toString(ev.ptrI());
+                break;
+            case LONG:
+                msg = Arrays.toString(ev.ptrL());
+                break;
+            case FLOAT:
+                msg = Arrays.toString(ev.ptrF());
+                break;
+            case DOUBLE:
+                msg = Arrays.toString(ev.ptrD());
+                break;
+            case BOOL:
+                msg = Arrays.toString(ev.ptrBool());
+                break;
+            case MAP:
+                Map<String, String> map = ev.ptrMap();
+
+                for (String key : map.keySet()) {
+                    msg += key + "=" + map.get(key) + " ";
+                }
+
+                break;
         }
+
+        Log.i(ev.sender + "_" + ev.name + "_" + ev.id + " (" + ev.state.toString() + ", " + ev.time + ", " + ev.dur + ") : " + msg);
     }
 
     @Override